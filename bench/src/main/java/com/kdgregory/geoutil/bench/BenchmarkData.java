@@ -0,0 +1,139 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.gpx.GpxFile;
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.gpx.model.TrackSegment;
+import com.kdgregory.geoutil.lib.kml.KmlFile;
+import com.kdgregory.geoutil.lib.kml.model.Document;
+import com.kdgregory.geoutil.lib.kml.model.LineString;
+import com.kdgregory.geoutil.lib.kml.model.Placemark;
+
+
+/**
+ *  Generates repeatable test data for the benchmarks.
+ */
+public class BenchmarkData
+{
+    // points are recorded every second, with a longer gap every 1,000 points
+    private final static long POINT_INTERVAL = 1000;
+    private final static long GAP_INTERVAL = 10 * 60 * 1000;
+
+    private final static long START_TIMESTAMP = 1577836800000L;
+
+
+    /**
+     *  Returns a random walk with the specified number of points, starting in
+     *  Philadelphia and moving a few meters between points. Values are rounded to
+     *  the precision recorded by a typical GPS device. The same size always
+     *  produces the same points.
+     */
+    public static List<Point> randomWalk(int size)
+    {
+        Random rnd = new Random(size);
+        List<Point> result = new ArrayList<>(size);
+
+        double lat = 39.95237;
+        double lon = -75.16358;
+        double elevation = 10.0;
+        long timestamp = START_TIMESTAMP;
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            result.add(new Point(round(lat, 1e6), round(lon, 1e6), round(elevation, 1e2), timestamp));
+            lat += (rnd.nextDouble() - 0.4) * 0.0001;
+            lon += (rnd.nextDouble() - 0.4) * 0.0001;
+            elevation += rnd.nextDouble() - 0.5;
+            timestamp += ((ii % 1000) == 999) ? GAP_INTERVAL : POINT_INTERVAL;
+        }
+        return result;
+    }
+
+
+    /**
+     *  Returns a copy of the passed points, moved slightly north-east. This is
+     *  used to produce a second recording of the same route.
+     */
+    public static List<Point> offset(List<Point> points)
+    {
+        List<Point> result = new ArrayList<>(points.size());
+        for (Point p : points)
+        {
+            result.add(new Point(p.getLat() + 0.00002, p.getLon() + 0.00002, p.getElevation(), p.getTimestamp()));
+        }
+        return result;
+    }
+
+
+    /**
+     *  Returns a GPX file containing a single track with a random walk.
+     */
+    public static GpxFile gpxFile(int size)
+    {
+        TrackSegment segment = new TrackSegment();
+        for (Point p : randomWalk(size))
+        {
+            segment.add(new GpxPoint(p.getLat(), p.getLon())
+                        .setElevation(p.getElevation())
+                        .setTimestamp(p.getTimestamp()));
+        }
+
+        GpxFile file = new GpxFile().setCreator("geoutil-bench");
+        file.addTrack(new Track().setName("random walk").addSegment(segment));
+        return file;
+    }
+
+
+    /**
+     *  Returns a KML file containing a single placemark with a random walk.
+     */
+    public static KmlFile kmlFile(int size)
+    {
+        Placemark placemark = new Placemark()
+                              .setName("random walk")
+                              .setGeometry(new LineString(randomWalk(size)));
+        return new KmlFile().addFeature(new Document().addFeature(placemark));
+    }
+
+
+    /**
+     *  Rounds a value to the specified number of decimal places, expressed as a
+     *  power of ten.
+     */
+    private static double round(double value, double scale)
+    {
+        return Math.round(value * scale) / scale;
+    }
+
+
+    /**
+     *  Creates a temporary file that will be deleted on exit.
+     */
+    public static File tempFile(String suffix)
+    throws IOException
+    {
+        File file = File.createTempFile("geoutil-bench-", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+}
@@ -0,0 +1,40 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ *  Entry point for the benchmarks jar. Accepts the standard JMH command-line
+ *  options (such as a regex selecting the benchmarks to run), and always adds
+ *  the GC profiler so that allocation rates are reported along with timings.
+ */
+public class BenchmarkRunner
+{
+    public static void main(String[] argv)
+    throws Exception
+    {
+        CommandLineOptions cmdLineOptions = new CommandLineOptions(argv);
+        new Runner(new OptionsBuilder()
+                   .parent(cmdLineOptions)
+                   .addProfiler(GCProfiler.class)
+                   .build())
+            .run();
+    }
+}
@@ -0,0 +1,78 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.PointArray;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateTokenizer;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.Coordinates;
+
+
+/**
+ *  Benchmarks for converting KML coordinate lists to and from strings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordinatesBenchmark
+{
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private List<Coordinates> coordinates;
+    private String coordinateString;
+
+
+    @Setup
+    public void setup()
+    {
+        coordinates = new ArrayList<>(size);
+        for (Point p : BenchmarkData.randomWalk(size))
+        {
+            coordinates.add(new Coordinates(p));
+        }
+        coordinateString = Coordinates.stringify(coordinates);
+    }
+
+
+    @Benchmark
+    public List<Coordinates> fromStringList()
+    {
+        return Coordinates.fromStringList(coordinateString);
+    }
+
+
+    @Benchmark
+    public PointArray tokenizeToPointArray()
+    {
+        return CoordinateTokenizer.parse(coordinateString);
+    }
+
+
+    @Benchmark
+    public String stringify()
+    {
+        return Coordinates.stringify(coordinates);
+    }
+}
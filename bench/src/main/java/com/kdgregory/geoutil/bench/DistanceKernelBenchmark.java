@@ -0,0 +1,97 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.PointUtil;
+
+
+/**
+ *  Compares the batch distance kernels in <code>PointUtil</code> with loops that
+ *  call the single-point calculation for each element.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceKernelBenchmark
+{
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private double[] lat;
+    private double[] lon;
+    private double[] out;
+
+
+    @Setup
+    public void setup()
+    {
+        List<Point> points = BenchmarkData.randomWalk(size);
+        lat = new double[size];
+        lon = new double[size];
+        out = new double[size];
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            lat[ii] = points.get(ii).getLat();
+            lon[ii] = points.get(ii).getLon();
+        }
+    }
+
+
+    @Benchmark
+    public double[] hopDistancesScalar()
+    {
+        for (int ii = 1 ; ii < size ; ii++)
+        {
+            out[ii - 1] = PointUtil.pythagoreanDistance(lat[ii - 1], lon[ii - 1], lat[ii], lon[ii]);
+        }
+        return out;
+    }
+
+
+    @Benchmark
+    public double[] hopDistances()
+    {
+        PointUtil.hopDistances(lat, lon, size, out);
+        return out;
+    }
+
+
+    @Benchmark
+    public double[] distancesScalar()
+    {
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            out[ii] = PointUtil.pythagoreanDistance(lat[0], lon[0], lat[ii], lon[ii]);
+        }
+        return out;
+    }
+
+
+    @Benchmark
+    public double[] distances()
+    {
+        PointUtil.distances(lat[0], lon[0], lat, lon, size, out);
+        return out;
+    }
+}
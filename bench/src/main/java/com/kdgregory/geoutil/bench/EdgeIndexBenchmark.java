@@ -0,0 +1,82 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.kdgregory.geoutil.lib.core.EdgeIndex;
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.SnapResult;
+
+
+/**
+ *  Benchmarks for building an <code>EdgeIndex</code> and snapping a second
+ *  recording of the same route onto it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EdgeIndexBenchmark
+{
+    @Param({"10000", "100000"})
+    public int size;
+
+    private List<Point> segment;
+    private List<Point> otherSegment;
+    private EdgeIndex index;
+
+
+    @Setup
+    public void setup()
+    {
+        segment = BenchmarkData.randomWalk(size);
+        otherSegment = BenchmarkData.offset(segment);
+        index = new EdgeIndex(segment);
+    }
+
+
+    @Benchmark
+    public EdgeIndex build()
+    {
+        return new EdgeIndex(segment);
+    }
+
+
+    @Benchmark
+    public SnapResult snap()
+    {
+        return index.snap(otherSegment.get(size / 3));
+    }
+
+
+    @Benchmark
+    public List<SnapResult> snapAll()
+    {
+        return index.snap(otherSegment);
+    }
+
+
+    @Benchmark
+    public List<SnapResult> snapAllParallel()
+    {
+        return index.snapParallel(otherSegment);
+    }
+}
@@ -0,0 +1,87 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.kdgregory.geoutil.lib.gpx.ColumnarTrack;
+import com.kdgregory.geoutil.lib.gpx.GpxFile;
+import com.kdgregory.geoutil.lib.gpx.GpxScanner;
+
+
+/**
+ *  Benchmarks for reading and writing GPX files. The file is generated once per
+ *  trial, and written to a temporary file for the read benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GpxFileBenchmark
+{
+    @Param({"1000", "100000"})
+    public int size;
+
+    private GpxFile gpxFile;
+    private File inputFile;
+    private File outputFile;
+
+
+    @Setup
+    public void setup()
+    throws Exception
+    {
+        gpxFile = BenchmarkData.gpxFile(size);
+        inputFile = BenchmarkData.tempFile(".gpx");
+        outputFile = BenchmarkData.tempFile(".gpx");
+        gpxFile.write(inputFile);
+    }
+
+
+    @TearDown
+    public void tearDown()
+    {
+        inputFile.delete();
+        outputFile.delete();
+    }
+
+
+    @Benchmark
+    public GpxFile read()
+    {
+        return new GpxFile(inputFile);
+    }
+
+
+    @Benchmark
+    public List<ColumnarTrack> scan()
+    {
+        return new GpxScanner().scan(inputFile);
+    }
+
+
+    @Benchmark
+    public File write()
+    {
+        gpxFile.write(outputFile);
+        return outputFile;
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import net.sf.practicalxml.ParseUtil;
+
+import com.kdgregory.geoutil.lib.kml.KmlFile;
+import com.kdgregory.geoutil.lib.kml.KmlReader;
+
+
+/**
+ *  Benchmarks for reading and writing KML files. The file is generated once per
+ *  trial, and written to a temporary file for the parse benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KmlFileBenchmark
+{
+    @Param({"1000", "100000"})
+    public int size;
+
+    private KmlFile kmlFile;
+    private File inputFile;
+    private File outputFile;
+
+
+    @Setup
+    public void setup()
+    throws Exception
+    {
+        kmlFile = BenchmarkData.kmlFile(size);
+        inputFile = BenchmarkData.tempFile(".kml");
+        outputFile = BenchmarkData.tempFile(".kml");
+        kmlFile.write(inputFile);
+    }
+
+
+    @TearDown
+    public void tearDown()
+    {
+        inputFile.delete();
+        outputFile.delete();
+    }
+
+
+    @Benchmark
+    public KmlFile parse()
+    {
+        return KmlFile.parse(inputFile);
+    }
+
+
+    @Benchmark
+    public KmlFile parseSkipStyles()
+    {
+        return new KmlReader().setSkipStyles(true).setSkipDescriptions(true).read(inputFile);
+    }
+
+
+    @Benchmark
+    public KmlFile parseDom()
+    {
+        return KmlFile.fromXml(ParseUtil.parse(inputFile));
+    }
+
+
+    @Benchmark
+    public File write()
+    {
+        kmlFile.write(outputFile);
+        return outputFile;
+    }
+}
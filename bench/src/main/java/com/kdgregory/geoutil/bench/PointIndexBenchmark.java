@@ -0,0 +1,109 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.PointArray;
+import com.kdgregory.geoutil.lib.core.PointIndex;
+import com.kdgregory.geoutil.lib.core.PointUtil;
+
+
+/**
+ *  Compares queries against a <code>PointIndex</code> with linear scans of the
+ *  same points. Each query is centered on a point partway through the track.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointIndexBenchmark
+{
+    @Param({"10000", "100000"})
+    public int size;
+
+    private PointArray points;
+    private PointIndex index;
+    private Point query;
+
+
+    @Setup
+    public void setup()
+    {
+        List<Point> walk = BenchmarkData.randomWalk(size);
+        points = new PointArray(walk);
+        index = new PointIndex(points);
+        query = walk.get(size / 3);
+    }
+
+
+    @Benchmark
+    public PointIndex build()
+    {
+        return new PointIndex(points);
+    }
+
+
+    @Benchmark
+    public int[] withinIndexed()
+    {
+        return index.within(query, 100);
+    }
+
+
+    @Benchmark
+    public List<Integer> withinScan()
+    {
+        List<Integer> result = new ArrayList<>();
+        for (int ii = 0 ; ii < points.size() ; ii++)
+        {
+            if (PointUtil.haversineDistance(query.getLat(), query.getLon(), points.getLat(ii), points.getLon(ii)) <= 100)
+                result.add(ii);
+        }
+        return result;
+    }
+
+
+    @Benchmark
+    public int nearestIndexed()
+    {
+        return index.nearest(query);
+    }
+
+
+    @Benchmark
+    public int nearestScan()
+    {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int ii = 0 ; ii < points.size() ; ii++)
+        {
+            double distance = PointUtil.haversineDistance(query.getLat(), query.getLon(), points.getLat(ii), points.getLon(ii));
+            if (distance < bestDistance)
+            {
+                best = ii;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,121 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.PointUtil;
+import com.kdgregory.geoutil.lib.core.PreparedPoint;
+
+
+/**
+ *  Benchmarks for the single-point calculations in <code>PointUtil</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointUtilBenchmark
+{
+    private Point p1;
+    private Point p2;
+    private PreparedPoint pp1;
+    private PreparedPoint pp2;
+
+
+    @Setup
+    public void setup()
+    {
+        p1 = new Point(39.95237, -75.16358, 12.0, 1577836800000L);
+        p2 = new Point(39.94467, -75.16526, 15.0, 1577836860000L);
+        pp1 = new PreparedPoint(p1);
+        pp2 = new PreparedPoint(p2);
+    }
+
+
+    @Benchmark
+    public double pythagoreanDistance()
+    {
+        return PointUtil.pythagoreanDistance(p1.getLat(), p1.getLon(), p2.getLat(), p2.getLon());
+    }
+
+
+    @Benchmark
+    public double pythagoreanDistancePoints()
+    {
+        return PointUtil.pythagoreanDistance(p1, p2);
+    }
+
+
+    @Benchmark
+    public double pythagoreanDistancePrepared()
+    {
+        return PointUtil.pythagoreanDistance(pp1, p2);
+    }
+
+
+    @Benchmark
+    public double greatCircleDistance()
+    {
+        return PointUtil.greatCircleDistance(p1.getLat(), p1.getLon(), p2.getLat(), p2.getLon());
+    }
+
+
+    @Benchmark
+    public double greatCircleDistancePoints()
+    {
+        return PointUtil.greatCircleDistance(p1, p2);
+    }
+
+
+    @Benchmark
+    public double greatCircleDistancePrepared()
+    {
+        return PointUtil.greatCircleDistance(pp1, pp2);
+    }
+
+
+    @Benchmark
+    public double haversineDistance()
+    {
+        return PointUtil.haversineDistance(p1, p2);
+    }
+
+
+    @Benchmark
+    public double haversineDistancePrepared()
+    {
+        return PointUtil.haversineDistance(pp1, pp2);
+    }
+
+
+    @Benchmark
+    public double velocity()
+    {
+        return PointUtil.velocity(p1, p2);
+    }
+
+
+    @Benchmark
+    public Point midpoint()
+    {
+        return PointUtil.midpoint(p1, p2);
+    }
+}
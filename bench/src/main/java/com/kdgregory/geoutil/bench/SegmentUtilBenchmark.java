@@ -0,0 +1,122 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.bench;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.SegmentUtil;
+
+
+/**
+ *  Benchmarks for the operations in <code>SegmentUtil</code>, at several segment
+ *  sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentUtilBenchmark
+{
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private List<Point> segment;
+    private List<Point> otherSegment;
+
+
+    @Setup
+    public void setup()
+    {
+        segment = BenchmarkData.randomWalk(size);
+        otherSegment = BenchmarkData.offset(segment);
+    }
+
+
+    @Benchmark
+    public double pythagoreanDistance()
+    {
+        return SegmentUtil.pythagoreanDistance(segment);
+    }
+
+
+    @Benchmark
+    public double pythagoreanDistanceParallel()
+    {
+        return SegmentUtil.pythagoreanDistanceParallel(segment);
+    }
+
+
+    @Benchmark
+    public List<Point> trim()
+    {
+        return SegmentUtil.trim(segment, 10);
+    }
+
+
+    @Benchmark
+    public List<List<Point>> split()
+    {
+        return SegmentUtil.split(segment, Duration.ofMinutes(5));
+    }
+
+
+    @Benchmark
+    public List<List<Point>> splitParallel()
+    {
+        return SegmentUtil.splitParallel(segment, Duration.ofMinutes(5));
+    }
+
+
+    @Benchmark
+    public List<Point> simplify()
+    {
+        return SegmentUtil.simplify(segment, 10);
+    }
+
+
+    @Benchmark
+    public List<Point> simplifyParallel()
+    {
+        return SegmentUtil.simplifyParallel(segment, 10);
+    }
+
+
+    @Benchmark
+    public List<Point> simplifyDouglasPeucker()
+    {
+        return SegmentUtil.simplifyDouglasPeucker(segment, 10);
+    }
+
+
+    @Benchmark
+    public List<Point> simplifyVisvalingam()
+    {
+        return SegmentUtil.simplifyVisvalingam(segment, 10);
+    }
+
+
+    @Benchmark
+    public List<Point[]> align()
+    {
+        return SegmentUtil.align(segment, otherSegment, 10, 20);
+    }
+}
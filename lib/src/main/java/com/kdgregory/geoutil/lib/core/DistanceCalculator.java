@@ -0,0 +1,79 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+
+/**
+ *  A strategy for calculating the distance, in meters, between two points.
+ *  This allows callers to choose between accuracy and speed: Pythagorean
+ *  distance (the default throughout this library) is fast and accurate
+ *  over the short distances between points in a GPS track, while haversine
+ *  and great circle distance remain accurate over long distances.
+ *  <p>
+ *  Implementations are final classes, so that a call site that only sees
+ *  one implementation can be inlined by the JIT.
+ */
+public interface DistanceCalculator
+{
+    /**
+     *  Latitude-compensated Pythagorean distance, per {@link PointUtil#pythagoreanDistance}.
+     */
+    public final static DistanceCalculator PYTHAGOREAN = new PythagoreanCalculator();
+
+    /**
+     *  Haversine distance, per {@link PointUtil#haversineDistance}.
+     */
+    public final static DistanceCalculator HAVERSINE = new HaversineCalculator();
+
+    /**
+     *  Great circle distance, per {@link PointUtil#greatCircleDistance}.
+     */
+    public final static DistanceCalculator GREAT_CIRCLE = new GreatCircleCalculator();
+
+
+    /**
+     *  Returns the distance, in meters, between two points specified in degrees.
+     */
+    double distance(double lat1, double lon1, double lat2, double lon2);
+
+
+    /**
+     *  Returns the distance, in meters, between two points.
+     */
+    default double distance(Point p1, Point p2)
+    {
+        return distance(p1.getLat(), p1.getLon(), p2.getLat(), p2.getLon());
+    }
+
+
+    /**
+     *  Returns the distance, in meters, between a prepared point and another location.
+     *  Implementations override this to use the prepared point's cached values; it is
+     *  intended for loops that compare one point to many.
+     */
+    default double distance(PreparedPoint p1, double lat2, double lon2)
+    {
+        return distance(p1.getLat(), p1.getLon(), lat2, lon2);
+    }
+
+
+    /**
+     *  Returns the distance, in meters, between a prepared point and another point.
+     */
+    default double distance(PreparedPoint p1, Point p2)
+    {
+        return distance(p1, p2.getLat(), p2.getLon());
+    }
+}
@@ -0,0 +1,469 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+
+/**
+ *  A static spatial index over the edges of a segment (the lines between
+ *  consecutive points), used to snap other points onto the segment: finding
+ *  the closest location on the segment, rather than the closest point.
+ *  <p>
+ *  The index is an R-tree, bulk-loaded using Sort-Tile-Recursive packing. Distances
+ *  to an edge are calculated in a local planar projection, with the longitude
+ *  correction based on the latitude of the edge's first point (as with {@link
+ *  PointUtil#pythagoreanDistance}); along-track distances are the sum of the
+ *  Pythagorean distances between points. As with other Pythagorean calculations,
+ *  longitude is treated as linear, so segments that cross the antimeridian will
+ *  not give meaningful results.
+ *  <p>
+ *  The index holds a copy of the segment's points. Instances are immutable, and
+ *  may be shared between threads; see {@link #snapParallel}.
+ */
+public class EdgeIndex
+{
+    /**
+     *  Lists of points smaller than this are snapped by {@link #snapParallel} using
+     *  the current thread.
+     */
+    public final static int PARALLEL_THRESHOLD = 1024;
+
+    // the minimum number of points snapped by a single parallel task
+    private final static int MIN_CHUNK_SIZE = 256;
+
+    // the maximum number of children for a tree node
+    private final static int NODE_CAPACITY = 16;
+
+    // the segment
+    private final int size;
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] elevation;
+    private final long[] timestamp;
+
+    // the along-track distance of each point
+    private final double[] cumulative;
+
+    // the levels of the tree: levels[0] holds edges, the last level is the root
+    private final List<Level> levels;
+
+
+    /**
+     *  Indexes the edges of a segment held in a <code>PointArray</code>.
+     */
+    public EdgeIndex(PointArray segment)
+    {
+        size = segment.size;
+        lat = Arrays.copyOf(segment.lat, size);
+        lon = Arrays.copyOf(segment.lon, size);
+        elevation = Arrays.copyOf(segment.elevation, size);
+        timestamp = Arrays.copyOf(segment.timestamp, size);
+
+        cumulative = new double[size];
+        double[] hops = new double[Math.max(size - 1, 0)];
+        PointUtil.hopDistances(lat, lon, size, hops);
+        for (int ii = 1 ; ii < size ; ii++)
+        {
+            cumulative[ii] = cumulative[ii - 1] + hops[ii - 1];
+        }
+
+        levels = buildTree();
+    }
+
+
+    /**
+     *  Indexes the edges of a segment held as a list of points.
+     */
+    public EdgeIndex(List<? extends Point> segment)
+    {
+        this(new PointArray(segment));
+    }
+
+//----------------------------------------------------------------------------
+//  Accessors
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the number of indexed edges: one less than the number of points
+     *  in the segment.
+     */
+    public int edgeCount()
+    {
+        return Math.max(size - 1, 0);
+    }
+
+
+    /**
+     *  Returns the length of the segment, in meters.
+     */
+    public double length()
+    {
+        return (size > 0) ? cumulative[size - 1] : 0;
+    }
+
+//----------------------------------------------------------------------------
+//  Queries
+//----------------------------------------------------------------------------
+
+    /**
+     *  Snaps a location onto the segment. Returns null if the segment has fewer
+     *  than two points. If several edges are equally close, the one with the
+     *  lowest index is chosen.
+     */
+    public SnapResult snap(double qLat, double qLon)
+    {
+        if (levels.isEmpty())
+            return null;
+
+        Search search = new Search(qLat, qLon);
+        Level root = levels.get(levels.size() - 1);
+        search.visit(levels.size() - 1, 0, root.size());
+        return search.result();
+    }
+
+
+    /**
+     *  Snaps a point onto the segment. Returns null if the segment has fewer than
+     *  two points.
+     */
+    public SnapResult snap(Point p)
+    {
+        return snap(p.getLat(), p.getLon());
+    }
+
+
+    /**
+     *  Snaps every point in a list onto the segment, returning results in the same
+     *  order as the source points.
+     */
+    public List<SnapResult> snap(List<? extends Point> points)
+    {
+        List<SnapResult> result = new ArrayList<>(points.size());
+        for (Point p : points)
+        {
+            result.add(snap(p));
+        }
+        return result;
+    }
+
+
+    /**
+     *  Equivalent to {@link #snap(List)}, but snaps the points in parallel chunks,
+     *  using the common fork-join pool. All tasks share this index.
+     */
+    public List<SnapResult> snapParallel(List<? extends Point> points)
+    {
+        if (points.size() < PARALLEL_THRESHOLD)
+            return snap(points);
+
+        int numChunks = ForkJoinPool.getCommonPoolParallelism() * 4;
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (points.size() + numChunks - 1) / numChunks);
+        return snapParallel(points, chunkSize);
+    }
+
+
+    /**
+     *  Implementation of {@link #snapParallel(List)}, exposed for testing.
+     */
+    List<SnapResult> snapParallel(List<? extends Point> points, int chunkSize)
+    {
+        Point[] source = points.toArray(new Point[points.size()]);
+        SnapResult[] results = new SnapResult[source.length];
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int start = 0 ; start < source.length ; start += chunkSize)
+        {
+            int chunkStart = start;
+            int chunkEnd = Math.min(start + chunkSize, source.length);
+            tasks.add(ForkJoinTask.adapt(() ->
+            {
+                for (int ii = chunkStart ; ii < chunkEnd ; ii++)
+                {
+                    results[ii] = snap(source[ii]);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        return Arrays.asList(results);
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Builds the tree bottom-up, returning its levels. Each level is ordered using
+     *  Sort-Tile-Recursive: entries are sorted by longitude and divided into vertical
+     *  slices, each slice is sorted by latitude, and consecutive runs of entries
+     *  become the children of a node in the next level.
+     */
+    private List<Level> buildTree()
+    {
+        int edgeCount = edgeCount();
+        if (edgeCount == 0)
+            return Collections.emptyList();
+
+        List<Level> result = new ArrayList<>();
+
+        Level level = new Level(edgeCount);
+        for (int ii = 0 ; ii < edgeCount ; ii++)
+        {
+            level.set(ii, Math.min(lat[ii], lat[ii + 1]), Math.max(lat[ii], lat[ii + 1]),
+                          Math.min(lon[ii], lon[ii + 1]), Math.max(lon[ii], lon[ii + 1]),
+                          ii, 1);
+        }
+        level = level.strOrder();
+        result.add(level);
+
+        while (level.size() > 1)
+        {
+            Level parent = new Level((level.size() + NODE_CAPACITY - 1) / NODE_CAPACITY);
+            for (int ii = 0 ; ii < parent.size() ; ii++)
+            {
+                int first = ii * NODE_CAPACITY;
+                int count = Math.min(NODE_CAPACITY, level.size() - first);
+                double minLat = Double.POSITIVE_INFINITY;
+                double maxLat = Double.NEGATIVE_INFINITY;
+                double minLon = Double.POSITIVE_INFINITY;
+                double maxLon = Double.NEGATIVE_INFINITY;
+                for (int jj = first ; jj < first + count ; jj++)
+                {
+                    minLat = Math.min(minLat, level.minLat[jj]);
+                    maxLat = Math.max(maxLat, level.maxLat[jj]);
+                    minLon = Math.min(minLon, level.minLon[jj]);
+                    maxLon = Math.max(maxLon, level.maxLon[jj]);
+                }
+                parent.set(ii, minLat, maxLat, minLon, maxLon, first, count);
+            }
+            level = parent.strOrder();
+            result.add(level);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+
+    /**
+     *  One level of the tree. Each entry has a bounding box and a range of entries
+     *  in the level below; at the lowest level, the "range" identifies an edge.
+     */
+    private static class Level
+    {
+        public final double[] minLat;
+        public final double[] maxLat;
+        public final double[] minLon;
+        public final double[] maxLon;
+        public final double[] minCos;
+        public final int[] first;
+        public final int[] count;
+
+        public Level(int size)
+        {
+            minLat = new double[size];
+            maxLat = new double[size];
+            minLon = new double[size];
+            maxLon = new double[size];
+            minCos = new double[size];
+            first = new int[size];
+            count = new int[size];
+        }
+
+        public int size()
+        {
+            return first.length;
+        }
+
+        public void set(int idx, double minLat, double maxLat, double minLon, double maxLon, int first, int count)
+        {
+            this.minLat[idx] = minLat;
+            this.maxLat[idx] = maxLat;
+            this.minLon[idx] = minLon;
+            this.maxLon[idx] = maxLon;
+            this.first[idx] = first;
+            this.count[idx] = count;
+
+            // the smallest longitude correction within the box: cosine decreases
+            // with distance from the equator
+            this.minCos[idx] = Math.max(0, Math.min(Math.cos(Math.toRadians(minLat)),
+                                                    Math.cos(Math.toRadians(maxLat))));
+        }
+
+        /**
+         *  Returns a copy of this level with entries in Sort-Tile-Recursive order.
+         */
+        public Level strOrder()
+        {
+            int size = size();
+            int numNodes = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int numSlices = (int)Math.ceil(Math.sqrt(numNodes));
+            int sliceSize = numSlices * NODE_CAPACITY;
+
+            List<Integer> order = new ArrayList<>(size);
+            for (int ii = 0 ; ii < size ; ii++)
+            {
+                order.add(ii);
+            }
+            Collections.sort(order, Comparator.comparingDouble(ii -> minLon[ii] + maxLon[ii]));
+            for (int start = 0 ; start < size ; start += sliceSize)
+            {
+                List<Integer> slice = order.subList(start, Math.min(start + sliceSize, size));
+                Collections.sort(slice, Comparator.comparingDouble(ii -> minLat[ii] + maxLat[ii]));
+            }
+
+            Level result = new Level(size);
+            for (int ii = 0 ; ii < size ; ii++)
+            {
+                int src = order.get(ii).intValue();
+                result.minLat[ii] = minLat[src];
+                result.maxLat[ii] = maxLat[src];
+                result.minLon[ii] = minLon[src];
+                result.maxLon[ii] = maxLon[src];
+                result.minCos[ii] = minCos[src];
+                result.first[ii] = first[src];
+                result.count[ii] = count[src];
+            }
+            return result;
+        }
+    }
+
+
+    /**
+     *  Holds the state of a single snap: the query location and the best edge
+     *  found so far. The tree is searched depth-first, visiting the children of
+     *  each node in order of their minimum possible distance, and skipping any
+     *  child that can't be closer than the best edge.
+     */
+    private class Search
+    {
+        private final double qLat;
+        private final double qLon;
+
+        private int bestEdge = -1;
+        private double bestDist2 = Double.POSITIVE_INFINITY;
+        private double bestT;
+
+        // scratch space for ordering a node's entries; each level has its own slice
+        // because visit() recurses while iterating, one level down at a time
+        private final double[] bounds = new double[levels.size() * NODE_CAPACITY];
+        private final int[] order = new int[levels.size() * NODE_CAPACITY];
+
+        public Search(double qLat, double qLon)
+        {
+            this.qLat = qLat;
+            this.qLon = qLon;
+        }
+
+        public void visit(int levelIdx, int first, int count)
+        {
+            Level level = levels.get(levelIdx);
+            int base = levelIdx * NODE_CAPACITY;
+
+            // insertion sort by bound; nodes are small, and it's stable, so equally
+            // distant entries stay in index order
+            for (int ii = 0 ; ii < count ; ii++)
+            {
+                double bound = boundDistance2(level, first + ii);
+                int jj = ii;
+                while ((jj > 0) && (bounds[base + jj - 1] > bound))
+                {
+                    bounds[base + jj] = bounds[base + jj - 1];
+                    order[base + jj] = order[base + jj - 1];
+                    jj--;
+                }
+                bounds[base + jj] = bound;
+                order[base + jj] = ii;
+            }
+
+            for (int ii = 0 ; ii < count ; ii++)
+            {
+                // equally-distant entries are visited so that the lowest edge index wins
+                if (bounds[base + ii] > bestDist2)
+                    return;
+
+                int entry = first + order[base + ii];
+                if (levelIdx == 0)
+                    checkEdge(level.first[entry]);
+                else
+                    visit(levelIdx - 1, level.first[entry], level.count[entry]);
+            }
+        }
+
+        /**
+         *  Returns a lower bound on the squared distance between the query location and
+         *  any edge within the entry's bounding box.
+         */
+        private double boundDistance2(Level level, int entry)
+        {
+            double dLat = Math.max(0, Math.max(level.minLat[entry] - qLat, qLat - level.maxLat[entry]))
+                        * PointUtil.EARTH_DEGREE_LENGTH;
+            double dLon = Math.max(0, Math.max(level.minLon[entry] - qLon, qLon - level.maxLon[entry]))
+                        * PointUtil.EARTH_DEGREE_LENGTH * level.minCos[entry];
+            return dLat * dLat + dLon * dLon;
+        }
+
+        private void checkEdge(int edge)
+        {
+            double latScale = PointUtil.EARTH_DEGREE_LENGTH;
+            double lonScale = PointUtil.correctedLongitude(PointUtil.EARTH_DEGREE_LENGTH, lat[edge]);
+
+            double bx = (lon[edge + 1] - lon[edge]) * lonScale;
+            double by = (lat[edge + 1] - lat[edge]) * latScale;
+            double px = (qLon - lon[edge]) * lonScale;
+            double py = (qLat - lat[edge]) * latScale;
+
+            double len2 = bx * bx + by * by;
+            double t = (len2 > 0)
+                     ? Math.max(0, Math.min(1, (px * bx + py * by) / len2))
+                     : 0;
+
+            double dx = px - t * bx;
+            double dy = py - t * by;
+            double dist2 = dx * dx + dy * dy;
+            if ((dist2 < bestDist2) || ((dist2 == bestDist2) && (edge < bestEdge)))
+            {
+                bestEdge = edge;
+                bestDist2 = dist2;
+                bestT = t;
+            }
+        }
+
+        public SnapResult result()
+        {
+            int ii = bestEdge;
+            double t = bestT;
+            double pLat = lat[ii] + t * (lat[ii + 1] - lat[ii]);
+            double pLon = lon[ii] + t * (lon[ii + 1] - lon[ii]);
+
+            Double pElevation = null;
+            if (! Double.isNaN(elevation[ii]) && ! Double.isNaN(elevation[ii + 1]))
+                pElevation = Double.valueOf(elevation[ii] + t * (elevation[ii + 1] - elevation[ii]));
+
+            Instant pTimestamp = null;
+            if ((timestamp[ii] != PointArray.NO_TIMESTAMP) && (timestamp[ii + 1] != PointArray.NO_TIMESTAMP))
+                pTimestamp = Instant.ofEpochMilli(timestamp[ii] + Math.round(t * (timestamp[ii + 1] - timestamp[ii])));
+
+            double alongTrack = cumulative[ii] + t * (cumulative[ii + 1] - cumulative[ii]);
+            return new SnapResult(ii, new Point(pLat, pLon, pElevation, pTimestamp), Math.sqrt(bestDist2), alongTrack);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.util.Arrays;
+
+
+/**
+ *  Utility functions to identify the area containing a point, using a 64-bit
+ *  key. This is intended for bucketing: hash joins, deduplication, sharding,
+ *  and the like.
+ *  <p>
+ *  The world is divided into a grid of <code>2^bits</code> rows (latitude) and
+ *  columns (longitude), and a cell's key interleaves the bits of its row and
+ *  column numbers (Morton or Z-order). Longitude bits are placed before latitude
+ *  bits, so for the same total number of bits a key is the binary form of a
+ *  geohash. Keys are right-aligned, so have <code>2 * bits</code> significant
+ *  bits; since they don't record their precision, keys from different precisions
+ *  must not be mixed. Nearby cells usually (but not always) have nearby keys; the
+ *  key for a cell at one precision is the prefix of the keys of the four cells
+ *  that it contains at the next precision.
+ *  <p>
+ *  As a guide to precision: 16 bits gives cells approximately 300 meters north-south
+ *  (and 600 meters east-west at the equator), and each additional bit halves that.
+ *  <p>
+ *  Latitudes and longitudes outside the valid range are clamped to that range.
+ */
+public class GeoCell
+{
+    /**
+     *  The maximum number of bits per axis.
+     */
+    public final static int MAX_BITS = 31;
+
+    /**
+     *  The maximum number of cells that will be returned by {@link #cover}.
+     */
+    public final static int MAX_COVER_CELLS = 1 << 20;
+
+
+    /**
+     *  Returns the key of the cell containing the given location.
+     *
+     *  @param  lat     Latitude, in degrees.
+     *  @param  lon     Longitude, in degrees.
+     *  @param  bits    Number of bits per axis, 1 to {@link #MAX_BITS}.
+     */
+    public static long encode(double lat, double lon, int bits)
+    {
+        checkBits(bits);
+        long max = (1L << bits) - 1;
+        return interleave(column(lon, bits, max), row(lat, bits, max));
+    }
+
+
+    /**
+     *  Returns the key of the cell containing the given point.
+     */
+    public static long encode(Point p, int bits)
+    {
+        return encode(p.getLat(), p.getLon(), bits);
+    }
+
+
+    /**
+     *  Encodes the first <code>count</code> locations in parallel arrays of latitude
+     *  and longitude, writing the keys into the output array. Each key is identical
+     *  to that returned by {@link #encode(double,double,int)}.
+     */
+    public static void encode(double[] lat, double[] lon, int count, int bits, long[] out)
+    {
+        checkBits(bits);
+        if ((count > lat.length) || (count > lon.length))
+            throw new IllegalArgumentException("invalid count: " + count + " (arrays have " + lat.length + "/" + lon.length + " elements)");
+        if (out.length < count)
+            throw new IllegalArgumentException("invalid output array: needs " + count + " elements, has " + out.length);
+
+        long max = (1L << bits) - 1;
+        for (int ii = 0 ; ii < count ; ii++)
+        {
+            out[ii] = interleave(column(lon[ii], bits, max), row(lat[ii], bits, max));
+        }
+    }
+
+
+    /**
+     *  Returns the bounds of a cell, as an array containing minimum latitude, maximum
+     *  latitude, minimum longitude, and maximum longitude (in that order).
+     */
+    public static double[] bounds(long key, int bits)
+    {
+        checkBits(bits);
+        double cellLat = 180.0 / (1L << bits);
+        double cellLon = 360.0 / (1L << bits);
+        long row = compact(key);
+        long col = compact(key >>> 1);
+        return new double[]
+        {
+            row * cellLat - 90,
+            (row + 1) * cellLat - 90,
+            col * cellLon - 180,
+            (col + 1) * cellLon - 180
+        };
+    }
+
+
+    /**
+     *  Returns the center of a cell.
+     */
+    public static Point center(long key, int bits)
+    {
+        double[] bounds = bounds(key, bits);
+        return new Point((bounds[0] + bounds[1]) / 2, (bounds[2] + bounds[3]) / 2);
+    }
+
+
+    /**
+     *  Returns the keys of the cells that adjoin the given cell, including those that
+     *  touch only at a corner. Longitude wraps at the antimeridian; cells in the top
+     *  or bottom rows have no neighbors beyond the pole. The result contains no
+     *  duplicates, and does not include the given cell.
+     */
+    public static long[] neighbors(long key, int bits)
+    {
+        checkBits(bits);
+        long numCells = 1L << bits;
+        long row = compact(key);
+        long col = compact(key >>> 1);
+
+        long[] result = new long[8];
+        int count = 0;
+        for (long dRow = -1 ; dRow <= 1 ; dRow++)
+        {
+            long nRow = row + dRow;
+            if ((nRow < 0) || (nRow >= numCells))
+                continue;
+
+            for (long dCol = -1 ; dCol <= 1 ; dCol++)
+            {
+                long nCol = (col + dCol + numCells) % numCells;
+                long nKey = interleave(nCol, nRow);
+                if ((nKey != key) && ! contains(result, count, nKey))
+                    result[count++] = nKey;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+
+    /**
+     *  Returns the keys of all cells that intersect a bounding box, in ascending
+     *  order. If the minimum longitude is greater than the maximum, the box is
+     *  assumed to cross the antimeridian.
+     *
+     *  @throws IllegalArgumentException if the box would be covered by more than
+     *          {@link #MAX_COVER_CELLS} cells.
+     */
+    public static long[] cover(double minLat, double maxLat, double minLon, double maxLon, int bits)
+    {
+        checkBits(bits);
+        long max = (1L << bits) - 1;
+        long minRow = row(Math.min(minLat, maxLat), bits, max);
+        long maxRow = row(Math.max(minLat, maxLat), bits, max);
+        long minCol = column(minLon, bits, max);
+        long maxCol = column(maxLon, bits, max);
+
+        long numRows = maxRow - minRow + 1;
+        long numCols = (minCol <= maxCol) ? maxCol - minCol + 1
+                                          : maxCol + max + 2 - minCol;
+        if (numRows * numCols > MAX_COVER_CELLS)
+            throw new IllegalArgumentException("bounding box requires " + (numRows * numCols) + " cells at " + bits + " bits; limit is " + MAX_COVER_CELLS);
+
+        long[] result = new long[(int)(numRows * numCols)];
+        int count = 0;
+        for (long row = minRow ; row <= maxRow ; row++)
+        {
+            for (long ii = 0 ; ii < numCols ; ii++)
+            {
+                result[count++] = interleave((minCol + ii) & max, row);
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private static void checkBits(int bits)
+    {
+        if ((bits < 1) || (bits > MAX_BITS))
+            throw new IllegalArgumentException("invalid bits: " + bits + " (must be 1.." + MAX_BITS + ")");
+    }
+
+
+    private static long row(double lat, int bits, long max)
+    {
+        long row = (long)Math.floor((lat + 90) / 180 * (1L << bits));
+        return Math.max(0, Math.min(max, row));
+    }
+
+
+    private static long column(double lon, int bits, long max)
+    {
+        long col = (long)Math.floor((lon + 180) / 360 * (1L << bits));
+        return Math.max(0, Math.min(max, col));
+    }
+
+
+    /**
+     *  Combines column and row numbers, with column bits in the odd positions.
+     */
+    private static long interleave(long col, long row)
+    {
+        return (spread(col) << 1) | spread(row);
+    }
+
+
+    /**
+     *  Spreads the low 32 bits of a value into the even bit positions.
+     */
+    private static long spread(long value)
+    {
+        value &= 0x00000000FFFFFFFFL;
+        value = (value | (value << 16)) & 0x0000FFFF0000FFFFL;
+        value = (value | (value << 8))  & 0x00FF00FF00FF00FFL;
+        value = (value | (value << 4))  & 0x0F0F0F0F0F0F0F0FL;
+        value = (value | (value << 2))  & 0x3333333333333333L;
+        value = (value | (value << 1))  & 0x5555555555555555L;
+        return value;
+    }
+
+
+    /**
+     *  The inverse of {@link #spread}: collects the even bits of a value.
+     */
+    private static long compact(long value)
+    {
+        value &= 0x5555555555555555L;
+        value = (value | (value >>> 1))  & 0x3333333333333333L;
+        value = (value | (value >>> 2))  & 0x0F0F0F0F0F0F0F0FL;
+        value = (value | (value >>> 4))  & 0x00FF00FF00FF00FFL;
+        value = (value | (value >>> 8))  & 0x0000FFFF0000FFFFL;
+        value = (value | (value >>> 16)) & 0x00000000FFFFFFFFL;
+        return value;
+    }
+
+
+    private static boolean contains(long[] values, int count, long value)
+    {
+        for (int ii = 0 ; ii < count ; ii++)
+        {
+            if (values[ii] == value)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+
+/**
+ *  Calculates distance using {@link PointUtil#greatCircleDistance}.
+ */
+public final class GreatCircleCalculator
+implements DistanceCalculator
+{
+    @Override
+    public double distance(double lat1, double lon1, double lat2, double lon2)
+    {
+        return PointUtil.greatCircleDistance(lat1, lon1, lat2, lon2);
+    }
+
+
+    @Override
+    public double distance(PreparedPoint p1, double lat2, double lon2)
+    {
+        return PointUtil.greatCircleDistance(p1, lat2, lon2);
+    }
+}
@@ -0,0 +1,627 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+
+/**
+ *  A segment stored as parallel arrays of primitive values, rather than as a
+ *  list of <code>Point</code> objects. This is intended for large tracks, where
+ *  the per-point overhead of objects (and the pointer-chasing required to
+ *  traverse them) becomes significant.
+ *  <p>
+ *  Missing elevations are stored as <code>NaN</code>, and missing timestamps as
+ *  {@link #NO_TIMESTAMP}. Timestamps are stored as milliseconds since epoch, so
+ *  any sub-millisecond precision in a source point is lost.
+ *  <p>
+ *  Instances may be appended to, but the points that they hold may not be
+ *  changed. The segment operations (which mirror those in {@link SegmentUtil})
+ *  return new instances. For compatibility with code that expects a list of
+ *  points, {@link #asList} returns a view that creates <code>Point</code>s on
+ *  demand.
+ *  <p>
+ *  This class is not thread-safe while being appended to.
+ */
+public class PointArray
+{
+    /**
+     *  The value stored for a point that doesn't have a timestamp.
+     */
+    public final static long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final static int DEFAULT_CAPACITY = 1024;
+
+    // these are package-private so that other core classes can work directly
+    // with the arrays; always use size, not array length, as the bound
+
+    double[] lat;
+    double[] lon;
+    double[] elevation;
+    long[] timestamp;
+    int size;
+
+
+    /**
+     *  Creates an empty instance with default capacity.
+     */
+    public PointArray()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     *  Creates an empty instance with the specified capacity. The instance will
+     *  grow as needed; specifying capacity just avoids copying.
+     */
+    public PointArray(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        lat = new double[capacity];
+        lon = new double[capacity];
+        elevation = new double[capacity];
+        timestamp = new long[capacity];
+    }
+
+
+    /**
+     *  Creates an instance that holds the values of the passed points. May be
+     *  passed null, which is treated as an empty list.
+     */
+    public PointArray(List<? extends Point> points)
+    {
+        this((points == null) ? 0 : points.size());
+        if (points != null)
+        {
+            for (Point p : points)
+            {
+                add(p);
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Accessors
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the number of points in this array.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     *  Returns whether or not this array has any points.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+
+    /**
+     *  Returns the latitude of the specified point.
+     */
+    public double getLat(int index)
+    {
+        checkIndex(index);
+        return lat[index];
+    }
+
+
+    /**
+     *  Returns the longitude of the specified point.
+     */
+    public double getLon(int index)
+    {
+        checkIndex(index);
+        return lon[index];
+    }
+
+
+    /**
+     *  Returns the elevation of the specified point, <code>NaN</code> if it
+     *  does not have elevation.
+     */
+    public double getElevation(int index)
+    {
+        checkIndex(index);
+        return elevation[index];
+    }
+
+
+    /**
+     *  Returns whether or not the specified point has elevation.
+     */
+    public boolean hasElevation(int index)
+    {
+        return ! Double.isNaN(getElevation(index));
+    }
+
+
+    /**
+     *  Returns the timestamp of the specified point, as milliseconds since epoch,
+     *  {@link #NO_TIMESTAMP} if it does not have a timestamp.
+     */
+    public long getTimestampMillis(int index)
+    {
+        checkIndex(index);
+        return timestamp[index];
+    }
+
+
+    /**
+     *  Returns whether or not the specified point has a timestamp.
+     */
+    public boolean hasTimestamp(int index)
+    {
+        return getTimestampMillis(index) != NO_TIMESTAMP;
+    }
+
+
+    /**
+     *  Creates a <code>Point</code> from the values at the specified index.
+     */
+    public Point get(int index)
+    {
+        checkIndex(index);
+        Double ele = Double.isNaN(elevation[index])
+                   ? null
+                   : Double.valueOf(elevation[index]);
+        Instant ts = (timestamp[index] == NO_TIMESTAMP)
+                   ? null
+                   : Instant.ofEpochMilli(timestamp[index]);
+        return new Point(lat[index], lon[index], ele, ts);
+    }
+
+
+    /**
+     *  Adds a point to the end of this array.
+     *
+     *  @param  lat         Latitude, ranging from -90 (south) to +90 (north).
+     *  @param  lon         Longitude, ranging from -180 (west) to +180 (east).
+     *  @param  elevation   Elevation of the point, in meters; <code>NaN</code>
+     *                      if unknown.
+     *  @param  timestamp   Milliseconds since epoch; {@link #NO_TIMESTAMP} if
+     *                      unknown.
+     */
+    public PointArray add(double lat, double lon, double elevation, long timestamp)
+    {
+        if ((lat < -90.0) || (lat > 90.0))
+            throw new IllegalArgumentException("invalid latitude: " + lat);
+
+        if ((lon < -180.0) || (lon > 180.0))
+            throw new IllegalArgumentException("invalid longitude: " + lon);
+
+        ensureCapacity(size + 1);
+        this.lat[size] = lat;
+        this.lon[size] = lon;
+        this.elevation[size] = elevation;
+        this.timestamp[size] = timestamp;
+        size++;
+        return this;
+    }
+
+
+    /**
+     *  Adds the values from a <code>Point</code> to the end of this array.
+     */
+    public PointArray add(Point p)
+    {
+        return add(p.getLat(),
+                   p.getLon(),
+                   (p.getElevation() == null) ? Double.NaN : p.getElevation().doubleValue(),
+                   (p.getTimestamp() == null) ? NO_TIMESTAMP : p.getTimestampMillis());
+    }
+
+
+    /**
+     *  Adds all points from another array to the end of this array.
+     */
+    public PointArray addAll(PointArray that)
+    {
+        ensureCapacity(size + that.size);
+        System.arraycopy(that.lat,       0, lat,       size, that.size);
+        System.arraycopy(that.lon,       0, lon,       size, that.size);
+        System.arraycopy(that.elevation, 0, elevation, size, that.size);
+        System.arraycopy(that.timestamp, 0, timestamp, size, that.size);
+        size += that.size;
+        return this;
+    }
+
+
+    /**
+     *  Returns a new array containing the points from <code>fromIndex</code>
+     *  (inclusive) to <code>toIndex</code> (exclusive).
+     */
+    public PointArray subArray(int fromIndex, int toIndex)
+    {
+        if ((fromIndex < 0) || (toIndex > size) || (fromIndex > toIndex))
+            throw new IndexOutOfBoundsException("invalid range: " + fromIndex + " to " + toIndex + ", size " + size);
+
+        PointArray result = new PointArray(toIndex - fromIndex);
+        int count = toIndex - fromIndex;
+        System.arraycopy(lat,       fromIndex, result.lat,       0, count);
+        System.arraycopy(lon,       fromIndex, result.lon,       0, count);
+        System.arraycopy(elevation, fromIndex, result.elevation, 0, count);
+        System.arraycopy(timestamp, fromIndex, result.timestamp, 0, count);
+        result.size = count;
+        return result;
+    }
+
+
+    /**
+     *  Returns a read-only view of this array as a list of points. Points are
+     *  created on each call to <code>get()</code>, so callers that repeatedly
+     *  access the same point should hold onto it.
+     */
+    public List<Point> asList()
+    {
+        return new ListView();
+    }
+
+//----------------------------------------------------------------------------
+//  Segment operations -- see SegmentUtil for the List-based equivalents
+//----------------------------------------------------------------------------
+
+    /**
+     *  Computes and sums the Pythagorean distance (in meters) between the points
+     *  in this array.
+     */
+    public double pythagoreanDistance()
+    {
+        double sum = 0;
+        for (int ii = 1 ; ii < size ; ii++)
+        {
+            sum += PointUtil.pythagoreanDistance(lat[ii - 1], lon[ii - 1], lat[ii], lon[ii]);
+        }
+        return sum;
+    }
+
+
+    /**
+     *  Returns the Pythagorean distance (in meters) between each consecutive pair
+     *  of points in this array: element <code>i</code> is the distance between
+     *  points <code>i</code> and <code>i+1</code>. See {@link PointUtil#hopDistances}.
+     */
+    public double[] hopDistances()
+    {
+        double[] result = new double[Math.max(size - 1, 0)];
+        PointUtil.hopDistances(lat, lon, size, result);
+        return result;
+    }
+
+
+    /**
+     *  Returns the {@link GeoCell} key for each point in this array, at the
+     *  specified number of bits per axis.
+     */
+    public long[] cellKeys(int bits)
+    {
+        long[] result = new long[size];
+        GeoCell.encode(lat, lon, size, bits, result);
+        return result;
+    }
+
+
+    /**
+     *  Returns a new array that excludes points at the start and end that show
+     *  movement less than the specified threshold. See {@link SegmentUtil#trim}.
+     */
+    public PointArray trim(double minDist)
+    {
+        int start = 0;
+        while ((start < size - 1) && (distance(start, start + 1) < minDist))
+        {
+            start++;
+        }
+
+        if (start >= size - 1)
+            return new PointArray(0);
+
+        // this replicates the list-based version, which measures from the later point
+        int end = size - 1;
+        int cur = end - 1;
+        while (cur > start)
+        {
+            if (distance(end, cur) >= minDist)
+                break;
+            end = cur;
+            cur--;
+        }
+
+        return subArray(start, end + 1);
+    }
+
+
+    /**
+     *  Splits this array into multiple arrays based on a gap in timestamp. See
+     *  {@link SegmentUtil#split}.
+     */
+    public List<PointArray> split(Duration minGap)
+    {
+        List<PointArray> result = new ArrayList<>();
+        if (size == 0)
+            return result;
+
+        long minGapMillis = ceilMillis(minGap);
+        long prevTimestamp = NO_TIMESTAMP;
+        int start = 0;
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            long curTimestamp = timestamp[ii];
+            if ((prevTimestamp != NO_TIMESTAMP) && (curTimestamp != NO_TIMESTAMP)
+                && (curTimestamp - prevTimestamp >= minGapMillis))
+            {
+                result.add(subArray(start, ii));
+                start = ii;
+            }
+            prevTimestamp = (curTimestamp != NO_TIMESTAMP) ? curTimestamp : prevTimestamp;
+        }
+        result.add(subArray(start, size));
+        return result;
+    }
+
+
+    /**
+     *  Returns a new array that omits points less than a specified distance apart.
+     *  See {@link SegmentUtil#simplify}.
+     */
+    public PointArray simplify(double minDistanceMeters)
+    {
+        PointArray result = new PointArray(size);
+        if (size == 0)
+            return result;
+
+        int prev = 0;
+        result.copyFrom(this, prev);
+        for (int ii = 1 ; ii < size ; ii++)
+        {
+            if (distance(prev, ii) > minDistanceMeters)
+            {
+                result.copyFrom(this, ii);
+                prev = ii;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     *  Returns a new array simplified using the Douglas-Peucker algorithm.
+     *  See {@link SegmentUtil#simplifyDouglasPeucker}.
+     */
+    public PointArray simplifyDouglasPeucker(double toleranceMeters)
+    {
+        return retained(Simplifier.douglasPeucker(lat, lon, size, toleranceMeters));
+    }
+
+
+    /**
+     *  Returns a new array simplified using the Visvalingam-Whyatt algorithm.
+     *  See {@link SegmentUtil#simplifyVisvalingam}.
+     */
+    public PointArray simplifyVisvalingam(double toleranceMeters)
+    {
+        return retained(Simplifier.visvalingam(lat, lon, size, toleranceMeters));
+    }
+
+
+    /**
+     *  Aligns this array with another, following the rules of {@link SegmentUtil#align}
+     *  (including its use of a spatial index to find the first pair). Rather than
+     *  returning pairs of points, returns pairs of indexes: element 0 is an index into
+     *  this array, element 1 is an index into the other array.
+     */
+    public List<int[]> align(PointArray that, double minIncrement, double maxSeparation)
+    {
+        List<int[]> result = new ArrayList<>();
+
+        int idx1 = 0;
+        int idx2 = 0;
+        int mark2 = 0;
+        int p1 = -1;
+        PointGrid grid = null;
+        while ((idx1 < this.size) && (idx2 < that.size))
+        {
+            // find the next point in this array that is at least minIncrement from the last
+            if (p1 < 0)
+            {
+                p1 = idx1++;
+            }
+            else
+            {
+                int next = -1;
+                PreparedPoint prev = new PreparedPoint(lat[p1], lon[p1]);
+                while (idx1 < this.size)
+                {
+                    int x = idx1++;
+                    if (PointUtil.pythagoreanDistance(prev, lat[x], lon[x]) >= minIncrement)
+                    {
+                        next = x;
+                        break;
+                    }
+                }
+                if (next < 0)
+                    return result;
+                p1 = next;
+            }
+
+            // until we've started a line, skip directly to the first candidate
+            if (result.isEmpty())
+            {
+                if (grid == null)
+                    grid = new PointGrid(that.lat, that.lon, that.size, maxSeparation);
+                int found = grid.findFirstWithin(lat[p1], lon[p1], maxSeparation, idx2);
+                idx2 = (found >= 0) ? found : that.size;
+            }
+
+            // find the closest matching point in the other array
+            PreparedPoint pp1 = new PreparedPoint(lat[p1], lon[p1]);
+            int p2 = -1;
+            while (idx2 < that.size)
+            {
+                int x = idx2++;
+                double dx = PointUtil.pythagoreanDistance(pp1, that.lat[x], that.lon[x]);
+                if (dx < maxSeparation)
+                {
+                    mark2 = idx2;
+                    while (idx2 < that.size)
+                    {
+                        int y = idx2++;
+                        double dy = PointUtil.pythagoreanDistance(pp1, that.lat[y], that.lon[y]);
+                        if (dy > dx)
+                        {
+                            idx2 = mark2;
+                            break;
+                        }
+                        x = y;
+                        dx = dy;
+                        mark2 = idx2;
+                    }
+                    p2 = x;
+                    break;
+                }
+            }
+
+            if (p2 >= 0)
+            {
+                result.add(new int[] { p1, p2 });
+            }
+
+            // this is the end of the line ... unless we haven't started a line!
+            if (result.isEmpty())
+            {
+                idx2 = mark2;
+            }
+        }
+
+        return result;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private void checkIndex(int index)
+    {
+        if ((index < 0) || (index >= size))
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+    }
+
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity <= lat.length)
+            return;
+
+        int newCapacity = Math.max(capacity, lat.length + (lat.length >> 1));
+        lat = Arrays.copyOf(lat, newCapacity);
+        lon = Arrays.copyOf(lon, newCapacity);
+        elevation = Arrays.copyOf(elevation, newCapacity);
+        timestamp = Arrays.copyOf(timestamp, newCapacity);
+    }
+
+
+    /**
+     *  Returns a new array containing the points whose flag is set.
+     */
+    private PointArray retained(boolean[] keep)
+    {
+        PointArray result = new PointArray(size);
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            if (keep[ii])
+                result.copyFrom(this, ii);
+        }
+        return result;
+    }
+
+
+    /**
+     *  Appends a point from another array, without re-validating.
+     */
+    private void copyFrom(PointArray src, int index)
+    {
+        ensureCapacity(size + 1);
+        lat[size] = src.lat[index];
+        lon[size] = src.lon[index];
+        elevation[size] = src.elevation[index];
+        timestamp[size] = src.timestamp[index];
+        size++;
+    }
+
+
+    /**
+     *  Pythagorean distance between two points in this array.
+     */
+    private double distance(int idx1, int idx2)
+    {
+        return distance(this, idx1, this, idx2);
+    }
+
+
+    /**
+     *  Pythagorean distance between points in two arrays.
+     */
+    private static double distance(PointArray a1, int idx1, PointArray a2, int idx2)
+    {
+        return PointUtil.pythagoreanDistance(a1.lat[idx1], a1.lon[idx1], a2.lat[idx2], a2.lon[idx2]);
+    }
+
+
+    /**
+     *  Converts a duration to milliseconds, rounding up any fractional milliseconds
+     *  so that comparisons against whole-millisecond differences are exact.
+     */
+    private static long ceilMillis(Duration duration)
+    {
+        long millis = duration.toMillis();
+        return (Duration.ofMillis(millis).compareTo(duration) < 0)
+             ? millis + 1
+             : millis;
+    }
+
+
+    /**
+     *  The list returned by {@link #asList}.
+     */
+    private class ListView
+    extends AbstractList<Point>
+    implements RandomAccess
+    {
+        @Override
+        public Point get(int index)
+        {
+            return PointArray.this.get(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+}
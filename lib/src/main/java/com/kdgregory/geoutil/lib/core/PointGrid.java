@@ -0,0 +1,211 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ *  A uniform grid over the points of a segment, used to find the first point
+ *  that's within a given distance of some other point without examining the
+ *  entire segment. Distances are Pythagorean, as calculated by {@link PointUtil},
+ *  with the longitude correction based on the latitude of the query point.
+ *  <p>
+ *  The grid is sized for a particular search distance: each cell is at least
+ *  that distance on a side (at the latitude of the segment's first point), so
+ *  a search normally examines the nine cells around the query point. Searches
+ *  at a larger distance, or at a latitude where longitude degrees are much
+ *  shorter, examine more cells; if that would be more than the number of
+ *  points in the segment, the search simply examines every point.
+ *  <p>
+ *  Instances hold a reference to the passed arrays, and are not valid if those
+ *  arrays are subsequently modified.
+ */
+class PointGrid
+{
+    // limits the number of cells so that cell indexes fit in an int
+    private final static double MIN_CELL_DEGREES = 1e-7;
+
+    // allows for rounding differences between cell assignment and distance calculation
+    private final static double RADIUS_MARGIN = 1 + 1e-9;
+
+    private double[] lat;
+    private double[] lon;
+    private int size;
+
+    private double cellLat;
+    private double cellLon;
+    private Map<Long,Cell> cells = new HashMap<>();
+
+
+    /**
+     *  Indexes the first <code>size</code> points of the provided arrays, with
+     *  cells sized for searches at <code>cellSize</code> meters.
+     */
+    public PointGrid(double[] lat, double[] lon, int size, double cellSize)
+    {
+        this.lat = lat;
+        this.lon = lon;
+        this.size = size;
+
+        double refLat = (size > 0) ? lat[0] : 0;
+        double lonDegreeLength = PointUtil.correctedLongitude(PointUtil.EARTH_DEGREE_LENGTH, refLat);
+
+        cellLat = Math.max(cellSize / PointUtil.EARTH_DEGREE_LENGTH, MIN_CELL_DEGREES);
+        cellLon = (lonDegreeLength > 0)
+                ? Math.min(Math.max(cellSize / lonDegreeLength, cellLat), 360)
+                : 360;
+
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            long key = key(row(lat[ii]), col(lon[ii]));
+            Cell cell = cells.get(key);
+            if (cell == null)
+            {
+                cell = new Cell();
+                cells.put(key, cell);
+            }
+            cell.add(ii);
+        }
+    }
+
+
+    /**
+     *  Returns the lowest index, at or after <code>fromIndex</code>, of a point that
+     *  is strictly less than <code>maxSeparation</code> meters from the provided
+     *  location. Returns -1 if there is no such point.
+     */
+    public int findFirstWithin(double qLat, double qLon, double maxSeparation, int fromIndex)
+    {
+        if ((maxSeparation <= 0) || (fromIndex >= size))
+            return -1;
+
+        PreparedPoint query = new PreparedPoint(qLat, qLon);
+        double lonDegreeLength = PointUtil.EARTH_DEGREE_LENGTH * query.getCosLat();
+        double radiusLat = RADIUS_MARGIN * maxSeparation / PointUtil.EARTH_DEGREE_LENGTH;
+        double radiusLon = RADIUS_MARGIN * maxSeparation / lonDegreeLength;
+
+        // if it's cheaper to look at every point, do so; this is calculated in floating
+        // point to handle a near-infinite longitude radius close to the poles
+        double numRows = Math.floor((qLat + radiusLat) / cellLat) - Math.floor((qLat - radiusLat) / cellLat) + 1;
+        double numCols = Math.floor((qLon + radiusLon) / cellLon) - Math.floor((qLon - radiusLon) / cellLon) + 1;
+        if (! (numRows * numCols <= size - fromIndex))
+            return scan(query, maxSeparation, fromIndex);
+
+        long minRow = row(qLat - radiusLat);
+        long maxRow = row(qLat + radiusLat);
+        long minCol = col(qLon - radiusLon);
+        long maxCol = col(qLon + radiusLon);
+
+        int best = -1;
+        for (long row = minRow ; row <= maxRow ; row++)
+        {
+            for (long col = minCol ; col <= maxCol ; col++)
+            {
+                Cell cell = cells.get(key(row, col));
+                if (cell != null)
+                {
+                    int idx = cell.findFirstWithin(query, maxSeparation, fromIndex, best);
+                    if (idx >= 0)
+                        best = idx;
+                }
+            }
+        }
+        return best;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private long row(double value)
+    {
+        return (long)Math.floor(value / cellLat);
+    }
+
+
+    private long col(double value)
+    {
+        return (long)Math.floor(value / cellLon);
+    }
+
+
+    private static long key(long row, long col)
+    {
+        return (row << 32) ^ (col & 0xFFFFFFFFL);
+    }
+
+
+    private double distance(PreparedPoint query, int idx)
+    {
+        return PointUtil.pythagoreanDistance(query, lat[idx], lon[idx]);
+    }
+
+
+    /**
+     *  The fallback when a search would examine too many cells.
+     */
+    private int scan(PreparedPoint query, double maxSeparation, int fromIndex)
+    {
+        for (int ii = fromIndex ; ii < size ; ii++)
+        {
+            if (distance(query, ii) < maxSeparation)
+                return ii;
+        }
+        return -1;
+    }
+
+
+    /**
+     *  The indexes of the points in a single cell. Since points are added in
+     *  order, these indexes are sorted.
+     */
+    private class Cell
+    {
+        private int[] indexes = new int[4];
+        private int count;
+
+        public void add(int idx)
+        {
+            if (count == indexes.length)
+                indexes = Arrays.copyOf(indexes, count * 2);
+            indexes[count++] = idx;
+        }
+
+        /**
+         *  Returns the first index at or after <code>fromIndex</code>, and before
+         *  <code>limit</code> (if that's non-negative), whose point is within the
+         *  specified distance; -1 if there isn't one.
+         */
+        public int findFirstWithin(PreparedPoint query, double maxSeparation, int fromIndex, int limit)
+        {
+            int start = Arrays.binarySearch(indexes, 0, count, fromIndex);
+            if (start < 0)
+                start = -start - 1;
+
+            for (int ii = start ; ii < count ; ii++)
+            {
+                int idx = indexes[ii];
+                if ((limit >= 0) && (idx >= limit))
+                    return -1;
+                if (distance(query, idx) < maxSeparation)
+                    return idx;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,519 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ *  A static spatial index over a set of points, supporting nearest-neighbor and
+ *  radius queries. Query results are indexes into the source points (which are
+ *  not retained by the index).
+ *  <p>
+ *  The index is a k-d tree built over the points' positions as unit vectors, so
+ *  the straight-line distance between two entries increases monotonically with
+ *  the great circle distance between them. As a result there's no special
+ *  handling for the antimeridian or poles: points on either side of 180&deg;
+ *  longitude are neighbors, as are points around a pole. Distances are those
+ *  of a sphere with radius {@link PointUtil#EARTH_RADIUS}, and are consistent
+ *  with {@link PointUtil#haversineDistance}.
+ *  <p>
+ *  Instances are immutable, and may be queried concurrently.
+ */
+public class PointIndex
+{
+    // ranges of this size or smaller are scanned rather than split
+    private final static int LEAF_SIZE = 8;
+
+    // the points as unit vectors, in tree order
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+
+    // the source index of each point in tree order
+    private final int[] index;
+
+    // for each range larger than a leaf, the dimension that it's split on,
+    // stored at the position of its median
+    private final byte[] splitDim;
+
+    private final int size;
+
+
+    /**
+     *  Indexes the first <code>size</code> points of the provided arrays of latitude
+     *  and longitude (in degrees). The arrays are not retained.
+     */
+    public PointIndex(double[] lat, double[] lon, int size)
+    {
+        if ((size < 0) || (size > lat.length) || (size > lon.length))
+            throw new IllegalArgumentException("invalid size: " + size + " (arrays have " + lat.length + "/" + lon.length + " elements)");
+
+        this.size = size;
+        x = new double[size];
+        y = new double[size];
+        z = new double[size];
+        index = new int[size];
+        splitDim = new byte[size];
+
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            double latRad = Math.toRadians(lat[ii]);
+            double lonRad = Math.toRadians(lon[ii]);
+            x[ii] = Math.cos(latRad) * Math.cos(lonRad);
+            y[ii] = Math.cos(latRad) * Math.sin(lonRad);
+            z[ii] = Math.sin(latRad);
+            index[ii] = ii;
+        }
+
+        build(0, size);
+    }
+
+
+    /**
+     *  Indexes the points in a <code>PointArray</code>.
+     */
+    public PointIndex(PointArray points)
+    {
+        this(points.lat, points.lon, points.size);
+    }
+
+
+    /**
+     *  Indexes a list of points.
+     */
+    public PointIndex(List<? extends Point> points)
+    {
+        this(new PointArray(points));
+    }
+
+//----------------------------------------------------------------------------
+//  Accessors
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the number of indexed points.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+//----------------------------------------------------------------------------
+//  Queries
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the index of the point closest to the specified location, -1 if
+     *  the index is empty. If several points are equally close, returns the
+     *  lowest index.
+     */
+    public int nearest(double lat, double lon)
+    {
+        int[] result = nearest(lat, lon, 1);
+        return (result.length > 0) ? result[0] : -1;
+    }
+
+
+    /**
+     *  Returns the index of the point closest to the specified point, -1 if the
+     *  index is empty.
+     */
+    public int nearest(Point p)
+    {
+        return nearest(p.getLat(), p.getLon());
+    }
+
+
+    /**
+     *  Returns the indexes of the <code>k</code> points closest to the specified
+     *  location, ordered by increasing distance (with equally-distant points ordered
+     *  by index). Returns fewer than <code>k</code> indexes if there are fewer points.
+     */
+    public int[] nearest(double lat, double lon, int k)
+    {
+        k = Math.min(k, size);
+        if (k <= 0)
+            return new int[0];
+
+        Query query = new Query(lat, lon);
+        BoundedHeap heap = new BoundedHeap(k);
+        query.searchNearest(0, size, heap);
+        return heap.toSortedIndexes();
+    }
+
+
+    /**
+     *  Returns the indexes of the <code>k</code> points closest to the specified
+     *  point; see {@link #nearest(double,double,int)}.
+     */
+    public int[] nearest(Point p, int k)
+    {
+        return nearest(p.getLat(), p.getLon(), k);
+    }
+
+
+    /**
+     *  Returns the indexes of all points that are within the specified distance (in
+     *  meters) of the specified location, in increasing order.
+     */
+    public int[] within(double lat, double lon, double radius)
+    {
+        if ((size == 0) || (radius < 0) || Double.isNaN(radius))
+            return new int[0];
+
+        // convert the radius into the straight-line distance between unit vectors
+        double angle = radius / PointUtil.EARTH_RADIUS;
+        double maxDist2 = Double.POSITIVE_INFINITY;
+        if (angle < Math.PI)
+        {
+            double chord = 2 * Math.sin(angle / 2);
+            maxDist2 = chord * chord;
+        }
+
+        Query query = new Query(lat, lon);
+        IndexList result = new IndexList();
+        query.searchWithin(0, size, maxDist2, result);
+        return result.toSortedArray();
+    }
+
+
+    /**
+     *  Returns the indexes of all points that are within the specified distance (in
+     *  meters) of the specified point, in increasing order.
+     */
+    public int[] within(Point p, double radius)
+    {
+        return within(p.getLat(), p.getLon(), radius);
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Recursively organizes the range <code>[lo, hi)</code>: if it's larger than
+     *  a leaf, the median along the dimension with the largest extent is moved to
+     *  the middle of the range, with lesser values before it and greater after.
+     */
+    private void build(int lo, int hi)
+    {
+        if (hi - lo <= LEAF_SIZE)
+            return;
+
+        int dim = widestDimension(lo, hi);
+        int mid = (lo + hi) >>> 1;
+        select(coordinates(dim), lo, hi - 1, mid);
+        splitDim[mid] = (byte)dim;
+
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+
+    private int widestDimension(int lo, int hi)
+    {
+        int dim = 0;
+        double widest = -1;
+        for (int dd = 0 ; dd < 3 ; dd++)
+        {
+            double[] c = coordinates(dd);
+            double min = c[lo];
+            double max = c[lo];
+            for (int ii = lo + 1 ; ii < hi ; ii++)
+            {
+                min = Math.min(min, c[ii]);
+                max = Math.max(max, c[ii]);
+            }
+            if (max - min > widest)
+            {
+                widest = max - min;
+                dim = dd;
+            }
+        }
+        return dim;
+    }
+
+
+    private double[] coordinates(int dim)
+    {
+        return (dim == 0) ? x : (dim == 1) ? y : z;
+    }
+
+
+    /**
+     *  Partially sorts the inclusive range <code>[lo, hi]</code> so that position
+     *  <code>k</code> holds the value that it would in a fully sorted range (Wirth's
+     *  selection algorithm, which behaves well with duplicate values).
+     */
+    private void select(double[] c, int lo, int hi, int k)
+    {
+        while (lo < hi)
+        {
+            double pivot = c[k];
+            int ii = lo;
+            int jj = hi;
+            do
+            {
+                while (c[ii] < pivot)
+                    ii++;
+                while (pivot < c[jj])
+                    jj--;
+                if (ii <= jj)
+                {
+                    swap(ii, jj);
+                    ii++;
+                    jj--;
+                }
+            }
+            while (ii <= jj);
+
+            if (jj < k)
+                lo = ii;
+            if (k < ii)
+                hi = jj;
+        }
+    }
+
+
+    private void swap(int ii, int jj)
+    {
+        swap(x, ii, jj);
+        swap(y, ii, jj);
+        swap(z, ii, jj);
+
+        int tmp = index[ii];
+        index[ii] = index[jj];
+        index[jj] = tmp;
+    }
+
+
+    private static void swap(double[] values, int ii, int jj)
+    {
+        double tmp = values[ii];
+        values[ii] = values[jj];
+        values[jj] = tmp;
+    }
+
+
+    /**
+     *  Holds the query location, and performs the tree traversal.
+     */
+    private class Query
+    {
+        private double[] q = new double[3];
+
+        public Query(double lat, double lon)
+        {
+            double latRad = Math.toRadians(lat);
+            double lonRad = Math.toRadians(lon);
+            q[0] = Math.cos(latRad) * Math.cos(lonRad);
+            q[1] = Math.cos(latRad) * Math.sin(lonRad);
+            q[2] = Math.sin(latRad);
+        }
+
+        private double distance2(int pos)
+        {
+            double dx = x[pos] - q[0];
+            double dy = y[pos] - q[1];
+            double dz = z[pos] - q[2];
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        public void searchNearest(int lo, int hi, BoundedHeap heap)
+        {
+            if (hi - lo <= LEAF_SIZE)
+            {
+                for (int pos = lo ; pos < hi ; pos++)
+                {
+                    heap.offer(distance2(pos), index[pos]);
+                }
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            int dim = splitDim[mid];
+            double diff = q[dim] - coordinates(dim)[mid];
+            heap.offer(distance2(mid), index[mid]);
+
+            // the bound is checked with <= so that equally-distant points with
+            // lower indexes aren't skipped
+            if (diff < 0)
+            {
+                searchNearest(lo, mid, heap);
+                if (diff * diff <= heap.bound())
+                    searchNearest(mid + 1, hi, heap);
+            }
+            else
+            {
+                searchNearest(mid + 1, hi, heap);
+                if (diff * diff <= heap.bound())
+                    searchNearest(lo, mid, heap);
+            }
+        }
+
+        public void searchWithin(int lo, int hi, double maxDist2, IndexList result)
+        {
+            if (hi - lo <= LEAF_SIZE)
+            {
+                for (int pos = lo ; pos < hi ; pos++)
+                {
+                    if (distance2(pos) <= maxDist2)
+                        result.add(index[pos]);
+                }
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            int dim = splitDim[mid];
+            double diff = q[dim] - coordinates(dim)[mid];
+            if (distance2(mid) <= maxDist2)
+                result.add(index[mid]);
+
+            if ((diff <= 0) || (diff * diff <= maxDist2))
+                searchWithin(lo, mid, maxDist2, result);
+            if ((diff >= 0) || (diff * diff <= maxDist2))
+                searchWithin(mid + 1, hi, maxDist2, result);
+        }
+    }
+
+
+    /**
+     *  Retains the closest <code>k</code> candidates seen so far, as a max-heap
+     *  so that the furthest is the one replaced. Candidates are ordered by distance
+     *  and then by index.
+     */
+    private static class BoundedHeap
+    {
+        private double[] dist;
+        private int[] idx;
+        private int count;
+
+        public BoundedHeap(int capacity)
+        {
+            dist = new double[capacity];
+            idx = new int[capacity];
+        }
+
+        /**
+         *  Returns the distance that a candidate must not exceed to be retained.
+         */
+        public double bound()
+        {
+            return (count < dist.length) ? Double.POSITIVE_INFINITY : dist[0];
+        }
+
+        public void offer(double d, int i)
+        {
+            if (count < dist.length)
+            {
+                dist[count] = d;
+                idx[count] = i;
+                siftUp(count++);
+            }
+            else if (greater(dist[0], idx[0], d, i))
+            {
+                dist[0] = d;
+                idx[0] = i;
+                siftDown(0);
+            }
+        }
+
+        public int[] toSortedIndexes()
+        {
+            int[] result = new int[count];
+            while (count > 0)
+            {
+                result[count - 1] = idx[0];
+                count--;
+                dist[0] = dist[count];
+                idx[0] = idx[count];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private static boolean greater(double d1, int i1, double d2, int i2)
+        {
+            return (d1 > d2) || ((d1 == d2) && (i1 > i2));
+        }
+
+        private void swap(int p1, int p2)
+        {
+            double tmpDist = dist[p1];
+            dist[p1] = dist[p2];
+            dist[p2] = tmpDist;
+
+            int tmpIdx = idx[p1];
+            idx[p1] = idx[p2];
+            idx[p2] = tmpIdx;
+        }
+
+        private void siftUp(int pos)
+        {
+            while (pos > 0)
+            {
+                int parent = (pos - 1) / 2;
+                if (! greater(dist[pos], idx[pos], dist[parent], idx[parent]))
+                    return;
+                swap(pos, parent);
+                pos = parent;
+            }
+        }
+
+        private void siftDown(int pos)
+        {
+            while (true)
+            {
+                int left = 2 * pos + 1;
+                int right = left + 1;
+                int largest = pos;
+                if ((left < count) && greater(dist[left], idx[left], dist[largest], idx[largest]))
+                    largest = left;
+                if ((right < count) && greater(dist[right], idx[right], dist[largest], idx[largest]))
+                    largest = right;
+                if (largest == pos)
+                    return;
+                swap(pos, largest);
+                pos = largest;
+            }
+        }
+    }
+
+
+    /**
+     *  A growable list of indexes, used to accumulate radius query results.
+     */
+    private static class IndexList
+    {
+        private int[] values = new int[16];
+        private int count;
+
+        public void add(int value)
+        {
+            if (count == values.length)
+                values = Arrays.copyOf(values, count * 2);
+            values[count++] = value;
+        }
+
+        public int[] toSortedArray()
+        {
+            int[] result = Arrays.copyOf(values, count);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -75,6 +75,112 @@ public class PointUtil
     }
 
 
+    /**
+     *  Calculates the Pythagorean distance (in meters) between a prepared point and
+     *  another location, without re-evaluating the latitude correction. The result
+     *  is identical to that of the unprepared calculation.
+     */
+    public static double pythagoreanDistance(PreparedPoint p1, double lat2, double lon2)
+    {
+        double dLat = EARTH_DEGREE_LENGTH * (lat2 - p1.getLat());
+        double dLon = EARTH_DEGREE_LENGTH * (lon2 - p1.getLon()) * p1.getCosLat();
+        return Math.sqrt(dLat * dLat + dLon * dLon);
+    }
+
+
+    /**
+     *  Calculates the Pythagorean distance (in meters) between a prepared point and
+     *  another point.
+     */
+    public static double pythagoreanDistance(PreparedPoint p1, Point p2)
+    {
+        return pythagoreanDistance(p1, p2.getLat(), p2.getLon());
+    }
+
+
+    /**
+     *  Calculates the Pythagorean distance between each consecutive pair of points
+     *  in parallel arrays of latitude and longitude, writing the results into the
+     *  output array (element <code>i</code> is the distance between points <code>i</code>
+     *  and <code>i+1</code>). Each result is identical to calling {@link #pythagoreanDistance}
+     *  for that pair.
+     *  <p>
+     *  This is written so that the JIT can compile the arithmetic into SIMD instructions:
+     *  the cosine, which can't be vectorized, is evaluated in a separate pass.
+     *
+     *  @param  lat     Latitudes, in degrees.
+     *  @param  lon     Longitudes, in degrees.
+     *  @param  count   The number of points to process, starting at index 0.
+     *  @param  out     Receives <code>count - 1</code> distances.
+     */
+    public static void hopDistances(double[] lat, double[] lon, int count, double[] out)
+    {
+        if ((count > lat.length) || (count > lon.length))
+            throw new IllegalArgumentException("invalid count: " + count + " (arrays have " + lat.length + "/" + lon.length + " elements)");
+        if (count < 2)
+            return;
+        if (out.length < count - 1)
+            throw new IllegalArgumentException("invalid output array: needs " + (count - 1) + " elements, has " + out.length);
+
+        int hops = count - 1;
+        for (int ii = 0 ; ii < hops ; ii++)
+        {
+            out[ii] = Math.cos(Math.toRadians(lat[ii]));
+        }
+        for (int ii = 0 ; ii < hops ; ii++)
+        {
+            double dLat = EARTH_DEGREE_LENGTH * (lat[ii + 1] - lat[ii]);
+            double dLon = EARTH_DEGREE_LENGTH * (lon[ii + 1] - lon[ii]) * out[ii];
+            out[ii] = Math.sqrt(dLat * dLat + dLon * dLon);
+        }
+    }
+
+
+    /**
+     *  Calculates the Pythagorean distance between each consecutive pair of points
+     *  in parallel arrays; see {@link #hopDistances(double[],double[],int,double[])}.
+     *  The arrays must be the same length.
+     */
+    public static void hopDistances(double[] lat, double[] lon, double[] out)
+    {
+        if (lat.length != lon.length)
+            throw new IllegalArgumentException("array lengths differ: " + lat.length + " latitudes, " + lon.length + " longitudes");
+
+        hopDistances(lat, lon, lat.length, out);
+    }
+
+
+    /**
+     *  Calculates the Pythagorean distance from a single point to each of the points
+     *  in parallel arrays of latitude and longitude, writing the results into the
+     *  output array. Each result is identical to calling {@link #pythagoreanDistance}
+     *  with the single point first. Since the latitude correction is based on the
+     *  single point, the loop is pure arithmetic and can be vectorized by the JIT.
+     *
+     *  @param  lat1    Latitude of the single point, in degrees.
+     *  @param  lon1    Longitude of the single point, in degrees.
+     *  @param  lat     Latitudes of the other points, in degrees.
+     *  @param  lon     Longitudes of the other points, in degrees.
+     *  @param  count   The number of points to process, starting at index 0.
+     *  @param  out     Receives <code>count</code> distances.
+     */
+    public static void distances(double lat1, double lon1, double[] lat, double[] lon, int count, double[] out)
+    {
+        if ((count > lat.length) || (count > lon.length))
+            throw new IllegalArgumentException("invalid count: " + count + " (arrays have " + lat.length + "/" + lon.length + " elements)");
+        if (out.length < count)
+            throw new IllegalArgumentException("invalid output array: needs " + count + " elements, has " + out.length);
+
+        double cosLat1 = Math.cos(Math.toRadians(lat1));
+        for (int ii = 0 ; ii < count ; ii++)
+        {
+            double dLat = EARTH_DEGREE_LENGTH * (lat[ii] - lat1);
+            double dLon = EARTH_DEGREE_LENGTH * (lon[ii] - lon1) * cosLat1;
+            out[ii] = Math.sqrt(dLat * dLat + dLon * dLon);
+        }
+    }
+
+
     /**
      *  Calculates the Great Circle distance between two points, with arbitrary
      *  sphere radius.
@@ -110,13 +216,110 @@ public class PointUtil
     }
 
 
+    /**
+     *  Calculates the Great Circle distance between two prepared points on the Earth.
+     *  This only evaluates the sine and cosine of the difference in longitude.
+     */
+    public static double greatCircleDistance(PreparedPoint p1, PreparedPoint p2)
+    {
+        double dLon = p2.getLonRadians() - p1.getLonRadians();
+        double sinDLon = Math.sin(dLon);
+        double cosDLon = Math.cos(dLon);
+        double n1 = p2.getCosLat() * sinDLon;
+        double n2 = p1.getCosLat() * p2.getSinLat() - p1.getSinLat() * p2.getCosLat() * cosDLon;
+        double d  = p1.getSinLat() * p2.getSinLat() + p1.getCosLat() * p2.getCosLat() * cosDLon;
+        double sigma = Math.atan(Math.sqrt(n1 * n1 + n2 * n2) / d);
+        return sigma * EARTH_RADIUS;
+    }
+
+
+    /**
+     *  Calculates the Great Circle distance between a prepared point and another
+     *  location on the Earth.
+     */
+    public static double greatCircleDistance(PreparedPoint p1, double lat2, double lon2)
+    {
+        return greatCircleDistance(p1, new PreparedPoint(lat2, lon2));
+    }
+
+
+    /**
+     *  Calculates the haversine distance between two points, with arbitrary sphere
+     *  radius. This is numerically stable for both small and large distances.
+     */
+    public static double haversineDistance(double lat1, double lon1, double lat2, double lon2, double radius)
+    {
+        double sinDLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinDLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinDLat * sinDLat
+                 + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinDLon * sinDLon;
+        return 2 * radius * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+
+    /**
+     *  Calculates the haversine distance between two points on the Earth.
+     */
+    public static double haversineDistance(double lat1, double lon1, double lat2, double lon2)
+    {
+        return haversineDistance(lat1, lon1, lat2, lon2, EARTH_RADIUS);
+    }
+
+
+    /**
+     *  Calculates the haversine distance between two points on the Earth.
+     */
+    public static double haversineDistance(Point p1, Point p2)
+    {
+        return haversineDistance(p1.getLat(), p1.getLon(), p2.getLat(), p2.getLon());
+    }
+
+
+    /**
+     *  Calculates the haversine distance between two prepared points on the Earth.
+     *  This only evaluates the sines of the half-differences in latitude and longitude.
+     */
+    public static double haversineDistance(PreparedPoint p1, PreparedPoint p2)
+    {
+        double sinDLat = Math.sin((p2.getLatRadians() - p1.getLatRadians()) / 2);
+        double sinDLon = Math.sin((p2.getLonRadians() - p1.getLonRadians()) / 2);
+        double a = sinDLat * sinDLat
+                 + p1.getCosLat() * p2.getCosLat() * sinDLon * sinDLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+
+    /**
+     *  Calculates the haversine distance between a prepared point and another location
+     *  on the Earth. The result is identical to that of the unprepared calculation.
+     */
+    public static double haversineDistance(PreparedPoint p1, double lat2, double lon2)
+    {
+        double sinDLat = Math.sin(Math.toRadians(lat2 - p1.getLat()) / 2);
+        double sinDLon = Math.sin(Math.toRadians(lon2 - p1.getLon()) / 2);
+        double a = sinDLat * sinDLat
+                 + p1.getCosLat() * Math.cos(Math.toRadians(lat2)) * sinDLon * sinDLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+
     /**
      *  Determines the velocity, in meters/second, to travel from one point to another
      *  (calculated using Pythagorean distance).
      */
     public static double velocity(Point p1, Point p2)
     {
-        double distMeters = PointUtil.pythagoreanDistance(p1, p2);
+        return velocity(p1, p2, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Determines the velocity, in meters/second, to travel from one point to another,
+     *  using the specified distance calculator.
+     */
+    public static double velocity(Point p1, Point p2, DistanceCalculator calculator)
+    {
+        double distMeters = calculator.distance(p1, p2);
         double elapsed = (p1.getTimestampMillis() - p2.getTimestampMillis()) / 1000.0;
         return Math.abs(distMeters / elapsed);
     }
@@ -128,7 +331,17 @@ public class PointUtil
      */
     public static double velocityMPH(Point p1, Point p2)
     {
-        return velocity(p1, p2) * 39.37 / 12 / 5280 * 3600;
+        return velocityMPH(p1, p2, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Determines the velocity, in miles/hour, to travel from one point to another,
+     *  using the specified distance calculator.
+     */
+    public static double velocityMPH(Point p1, Point p2, DistanceCalculator calculator)
+    {
+        return velocity(p1, p2, calculator) * 39.37 / 12 / 5280 * 3600;
     }
 
 
@@ -0,0 +1,110 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+
+/**
+ *  A location whose trigonometric terms have been calculated in advance. This
+ *  is intended for one-to-many distance calculations, such as finding the point
+ *  in a segment that's closest to some other point: preparing that point means
+ *  that each comparison only evaluates the trigonometric functions that depend
+ *  on the other point (or on the difference between the two).
+ *  <p>
+ *  Pythagorean and great circle distances calculated with prepared points are
+ *  identical to those calculated with the unprepared coordinates; haversine
+ *  distance between two prepared points may differ in the least significant
+ *  digits. Instances are immutable.
+ */
+public final class PreparedPoint
+{
+    private final double lat;
+    private final double lon;
+    private final double latRadians;
+    private final double lonRadians;
+    private final double sinLat;
+    private final double cosLat;
+
+
+    /**
+     *  Prepares a location given as latitude and longitude, in degrees.
+     */
+    public PreparedPoint(double lat, double lon)
+    {
+        this.lat = lat;
+        this.lon = lon;
+        this.latRadians = Math.toRadians(lat);
+        this.lonRadians = Math.toRadians(lon);
+        this.sinLat = Math.sin(latRadians);
+        this.cosLat = Math.cos(latRadians);
+    }
+
+
+    /**
+     *  Prepares the location of an existing point.
+     */
+    public PreparedPoint(Point point)
+    {
+        this(point.getLat(), point.getLon());
+    }
+
+//----------------------------------------------------------------------------
+//  Accessors
+//----------------------------------------------------------------------------
+
+    public double getLat()
+    {
+        return lat;
+    }
+
+
+    public double getLon()
+    {
+        return lon;
+    }
+
+
+    public double getLatRadians()
+    {
+        return latRadians;
+    }
+
+
+    public double getLonRadians()
+    {
+        return lonRadians;
+    }
+
+
+    public double getSinLat()
+    {
+        return sinLat;
+    }
+
+
+    public double getCosLat()
+    {
+        return cosLat;
+    }
+
+//----------------------------------------------------------------------------
+//  Overrides
+//----------------------------------------------------------------------------
+
+    @Override
+    public String toString()
+    {
+        return "PreparedPoint(lat=" + lat + ",lon=" + lon + ")";
+    }
+}
@@ -17,8 +17,11 @@ package com.kdgregory.geoutil.lib.core;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 
 /**
@@ -31,6 +34,16 @@ public class SegmentUtil
      *  in a segment.
      */
     public static double pythagoreanDistance(List<? extends Point> segment)
+    {
+        return distance(segment, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Computes and sums the distance (in meters) between the points in a segment,
+     *  using the specified calculator.
+     */
+    public static double distance(List<? extends Point> segment, DistanceCalculator calculator)
     {
         if ((segment == null) || segment.isEmpty())
             return 0;
@@ -41,7 +54,7 @@ public class SegmentUtil
         while (itx.hasNext())
         {
             Point cur = itx.next();
-            sum += PointUtil.pythagoreanDistance(prev, cur);
+            sum += calculator.distance(prev, cur);
             prev = cur;
         }
 
@@ -60,6 +73,15 @@ public class SegmentUtil
      *          This list may be modified by the caller.
      */
     public static List<Point> trim(List<? extends Point> segment, double minDist)
+    {
+        return trim(segment, minDist, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Trims the past segment, as above, using the specified distance calculator.
+     */
+    public static List<Point> trim(List<? extends Point> segment, double minDist, DistanceCalculator calculator)
     {
         ArrayList<Point> result = new ArrayList<>();
         if ((segment == null) || segment.isEmpty())
@@ -72,7 +94,7 @@ public class SegmentUtil
         while ((prev != null) && startItx.hasNext())
         {
             Point cur = startItx.next();
-            if (PointUtil.pythagoreanDistance(prev, cur) >= minDist)
+            if (calculator.distance(prev, cur) >= minDist)
             {
                 result.add(prev);
                 result.add(cur);
@@ -95,7 +117,7 @@ public class SegmentUtil
         int curIdx = prevIdx - 1;
         while (curIdx > 0)
         {
-            if (PointUtil.pythagoreanDistance(result.get(prevIdx), result.get(curIdx)) >= minDist)
+            if (calculator.distance(result.get(prevIdx), result.get(curIdx)) >= minDist)
                 break;
             result.remove(prevIdx);
             prevIdx = curIdx;
@@ -125,14 +147,11 @@ public class SegmentUtil
         Instant prevTimestamp = null;
         for (Point cur : segment)
         {
-            if ((prevTimestamp != null) && (cur.getTimestamp() != null))
+            if ((prevTimestamp != null) && (cur.getTimestamp() != null)
+                && isGap(prevTimestamp, cur.getTimestamp(), minGap))
             {
-                Duration actual = Duration.between(prevTimestamp, cur.getTimestamp());
-                if (actual.compareTo(minGap) >= 0)
-                {
-                    split = new ArrayList<>();
-                    result.add(split);
-                }
+                split = new ArrayList<>();
+                result.add(split);
             }
 
             split.add(cur);
@@ -147,6 +166,16 @@ public class SegmentUtil
      *  (using Pythagorean distance). The returned segment is a newly-created mutable list.
      */
     public static List<Point> simplify(List<? extends Point> segment, double minDistanceMeters)
+    {
+        return simplify(segment, minDistanceMeters, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Simplifies a segment by removing points that are less than a specified distance apart,
+     *  using the specified distance calculator.
+     */
+    public static List<Point> simplify(List<? extends Point> segment, double minDistanceMeters, DistanceCalculator calculator)
     {
         if ((segment == null) || segment.isEmpty())
             return new ArrayList<Point>();
@@ -159,7 +188,7 @@ public class SegmentUtil
         while (itx.hasNext())
         {
             Point cur = itx.next();
-            if (PointUtil.pythagoreanDistance(prev, cur) > minDistanceMeters)
+            if (calculator.distance(prev, cur) > minDistanceMeters)
             {
                 result.add(cur);
                 prev = cur;
@@ -170,6 +199,40 @@ public class SegmentUtil
     }
 
 
+    /**
+     *  Simplifies a segment using the Douglas-Peucker algorithm: retains the points
+     *  that are more than <code>toleranceMeters</code> from the line connecting their
+     *  retained neighbors. The first and last points are always retained. Large
+     *  segments are processed in parallel, using the common fork-join pool. The
+     *  returned segment is a newly-created mutable list.
+     */
+    public static List<Point> simplifyDouglasPeucker(List<? extends Point> segment, double toleranceMeters)
+    {
+        if ((segment == null) || segment.isEmpty())
+            return new ArrayList<Point>();
+
+        PointArray points = new PointArray(segment);
+        return retained(segment, Simplifier.douglasPeucker(points.lat, points.lon, points.size, toleranceMeters));
+    }
+
+
+    /**
+     *  Simplifies a segment using the Visvalingam-Whyatt algorithm: repeatedly removes
+     *  the point that forms the smallest triangle with its neighbors, until all such
+     *  triangles have an area of at least <code>toleranceMeters</code> squared. The
+     *  first and last points are always retained. The returned segment is a newly-created
+     *  mutable list.
+     */
+    public static List<Point> simplifyVisvalingam(List<? extends Point> segment, double toleranceMeters)
+    {
+        if ((segment == null) || segment.isEmpty())
+            return new ArrayList<Point>();
+
+        PointArray points = new PointArray(segment);
+        return retained(segment, Simplifier.visvalingam(points.lat, points.lon, points.size, toleranceMeters));
+    }
+
+
     /**
      *  Attempts to find two sections of the passed segments that align.
      *  <p>
@@ -184,13 +247,28 @@ public class SegmentUtil
      *  <p>
      *  This repeats until one of the lists has no more elements, or until the
      *  distance between the first and second lists exceeds <code>maxDivergence</code>.
+     *  <p>
+     *  While looking for the first pair, the second list is indexed by location,
+     *  so that segments which start far apart don't require a scan of the entire
+     *  second list for every point in the first.
      */
     public static List<Point[]> align(List<? extends Point> s1, List<? extends Point> s2, double minIncrement, double maxSeparation)
+    {
+        return align(s1, s2, minIncrement, maxSeparation, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Aligns two segments, as above, using the specified distance calculator. The
+     *  spatial index is only used with the Pythagorean calculator; other calculators
+     *  search the second list sequentially.
+     */
+    public static List<Point[]> align(List<? extends Point> s1, List<? extends Point> s2, double minIncrement, double maxSeparation, DistanceCalculator calculator)
     {
         List<Point[]> result = new ArrayList<Point[]>();
 
-        AlignHelper itx1 = new AlignHelper(s1);
-        AlignHelper itx2 = new AlignHelper(s2);
+        AlignHelper itx1 = new AlignHelper(s1, calculator);
+        AlignHelper itx2 = new AlignHelper(s2, calculator);
 
         // these points are outside the loop so that their previous values can be used inside
         Point p1 = null;
@@ -203,6 +281,13 @@ public class SegmentUtil
             if (p1 == null)
                 return result;
 
+            // until we've started a line, each point could match anywhere in the second
+            // segment; the index lets us skip directly to the first candidate
+            if (result.isEmpty())
+            {
+                itx2.seekWithin(p1, maxSeparation);
+            }
+
             p2 = itx2.findMatchingPoint(p1, maxSeparation);
             if (p2 != null)
             {
@@ -219,10 +304,283 @@ public class SegmentUtil
         return result;
     }
 
+//----------------------------------------------------------------------------
+//  Parallel variants
+//----------------------------------------------------------------------------
+
+    /**
+     *  Segments smaller than this are processed by the sequential methods, since
+     *  the overhead of parallel execution outweighs any benefit.
+     */
+    public final static int PARALLEL_THRESHOLD = 16384;
+
+    /**
+     *  The minimum number of points processed by a single parallel task.
+     */
+    private final static int MIN_CHUNK_SIZE = 4096;
+
+
+    /**
+     *  Equivalent to {@link #pythagoreanDistance(List)}, but calculates the distances
+     *  between points in parallel, using the common fork-join pool. The distances are
+     *  summed in order, so the result is identical to the sequential version.
+     */
+    public static double pythagoreanDistanceParallel(List<? extends Point> segment)
+    {
+        return distanceParallel(segment, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Equivalent to {@link #distance(List,DistanceCalculator)}, but calculates the
+     *  distances between points in parallel.
+     */
+    public static double distanceParallel(List<? extends Point> segment, DistanceCalculator calculator)
+    {
+        if ((segment == null) || (segment.size() < PARALLEL_THRESHOLD))
+            return distance(segment, calculator);
+
+        return distanceParallel(segment, calculator, chunkSize(segment.size()));
+    }
+
+
+    /**
+     *  Equivalent to {@link #simplify}, but processes the segment in parallel chunks,
+     *  using the common fork-join pool. Each chunk is simplified on the assumption that
+     *  its first point is retained; the chunks are then merged in order, re-examining
+     *  the start of each chunk until it agrees with the sequential result.
+     */
+    public static List<Point> simplifyParallel(List<? extends Point> segment, double minDistanceMeters)
+    {
+        return simplifyParallel(segment, minDistanceMeters, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Equivalent to {@link #simplify(List,double,DistanceCalculator)}, but processes
+     *  the segment in parallel chunks.
+     */
+    public static List<Point> simplifyParallel(List<? extends Point> segment, double minDistanceMeters, DistanceCalculator calculator)
+    {
+        if ((segment == null) || (segment.size() < PARALLEL_THRESHOLD))
+            return simplify(segment, minDistanceMeters, calculator);
+
+        return simplifyParallel(segment, minDistanceMeters, calculator, chunkSize(segment.size()));
+    }
+
+
+    /**
+     *  Equivalent to {@link #split}, but processes the segment in parallel chunks,
+     *  using the common fork-join pool. Each chunk finds its own gaps; the only gap
+     *  that it can't find is between the first timestamped point in the chunk and
+     *  the last timestamped point before it, which is tested when merging.
+     */
+    public static List<List<Point>> splitParallel(List<? extends Point> segment, Duration minGap)
+    {
+        if ((segment == null) || (segment.size() < PARALLEL_THRESHOLD))
+            return split(segment, minGap);
+
+        return splitParallel(segment, minGap, chunkSize(segment.size()));
+    }
+
+
+    /**
+     *  Implementation of {@link #distanceParallel(List,DistanceCalculator)}, exposed for testing.
+     */
+    static double distanceParallel(List<? extends Point> segment, DistanceCalculator calculator, int chunkSize)
+    {
+        Point[] points = segment.toArray(new Point[segment.size()]);
+        double[] hops = new double[Math.max(points.length - 1, 0)];
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int start = 0 ; start < hops.length ; start += chunkSize)
+        {
+            int chunkStart = start;
+            int chunkEnd = Math.min(start + chunkSize, hops.length);
+            tasks.add(ForkJoinTask.adapt(() ->
+            {
+                // each chunk includes the hop across its end seam
+                for (int ii = chunkStart ; ii < chunkEnd ; ii++)
+                {
+                    hops[ii] = calculator.distance(points[ii], points[ii + 1]);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        double sum = 0;
+        for (double hop : hops)
+        {
+            sum += hop;
+        }
+        return sum;
+    }
+
+
+    /**
+     *  Implementation of {@link #simplifyParallel(List,double,DistanceCalculator)}, exposed for testing.
+     */
+    static List<Point> simplifyParallel(List<? extends Point> segment, double minDistanceMeters, DistanceCalculator calculator, int chunkSize)
+    {
+        Point[] points = segment.toArray(new Point[segment.size()]);
+
+        List<ForkJoinTask<int[]>> tasks = new ArrayList<>();
+        for (int start = 0 ; start < points.length ; start += chunkSize)
+        {
+            int chunkStart = start;
+            int chunkEnd = Math.min(start + chunkSize, points.length);
+            tasks.add(ForkJoinTask.adapt(() -> simplifyChunk(points, chunkStart, chunkEnd, minDistanceMeters, calculator)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        List<Point> result = new ArrayList<Point>(points.length);
+        int prev = -1;
+        for (int chunk = 0 ; chunk < tasks.size() ; chunk++)
+        {
+            int[] retained = tasks.get(chunk).join();
+            int chunkStart = chunk * chunkSize;
+            int chunkEnd = Math.min(chunkStart + chunkSize, points.length);
+
+            // once the actual and speculative results retain the same point, they're
+            // identical for the rest of the chunk
+            int synced = (prev < 0) ? 0 : -1;
+            int rIdx = 0;
+            for (int ii = chunkStart ; (synced < 0) && (ii < chunkEnd) ; ii++)
+            {
+                if (calculator.distance(points[prev], points[ii]) > minDistanceMeters)
+                {
+                    while ((rIdx < retained.length) && (retained[rIdx] < ii))
+                        rIdx++;
+                    if ((rIdx < retained.length) && (retained[rIdx] == ii))
+                    {
+                        synced = rIdx;
+                    }
+                    else
+                    {
+                        result.add(points[ii]);
+                        prev = ii;
+                    }
+                }
+            }
+
+            if (synced >= 0)
+            {
+                for (int ii = synced ; ii < retained.length ; ii++)
+                {
+                    result.add(points[retained[ii]]);
+                }
+                prev = retained[retained.length - 1];
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     *  Implementation of {@link #splitParallel(List,Duration)}, exposed for testing.
+     */
+    static List<List<Point>> splitParallel(List<? extends Point> segment, Duration minGap, int chunkSize)
+    {
+        Point[] points = segment.toArray(new Point[segment.size()]);
+
+        List<ForkJoinTask<SplitChunk>> tasks = new ArrayList<>();
+        for (int start = 0 ; start < points.length ; start += chunkSize)
+        {
+            int chunkStart = start;
+            int chunkEnd = Math.min(start + chunkSize, points.length);
+            tasks.add(ForkJoinTask.adapt(() -> new SplitChunk(points, chunkStart, chunkEnd, minGap)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        List<Integer> splitPoints = new ArrayList<>();
+        splitPoints.add(0);
+        Instant prevTimestamp = null;
+        for (ForkJoinTask<SplitChunk> task : tasks)
+        {
+            SplitChunk chunk = task.join();
+            if ((prevTimestamp != null) && (chunk.firstTimestamped >= 0)
+                && isGap(prevTimestamp, points[chunk.firstTimestamped].getTimestamp(), minGap))
+            {
+                splitPoints.add(chunk.firstTimestamped);
+            }
+            splitPoints.addAll(chunk.splitPoints);
+            prevTimestamp = (chunk.lastTimestamp != null) ? chunk.lastTimestamp : prevTimestamp;
+        }
+        splitPoints.add(points.length);
+
+        List<List<Point>> result = new ArrayList<>();
+        List<Point> source = Arrays.asList(points);
+        for (int ii = 1 ; ii < splitPoints.size() ; ii++)
+        {
+            result.add(new ArrayList<Point>(source.subList(splitPoints.get(ii - 1), splitPoints.get(ii))));
+        }
+        return result;
+    }
+
 //----------------------------------------------------------------------------
 //  Internals
 //----------------------------------------------------------------------------
 
+    /**
+     *  Determines whether the time between two timestamps is at least the given gap.
+     */
+    private static boolean isGap(Instant prev, Instant cur, Duration minGap)
+    {
+        Duration actual = Duration.between(prev, cur);
+        return actual.compareTo(minGap) >= 0;
+    }
+
+
+    /**
+     *  Picks a chunk size for parallel operations, based on the number of threads
+     *  in the common pool (with several chunks per thread to balance load).
+     */
+    private static int chunkSize(int size)
+    {
+        int numChunks = ForkJoinPool.getCommonPoolParallelism() * 4;
+        return Math.max(MIN_CHUNK_SIZE, (size + numChunks - 1) / numChunks);
+    }
+
+
+    /**
+     *  Simplifies a chunk of a segment, assuming that its first point is retained.
+     *  Returns the indexes of the retained points.
+     */
+    private static int[] simplifyChunk(Point[] points, int start, int end, double minDistanceMeters, DistanceCalculator calculator)
+    {
+        int[] retained = new int[end - start];
+        int count = 0;
+        int prev = start;
+        retained[count++] = start;
+        for (int ii = start + 1 ; ii < end ; ii++)
+        {
+            if (calculator.distance(points[prev], points[ii]) > minDistanceMeters)
+            {
+                retained[count++] = ii;
+                prev = ii;
+            }
+        }
+        return Arrays.copyOf(retained, count);
+    }
+
+
+    /**
+     *  Returns a list of the points whose flag is set.
+     */
+    private static List<Point> retained(List<? extends Point> segment, boolean[] keep)
+    {
+        List<Point> result = new ArrayList<Point>();
+        int idx = 0;
+        for (Point point : segment)
+        {
+            if (keep[idx++])
+                result.add(point);
+        }
+        return result;
+    }
+
+
     /**
      *  This class holds the segments for matching. It behaves like an iterator,
      *  but adds functionality to seek and backtrack.
@@ -233,13 +591,16 @@ public class SegmentUtil
         private ArrayList<? extends Point> segment;
         private int idx;
         private int mark;
+        private DistanceCalculator calculator;
+        private PointGrid grid;
 
-        public AlignHelper(List<? extends Point> segment)
+        public AlignHelper(List<? extends Point> segment, DistanceCalculator calculator)
         {
             // null segments are converted to empty segments -- no null check in parent
             this.segment = (segment != null)
                          ? new ArrayList<Point>(segment)
                          : new ArrayList<Point>();
+            this.calculator = calculator;
         }
 
 
@@ -276,10 +637,11 @@ public class SegmentUtil
             if (p == null)
                 return next();
 
+            PreparedPoint pp = new PreparedPoint(p);
             while (hasNext())
             {
                 Point x = next();
-                if (PointUtil.pythagoreanDistance(p, x) >= minSeparation)
+                if (calculator.distance(pp, x) >= minSeparation)
                     return x;
             }
 
@@ -305,23 +667,60 @@ public class SegmentUtil
         }
 
 
+        /**
+         *  Advances the iterator to the next point that's less than <code>maxSeparation</code>
+         *  from the given point, or to the end of the segment if there isn't one. This gives
+         *  the same result as stepping through the segment, but uses a spatial index (which
+         *  is built on first use, and assumes that <code>maxSeparation</code> doesn't change).
+         *  The index measures Pythagorean distance, so isn't used with other calculators.
+         */
+        public void seekWithin(Point p, double maxSeparation)
+        {
+            if (! (calculator instanceof PythagoreanCalculator))
+            {
+                PreparedPoint pp = new PreparedPoint(p);
+                while (hasNext() && (calculator.distance(pp, segment.get(idx)) >= maxSeparation))
+                {
+                    idx++;
+                }
+                return;
+            }
+
+            if (grid == null)
+            {
+                double[] lat = new double[segment.size()];
+                double[] lon = new double[segment.size()];
+                for (int ii = 0 ; ii < segment.size() ; ii++)
+                {
+                    lat[ii] = segment.get(ii).getLat();
+                    lon[ii] = segment.get(ii).getLon();
+                }
+                grid = new PointGrid(lat, lon, segment.size(), maxSeparation);
+            }
+
+            int found = grid.findFirstWithin(p.getLat(), p.getLon(), maxSeparation, idx);
+            idx = (found >= 0) ? found : segment.size();
+        }
+
+
         /**
          *  Finds the next point in this segment that's closest to the given point, but
          *  less than <code>maxSeparation</code> apart.
          */
         public Point findMatchingPoint(Point p, double maxSeparation)
         {
+            PreparedPoint pp = new PreparedPoint(p);
             while (hasNext())
             {
                 Point x = next();
-                double dx = PointUtil.pythagoreanDistance(p, x);
+                double dx = calculator.distance(pp, x);
                 if (dx < maxSeparation)
                 {
                     mark();
                     while (hasNext())
                     {
                         Point y = next();
-                        double dy = PointUtil.pythagoreanDistance(p, y);
+                        double dy = calculator.distance(pp, y);
                         if (dy > dx)
                         {
                             returnToMark();
@@ -340,4 +739,33 @@ public class SegmentUtil
             return null;
         }
     }
+
+
+    /**
+     *  The result of looking for gaps within one chunk of a segment, without
+     *  knowing the timestamps of any earlier chunk.
+     */
+    private static class SplitChunk
+    {
+        public List<Integer> splitPoints = new ArrayList<>();
+        public int firstTimestamped = -1;
+        public Instant lastTimestamp;
+
+        public SplitChunk(Point[] points, int start, int end, Duration minGap)
+        {
+            for (int ii = start ; ii < end ; ii++)
+            {
+                Instant timestamp = points[ii].getTimestamp();
+                if (timestamp == null)
+                    continue;
+
+                if (lastTimestamp == null)
+                    firstTimestamped = ii;
+                else if (isGap(lastTimestamp, timestamp, minGap))
+                    splitPoints.add(ii);
+
+                lastTimestamp = timestamp;
+            }
+        }
+    }
 }
@@ -0,0 +1,381 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ *  Error-bounded line simplification, shared by {@link SegmentUtil} and
+ *  {@link PointArray}. These methods operate on parallel arrays of latitude
+ *  and longitude, and return a flag for each point indicating whether it
+ *  should be retained. The first and last points are always retained.
+ *  <p>
+ *  Distances and areas are calculated in a local planar projection, with the
+ *  same latitude correction used by {@link PointUtil#pythagoreanDistance}.
+ */
+class Simplifier
+{
+    /**
+     *  Ranges larger than this are handed to the fork-join pool rather than
+     *  processed by the current thread.
+     */
+    public final static int PARALLEL_THRESHOLD = 16384;
+
+
+    /**
+     *  Douglas-Peucker simplification: a point is retained if it's more than
+     *  <code>tolerance</code> meters from the line between retained points
+     *  on either side of it.
+     */
+    public static boolean[] douglasPeucker(double[] lat, double[] lon, int size, double tolerance)
+    {
+        boolean[] keep = new boolean[size];
+        if (size == 0)
+            return keep;
+
+        keep[0] = true;
+        keep[size - 1] = true;
+        if (size > 2)
+        {
+            double toleranceSquared = (tolerance > 0) ? tolerance * tolerance : 0;
+            new DouglasPeuckerTask(lat, lon, keep, 0, size - 1, toleranceSquared).invoke();
+        }
+        return keep;
+    }
+
+
+    /**
+     *  Visvalingam-Whyatt simplification: repeatedly removes the point that forms
+     *  the smallest triangle with its neighbors, as long as that triangle's area
+     *  is less than <code>tolerance</code> squared (in square meters).
+     */
+    public static boolean[] visvalingam(double[] lat, double[] lon, int size, double tolerance)
+    {
+        boolean[] keep = new boolean[size];
+        Arrays.fill(keep, true);
+        if (size < 3)
+            return keep;
+
+        double threshold = (tolerance > 0) ? tolerance * tolerance : 0;
+
+        int[] prev = new int[size];
+        int[] next = new int[size];
+        double[] area = new double[size];
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            prev[ii] = ii - 1;
+            next[ii] = ii + 1;
+        }
+
+        // only interior points are eligible for removal
+        MinHeap heap = new MinHeap(area, size);
+        for (int ii = 1 ; ii < size - 1 ; ii++)
+        {
+            area[ii] = triangleArea(lat, lon, ii - 1, ii, ii + 1);
+            heap.add(ii);
+        }
+        heap.heapify();
+
+        while (! heap.isEmpty())
+        {
+            int idx = heap.peek();
+            if (area[idx] >= threshold)
+                break;
+
+            heap.remove(idx);
+            keep[idx] = false;
+
+            int p = prev[idx];
+            int n = next[idx];
+            next[p] = n;
+            prev[n] = p;
+
+            if (p > 0)
+            {
+                area[p] = triangleArea(lat, lon, prev[p], p, n);
+                heap.update(p);
+            }
+            if (n < size - 1)
+            {
+                area[n] = triangleArea(lat, lon, p, n, next[n]);
+                heap.update(n);
+            }
+        }
+
+        return keep;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the square of the distance, in meters, between point <code>p</code>
+     *  and the line segment between points <code>a</code> and <code>b</code>.
+     */
+    private static double segmentDistanceSquared(double[] lat, double[] lon, int a, int b, int p)
+    {
+        double latScale = PointUtil.EARTH_DEGREE_LENGTH;
+        double lonScale = PointUtil.correctedLongitude(PointUtil.EARTH_DEGREE_LENGTH, lat[a]);
+
+        double bx = (lon[b] - lon[a]) * lonScale;
+        double by = (lat[b] - lat[a]) * latScale;
+        double px = (lon[p] - lon[a]) * lonScale;
+        double py = (lat[p] - lat[a]) * latScale;
+
+        double len2 = bx * bx + by * by;
+        double t = (len2 > 0)
+                 ? Math.max(0, Math.min(1, (px * bx + py * by) / len2))
+                 : 0;
+
+        double dx = px - t * bx;
+        double dy = py - t * by;
+        return dx * dx + dy * dy;
+    }
+
+
+    /**
+     *  Returns the area, in square meters, of the triangle formed by the three
+     *  indexed points. The longitude correction uses the latitude of the middle.
+     */
+    private static double triangleArea(double[] lat, double[] lon, int a, int b, int c)
+    {
+        double latScale = PointUtil.EARTH_DEGREE_LENGTH;
+        double lonScale = PointUtil.correctedLongitude(PointUtil.EARTH_DEGREE_LENGTH, lat[b]);
+
+        double ax = (lon[a] - lon[b]) * lonScale;
+        double ay = (lat[a] - lat[b]) * latScale;
+        double cx = (lon[c] - lon[b]) * lonScale;
+        double cy = (lat[c] - lat[b]) * latScale;
+
+        return Math.abs(ax * cy - ay * cx) / 2;
+    }
+
+
+    /**
+     *  Processes a range of points using an explicit stack of sub-ranges. Any
+     *  sub-range larger than the threshold is forked as a separate task. Each
+     *  task writes only the flags within its own range, so tasks don't interfere.
+     */
+    private static class DouglasPeuckerTask
+    extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private double[] lat;
+        private double[] lon;
+        private boolean[] keep;
+        private int start;
+        private int end;
+        private double toleranceSquared;
+
+        public DouglasPeuckerTask(double[] lat, double[] lon, boolean[] keep, int start, int end, double toleranceSquared)
+        {
+            this.lat = lat;
+            this.lon = lon;
+            this.keep = keep;
+            this.start = start;
+            this.end = end;
+            this.toleranceSquared = toleranceSquared;
+        }
+
+        @Override
+        protected void compute()
+        {
+            List<DouglasPeuckerTask> forked = new ArrayList<>();
+
+            // stack holds pairs of start/end indexes
+            int[] stack = new int[64];
+            int sp = 0;
+            stack[sp++] = start;
+            stack[sp++] = end;
+
+            while (sp > 0)
+            {
+                int e = stack[--sp];
+                int s = stack[--sp];
+
+                double maxDist = -1;
+                int maxIdx = -1;
+                for (int ii = s + 1 ; ii < e ; ii++)
+                {
+                    double dist = segmentDistanceSquared(lat, lon, s, e, ii);
+                    if (dist > maxDist)
+                    {
+                        maxDist = dist;
+                        maxIdx = ii;
+                    }
+                }
+
+                if ((maxIdx < 0) || (maxDist <= toleranceSquared))
+                    continue;
+
+                keep[maxIdx] = true;
+                int[][] subRanges = new int[][] { {s, maxIdx}, {maxIdx, e} };
+                for (int[] range : subRanges)
+                {
+                    if (range[1] - range[0] < 2)
+                        continue;
+
+                    if (range[1] - range[0] > PARALLEL_THRESHOLD)
+                    {
+                        DouglasPeuckerTask task = new DouglasPeuckerTask(lat, lon, keep, range[0], range[1], toleranceSquared);
+                        task.fork();
+                        forked.add(task);
+                    }
+                    else
+                    {
+                        if (sp + 2 > stack.length)
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        stack[sp++] = range[0];
+                        stack[sp++] = range[1];
+                    }
+                }
+            }
+
+            for (DouglasPeuckerTask task : forked)
+            {
+                task.join();
+            }
+        }
+    }
+
+
+    /**
+     *  A binary min-heap of point indexes, ordered by the area associated with
+     *  each index (ties are broken by index, so results are deterministic). The
+     *  heap tracks each index's position, so that it can be updated or removed
+     *  in O(log n).
+     */
+    private static class MinHeap
+    {
+        private double[] keys;
+        private int[] heap;
+        private int[] position;
+        private int size;
+
+        public MinHeap(double[] keys, int capacity)
+        {
+            this.keys = keys;
+            this.heap = new int[capacity];
+            this.position = new int[capacity];
+            Arrays.fill(position, -1);
+        }
+
+        public boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        public int peek()
+        {
+            return heap[0];
+        }
+
+        /**
+         *  Adds an index without maintaining the heap property; call {@link #heapify}
+         *  after adding all initial values.
+         */
+        public void add(int idx)
+        {
+            heap[size] = idx;
+            position[idx] = size;
+            size++;
+        }
+
+        public void heapify()
+        {
+            for (int ii = size / 2 - 1 ; ii >= 0 ; ii--)
+            {
+                siftDown(ii);
+            }
+        }
+
+        public void remove(int idx)
+        {
+            int pos = position[idx];
+            position[idx] = -1;
+            size--;
+            if (pos == size)
+                return;
+
+            heap[pos] = heap[size];
+            position[heap[pos]] = pos;
+            siftDown(pos);
+            siftUp(pos);
+        }
+
+        /**
+         *  Restores the heap property after the key for an index has changed.
+         */
+        public void update(int idx)
+        {
+            int pos = position[idx];
+            siftDown(pos);
+            siftUp(pos);
+        }
+
+        private boolean less(int pos1, int pos2)
+        {
+            int idx1 = heap[pos1];
+            int idx2 = heap[pos2];
+            return (keys[idx1] < keys[idx2])
+                || ((keys[idx1] == keys[idx2]) && (idx1 < idx2));
+        }
+
+        private void swap(int pos1, int pos2)
+        {
+            int tmp = heap[pos1];
+            heap[pos1] = heap[pos2];
+            heap[pos2] = tmp;
+            position[heap[pos1]] = pos1;
+            position[heap[pos2]] = pos2;
+        }
+
+        private void siftUp(int pos)
+        {
+            while (pos > 0)
+            {
+                int parent = (pos - 1) / 2;
+                if (! less(pos, parent))
+                    return;
+                swap(pos, parent);
+                pos = parent;
+            }
+        }
+
+        private void siftDown(int pos)
+        {
+            while (true)
+            {
+                int left = 2 * pos + 1;
+                int right = left + 1;
+                int smallest = pos;
+                if ((left < size) && less(left, smallest))
+                    smallest = left;
+                if ((right < size) && less(right, smallest))
+                    smallest = right;
+                if (smallest == pos)
+                    return;
+                swap(pos, smallest);
+                pos = smallest;
+            }
+        }
+    }
+}
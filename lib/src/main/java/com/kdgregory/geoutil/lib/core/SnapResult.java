@@ -0,0 +1,95 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+
+/**
+ *  The result of snapping a point onto a segment with {@link EdgeIndex}: the
+ *  edge that's closest to the point, the closest location on that edge, and
+ *  distances. Instances are immutable.
+ */
+public final class SnapResult
+{
+    private final int edgeIndex;
+    private final Point point;
+    private final double distance;
+    private final double alongTrackDistance;
+
+
+    public SnapResult(int edgeIndex, Point point, double distance, double alongTrackDistance)
+    {
+        this.edgeIndex = edgeIndex;
+        this.point = point;
+        this.distance = distance;
+        this.alongTrackDistance = alongTrackDistance;
+    }
+
+//----------------------------------------------------------------------------
+//  Accessors
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the index of the closest edge. Edge <code>i</code> joins points
+     *  <code>i</code> and <code>i+1</code> of the segment.
+     */
+    public int getEdgeIndex()
+    {
+        return edgeIndex;
+    }
+
+
+    /**
+     *  Returns the closest location on the edge. If both of the edge's points have
+     *  elevation and/or timestamp, these are interpolated.
+     */
+    public Point getPoint()
+    {
+        return point;
+    }
+
+
+    /**
+     *  Returns the distance, in meters, between the snapped point and the closest
+     *  location on the edge.
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+
+    /**
+     *  Returns the distance, in meters, along the segment from its first point to
+     *  the closest location on the edge.
+     */
+    public double getAlongTrackDistance()
+    {
+        return alongTrackDistance;
+    }
+
+//----------------------------------------------------------------------------
+//  Overrides
+//----------------------------------------------------------------------------
+
+    @Override
+    public String toString()
+    {
+        return "SnapResult(edge=" + edgeIndex
+             + ",point=" + point
+             + ",distance=" + distance
+             + ",alongTrack=" + alongTrackDistance
+             + ")";
+    }
+}
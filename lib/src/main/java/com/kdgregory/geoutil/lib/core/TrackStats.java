@@ -0,0 +1,449 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Collector;
+
+
+/**
+ *  Accumulates summary statistics for a sequence of points in a single pass:
+ *  distance, elapsed and moving time, maximum and average speed, elevation gain
+ *  and loss, bounding box, and first and last timestamps.
+ *  <p>
+ *  Points are processed in the order that they're added, and values that depend
+ *  on consecutive points (distance, speed, elevation change) are calculated for
+ *  each pair, using a {@link DistanceCalculator} (by default, latitude-compensated
+ *  Pythagorean distance). A pair contributes
+ *  to time and speed only if both points have timestamps, and to elevation change
+ *  only if both points have elevation. Time between two points counts as moving
+ *  time if the speed between them is at least the configured minimum.
+ *  <p>
+ *  Instances may be combined, so this class can be used as a stream collector
+ *  (see {@link #collector}), including with parallel streams. Combined instances
+ *  should use the same calculator.
+ *  <p>
+ *  Instances are not thread-safe.
+ */
+public class TrackStats
+{
+    /**
+     *  The default minimum speed, in meters/second, for time to be counted as
+     *  moving time. This is a slow walk.
+     */
+    public final static double DEFAULT_MIN_MOVING_SPEED = 0.5;
+
+    private final double minMovingSpeed;
+    private final DistanceCalculator calculator;
+
+    private int count;
+    private double distance;
+    private long movingMillis;
+    private double maxSpeed;
+    private double elevationGain;
+    private double elevationLoss;
+
+    private double minLat = Double.NaN;
+    private double maxLat = Double.NaN;
+    private double minLon = Double.NaN;
+    private double maxLon = Double.NaN;
+
+    private long firstTimestamp = PointArray.NO_TIMESTAMP;
+    private long lastTimestamp = PointArray.NO_TIMESTAMP;
+
+    // the first and last points are retained so that instances can be combined
+    private double firstLat;
+    private double firstLon;
+    private double firstElevation;
+    private long firstPointTimestamp;
+    private double lastLat;
+    private double lastLon;
+    private double lastElevation;
+    private long lastPointTimestamp;
+
+
+    /**
+     *  Creates an instance that uses the default minimum moving speed.
+     */
+    public TrackStats()
+    {
+        this(DEFAULT_MIN_MOVING_SPEED);
+    }
+
+
+    /**
+     *  Creates an instance that uses the specified minimum moving speed, in
+     *  meters/second.
+     */
+    public TrackStats(double minMovingSpeed)
+    {
+        this(minMovingSpeed, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Creates an instance that uses the specified minimum moving speed, in
+     *  meters/second, and the specified distance calculator.
+     */
+    public TrackStats(double minMovingSpeed, DistanceCalculator calculator)
+    {
+        this.minMovingSpeed = minMovingSpeed;
+        this.calculator = calculator;
+    }
+
+
+    /**
+     *  Returns a collector that accumulates a stream of points, using the default
+     *  minimum moving speed.
+     */
+    public static Collector<Point,TrackStats,TrackStats> collector()
+    {
+        return collector(DEFAULT_MIN_MOVING_SPEED);
+    }
+
+
+    /**
+     *  Returns a collector that accumulates a stream of points, using the specified
+     *  minimum moving speed. The stream must be ordered.
+     */
+    public static Collector<Point,TrackStats,TrackStats> collector(double minMovingSpeed)
+    {
+        return collector(minMovingSpeed, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Returns a collector that accumulates a stream of points, using the specified
+     *  minimum moving speed and distance calculator. The stream must be ordered.
+     */
+    public static Collector<Point,TrackStats,TrackStats> collector(double minMovingSpeed, DistanceCalculator calculator)
+    {
+        return Collector.of(
+                () -> new TrackStats(minMovingSpeed, calculator),
+                TrackStats::add,
+                (s1, s2) -> s1.combine(s2, true));
+    }
+
+//----------------------------------------------------------------------------
+//  Accumulation
+//----------------------------------------------------------------------------
+
+    /**
+     *  Adds a point.
+     */
+    public TrackStats add(Point p)
+    {
+        return add(p.getLat(),
+                   p.getLon(),
+                   (p.getElevation() == null) ? Double.NaN : p.getElevation().doubleValue(),
+                   (p.getTimestamp() == null) ? PointArray.NO_TIMESTAMP : p.getTimestampMillis());
+    }
+
+
+    /**
+     *  Adds a point, specified as primitive values. Missing elevation is
+     *  indicated by <code>NaN</code>, and a missing timestamp by {@link
+     *  PointArray#NO_TIMESTAMP}.
+     */
+    public TrackStats add(double lat, double lon, double elevation, long timestamp)
+    {
+        if (count == 0)
+        {
+            firstLat = lat;
+            firstLon = lon;
+            firstElevation = elevation;
+            firstPointTimestamp = timestamp;
+            minLat = maxLat = lat;
+            minLon = maxLon = lon;
+        }
+        else
+        {
+            addPair(lastLat, lastLon, lastElevation, lastPointTimestamp, lat, lon, elevation, timestamp);
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+            minLon = Math.min(minLon, lon);
+            maxLon = Math.max(maxLon, lon);
+        }
+
+        if (timestamp != PointArray.NO_TIMESTAMP)
+        {
+            if (firstTimestamp == PointArray.NO_TIMESTAMP)
+                firstTimestamp = timestamp;
+            lastTimestamp = timestamp;
+        }
+
+        lastLat = lat;
+        lastLon = lon;
+        lastElevation = elevation;
+        lastPointTimestamp = timestamp;
+        count++;
+        return this;
+    }
+
+
+    /**
+     *  Adds all points from the passed array.
+     */
+    public TrackStats addAll(PointArray points)
+    {
+        for (int ii = 0 ; ii < points.size ; ii++)
+        {
+            add(points.lat[ii], points.lon[ii], points.elevation[ii], points.timestamp[ii]);
+        }
+        return this;
+    }
+
+
+    /**
+     *  Combines the passed statistics, which must represent points that follow
+     *  those of this instance, into this instance. If <code>connected</code> is
+     *  true, the two sequences are treated as one, so the pair formed by this
+     *  instance's last point and the other's first contributes to distance, time,
+     *  and elevation. If false (for example, separate segments of a track), the
+     *  only contribution from the gap between them is to elapsed time.
+     */
+    public TrackStats combine(TrackStats that, boolean connected)
+    {
+        if (that.count == 0)
+            return this;
+
+        if (count == 0)
+        {
+            copyFrom(that);
+            return this;
+        }
+
+        if (connected)
+        {
+            addPair(lastLat, lastLon, lastElevation, lastPointTimestamp,
+                    that.firstLat, that.firstLon, that.firstElevation, that.firstPointTimestamp);
+        }
+
+        count += that.count;
+        distance += that.distance;
+        movingMillis += that.movingMillis;
+        maxSpeed = Math.max(maxSpeed, that.maxSpeed);
+        elevationGain += that.elevationGain;
+        elevationLoss += that.elevationLoss;
+
+        minLat = Math.min(minLat, that.minLat);
+        maxLat = Math.max(maxLat, that.maxLat);
+        minLon = Math.min(minLon, that.minLon);
+        maxLon = Math.max(maxLon, that.maxLon);
+
+        if (firstTimestamp == PointArray.NO_TIMESTAMP)
+            firstTimestamp = that.firstTimestamp;
+        if (that.lastTimestamp != PointArray.NO_TIMESTAMP)
+            lastTimestamp = that.lastTimestamp;
+
+        lastLat = that.lastLat;
+        lastLon = that.lastLon;
+        lastElevation = that.lastElevation;
+        lastPointTimestamp = that.lastPointTimestamp;
+        return this;
+    }
+
+//----------------------------------------------------------------------------
+//  Accessors
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the number of points.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+
+    /**
+     *  Returns the total distance between points, in meters.
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+
+    /**
+     *  Returns the time between the first and last timestamped points. Zero if
+     *  there are fewer than two such points.
+     */
+    public Duration getElapsedTime()
+    {
+        return (firstTimestamp == PointArray.NO_TIMESTAMP)
+             ? Duration.ZERO
+             : Duration.ofMillis(lastTimestamp - firstTimestamp);
+    }
+
+
+    /**
+     *  Returns the total time spent moving at or above the minimum moving speed.
+     */
+    public Duration getMovingTime()
+    {
+        return Duration.ofMillis(movingMillis);
+    }
+
+
+    /**
+     *  Returns the maximum speed between any two consecutive points, in
+     *  meters/second.
+     */
+    public double getMaxSpeed()
+    {
+        return maxSpeed;
+    }
+
+
+    /**
+     *  Returns the average speed while moving, in meters/second. This is the
+     *  total distance divided by moving time, so includes the distance covered
+     *  by pairs without timestamps. Zero if there is no moving time.
+     */
+    public double getAverageSpeed()
+    {
+        return (movingMillis == 0)
+             ? 0
+             : distance / (movingMillis / 1000.0);
+    }
+
+
+    /**
+     *  Returns the total elevation gained, in meters.
+     */
+    public double getElevationGain()
+    {
+        return elevationGain;
+    }
+
+
+    /**
+     *  Returns the total elevation lost, in meters (as a positive number).
+     */
+    public double getElevationLoss()
+    {
+        return elevationLoss;
+    }
+
+
+    /**
+     *  Returns the southernmost latitude; <code>NaN</code> if there are no points.
+     */
+    public double getMinLat()
+    {
+        return minLat;
+    }
+
+
+    /**
+     *  Returns the northernmost latitude; <code>NaN</code> if there are no points.
+     */
+    public double getMaxLat()
+    {
+        return maxLat;
+    }
+
+
+    /**
+     *  Returns the westernmost longitude; <code>NaN</code> if there are no points.
+     *  This does not consider tracks that cross the antimeridian.
+     */
+    public double getMinLon()
+    {
+        return minLon;
+    }
+
+
+    /**
+     *  Returns the easternmost longitude; <code>NaN</code> if there are no points.
+     *  This does not consider tracks that cross the antimeridian.
+     */
+    public double getMaxLon()
+    {
+        return maxLon;
+    }
+
+
+    /**
+     *  Returns the timestamp of the first point that has one; null if none do.
+     */
+    public Instant getFirstTimestamp()
+    {
+        return (firstTimestamp == PointArray.NO_TIMESTAMP) ? null : Instant.ofEpochMilli(firstTimestamp);
+    }
+
+
+    /**
+     *  Returns the timestamp of the last point that has one; null if none do.
+     */
+    public Instant getLastTimestamp()
+    {
+        return (lastTimestamp == PointArray.NO_TIMESTAMP) ? null : Instant.ofEpochMilli(lastTimestamp);
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private void addPair(double lat1, double lon1, double elevation1, long timestamp1,
+                         double lat2, double lon2, double elevation2, long timestamp2)
+    {
+        double dist = calculator.distance(lat1, lon1, lat2, lon2);
+        distance += dist;
+
+        if ((timestamp1 != PointArray.NO_TIMESTAMP) && (timestamp2 != PointArray.NO_TIMESTAMP) && (timestamp2 > timestamp1))
+        {
+            long elapsedMillis = timestamp2 - timestamp1;
+            double speed = dist / (elapsedMillis / 1000.0);
+            maxSpeed = Math.max(maxSpeed, speed);
+            if (speed >= minMovingSpeed)
+                movingMillis += elapsedMillis;
+        }
+
+        // NaN comparisons are always false, so missing elevations are ignored
+        double elevationChange = elevation2 - elevation1;
+        if (elevationChange > 0)
+            elevationGain += elevationChange;
+        else if (elevationChange < 0)
+            elevationLoss -= elevationChange;
+    }
+
+
+    private void copyFrom(TrackStats that)
+    {
+        count = that.count;
+        distance = that.distance;
+        movingMillis = that.movingMillis;
+        maxSpeed = that.maxSpeed;
+        elevationGain = that.elevationGain;
+        elevationLoss = that.elevationLoss;
+        minLat = that.minLat;
+        maxLat = that.maxLat;
+        minLon = that.minLon;
+        maxLon = that.maxLon;
+        firstTimestamp = that.firstTimestamp;
+        lastTimestamp = that.lastTimestamp;
+        firstLat = that.firstLat;
+        firstLon = that.firstLon;
+        firstElevation = that.firstElevation;
+        firstPointTimestamp = that.firstPointTimestamp;
+        lastLat = that.lastLat;
+        lastLon = that.lastLon;
+        lastElevation = that.lastElevation;
+        lastPointTimestamp = that.lastPointTimestamp;
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kdgregory.geoutil.lib.core.PointArray;
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.gpx.model.TrackSegment;
+
+
+/**
+ *  A track whose segments are stored as {@link PointArray}s. This is produced
+ *  by {@link GpxScanner}, and holds only the data needed for bulk analysis:
+ *  the track's metadata, and each point's location, elevation, and timestamp.
+ */
+public class ColumnarTrack
+{
+    private String name;
+    private String description;
+    private String type;
+    private List<PointArray> segments = new ArrayList<>();
+
+//----------------------------------------------------------------------------
+//  Accessors
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the track's name. May be null.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     *  Sets the track's name.
+     */
+    public ColumnarTrack setName(String value)
+    {
+        name = value;
+        return this;
+    }
+
+
+    /**
+     *  Returns the track's description. May be null.
+     */
+    public String getDescription()
+    {
+        return description;
+    }
+
+
+    /**
+     *  Sets the track's description.
+     */
+    public ColumnarTrack setDescription(String value)
+    {
+        description = value;
+        return this;
+    }
+
+
+    /**
+     *  Returns the track's type. May be null.
+     */
+    public String getType()
+    {
+        return type;
+    }
+
+
+    /**
+     *  Sets the track's type.
+     */
+    public ColumnarTrack setType(String value)
+    {
+        type = value;
+        return this;
+    }
+
+
+    /**
+     *  Returns the track's segments. This is the actual list held by the object;
+     *  the caller may modify it.
+     */
+    public List<PointArray> getSegments()
+    {
+        return segments;
+    }
+
+
+    /**
+     *  Adds a segment to the end of this track.
+     */
+    public ColumnarTrack addSegment(PointArray segment)
+    {
+        segments.add(segment);
+        return this;
+    }
+
+//----------------------------------------------------------------------------
+//  Other public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the total number of points in all segments.
+     */
+    public int size()
+    {
+        int size = 0;
+        for (PointArray segment : segments)
+        {
+            size += segment.size();
+        }
+        return size;
+    }
+
+
+    /**
+     *  Converts to the object model. Timestamps are limited to millisecond
+     *  precision.
+     */
+    public Track toTrack()
+    {
+        Track track = new Track()
+                      .setName(name)
+                      .setDescription(description)
+                      .setType(type);
+
+        for (PointArray array : segments)
+        {
+            TrackSegment segment = new TrackSegment();
+            for (int ii = 0 ; ii < array.size() ; ii++)
+            {
+                GpxPoint point = new GpxPoint(array.getLat(ii), array.getLon(ii));
+                if (array.hasElevation(ii))
+                    point.setElevation(array.getElevation(ii));
+                if (array.hasTimestamp(ii))
+                    point.setTimestampMillis(array.getTimestampMillis(ii));
+                segment.add(point);
+            }
+            track.addSegment(segment);
+        }
+
+        return track;
+    }
+}
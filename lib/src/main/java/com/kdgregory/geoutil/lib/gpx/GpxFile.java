@@ -14,22 +14,26 @@
 
 package com.kdgregory.geoutil.lib.gpx;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+import net.sf.kdgcommons.lang.ObjectUtil;
 import net.sf.practicalxml.DomUtil;
-import net.sf.practicalxml.OutputUtil;
-import net.sf.practicalxml.ParseUtil;
+import net.sf.practicalxml.XmlException;
 
 import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.internal.StaxUtils;
 
 /**
  *  Top-level clsss for reading and writing GPX files, as defined by
@@ -75,11 +79,41 @@ public class GpxFile
 
 
     /**
-     *  Constructs from an existing file.
+     *  Constructs from a StAX reader, which must be positioned at or before the
+     *  root element. The reader is consumed up to the end of the root element,
+     *  but is not closed.
+     *  <p>
+     *  This constructor accepts and rejects the same content as the DOM-based
+     *  constructor, but builds the object model directly from the event stream.
+     */
+    public GpxFile(XMLStreamReader reader)
+    {
+        init(reader);
+    }
+
+
+    /**
+     *  Constructs from an existing file. This uses a streaming parser, so does
+     *  not need the memory to hold a DOM representation of the file.
      */
     public GpxFile(File file)
     {
-        this(ParseUtil.parse(file));
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file)))
+        {
+            XMLStreamReader reader = StaxUtils.newReader(in);
+            try
+            {
+                init(reader);
+            }
+            finally
+            {
+                StaxUtils.closeQuietly(reader);
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to parse", ex);
+        }
     }
 
 //----------------------------------------------------------------------------
@@ -155,13 +189,23 @@ public class GpxFile
      *  Converts this object to its XML representation.
      */
     public Document toXml()
+    {
+        return toXml(GpxFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Converts this object to its XML representation, writing numeric point
+     *  values in the specified format.
+     */
+    public Document toXml(GpxFormat format)
     {
         Element eGpx = DomUtil.newDocument(GpxConstants.NAMESPACE, GpxConstants.E_GPX);
         eGpx.setAttribute(GpxConstants.A_GPX_VERSION, getVersion());
         eGpx.setAttribute(GpxConstants.A_GPX_CREATOR, getCreator());
         for (Track track : tracks)
         {
-            track.appendAsXml(eGpx);
+            track.appendAsXml(eGpx, format);
         }
         return eGpx.getOwnerDocument();
     }
@@ -169,10 +213,59 @@ public class GpxFile
 
     /**
      *  Writes this object to the specified file, overwriting any existing
-     *  content.
+     *  content. This uses {@link GpxWriter}, so does not build a DOM; the
+     *  output is identical to serializing the result of {@link #toXml}.
      */
     public void write(File file)
     {
-        OutputUtil.compact(new DOMSource(toXml()), new StreamResult(file));
+        write(file, GpxFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Writes this object to the specified file, overwriting any existing
+     *  content, with numeric point values in the specified format. The output
+     *  is identical to serializing the result of {@link #toXml(GpxFormat)}.
+     */
+    public void write(File file, GpxFormat format)
+    {
+        try (GpxWriter writer = new GpxWriter(file))
+        {
+            writer.setFormat(format).write(this);
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Common code for the StAX-based constructors.
+     */
+    private void init(XMLStreamReader reader)
+    {
+        StaxUtils.moveToRoot(reader);
+
+        String namespace = StaxUtils.getNamespaceURI(reader);
+        if (! GpxConstants.NAMESPACE.equals(namespace))
+        {
+            throw new IllegalArgumentException("invalid root namespace: " + namespace);
+        }
+
+        version = ObjectUtil.defaultValue(StaxUtils.getAttribute(reader, GpxConstants.A_GPX_VERSION), "");
+        creator = ObjectUtil.defaultValue(StaxUtils.getAttribute(reader, GpxConstants.A_GPX_CREATOR), "");
+
+        while (StaxUtils.nextChild(reader))
+        {
+            if (GpxConstants.NAMESPACE.equals(StaxUtils.getNamespaceURI(reader))
+                && GpxConstants.E_TRK.equals(reader.getLocalName()))
+            {
+                addTrack(Track.fromXml(reader));
+            }
+            else
+            {
+                StaxUtils.skipElement(reader);
+            }
+        }
     }
 }
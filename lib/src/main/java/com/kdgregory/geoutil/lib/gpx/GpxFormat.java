@@ -0,0 +1,99 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import com.kdgregory.geoutil.lib.internal.NumberFormatter;
+
+
+/**
+ *  Controls the precision of numbers in GPX output: the number of decimal places
+ *  for latitude and longitude (in degrees), and for elevation and geoid height
+ *  (in meters). For reference, 7 decimal places of latitude is roughly one
+ *  centimeter.
+ *  <p>
+ *  Instances are immutable and thread-safe.
+ */
+public class GpxFormat
+{
+    /**
+     *  The default format, which writes values with <code>Double.toString()</code>.
+     */
+    public final static GpxFormat FULL_PRECISION
+        = new GpxFormat(NumberFormatter.FULL_PRECISION, NumberFormatter.FULL_PRECISION);
+
+    private final NumberFormatter coordinates;
+    private final NumberFormatter elevation;
+
+
+    /**
+     *  Creates an instance with the specified number of decimal places.
+     *
+     *  @throws IllegalArgumentException if either value is negative or greater
+     *          than {@link NumberFormatter#MAX_DIGITS}.
+     */
+    public GpxFormat(int coordinateDigits, int elevationDigits)
+    {
+        this(new NumberFormatter(coordinateDigits), new NumberFormatter(elevationDigits));
+    }
+
+
+    private GpxFormat(NumberFormatter coordinates, NumberFormatter elevation)
+    {
+        this.coordinates = coordinates;
+        this.elevation = elevation;
+    }
+
+//----------------------------------------------------------------------------
+//  Public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Formats a latitude or longitude.
+     */
+    public String formatCoordinate(double value)
+    {
+        return coordinates.format(value);
+    }
+
+
+    /**
+     *  Formats an elevation or geoid height. Returns null if passed null.
+     */
+    public String formatElevation(Double value)
+    {
+        return (value == null) ? null : elevation.format(value.doubleValue());
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the formatter for latitude and longitude; used by {@link GpxWriter}.
+     */
+    NumberFormatter getCoordinateFormatter()
+    {
+        return coordinates;
+    }
+
+
+    /**
+     *  Returns the formatter for elevation and geoid height; used by {@link GpxWriter}.
+     */
+    NumberFormatter getElevationFormatter()
+    {
+        return elevation;
+    }
+}
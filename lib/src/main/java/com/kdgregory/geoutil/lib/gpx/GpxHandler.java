@@ -0,0 +1,93 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+
+
+/**
+ *  Receives callbacks from {@link GpxReader} as it streams through a GPX file.
+ *  All methods have empty default implementations, so an implementation only
+ *  needs to override the callbacks that it cares about.
+ *  <p>
+ *  Callbacks are invoked in document order: for each track, there's a call to
+ *  {@link #onTrackStart}, then for each segment a call to {@link #onSegmentStart},
+ *  a call to one of the <code>onPoint()</code> variants for each point, and a
+ *  call to {@link #onSegmentEnd}; finally, {@link #onTrackEnd}.
+ */
+public interface GpxHandler
+{
+    /**
+     *  Called at the start of a track. The passed object contains the track's
+     *  name, description, and type, but no segments. Since these fields appear
+     *  before the segments in a valid GPX file, this method is called when the
+     *  reader sees the first segment (or at the end of a track without segments).
+     */
+    default void onTrackStart(Track track)
+    {
+        // default does nothing
+    }
+
+
+    /**
+     *  Called at the start of a track segment.
+     */
+    default void onSegmentStart()
+    {
+        // default does nothing
+    }
+
+
+    /**
+     *  Called for each trackpoint, when the reader is not configured to reuse a
+     *  cursor. The point is newly constructed, and may be retained.
+     */
+    default void onPoint(GpxPoint point)
+    {
+        // default does nothing
+    }
+
+
+    /**
+     *  Called for each trackpoint, when the reader is configured to reuse a cursor.
+     *  The cursor is overwritten by the next point, so must not be retained. The
+     *  default implementation converts the cursor to a <code>GpxPoint</code> and
+     *  calls {@link #onPoint(GpxPoint)}.
+     */
+    default void onPoint(GpxPointCursor cursor)
+    {
+        onPoint(cursor.toGpxPoint());
+    }
+
+
+    /**
+     *  Called at the end of a track segment.
+     */
+    default void onSegmentEnd()
+    {
+        // default does nothing
+    }
+
+
+    /**
+     *  Called at the end of a track. The passed object is the same one that was
+     *  passed to {@link #onTrackStart}.
+     */
+    default void onTrackEnd(Track track)
+    {
+        // default does nothing
+    }
+}
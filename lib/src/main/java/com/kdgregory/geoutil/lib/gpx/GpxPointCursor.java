@@ -0,0 +1,288 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import java.time.Instant;
+
+import javax.xml.stream.XMLStreamReader;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.WaypointFieldParser;
+import com.kdgregory.geoutil.lib.internal.StaxUtils;
+
+
+/**
+ *  A mutable holder for the trackpoint most recently read by {@link GpxReader}.
+ *  When the reader is configured to reuse a cursor, it overwrites a single
+ *  instance of this class for each point rather than constructing a new
+ *  {@link GpxPoint}, which avoids garbage when the caller only needs to look
+ *  at each point once.
+ *  <p>
+ *  Values are only valid for the duration of the callback that receives the
+ *  cursor. Use {@link #toPoint} or {@link #toGpxPoint} to retain a point.
+ *  <p>
+ *  Optional numeric fields are represented as primitives, with <code>NaN</code>
+ *  indicating that the field was not present.
+ */
+public class GpxPointCursor
+{
+    private double lat;
+    private double lon;
+    private double elevation;
+    private Instant timestamp;
+    private double variance;
+    private double geoidHeight;
+    private String name;
+    private String comment;
+    private String description;
+
+    private FieldSink sink = new FieldSink();
+
+//----------------------------------------------------------------------------
+//  Accessors
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the point's latitude.
+     */
+    public double getLat()
+    {
+        return lat;
+    }
+
+
+    /**
+     *  Returns the point's longitude.
+     */
+    public double getLon()
+    {
+        return lon;
+    }
+
+
+    /**
+     *  Returns the point's elevation, in meters, <code>NaN</code> if missing.
+     */
+    public double getElevation()
+    {
+        return elevation;
+    }
+
+
+    /**
+     *  Returns <code>true</code> if the point has an elevation.
+     */
+    public boolean hasElevation()
+    {
+        return ! Double.isNaN(elevation);
+    }
+
+
+    /**
+     *  Returns the point's timestamp. May be null.
+     */
+    public Instant getTimestamp()
+    {
+        return timestamp;
+    }
+
+
+    /**
+     *  Returns the point's timestamp, as milliseconds since epoch. Returns 0 if
+     *  the timestamp is missing (consistent with {@link GpxPoint}).
+     */
+    public long getTimestampMillis()
+    {
+        return (timestamp != null) ? timestamp.toEpochMilli() : 0;
+    }
+
+
+    /**
+     *  Returns the point's magnetic variance, in degrees, <code>NaN</code> if missing.
+     */
+    public double getMagneticVariance()
+    {
+        return variance;
+    }
+
+
+    /**
+     *  Returns the point's geoid height, in meters, <code>NaN</code> if missing.
+     */
+    public double getGeoidHeight()
+    {
+        return geoidHeight;
+    }
+
+
+    /**
+     *  Returns the point's name. May be null.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     *  Returns the comment attached to the point. May be null.
+     */
+    public String getComment()
+    {
+        return comment;
+    }
+
+
+    /**
+     *  Returns the point's description. May be null.
+     */
+    public String getDescription()
+    {
+        return description;
+    }
+
+//----------------------------------------------------------------------------
+//  Conversions
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns a new <code>Point</code> holding the cursor's location, elevation,
+     *  and timestamp.
+     */
+    public Point toPoint()
+    {
+        return new Point(lat, lon, hasElevation() ? Double.valueOf(elevation) : null, timestamp);
+    }
+
+
+    /**
+     *  Returns a new <code>GpxPoint</code> holding all of the cursor's fields.
+     */
+    public GpxPoint toGpxPoint()
+    {
+        GpxPoint point = new GpxPoint(lat, lon)
+                         .setTimestamp(timestamp)
+                         .setGeoidHeight(Double.isNaN(geoidHeight) ? null : Double.valueOf(geoidHeight))
+                         .setName(name)
+                         .setComment(comment)
+                         .setDescription(description);
+
+        if (hasElevation())
+            point.setElevation(elevation);
+
+        if (! Double.isNaN(variance))
+            point.setMagneticVariance(variance);
+
+        return point;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Overwrites this cursor from a <code>trkpt</code> element. The reader must
+     *  be positioned at the element's <code>START_ELEMENT</code> event, and is
+     *  left at the corresponding <code>END_ELEMENT</code>.
+     *  <p>
+     *  Accepts and rejects the same content as {@link GpxPoint#fromXml}.
+     */
+    void readFromXml(XMLStreamReader reader)
+    {
+        lat = StaxUtils.getAttributeAsDouble(reader, GpxConstants.A_WPT_LAT);
+        lon = StaxUtils.getAttributeAsDouble(reader, GpxConstants.A_WPT_LON);
+
+        // validation is the same as Point, without creating one
+        if ((lat < -90.0) || (lat > 90.0))
+            throw new IllegalArgumentException("invalid latitude: " + lat);
+        if ((lon < -180.0) || (lon > 180.0))
+            throw new IllegalArgumentException("invalid longitude: " + lon);
+
+        elevation = Double.NaN;
+        timestamp = null;
+        variance = Double.NaN;
+        geoidHeight = Double.NaN;
+        name = null;
+        comment = null;
+        description = null;
+
+        while (StaxUtils.nextChild(reader))
+        {
+            String childNamespace = StaxUtils.getNamespaceURI(reader);
+            String childName = reader.getLocalName();
+
+            // extensions are ignored, so there's no reason to accumulate their content
+            if (GpxConstants.NAMESPACE.equals(childNamespace) && GpxConstants.E_WPT_EXTENSIONS.equals(childName))
+            {
+                StaxUtils.skipElement(reader);
+                continue;
+            }
+
+            WaypointFieldParser.setField(sink, childNamespace, childName, StaxUtils.getTextContent(reader));
+        }
+    }
+
+
+    /**
+     *  Receives values from {@link WaypointFieldParser}. This is a separate object
+     *  so that the setters aren't part of the cursor's public API.
+     */
+    private class FieldSink
+    implements WaypointFieldParser.Sink
+    {
+        @Override
+        public void setElevation(double value)
+        {
+            elevation = value;
+        }
+
+        @Override
+        public void setTimestamp(Instant value)
+        {
+            timestamp = value;
+        }
+
+        @Override
+        public void setMagneticVariance(double value)
+        {
+            variance = value;
+        }
+
+        @Override
+        public void setGeoidHeight(double value)
+        {
+            geoidHeight = value;
+        }
+
+        @Override
+        public void setName(String value)
+        {
+            name = value;
+        }
+
+        @Override
+        public void setComment(String value)
+        {
+            comment = value;
+        }
+
+        @Override
+        public void setDescription(String value)
+        {
+            description = value;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamReader;
+
+import net.sf.practicalxml.XmlException;
+
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.internal.StaxUtils;
+
+
+/**
+ *  Streams the tracks in a GPX file to a {@link GpxHandler}, without building
+ *  a {@link GpxFile}. This is intended for programs that make a single pass
+ *  over the points in a file: memory use is constant, regardless of file size.
+ *  <p>
+ *  By default, the reader constructs a new {@link GpxPoint} for each point. It
+ *  may instead be configured to overwrite a single {@link GpxPointCursor}, which
+ *  avoids creating any per-point objects other than those required to parse
+ *  the file.
+ *  <p>
+ *  The reader accepts and rejects the same content as {@link GpxFile}.
+ *  Instances are not thread-safe, but may be reused for multiple files.
+ */
+public class GpxReader
+{
+    private boolean reuseCursor;
+
+
+    /**
+     *  Configures whether the reader will pass a reused cursor to the handler,
+     *  rather than constructing a new <code>GpxPoint</code> for each point.
+     */
+    public GpxReader setReuseCursor(boolean value)
+    {
+        reuseCursor = value;
+        return this;
+    }
+
+//----------------------------------------------------------------------------
+//  Public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Reads the specified file.
+     */
+    public void read(File file, GpxHandler handler)
+    {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file)))
+        {
+            read(in, handler);
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to parse", ex);
+        }
+    }
+
+
+    /**
+     *  Reads the passed stream. The stream is not closed.
+     */
+    public void read(InputStream in, GpxHandler handler)
+    {
+        XMLStreamReader reader = StaxUtils.newReader(in);
+        try
+        {
+            read(reader, handler);
+        }
+        finally
+        {
+            StaxUtils.closeQuietly(reader);
+        }
+    }
+
+
+    /**
+     *  Reads from a StAX reader, which must be positioned at or before the root
+     *  element. The reader is consumed up to the end of the root element, but
+     *  is not closed.
+     */
+    public void read(XMLStreamReader reader, GpxHandler handler)
+    {
+        StaxUtils.moveToRoot(reader);
+
+        String namespace = StaxUtils.getNamespaceURI(reader);
+        if (! GpxConstants.NAMESPACE.equals(namespace))
+        {
+            throw new IllegalArgumentException("invalid root namespace: " + namespace);
+        }
+
+        GpxPointCursor cursor = reuseCursor ? new GpxPointCursor() : null;
+        while (StaxUtils.nextChild(reader))
+        {
+            if (GpxConstants.NAMESPACE.equals(StaxUtils.getNamespaceURI(reader))
+                && GpxConstants.E_TRK.equals(reader.getLocalName()))
+            {
+                readTrack(reader, handler, cursor);
+            }
+            else
+            {
+                StaxUtils.skipElement(reader);
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private void readTrack(XMLStreamReader reader, GpxHandler handler, GpxPointCursor cursor)
+    {
+        Track track = new Track();
+        boolean started = false;
+
+        while (StaxUtils.nextChild(reader))
+        {
+            String childNamespace = StaxUtils.getNamespaceURI(reader);
+            String childName = reader.getLocalName();
+
+            if (! GpxConstants.NAMESPACE.equals(childNamespace))
+                throw new IllegalArgumentException("invalid namespace: " + childNamespace);
+
+            if (GpxConstants.E_TRKSEG.equals(childName))
+            {
+                if (! started)
+                {
+                    handler.onTrackStart(track);
+                    started = true;
+                }
+                readSegment(reader, handler, cursor);
+            }
+            else
+            {
+                track.setFieldFromXml(childName, StaxUtils.getTextContent(reader));
+            }
+        }
+
+        if (! started)
+        {
+            handler.onTrackStart(track);
+        }
+        handler.onTrackEnd(track);
+    }
+
+
+    private void readSegment(XMLStreamReader reader, GpxHandler handler, GpxPointCursor cursor)
+    {
+        handler.onSegmentStart();
+        while (StaxUtils.nextChild(reader))
+        {
+            if (GpxConstants.NAMESPACE.equals(StaxUtils.getNamespaceURI(reader))
+                && GpxConstants.E_TRKPOINT.equals(reader.getLocalName()))
+            {
+                if (cursor != null)
+                {
+                    cursor.readFromXml(reader);
+                    handler.onPoint(cursor);
+                }
+                else
+                {
+                    handler.onPoint(GpxPoint.fromXml(reader));
+                }
+            }
+            else
+            {
+                StaxUtils.skipElement(reader);
+            }
+        }
+        handler.onSegmentEnd();
+    }
+}
@@ -0,0 +1,1280 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import net.sf.practicalxml.XmlException;
+
+import com.kdgregory.geoutil.lib.core.PointArray;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.internal.NumberUtils;
+import com.kdgregory.geoutil.lib.internal.TimestampUtils;
+
+
+/**
+ *  A specialized reader that extracts the location, elevation, and timestamp of
+ *  every trackpoint in a GPX file, into {@link ColumnarTrack}s. This is intended
+ *  for bulk analysis of large archives, where the cost of a general-purpose XML
+ *  parser dominates.
+ *  <p>
+ *  The file is memory-mapped, and the scanner walks its bytes looking for the
+ *  elements that it needs, parsing numbers and timestamps directly from those
+ *  bytes. It only handles the structure that device-generated files actually
+ *  contain: UTF-8 encoding, the GPX namespace as the default namespace, and
+ *  trackpoints that contain (at most) <code>ele</code>, <code>time</code>, and
+ *  <code>extensions</code> elements. If it encounters anything else -- including
+ *  content that the full parser would reject -- it discards its work and reads
+ *  the file with {@link GpxReader}. As a result, the output is always the same
+ *  as that produced by the full parser (and errors are reported by that parser).
+ *  <p>
+ *  Note that the scanner does not verify that content it skips (such as waypoints
+ *  or extensions) is well-formed. Files larger than 2GB are always read with the
+ *  full parser.
+ *  <p>
+ *  Large files may optionally be scanned in parallel; see {@link #setParallel}.
+ *  This is the only parallel parsing path: {@link GpxReader} and
+ *  {@link com.kdgregory.geoutil.lib.gpx.model.GpxFile GpxFile} always read on a
+ *  single thread. Chunk boundaries are found with a byte search that doesn't know
+ *  its context, and only this scanner's restricted grammar can verify that each
+ *  boundary really is a trackpoint within a segment; a general-purpose parser
+ *  can't start in the middle of a document. Callers that need the object model
+ *  can convert the result with {@link ColumnarTrack#toTrack}, which preserves
+ *  track and segment boundaries but only the fields that the scanner extracts.
+ *  <p>
+ *  Instances are thread-safe once configured.
+ */
+public class GpxScanner
+{
+    private final static int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final static byte[] TRKPT_TAG = ("<" + GpxConstants.E_TRKPOINT).getBytes(StandardCharsets.UTF_8);
+
+    private boolean parallel;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+
+    /**
+     *  Enables or disables parallel scanning. When enabled, a file that is larger
+     *  than the chunk size is divided into chunks that start at trackpoints, and
+     *  those chunks are scanned concurrently using the common fork-join pool. The
+     *  results are stitched together in document order, so are identical to those
+     *  of a sequential scan. Defaults to <code>false</code>.
+     *  <p>
+     *  This affects only this scanner; see the class documentation for why the
+     *  full parser does not have a parallel mode.
+     */
+    public GpxScanner setParallel(boolean value)
+    {
+        parallel = value;
+        return this;
+    }
+
+
+    /**
+     *  Sets the approximate size of the chunks used for parallel scanning. The
+     *  default is 4MB, which keeps per-chunk overhead insignificant.
+     */
+    public GpxScanner setChunkSize(int value)
+    {
+        if (value <= 0)
+            throw new IllegalArgumentException("invalid chunk size: " + value);
+
+        chunkSize = value;
+        return this;
+    }
+
+//----------------------------------------------------------------------------
+//  Public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Scans the specified file.
+     */
+    public List<ColumnarTrack> scan(File file)
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            if (channel.size() <= Integer.MAX_VALUE)
+            {
+                ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                List<ColumnarTrack> result = scanWithoutFallback(buf);
+                if (result != null)
+                    return result;
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to parse", ex);
+        }
+
+        return readWithFallback(file);
+    }
+
+
+    /**
+     *  Scans the contents of the passed buffer, from position 0 to its limit.
+     *  The buffer's position is not changed.
+     */
+    public List<ColumnarTrack> scan(ByteBuffer buf)
+    {
+        List<ColumnarTrack> result = scanWithoutFallback(buf);
+        return (result != null)
+             ? result
+             : readWithFallback(buf);
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Attempts to scan the passed buffer, returning null if it contains content
+     *  that the scanner can't handle. This is exposed for testing.
+     */
+    List<ColumnarTrack> scanWithoutFallback(ByteBuffer buf)
+    {
+        try
+        {
+            if (parallel && (buf.limit() > chunkSize))
+            {
+                List<ColumnarTrack> result = scanParallel(buf);
+                if (result != null)
+                    return result;
+            }
+
+            return new ByteScanner(buf).scanDocument();
+        }
+        catch (FallbackException ex)
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     *  Scans the buffer in chunks. Chunk boundaries are found by searching for
+     *  trackpoint start tags, without regard to context, so each chunk verifies
+     *  that it ended at the start of the next (which means that the next chunk
+     *  started in the correct state). Returns null if any chunk fails that check,
+     *  so that the caller can perform a sequential scan. Exposed for testing.
+     */
+    List<ColumnarTrack> scanParallel(ByteBuffer buf)
+    {
+        ByteScanner header = new ByteScanner(buf);
+        header.parseHeader();
+
+        List<Integer> starts = new ArrayList<>();
+        starts.add(header.pos);
+        for (int start = nextChunkStart(buf, header.pos) ; start > 0 ; start = nextChunkStart(buf, start))
+        {
+            starts.add(start);
+        }
+        if (starts.size() == 1)
+            return null;
+
+        List<ChunkTask> tasks = new ArrayList<>();
+        for (int ii = 0 ; ii < starts.size() ; ii++)
+        {
+            int end = (ii < starts.size() - 1) ? starts.get(ii + 1) : buf.limit();
+            tasks.add(new ChunkTask(buf, header, starts.get(ii), end, ii == 0));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        List<ColumnarTrack> result = null;
+        for (int ii = 0 ; ii < tasks.size() ; ii++)
+        {
+            ByteScanner chunk = tasks.get(ii).join();
+            boolean valid = (chunk != null)
+                         && ((ii < tasks.size() - 1) ? chunk.isStoppedAt(starts.get(ii + 1)) : chunk.isComplete());
+            if (! valid)
+                return null;
+
+            if (result == null)
+                result = chunk.getTracks();
+            else
+                appendChunk(result, chunk.getTracks());
+        }
+        return result;
+    }
+
+
+    /**
+     *  Returns the position of the first trackpoint start tag that's at least one
+     *  chunk past the passed position, or -1 if there isn't one.
+     */
+    private int nextChunkStart(ByteBuffer buf, int prevStart)
+    {
+        int limit = buf.limit() - TRKPT_TAG.length - 1;
+        for (long start = (long)prevStart + chunkSize ; start < limit ; start++)
+        {
+            int ii = 0;
+            while ((ii < TRKPT_TAG.length) && (buf.get((int)start + ii) == TRKPT_TAG[ii]))
+                ii++;
+
+            if (ii == TRKPT_TAG.length)
+            {
+                byte next = buf.get((int)start + ii);
+                if ((next == ' ') || (next == '\t') || (next == '\n') || (next == '\r') || (next == '/') || (next == '>'))
+                    return (int)start;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     *  Stitches the tracks from a chunk onto the tracks from preceding chunks. The
+     *  chunk's first track continues the last existing track, and its first segment
+     *  continues that track's last segment. Metadata replaces existing values, as
+     *  it appeared later in the document.
+     */
+    private static void appendChunk(List<ColumnarTrack> tracks, List<ColumnarTrack> chunk)
+    {
+        ColumnarTrack track = tracks.get(tracks.size() - 1);
+        ColumnarTrack continuation = chunk.get(0);
+
+        List<PointArray> segments = track.getSegments();
+        List<PointArray> newSegments = continuation.getSegments();
+        segments.get(segments.size() - 1).addAll(newSegments.get(0));
+        segments.addAll(newSegments.subList(1, newSegments.size()));
+
+        if (continuation.getName() != null)
+            track.setName(continuation.getName());
+        if (continuation.getDescription() != null)
+            track.setDescription(continuation.getDescription());
+        if (continuation.getType() != null)
+            track.setType(continuation.getType());
+
+        tracks.addAll(chunk.subList(1, chunk.size()));
+    }
+
+
+    private static List<ColumnarTrack> readWithFallback(File file)
+    {
+        ColumnarHandler handler = new ColumnarHandler();
+        new GpxReader().setReuseCursor(true).read(file, handler);
+        return handler.tracks;
+    }
+
+
+    private static List<ColumnarTrack> readWithFallback(ByteBuffer buf)
+    {
+        ColumnarHandler handler = new ColumnarHandler();
+        new GpxReader().setReuseCursor(true).read(new ByteBufferInputStream(buf), handler);
+        return handler.tracks;
+    }
+
+
+    /**
+     *  Thrown when the scanner encounters content that it can't handle. This is
+     *  a control-flow exception, so doesn't fill in a stack trace.
+     */
+    private static class FallbackException
+    extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public final static FallbackException INSTANCE = new FallbackException();
+
+        private FallbackException()
+        {
+            super("unsupported content", null, false, false);
+        }
+    }
+
+
+    /**
+     *  Builds the same output as the scanner, from the full parser's callbacks.
+     */
+    private static class ColumnarHandler
+    implements GpxHandler
+    {
+        public List<ColumnarTrack> tracks = new ArrayList<>();
+        private ColumnarTrack currentTrack;
+        private PointArray currentSegment;
+
+        @Override
+        public void onTrackStart(Track track)
+        {
+            currentTrack = new ColumnarTrack();
+            tracks.add(currentTrack);
+        }
+
+        @Override
+        public void onSegmentStart()
+        {
+            currentSegment = new PointArray();
+            currentTrack.addSegment(currentSegment);
+        }
+
+        @Override
+        public void onPoint(GpxPointCursor cursor)
+        {
+            long timestamp = (cursor.getTimestamp() != null)
+                           ? cursor.getTimestamp().toEpochMilli()
+                           : PointArray.NO_TIMESTAMP;
+            currentSegment.add(cursor.getLat(), cursor.getLon(), cursor.getElevation(), timestamp);
+        }
+
+        @Override
+        public void onTrackEnd(Track track)
+        {
+            // metadata may follow the segments, so isn't complete until now
+            currentTrack.setName(track.getName())
+                        .setDescription(track.getDescription())
+                        .setType(track.getType());
+        }
+    }
+
+
+    /**
+     *  Adapts a buffer for the fallback parser, without copying it.
+     */
+    private static class ByteBufferInputStream
+    extends InputStream
+    {
+        private ByteBuffer buf;
+
+        public ByteBufferInputStream(ByteBuffer buf)
+        {
+            this.buf = buf.duplicate();
+            this.buf.position(0);
+        }
+
+        @Override
+        public int read()
+        {
+            return buf.hasRemaining() ? (buf.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len)
+        {
+            if (! buf.hasRemaining())
+                return -1;
+
+            int count = Math.min(len, buf.remaining());
+            buf.get(bytes, off, count);
+            return count;
+        }
+    }
+
+
+    /**
+     *  Scans a single chunk, returning the scanner (which holds the results and
+     *  final state) or null if the chunk contained unsupported content.
+     */
+    private static class ChunkTask
+    extends RecursiveTask<ByteScanner>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private ByteBuffer buf;
+        private ByteScanner header;
+        private int start;
+        private int end;
+        private boolean firstChunk;
+
+        public ChunkTask(ByteBuffer buf, ByteScanner header, int start, int end, boolean firstChunk)
+        {
+            this.buf = buf;
+            this.header = header;
+            this.start = start;
+            this.end = end;
+            this.firstChunk = firstChunk;
+        }
+
+        @Override
+        protected ByteScanner compute()
+        {
+            try
+            {
+                // duplicate, because buffers aren't guaranteed to be thread-safe
+                ByteScanner scanner = new ByteScanner(buf.duplicate(), header, start, firstChunk);
+                scanner.scan(end);
+                return scanner;
+            }
+            catch (FallbackException ex)
+            {
+                return null;
+            }
+        }
+    }
+
+
+    /**
+     *  Performs the actual scan. This is a state machine that recognizes the subset
+     *  of XML that appears in device-generated GPX files, throwing
+     *  <code>FallbackException</code> for anything else. The state is the level of
+     *  the current element; elements below the segment level are processed as a
+     *  unit. An instance may scan an entire document, or a chunk of a document
+     *  that starts within a segment.
+     */
+    private static class ByteScanner
+    {
+        private final static byte[] GPX_NAMESPACE = GpxConstants.NAMESPACE.getBytes(StandardCharsets.UTF_8);
+
+        private enum Level { GPX, TRACK, SEGMENT, END }
+
+        private ByteBuffer buf;
+        private int pos;
+        private int limit;
+
+        // the root element and its namespace prefixes; these are shared between chunks
+        private int rootNameStart;
+        private int rootNameEnd;
+        private Map<String,String> prefixes = new HashMap<>();
+
+        // the current parse state and output
+        private Level level;
+        private List<ColumnarTrack> tracks = new ArrayList<>();
+        private ColumnarTrack currentTrack;
+        private PointArray currentSegment;
+
+        // the most recently parsed start tag: name, attributes (as start/end offsets
+        // of name and value), and whether it was an empty-element tag
+        private int nameStart;
+        private int nameEnd;
+        private int attrCount;
+        private int[] attrs = new int[32];
+        private boolean selfClosing;
+
+        // the most recently parsed end tag
+        private int endNameStart;
+        private int endNameEnd;
+
+        // the content of the most recent text-only element
+        private int textStart;
+        private int textEnd;
+
+        // timestamps are parsed from characters; this is reused
+        private StringBuilder timestampChars = new StringBuilder(40);
+
+
+        /**
+         *  Creates an instance that will scan a document from the beginning.
+         */
+        public ByteScanner(ByteBuffer buf)
+        {
+            this.buf = buf;
+            this.limit = buf.limit();
+        }
+
+
+        /**
+         *  Creates an instance that will scan a chunk of the same document as
+         *  the passed scanner, which has parsed the root element. If not the
+         *  first chunk, the start position must be a child of a segment, and
+         *  the first track and segment of the output continue those in the
+         *  preceding chunk.
+         */
+        public ByteScanner(ByteBuffer buf, ByteScanner header, int start, boolean firstChunk)
+        {
+            this(buf);
+            this.rootNameStart = header.rootNameStart;
+            this.rootNameEnd = header.rootNameEnd;
+            this.prefixes = header.prefixes;
+            this.pos = start;
+
+            if (firstChunk)
+            {
+                level = header.level;
+            }
+            else
+            {
+                level = Level.SEGMENT;
+                currentTrack = new ColumnarTrack();
+                currentSegment = new PointArray();
+                currentTrack.addSegment(currentSegment);
+                tracks.add(currentTrack);
+            }
+        }
+
+
+        public List<ColumnarTrack> scanDocument()
+        {
+            parseHeader();
+            scan(limit);
+            return tracks;
+        }
+
+
+        /**
+         *  Parses the prolog and root element, leaving the scanner positioned at
+         *  the root element's content.
+         */
+        public void parseHeader()
+        {
+            skipProlog();
+            parseStartTag();
+
+            if (indexOf(nameStart, nameEnd, (byte)':') >= 0)
+                throw FallbackException.INSTANCE;
+
+            boolean hasDefaultNamespace = false;
+            for (int ii = 0 ; ii < attrCount ; ii++)
+            {
+                int aStart = attrs[ii * 4];
+                int aEnd = attrs[ii * 4 + 1];
+                if (equalsAscii(aStart, aEnd, "xmlns"))
+                {
+                    if (! equalsBytes(attrs[ii * 4 + 2], attrs[ii * 4 + 3], GPX_NAMESPACE))
+                        throw FallbackException.INSTANCE;
+                    hasDefaultNamespace = true;
+                }
+                else if (startsWithAscii(aStart, aEnd, "xmlns:"))
+                {
+                    prefixes.put(toString(aStart + 6, aEnd), attributeValue(ii));
+                }
+            }
+            if (! hasDefaultNamespace)
+                throw FallbackException.INSTANCE;
+
+            rootNameStart = nameStart;
+            rootNameEnd = nameEnd;
+            level = selfClosing ? Level.END : Level.GPX;
+        }
+
+
+        /**
+         *  Scans until reaching the end of the document, or until positioned at a
+         *  child of a segment at or after the specified end position. May also stop
+         *  at the end position at other levels; this means that the chunk boundary
+         *  was invalid.
+         */
+        public void scan(int end)
+        {
+            while (level != Level.END)
+            {
+                if (level == Level.SEGMENT)
+                    skipTo('<');
+
+                if (pos >= end)
+                    return;
+
+                switch (level)
+                {
+                    case GPX:
+                        if (! nextChild())
+                        {
+                            checkEndTag(rootNameStart, rootNameEnd);
+                            level = Level.END;
+                        }
+                        else if (isGpxElement() && equalsAscii(nameStart, nameEnd, GpxConstants.E_TRK))
+                        {
+                            startTrack();
+                        }
+                        else
+                        {
+                            skipElement();
+                        }
+                        break;
+                    case TRACK:
+                        if (! nextChild())
+                        {
+                            checkEndTag(GpxConstants.E_TRK);
+                            level = Level.GPX;
+                        }
+                        else
+                        {
+                            scanTrackChild();
+                        }
+                        break;
+                    case SEGMENT:
+                        if (! nextChild())
+                        {
+                            checkEndTag(GpxConstants.E_TRKSEG);
+                            level = Level.TRACK;
+                        }
+                        else if (isGpxElement() && equalsAscii(nameStart, nameEnd, GpxConstants.E_TRKPOINT))
+                        {
+                            scanPoint();
+                        }
+                        else
+                        {
+                            skipElement();
+                        }
+                        break;
+                    default:
+                        // can't happen
+                }
+            }
+        }
+
+
+        /**
+         *  Determines whether this scanner stopped where a chunk that begins at the
+         *  specified position should start.
+         */
+        public boolean isStoppedAt(int nextStart)
+        {
+            return (level == Level.SEGMENT) && (pos == nextStart);
+        }
+
+
+        public boolean isComplete()
+        {
+            return level == Level.END;
+        }
+
+
+        public List<ColumnarTrack> getTracks()
+        {
+            return tracks;
+        }
+
+
+        private void startTrack()
+        {
+            currentTrack = new ColumnarTrack();
+            tracks.add(currentTrack);
+            if (! selfClosing)
+            {
+                checkNoDeclarations();
+                level = Level.TRACK;
+            }
+        }
+
+
+        private void scanTrackChild()
+        {
+            if (! isGpxElement())
+                throw FallbackException.INSTANCE;
+
+            if (equalsAscii(nameStart, nameEnd, GpxConstants.E_TRKSEG))
+            {
+                currentSegment = new PointArray();
+                currentTrack.addSegment(currentSegment);
+                if (! selfClosing)
+                {
+                    checkNoDeclarations();
+                    level = Level.SEGMENT;
+                }
+            }
+            else if (equalsAscii(nameStart, nameEnd, GpxConstants.E_TRK_NAME))
+            {
+                String value = readText();
+                if (value.length() > 0)
+                    currentTrack.setName(value);
+            }
+            else if (equalsAscii(nameStart, nameEnd, GpxConstants.E_TRK_DESCRIPTION))
+            {
+                String value = readText();
+                if (value.length() > 0)
+                    currentTrack.setDescription(value);
+            }
+            else if (equalsAscii(nameStart, nameEnd, GpxConstants.E_TRK_TYPE))
+            {
+                String value = readText();
+                if (value.length() > 0)
+                    currentTrack.setType(value);
+            }
+            else
+            {
+                throw FallbackException.INSTANCE;
+            }
+        }
+
+
+        private void scanPoint()
+        {
+            checkNoDeclarations();
+
+            double lat = parseAttributeAsDouble(GpxConstants.A_WPT_LAT);
+            double lon = parseAttributeAsDouble(GpxConstants.A_WPT_LON);
+            if ((lat < -90.0) || (lat > 90.0) || (lon < -180.0) || (lon > 180.0))
+                throw FallbackException.INSTANCE;
+
+            double elevation = Double.NaN;
+            long timestamp = PointArray.NO_TIMESTAMP;
+
+            if (! selfClosing)
+            {
+                int pointStart = nameStart;
+                int pointEnd = nameEnd;
+                while (nextChild())
+                {
+                    if (! isGpxElement())
+                        throw FallbackException.INSTANCE;
+
+                    if (equalsAscii(nameStart, nameEnd, GpxConstants.E_WPT_ELEVATION))
+                    {
+                        findText();
+                        if (textEnd > textStart)
+                            elevation = parseDouble(textStart, textEnd);
+                    }
+                    else if (equalsAscii(nameStart, nameEnd, GpxConstants.E_WPT_TIMESTAMP))
+                    {
+                        findText();
+                        if (textEnd > textStart)
+                            timestamp = parseTimestamp(textStart, textEnd);
+                    }
+                    else if (equalsAscii(nameStart, nameEnd, GpxConstants.E_WPT_EXTENSIONS))
+                    {
+                        skipElement();
+                    }
+                    else
+                    {
+                        throw FallbackException.INSTANCE;
+                    }
+                }
+                checkEndTag(pointStart, pointEnd);
+            }
+
+            currentSegment.add(lat, lon, elevation, timestamp);
+        }
+
+        //--------------------------------------------------------------------
+        //  Structural parsing
+        //--------------------------------------------------------------------
+
+        /**
+         *  Skips the BOM (if any), XML declaration, comments, and processing
+         *  instructions that precede the root element. Anything that might
+         *  change the interpretation of the document (a DTD, or a non-UTF-8
+         *  encoding) causes fallback.
+         */
+        private void skipProlog()
+        {
+            if ((limit >= 3) && ((buf.get(0) & 0xFF) == 0xEF) && ((buf.get(1) & 0xFF) == 0xBB) && ((buf.get(2) & 0xFF) == 0xBF))
+                pos = 3;
+
+            while (true)
+            {
+                skipWhitespace();
+                if (startsWith("<?xml "))
+                {
+                    int declStart = pos;
+                    skipPast("?>");
+                    checkEncoding(toString(declStart, pos));
+                }
+                else if (startsWith("<?"))
+                {
+                    skipPast("?>");
+                }
+                else if (startsWith("<!--"))
+                {
+                    skipPast("-->");
+                }
+                else if (startsWith("<!"))
+                {
+                    throw FallbackException.INSTANCE;
+                }
+                else if (byteAt(pos) == '<')
+                {
+                    return;
+                }
+                else
+                {
+                    // includes UTF-16, which has a leading zero byte or a different BOM
+                    throw FallbackException.INSTANCE;
+                }
+            }
+        }
+
+
+        private void checkEncoding(String decl)
+        {
+            int idx = decl.indexOf("encoding");
+            if (idx < 0)
+                return;
+
+            String rest = decl.substring(idx + 8).replaceFirst("^\\s*=\\s*", "");
+            if (rest.length() == 0)
+                throw FallbackException.INSTANCE;
+
+            char quote = rest.charAt(0);
+            int end = rest.indexOf(quote, 1);
+            if (end < 0)
+                throw FallbackException.INSTANCE;
+
+            String encoding = rest.substring(1, end).toUpperCase();
+            if (! encoding.equals("UTF-8") && ! encoding.equals("UTF8") && ! encoding.equals("US-ASCII"))
+                throw FallbackException.INSTANCE;
+        }
+
+
+        /**
+         *  Advances to the next child element of the current element, skipping
+         *  text, comments, and processing instructions. Returns true if positioned
+         *  after the child's start tag (which has been parsed), false if positioned
+         *  after an end tag (which the caller must verify).
+         */
+        private boolean nextChild()
+        {
+            while (true)
+            {
+                skipTo('<');
+                if (startsWith("</"))
+                {
+                    pos += 2;
+                    endNameStart = pos;
+                    while (! isNameTerminator(byteAt(pos)))
+                        pos++;
+                    endNameEnd = pos;
+                    skipWhitespace();
+                    if (byteAt(pos) != '>')
+                        throw FallbackException.INSTANCE;
+                    pos++;
+                    return false;
+                }
+                else if (! skipMarkup())
+                {
+                    parseStartTag();
+                    return true;
+                }
+            }
+        }
+
+
+        /**
+         *  Verifies that the most recent end tag has the specified name, which is
+         *  a range of the buffer.
+         */
+        private void checkEndTag(int start, int end)
+        {
+            if (! equalsRange(endNameStart, endNameEnd, start, end))
+                throw FallbackException.INSTANCE;
+        }
+
+
+        /**
+         *  Verifies that the most recent end tag has the specified (unprefixed) name.
+         */
+        private void checkEndTag(String name)
+        {
+            if (! equalsAscii(endNameStart, endNameEnd, name))
+                throw FallbackException.INSTANCE;
+        }
+
+
+        /**
+         *  If positioned at a comment, CDATA section, or processing instruction,
+         *  skips it and returns true. Returns false if positioned at anything else.
+         */
+        private boolean skipMarkup()
+        {
+            if (startsWith("<!--"))
+            {
+                skipPast("-->");
+                return true;
+            }
+            else if (startsWith("<![CDATA["))
+            {
+                skipPast("]]>");
+                return true;
+            }
+            else if (startsWith("<?"))
+            {
+                skipPast("?>");
+                return true;
+            }
+            else if (startsWith("<!"))
+            {
+                throw FallbackException.INSTANCE;
+            }
+            return false;
+        }
+
+
+        /**
+         *  Parses a start tag, beginning with the opening '&lt;'.
+         */
+        private void parseStartTag()
+        {
+            pos++;
+            nameStart = pos;
+            while (! isNameTerminator(byteAt(pos)))
+                pos++;
+            nameEnd = pos;
+            if (nameEnd == nameStart)
+                throw FallbackException.INSTANCE;
+
+            attrCount = 0;
+            while (true)
+            {
+                skipWhitespace();
+                byte b = byteAt(pos);
+                if (b == '>')
+                {
+                    pos++;
+                    selfClosing = false;
+                    return;
+                }
+                else if (b == '/')
+                {
+                    if (byteAt(pos + 1) != '>')
+                        throw FallbackException.INSTANCE;
+                    pos += 2;
+                    selfClosing = true;
+                    return;
+                }
+
+                int aStart = pos;
+                while (! isNameTerminator(b) && (b != '='))
+                    b = byteAt(++pos);
+                int aEnd = pos;
+                skipWhitespace();
+                if ((aEnd == aStart) || (byteAt(pos) != '='))
+                    throw FallbackException.INSTANCE;
+                pos++;
+                skipWhitespace();
+                byte quote = byteAt(pos);
+                if ((quote != '"') && (quote != '\''))
+                    throw FallbackException.INSTANCE;
+                int vStart = ++pos;
+                while ((b = byteAt(pos)) != quote)
+                {
+                    if (b == '<')
+                        throw FallbackException.INSTANCE;
+                    pos++;
+                }
+                int vEnd = pos++;
+
+                if (attrs.length < (attrCount + 1) * 4)
+                    attrs = Arrays.copyOf(attrs, attrs.length * 2);
+                attrs[attrCount * 4]     = aStart;
+                attrs[attrCount * 4 + 1] = aEnd;
+                attrs[attrCount * 4 + 2] = vStart;
+                attrs[attrCount * 4 + 3] = vEnd;
+                attrCount++;
+            }
+        }
+
+
+        /**
+         *  Skips the remainder of the element whose start tag was just parsed,
+         *  including all descendents.
+         */
+        private void skipElement()
+        {
+            if (selfClosing)
+                return;
+
+            int depth = 1;
+            while (depth > 0)
+            {
+                skipTo('<');
+                if (startsWith("</"))
+                {
+                    skipPast(">");
+                    depth--;
+                }
+                else if (! skipMarkup())
+                {
+                    parseStartTag();
+                    if (! selfClosing)
+                        depth++;
+                }
+            }
+        }
+
+
+        /**
+         *  Finds the content of a text-only element whose start tag was just parsed,
+         *  and advances past its end tag. Anything that would require interpretation
+         *  by an XML parser (entity references, line-end normalization, comments,
+         *  CDATA, or child elements) causes fallback.
+         */
+        private void findText()
+        {
+            textStart = pos;
+            textEnd = pos;
+            if (selfClosing)
+                return;
+
+            while (true)
+            {
+                byte b = byteAt(pos);
+                if (b == '<')
+                    break;
+                if ((b == '&') || (b == '\r'))
+                    throw FallbackException.INSTANCE;
+                pos++;
+            }
+            textEnd = pos;
+
+            if (byteAt(pos + 1) != '/')
+                throw FallbackException.INSTANCE;
+            pos += 2;
+            int endNameStart = pos;
+            while (! isNameTerminator(byteAt(pos)))
+                pos++;
+            if (! equalsRange(endNameStart, pos, nameStart, nameEnd))
+                throw FallbackException.INSTANCE;
+            skipWhitespace();
+            if (byteAt(pos) != '>')
+                throw FallbackException.INSTANCE;
+            pos++;
+        }
+
+
+        private String readText()
+        {
+            findText();
+            return toString(textStart, textEnd);
+        }
+
+        //--------------------------------------------------------------------
+        //  Namespaces and attributes
+        //--------------------------------------------------------------------
+
+        /**
+         *  Determines whether the current element belongs to the GPX namespace.
+         *  Unprefixed names are in the GPX namespace (unless redeclared); prefixed
+         *  names are resolved using the root element's declarations. A prefix that
+         *  resolves to the GPX namespace, or that can't be resolved, causes fallback.
+         */
+        private boolean isGpxElement()
+        {
+            int colon = indexOf(nameStart, nameEnd, (byte)':');
+            String namespace = null;
+            for (int ii = 0 ; ii < attrCount ; ii++)
+            {
+                int aStart = attrs[ii * 4];
+                int aEnd = attrs[ii * 4 + 1];
+                if ((colon < 0) && equalsAscii(aStart, aEnd, "xmlns"))
+                    namespace = attributeValue(ii);
+                else if ((colon >= 0) && startsWithAscii(aStart, aEnd, "xmlns:")
+                         && equalsRange(aStart + 6, aEnd, nameStart, colon))
+                    namespace = attributeValue(ii);
+            }
+
+            if ((namespace == null) && (colon < 0))
+                return true;
+
+            if (namespace == null)
+                namespace = prefixes.get(toString(nameStart, colon));
+
+            if ((namespace == null) || ((colon >= 0) && namespace.equals(GpxConstants.NAMESPACE)))
+                throw FallbackException.INSTANCE;
+
+            return namespace.equals(GpxConstants.NAMESPACE);
+        }
+
+
+        /**
+         *  Called for elements whose content is interpreted: namespace declarations
+         *  would apply to that content, so they cause fallback.
+         */
+        private void checkNoDeclarations()
+        {
+            for (int ii = 0 ; ii < attrCount ; ii++)
+            {
+                if (startsWithAscii(attrs[ii * 4], attrs[ii * 4 + 1], "xmlns"))
+                    throw FallbackException.INSTANCE;
+            }
+        }
+
+
+        private String attributeValue(int index)
+        {
+            int vStart = attrs[index * 4 + 2];
+            int vEnd = attrs[index * 4 + 3];
+            if (indexOf(vStart, vEnd, (byte)'&') >= 0)
+                throw FallbackException.INSTANCE;
+            return toString(vStart, vEnd);
+        }
+
+
+        private double parseAttributeAsDouble(String name)
+        {
+            for (int ii = 0 ; ii < attrCount ; ii++)
+            {
+                if (equalsAscii(attrs[ii * 4], attrs[ii * 4 + 1], name))
+                    return parseDouble(attrs[ii * 4 + 2], attrs[ii * 4 + 3]);
+            }
+            throw FallbackException.INSTANCE;
+        }
+
+
+        private double parseDouble(int start, int end)
+        {
+            try
+            {
+                return NumberUtils.parseDouble(buf, start, end);
+            }
+            catch (NumberFormatException ex)
+            {
+                throw FallbackException.INSTANCE;
+            }
+        }
+
+
+        private long parseTimestamp(int start, int end)
+        {
+            timestampChars.setLength(0);
+            for (int ii = start ; ii < end ; ii++)
+            {
+                byte b = buf.get(ii);
+                if (b < 0)
+                    throw FallbackException.INSTANCE;
+                timestampChars.append((char)b);
+            }
+
+            try
+            {
+                return TimestampUtils.parseMillis(timestampChars);
+            }
+            catch (IllegalArgumentException ex)
+            {
+                throw FallbackException.INSTANCE;
+            }
+        }
+
+        //--------------------------------------------------------------------
+        //  Low-level byte operations
+        //--------------------------------------------------------------------
+
+        private byte byteAt(int idx)
+        {
+            if (idx >= limit)
+                throw FallbackException.INSTANCE;
+            return buf.get(idx);
+        }
+
+
+        private static boolean isWhitespace(byte b)
+        {
+            return (b == ' ') || (b == '\n') || (b == '\t') || (b == '\r');
+        }
+
+
+        private static boolean isNameTerminator(byte b)
+        {
+            return isWhitespace(b) || (b == '>') || (b == '/');
+        }
+
+
+        private void skipWhitespace()
+        {
+            while ((pos < limit) && isWhitespace(buf.get(pos)))
+                pos++;
+        }
+
+
+        private void skipTo(char target)
+        {
+            while (byteAt(pos) != target)
+                pos++;
+        }
+
+
+        private void skipPast(String terminator)
+        {
+            while (! startsWith(terminator))
+            {
+                if (pos >= limit)
+                    throw FallbackException.INSTANCE;
+                pos++;
+            }
+            pos += terminator.length();
+        }
+
+
+        private boolean startsWith(String s)
+        {
+            if (pos + s.length() > limit)
+                return false;
+            for (int ii = 0 ; ii < s.length() ; ii++)
+            {
+                if (buf.get(pos + ii) != s.charAt(ii))
+                    return false;
+            }
+            return true;
+        }
+
+
+        private int indexOf(int start, int end, byte b)
+        {
+            for (int ii = start ; ii < end ; ii++)
+            {
+                if (buf.get(ii) == b)
+                    return ii;
+            }
+            return -1;
+        }
+
+
+        private boolean equalsAscii(int start, int end, String s)
+        {
+            return (end - start == s.length()) && startsWithAscii(start, end, s);
+        }
+
+
+        private boolean startsWithAscii(int start, int end, String s)
+        {
+            if (end - start < s.length())
+                return false;
+            for (int ii = 0 ; ii < s.length() ; ii++)
+            {
+                if (buf.get(start + ii) != s.charAt(ii))
+                    return false;
+            }
+            return true;
+        }
+
+
+        private boolean equalsBytes(int start, int end, byte[] bytes)
+        {
+            if (end - start != bytes.length)
+                return false;
+            for (int ii = 0 ; ii < bytes.length ; ii++)
+            {
+                if (buf.get(start + ii) != bytes[ii])
+                    return false;
+            }
+            return true;
+        }
+
+
+        private boolean equalsRange(int start1, int end1, int start2, int end2)
+        {
+            if (end1 - start1 != end2 - start2)
+                return false;
+            for (int ii = 0 ; ii < end1 - start1 ; ii++)
+            {
+                if (buf.get(start1 + ii) != buf.get(start2 + ii))
+                    return false;
+            }
+            return true;
+        }
+
+
+        private String toString(int start, int end)
+        {
+            byte[] bytes = new byte[end - start];
+            for (int ii = 0 ; ii < bytes.length ; ii++)
+            {
+                bytes[ii] = buf.get(start + ii);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
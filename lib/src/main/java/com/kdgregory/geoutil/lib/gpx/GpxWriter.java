@@ -0,0 +1,631 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import net.sf.practicalxml.XmlException;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.gpx.model.TrackSegment;
+import com.kdgregory.geoutil.lib.internal.NumberFormatter;
+
+
+/**
+ *  Writes a GPX file incrementally, without building a DOM. The output is
+ *  byte-for-byte identical to that produced by serializing the result of
+ *  {@link GpxFile#toXml} with Practical XML's <code>OutputUtil.compact()</code>:
+ *  UTF-8, no XML prolog, no whitespace between elements.
+ *  <p>
+ *  The caller is responsible for calling the <code>start</code> and <code>end</code>
+ *  methods in the correct order; the writer throws <code>IllegalStateException</code>
+ *  if they're called out of order. For convenience, {@link #close} will end any open
+ *  elements before closing the underlying stream. Segments are only written if they
+ *  contain points, consistent with {@link TrackSegment#appendAsXml}.
+ *  <p>
+ *  By default, numbers are written with full precision. To produce smaller files,
+ *  the writer may be configured with a {@link GpxFormat} that limits the number of
+ *  decimal places; the output is then identical to that of {@link GpxFile#toXml(GpxFormat)}.
+ *  <p>
+ *  Instances are not thread-safe.
+ */
+public class GpxWriter
+implements Closeable
+{
+    private enum State { INITIAL, GPX, TRACK, SEGMENT, COMPLETE }
+
+    private Writer out;
+    private State state = State.INITIAL;
+
+    // segments aren't written until they have a point
+    private boolean segmentWritten;
+
+    // the start tag of the current element has been written, but not its closing '>'
+    private boolean startTagOpen;
+
+    private GpxFormat format = GpxFormat.FULL_PRECISION;
+
+    // reused for every formatted number
+    private StringBuilder numberBuf = new StringBuilder(NumberFormatter.MAX_LENGTH);
+    private char[] numberChars = new char[NumberFormatter.MAX_LENGTH];
+
+
+    /**
+     *  Creates an instance that writes to the passed stream. The stream will be
+     *  closed when this writer is closed.
+     */
+    public GpxWriter(OutputStream out)
+    {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536);
+    }
+
+
+    /**
+     *  Creates an instance that writes to the specified file, overwriting any
+     *  existing content.
+     */
+    public GpxWriter(File file)
+    {
+        this(openFile(file));
+    }
+
+//----------------------------------------------------------------------------
+//  Configuration
+//----------------------------------------------------------------------------
+
+    /**
+     *  Sets the format used to write latitude, longitude, elevation, and geoid
+     *  height. This affects all subsequent output. The default is
+     *  {@link GpxFormat#FULL_PRECISION}.
+     */
+    public GpxWriter setFormat(GpxFormat value)
+    {
+        format = value;
+        return this;
+    }
+
+//----------------------------------------------------------------------------
+//  Public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Writes an entire file, then completes the document. The writer must not
+     *  have written anything prior to this call.
+     */
+    public GpxWriter write(GpxFile gpx)
+    {
+        startGpx(gpx.getVersion(), gpx.getCreator());
+        for (Track track : gpx.getTracks())
+        {
+            writeTrack(track);
+        }
+        return endGpx();
+    }
+
+
+    /**
+     *  Writes the opening root element. Either value may be null, in which case
+     *  it's written as an empty string.
+     */
+    public GpxWriter startGpx(String version, String creator)
+    {
+        checkState(State.INITIAL);
+
+        openElement(GpxConstants.E_GPX);
+        writeAttribute(GpxConstants.A_GPX_CREATOR, creator);
+        writeAttribute(GpxConstants.A_GPX_VERSION, version);
+        writeAttribute("xmlns", GpxConstants.NAMESPACE);
+
+        state = State.GPX;
+        return this;
+    }
+
+
+    /**
+     *  Closes the root element, and flushes all output. No further content
+     *  may be written.
+     */
+    public GpxWriter endGpx()
+    {
+        checkState(State.GPX);
+
+        closeElement(GpxConstants.E_GPX);
+        flush();
+
+        state = State.COMPLETE;
+        return this;
+    }
+
+
+    /**
+     *  Writes an entire track.
+     */
+    public GpxWriter writeTrack(Track track)
+    {
+        startTrack(track.getName(), track.getDescription(), track.getType());
+        for (TrackSegment segment : track.getSegments())
+        {
+            startSegment();
+            writePoints(segment.getPoints().iterator());
+            endSegment();
+        }
+        return endTrack();
+    }
+
+
+    /**
+     *  Opens a track, writing its metadata. Any or all of the metadata values
+     *  may be null, in which case they're omitted.
+     */
+    public GpxWriter startTrack(String name, String description, String type)
+    {
+        checkState(State.GPX);
+
+        openElement(GpxConstants.E_TRK);
+        optWriteDataElement(GpxConstants.E_TRK_NAME,          name);
+        optWriteDataElement(GpxConstants.E_TRK_DESCRIPTION,   description);
+        optWriteDataElement(GpxConstants.E_TRK_TYPE,          type);
+
+        state = State.TRACK;
+        return this;
+    }
+
+
+    /**
+     *  Closes the current track.
+     */
+    public GpxWriter endTrack()
+    {
+        checkState(State.TRACK);
+
+        closeElement(GpxConstants.E_TRK);
+
+        state = State.GPX;
+        return this;
+    }
+
+
+    /**
+     *  Starts a new segment within the current track. Nothing is written until
+     *  the first point is added.
+     */
+    public GpxWriter startSegment()
+    {
+        checkState(State.TRACK);
+
+        segmentWritten = false;
+
+        state = State.SEGMENT;
+        return this;
+    }
+
+
+    /**
+     *  Closes the current segment.
+     */
+    public GpxWriter endSegment()
+    {
+        checkState(State.SEGMENT);
+
+        if (segmentWritten)
+        {
+            closeElement(GpxConstants.E_TRKSEG);
+        }
+
+        state = State.TRACK;
+        return this;
+    }
+
+
+    /**
+     *  Writes a point to the current segment.
+     */
+    public GpxWriter writePoint(GpxPoint point)
+    {
+        startPoint(point.getLat(), point.getLon());
+        optWriteNumberElement(GpxConstants.E_WPT_ELEVATION,       point.getElevation(), format.getElevationFormatter());
+        optWriteDataElement(GpxConstants.E_WPT_TIMESTAMP,         point.getTimestamp());
+        optWriteDataElement(GpxConstants.E_WPT_VARIANCE,          point.getMagneticVariance());
+        optWriteNumberElement(GpxConstants.E_WPT_GEOID_HEIGHT,    point.getGeoidHeight(), format.getElevationFormatter());
+        optWriteDataElement(GpxConstants.E_WPT_NAME,              point.getName());
+        optWriteDataElement(GpxConstants.E_WPT_COMMENT,           point.getComment());
+        optWriteDataElement(GpxConstants.E_WPT_DESCRIPTION,       point.getDescription());
+        closeElement(GpxConstants.E_TRKPOINT);
+        return this;
+    }
+
+
+    /**
+     *  Writes a core point to the current segment. The output is the same as for
+     *  a <code>GpxPoint</code> constructed from the same values.
+     */
+    public GpxWriter writePoint(Point point)
+    {
+        startPoint(point.getLat(), point.getLon());
+        optWriteNumberElement(GpxConstants.E_WPT_ELEVATION,       point.getElevation(), format.getElevationFormatter());
+        optWriteDataElement(GpxConstants.E_WPT_TIMESTAMP,         point.getTimestamp());
+        closeElement(GpxConstants.E_TRKPOINT);
+        return this;
+    }
+
+
+    /**
+     *  Writes all points from the passed iterator to the current segment.
+     */
+    public GpxWriter writePoints(Iterator<? extends GpxPoint> itx)
+    {
+        while (itx.hasNext())
+        {
+            writePoint(itx.next());
+        }
+        return this;
+    }
+
+
+    /**
+     *  Flushes any buffered output to the underlying stream.
+     */
+    public void flush()
+    {
+        try
+        {
+            out.flush();
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+    }
+
+
+    /**
+     *  Ends any open elements, and closes the underlying stream. If nothing has
+     *  been written, the underlying stream is closed without writing anything.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            switch (state)
+            {
+                case SEGMENT:
+                    endSegment();
+                    // fall through
+                case TRACK:
+                    endTrack();
+                    // fall through
+                case GPX:
+                    endGpx();
+                    break;
+                default:
+                    // nothing to do
+            }
+        }
+        finally
+        {
+            try
+            {
+                out.close();
+            }
+            catch (IOException ex)
+            {
+                throw new XmlException("unable to generate output", ex);
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private static OutputStream openFile(File file)
+    {
+        try
+        {
+            return new FileOutputStream(file);
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+    }
+
+
+    private void checkState(State expected)
+    {
+        if (state != expected)
+            throw new IllegalStateException("invalid operation in state " + state);
+    }
+
+
+    /**
+     *  Common code for writing a trackpoint: lazily opens the segment, and writes
+     *  the point's start tag with its attributes.
+     */
+    private void startPoint(double lat, double lon)
+    {
+        checkState(State.SEGMENT);
+
+        if (! segmentWritten)
+        {
+            openElement(GpxConstants.E_TRKSEG);
+            segmentWritten = true;
+        }
+
+        openElement(GpxConstants.E_TRKPOINT);
+        writeNumberAttribute(GpxConstants.A_WPT_LAT, lat, format.getCoordinateFormatter());
+        writeNumberAttribute(GpxConstants.A_WPT_LON, lon, format.getCoordinateFormatter());
+    }
+
+
+    /**
+     *  Writes the start of an element's start tag, leaving it open for attributes.
+     */
+    private void openElement(String name)
+    {
+        try
+        {
+            finishStartTag();
+            out.write('<');
+            out.write(name);
+            startTagOpen = true;
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+    }
+
+
+    /**
+     *  Closes the current element. If it doesn't have any content, this is written
+     *  as an empty-element tag.
+     */
+    private void closeElement(String name)
+    {
+        try
+        {
+            if (startTagOpen)
+            {
+                out.write("/>");
+                startTagOpen = false;
+            }
+            else
+            {
+                out.write("</");
+                out.write(name);
+                out.write('>');
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+    }
+
+
+    /**
+     *  Writes an attribute of the current element. Attributes must be written in
+     *  alphabetical order, to match the DOM. A null value is written as an empty
+     *  string.
+     */
+    private void writeAttribute(String name, String value)
+    {
+        try
+        {
+            out.write(' ');
+            out.write(name);
+            out.write("=\"");
+            escape(value, true);
+            out.write('"');
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+    }
+
+
+    /**
+     *  Writes a child element containing the string value of the passed object,
+     *  IFF the object isn't null. This is the equivalent of
+     *  {@link com.kdgregory.geoutil.lib.internal.XmlUtils#optAppendDataElement}.
+     */
+    private void optWriteDataElement(String name, Object value)
+    {
+        if (value == null)
+            return;
+
+        String text = value.toString();
+
+        openElement(name);
+        if (text.length() > 0)
+        {
+            try
+            {
+                finishStartTag();
+                escape(text, false);
+            }
+            catch (IOException ex)
+            {
+                throw new XmlException("unable to generate output", ex);
+            }
+        }
+        closeElement(name);
+    }
+
+
+    /**
+     *  Writes a numeric attribute of the current element. Formatted numbers never
+     *  need to be escaped.
+     */
+    private void writeNumberAttribute(String name, double value, NumberFormatter formatter)
+    {
+        try
+        {
+            out.write(' ');
+            out.write(name);
+            out.write("=\"");
+            writeNumber(value, formatter);
+            out.write('"');
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+    }
+
+
+    /**
+     *  Writes a child element containing a formatted number, IFF the value isn't
+     *  null.
+     */
+    private void optWriteNumberElement(String name, Double value, NumberFormatter formatter)
+    {
+        if (value == null)
+            return;
+
+        openElement(name);
+        try
+        {
+            finishStartTag();
+            writeNumber(value.doubleValue(), formatter);
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+        closeElement(name);
+    }
+
+
+    /**
+     *  Formats a number into the reusable buffer and writes it.
+     */
+    private void writeNumber(double value, NumberFormatter formatter)
+    throws IOException
+    {
+        numberBuf.setLength(0);
+        formatter.append(numberBuf, value);
+
+        int len = numberBuf.length();
+        numberBuf.getChars(0, len, numberChars, 0);
+        out.write(numberChars, 0, len);
+    }
+
+
+    private void finishStartTag()
+    throws IOException
+    {
+        if (startTagOpen)
+        {
+            out.write('>');
+            startTagOpen = false;
+        }
+    }
+
+
+    /**
+     *  Writes a string, escaping the same characters that the JDK's transformer
+     *  escapes. This differs between text and attribute values: in text, tab and
+     *  newline are written as-is, while DEL and the C1 control characters are
+     *  escaped; in attributes, all C0 controls are escaped, and quotes must be.
+     *  <p>
+     *  Supplementary characters are written as numeric character references.
+     *  An unpaired high surrogate can't be serialized by the transformer, and
+     *  isn't here either.
+     */
+    private void escape(String value, boolean isAttribute)
+    throws IOException
+    {
+        if (value == null)
+            return;
+
+        int len = value.length();
+        int start = 0;
+        for (int ii = 0 ; ii < len ; ii++)
+        {
+            char c = value.charAt(ii);
+            if (! needsEscape(c, isAttribute))
+                continue;
+
+            out.write(value, start, ii - start);
+            start = ii + 1;
+
+            switch (c)
+            {
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '"':
+                    out.write("&quot;");
+                    break;
+                default:
+                    int codepoint = c;
+                    if (Character.isHighSurrogate(c))
+                    {
+                        if ((ii + 1 >= len) || ! Character.isLowSurrogate(value.charAt(ii + 1)))
+                            throw new XmlException("unable to generate output: unpaired surrogate at index " + ii);
+
+                        codepoint = Character.toCodePoint(c, value.charAt(++ii));
+                        start = ii + 1;
+                    }
+                    out.write("&#");
+                    out.write(Integer.toString(codepoint));
+                    out.write(';');
+            }
+        }
+        out.write(value, start, len - start);
+    }
+
+
+    private static boolean needsEscape(char c, boolean isAttribute)
+    {
+        if (c < 0x20)
+            return isAttribute || ((c != '\t') && (c != '\n'));
+
+        switch (c)
+        {
+            case '<':
+            case '>':
+            case '&':
+                return true;
+            case '"':
+                return isAttribute;
+            default:
+                if ((c >= 0x7F) && (c <= 0x9F))
+                    return ! isAttribute;
+                return Character.isSurrogate(c);
+        }
+    }
+}
@@ -16,13 +16,16 @@ package com.kdgregory.geoutil.lib.gpx.model;
 
 import java.time.Instant;
 
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Element;
 
 import net.sf.practicalxml.DomUtil;
 
 import com.kdgregory.geoutil.lib.core.Point;
 import com.kdgregory.geoutil.lib.gpx.GpxConstants;
-import com.kdgregory.geoutil.lib.internal.ObjectUtils;
+import com.kdgregory.geoutil.lib.gpx.GpxFormat;
+import com.kdgregory.geoutil.lib.internal.StaxUtils;
 import com.kdgregory.geoutil.lib.internal.TimestampUtils;
 import com.kdgregory.geoutil.lib.internal.XmlUtils;
 
@@ -213,9 +216,7 @@ public class GpxPoint
      */
     public GpxPoint setMagneticVariance(Double value)
     {
-        if ((value < 0) || (value > 360))
-            throw new IllegalArgumentException("magnetic variance must be 0..360; was " + value);
-
+        WaypointFieldParser.validateMagneticVariance(value);
         this.variance = value;
         return this;
     }
@@ -311,15 +312,25 @@ public class GpxPoint
      *                      use one of the names from {@link GpxConstants}.
      */
     public Element appendAsXml(Element parent, String nodeName)
+    {
+        return appendAsXml(parent, nodeName, GpxFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Converts to the <code>wptType</code> XML representation, writing latitude,
+     *  longitude, elevation, and geoid height in the specified format.
+     */
+    public Element appendAsXml(Element parent, String nodeName, GpxFormat format)
     {
         Element elem = DomUtil.appendChild(parent, GpxConstants.NAMESPACE, nodeName);
-        elem.setAttribute(GpxConstants.A_WPT_LAT, String.valueOf(getLat()));
-        elem.setAttribute(GpxConstants.A_WPT_LON, String.valueOf(getLon()));
+        elem.setAttribute(GpxConstants.A_WPT_LAT, format.formatCoordinate(getLat()));
+        elem.setAttribute(GpxConstants.A_WPT_LON, format.formatCoordinate(getLon()));
 
-        XmlUtils.optAppendDataElement(elem, GpxConstants.NAMESPACE, GpxConstants.E_WPT_ELEVATION,     getElevation());
+        XmlUtils.optAppendDataElement(elem, GpxConstants.NAMESPACE, GpxConstants.E_WPT_ELEVATION,     format.formatElevation(getElevation()));
         XmlUtils.optAppendDataElement(elem, GpxConstants.NAMESPACE, GpxConstants.E_WPT_TIMESTAMP,     getTimestamp());
         XmlUtils.optAppendDataElement(elem, GpxConstants.NAMESPACE, GpxConstants.E_WPT_VARIANCE,      getMagneticVariance());
-        XmlUtils.optAppendDataElement(elem, GpxConstants.NAMESPACE, GpxConstants.E_WPT_GEOID_HEIGHT,  getGeoidHeight());
+        XmlUtils.optAppendDataElement(elem, GpxConstants.NAMESPACE, GpxConstants.E_WPT_GEOID_HEIGHT,  format.formatElevation(getGeoidHeight()));
         XmlUtils.optAppendDataElement(elem, GpxConstants.NAMESPACE, GpxConstants.E_WPT_NAME,          getName());
         XmlUtils.optAppendDataElement(elem, GpxConstants.NAMESPACE, GpxConstants.E_WPT_COMMENT,       getComment());
         XmlUtils.optAppendDataElement(elem, GpxConstants.NAMESPACE, GpxConstants.E_WPT_DESCRIPTION,   getDescription());
@@ -339,48 +350,102 @@ public class GpxPoint
         GpxPoint gpxPoint = new GpxPoint(XmlUtils.getAttributeAsDouble(elem, GpxConstants.A_WPT_LAT),
                                          XmlUtils.getAttributeAsDouble(elem, GpxConstants.A_WPT_LON));
 
+        FieldSink sink = new FieldSink(gpxPoint);
         for (Element child : DomUtil.getChildren(elem))
         {
-            String childNamespace = child.getNamespaceURI();
-            String childName = DomUtil.getLocalName(child);
-            String childText = child.getTextContent();
+            WaypointFieldParser.setField(sink, child.getNamespaceURI(), DomUtil.getLocalName(child), child.getTextContent());
+        }
+        return gpxPoint;
+    }
 
-            if (! GpxConstants.NAMESPACE.equals(childNamespace))
-                throw new IllegalArgumentException("invalid namespace: " + childNamespace);
 
-            switch (childName)
+    /**
+     *  Parses the <code>wptType</code> XML representation from a StAX reader, which
+     *  must be positioned at the element's <code>START_ELEMENT</code> event. On return,
+     *  the reader is positioned at the corresponding <code>END_ELEMENT</code>.
+     *  <p>
+     *  Accepts and rejects the same content as {@link #fromXml(Element)}.
+     */
+    public static GpxPoint fromXml(XMLStreamReader reader)
+    {
+        GpxPoint gpxPoint = new GpxPoint(StaxUtils.getAttributeAsDouble(reader, GpxConstants.A_WPT_LAT),
+                                         StaxUtils.getAttributeAsDouble(reader, GpxConstants.A_WPT_LON));
+
+        FieldSink sink = new FieldSink(gpxPoint);
+        while (StaxUtils.nextChild(reader))
+        {
+            String childNamespace = StaxUtils.getNamespaceURI(reader);
+            String childName = reader.getLocalName();
+
+            // extensions are ignored, so there's no reason to accumulate their content
+            if (GpxConstants.NAMESPACE.equals(childNamespace) && GpxConstants.E_WPT_EXTENSIONS.equals(childName))
             {
-                case GpxConstants.E_WPT_ELEVATION:
-                    ObjectUtils.optSetDouble(childText, gpxPoint::setElevation);
-                    break;
-                case GpxConstants.E_WPT_TIMESTAMP:
-                    ObjectUtils.optSetString(childText, gpxPoint::setTimestampString);
-                    break;
-                case GpxConstants.E_WPT_VARIANCE:
-                    ObjectUtils.optSetDouble(childText, gpxPoint::setMagneticVariance);
-                    break;
-                case GpxConstants.E_WPT_GEOID_HEIGHT:
-                    ObjectUtils.optSetDouble(childText, gpxPoint::setGeoidHeight);
-                    break;
-                case GpxConstants.E_WPT_NAME:
-                    ObjectUtils.optSetString(childText, gpxPoint::setName);
-                    break;
-                case GpxConstants.E_WPT_COMMENT:
-                    ObjectUtils.optSetString(childText, gpxPoint::setComment);
-                    break;
-                case GpxConstants.E_WPT_DESCRIPTION:
-                    ObjectUtils.optSetString(childText, gpxPoint::setDescription);
-                    break;
-                case GpxConstants.E_WPT_EXTENSIONS:
-                    // not supported at this time, but it appears in Garmin files so we have to ignore
-                    break;
-                default:
-                    throw new IllegalArgumentException("unsupported element: " + childName);
+                StaxUtils.skipElement(reader);
+                continue;
             }
+
+            WaypointFieldParser.setField(sink, childNamespace, childName, StaxUtils.getTextContent(reader));
         }
         return gpxPoint;
     }
 
+
+    /**
+     *  Common code for parsing: adapts a point's setters for {@link WaypointFieldParser}.
+     */
+    private static class FieldSink
+    implements WaypointFieldParser.Sink
+    {
+        private GpxPoint gpxPoint;
+
+        public FieldSink(GpxPoint gpxPoint)
+        {
+            this.gpxPoint = gpxPoint;
+        }
+
+        @Override
+        public void setElevation(double value)
+        {
+            gpxPoint.setElevation(value);
+        }
+
+        @Override
+        public void setTimestamp(Instant value)
+        {
+            gpxPoint.setTimestamp(value);
+        }
+
+        @Override
+        public void setMagneticVariance(double value)
+        {
+            gpxPoint.setMagneticVariance(value);
+        }
+
+        @Override
+        public void setGeoidHeight(double value)
+        {
+            gpxPoint.setGeoidHeight(value);
+        }
+
+        @Override
+        public void setName(String value)
+        {
+            gpxPoint.setName(value);
+        }
+
+        @Override
+        public void setComment(String value)
+        {
+            gpxPoint.setComment(value);
+        }
+
+        @Override
+        public void setDescription(String value)
+        {
+            gpxPoint.setDescription(value);
+        }
+    }
+
 //----------------------------------------------------------------------------
 //  Other public methods
 //----------------------------------------------------------------------------
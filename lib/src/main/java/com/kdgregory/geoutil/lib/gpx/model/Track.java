@@ -22,14 +22,20 @@ import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Element;
 
 import net.sf.practicalxml.DomUtil;
 
+import com.kdgregory.geoutil.lib.core.DistanceCalculator;
 import com.kdgregory.geoutil.lib.core.Point;
 import com.kdgregory.geoutil.lib.core.SegmentUtil;
+import com.kdgregory.geoutil.lib.core.TrackStats;
 import com.kdgregory.geoutil.lib.gpx.GpxConstants;
+import com.kdgregory.geoutil.lib.gpx.GpxFormat;
 import com.kdgregory.geoutil.lib.internal.ObjectUtils;
+import com.kdgregory.geoutil.lib.internal.StaxUtils;
 import com.kdgregory.geoutil.lib.internal.XmlUtils;
 
 
@@ -158,6 +164,18 @@ public class Track
      *  @return The newly created element.
      */
     public Element appendAsXml(Element parent)
+    {
+        return appendAsXml(parent, GpxFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Appends this object as a "trk" element to the provided parent, writing
+     *  numeric point values in the specified format.
+     *
+     *  @return The newly created element.
+     */
+    public Element appendAsXml(Element parent, GpxFormat format)
     {
         Element elem = DomUtil.appendChild(parent, GpxConstants.NAMESPACE, GpxConstants.E_TRK);
 
@@ -167,7 +185,7 @@ public class Track
 
         for (TrackSegment seg : segments)
         {
-            seg.appendAsXml(elem);
+            seg.appendAsXml(elem, format);
         }
 
         return elem;
@@ -191,27 +209,68 @@ public class Track
             if (! GpxConstants.NAMESPACE.equals(childNamespace))
                 throw new IllegalArgumentException("invalid namespace: " + childNamespace);
 
-            switch (childName)
-            {
-                case GpxConstants.E_TRK_NAME:
-                    ObjectUtils.optSetString(child.getTextContent(), track::setName);
-                    break;
-                case GpxConstants.E_TRK_DESCRIPTION:
-                    ObjectUtils.optSetString(child.getTextContent(), track::setDescription);
-                    break;
-                case GpxConstants.E_TRK_TYPE:
-                    ObjectUtils.optSetString(child.getTextContent(), track::setType);
-                    break;
-                case GpxConstants.E_TRKSEG:
-                    track.addSegment(TrackSegment.fromXml(child));
-                    break;
-                default:
-                    throw new IllegalArgumentException("unsupported element: " + childName);
-            }
+            if (GpxConstants.E_TRKSEG.equals(childName))
+                track.addSegment(TrackSegment.fromXml(child));
+            else
+                track.setFieldFromXml(childName, child.getTextContent());
+        }
+        return track;
+    }
+
+
+    /**
+     *  Parses a track from a StAX reader, which must be positioned at the element's
+     *  <code>START_ELEMENT</code> event. On return, the reader is positioned at the
+     *  corresponding <code>END_ELEMENT</code>.
+     *  <p>
+     *  Accepts and rejects the same content as {@link #fromXml(Element)}.
+     */
+    public static Track fromXml(XMLStreamReader reader)
+    {
+        Track track = new Track();
+        while (StaxUtils.nextChild(reader))
+        {
+            String childNamespace = StaxUtils.getNamespaceURI(reader);
+            String childName = reader.getLocalName();
+
+            if (! GpxConstants.NAMESPACE.equals(childNamespace))
+                throw new IllegalArgumentException("invalid namespace: " + childNamespace);
+
+            if (GpxConstants.E_TRKSEG.equals(childName))
+                track.addSegment(TrackSegment.fromXml(reader));
+            else
+                track.setFieldFromXml(childName, StaxUtils.getTextContent(reader));
         }
         return track;
     }
 
+
+    /**
+     *  Common code for parsing: sets the field corresponding to a (non-segment)
+     *  child element. Empty text is ignored. This is public so that streaming
+     *  readers accept and reject the same content as {@link #fromXml}.
+     *
+     *  @throws IllegalArgumentException if the element is not a recognized child
+     *          of <code>trkType</code>.
+     */
+    public void setFieldFromXml(String childName, String childText)
+    {
+        switch (childName)
+        {
+            case GpxConstants.E_TRK_NAME:
+                ObjectUtils.optSetString(childText, this::setName);
+                break;
+            case GpxConstants.E_TRK_DESCRIPTION:
+                ObjectUtils.optSetString(childText, this::setDescription);
+                break;
+            case GpxConstants.E_TRK_TYPE:
+                ObjectUtils.optSetString(childText, this::setType);
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported element: " + childName);
+        }
+    }
+
 //----------------------------------------------------------------------------
 //  Other public methods
 //----------------------------------------------------------------------------
@@ -223,19 +282,19 @@ public class Track
     public void filter(Predicate<GpxPoint> pred)
     {
         segments.stream().forEach(seg -> seg.filter(pred));
-        List<TrackSegment> filtered = segments.stream()
-                                      .filter(s -> ! s.isEmpty())
-                                      .collect(Collectors.toList());
-        segments = new ArrayList<>(filtered);
+        removeEmptySegments();
     }
 
 
     /**
-     *  Filters all segments in this track by inclusive timestamp.
+     *  Filters all segments in this track by inclusive timestamp, using
+     *  {@link TrackSegment#filter(Instant,Instant)}. Segments that have no
+     *  points after filtering are removed.
      */
     public void filter(Instant start, Instant finish)
     {
-        filter(p -> p.isBetween(start, finish));
+        segments.stream().forEach(seg -> seg.filter(start, finish));
+        removeEmptySegments();
     }
 
 
@@ -286,4 +345,44 @@ public class Track
         }
     }
 
+
+    /**
+     *  Calculates summary statistics for this track. Segments are treated as
+     *  separate recordings: the gap between the end of one segment and the start
+     *  of the next contributes to elapsed time, but not to distance or moving time.
+     */
+    public TrackStats stats()
+    {
+        return stats(DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Calculates summary statistics for this track, as above, using the
+     *  specified distance calculator.
+     */
+    public TrackStats stats(DistanceCalculator calculator)
+    {
+        TrackStats stats = new TrackStats(TrackStats.DEFAULT_MIN_MOVING_SPEED, calculator);
+        for (TrackSegment segment : segments)
+        {
+            stats.combine(segment.stats(calculator), false);
+        }
+        return stats;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Common code for filtering: removes segments that no longer have points.
+     */
+    private void removeEmptySegments()
+    {
+        List<TrackSegment> filtered = segments.stream()
+                                      .filter(s -> ! s.isEmpty())
+                                      .collect(Collectors.toList());
+        segments = new ArrayList<>(filtered);
+    }
 }
@@ -15,29 +15,55 @@
 package com.kdgregory.geoutil.lib.gpx.model;
 
 import java.time.Instant;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Element;
 
 import net.sf.practicalxml.DomUtil;
 
+import com.kdgregory.geoutil.lib.core.DistanceCalculator;
 import com.kdgregory.geoutil.lib.core.Point;
 import com.kdgregory.geoutil.lib.core.SegmentUtil;
+import com.kdgregory.geoutil.lib.core.TrackStats;
 import com.kdgregory.geoutil.lib.gpx.GpxConstants;
+import com.kdgregory.geoutil.lib.gpx.GpxFormat;
+import com.kdgregory.geoutil.lib.internal.StaxUtils;
+import com.kdgregory.geoutil.lib.internal.TimestampUtils;
 
 
 /**
  *  A list of points within a track.
+ *  <p>
+ *  The segment tracks whether its points are known to be in timestamp order
+ *  (which is normally the case for points read from a file, and always the
+ *  case after {@link #sortPoints}). When they are, time-range operations use
+ *  a binary search rather than examining every point. Adding a point with
+ *  {@link #add} clears the flag if the point is out of order; adding or
+ *  replacing points via the list returned by {@link #getPoints} always clears
+ *  it. Reading or removing points does not affect it.
+ *  <p>
+ *  The segment can't see changes to the points themselves: after changing the
+ *  timestamp of a point that's already in the segment, you must call
+ *  {@link #sortPoints}. Until then, {@link #filter(Instant,Instant)} and
+ *  {@link #getPointsBetween} may silently return incorrect results.
  */
 public class TrackSegment
 {
     private List<GpxPoint> points = new ArrayList<>();
+    private boolean timeSorted = true;
+
+    // the list returned by getPoints(); tracks modifications that may break order
+    private List<GpxPoint> pointsView = new PointsView();
 
 //----------------------------------------------------------------------------
 //  Accessors
@@ -62,11 +88,14 @@ public class TrackSegment
 
 
     /**
-     *  Returns the list of points in this segment.
+     *  Returns the list of points in this segment. This is a live view: changes
+     *  to the list are reflected in the segment. Adding or replacing points via
+     *  this list means that the segment no longer considers its points to be in
+     *  timestamp order; reading or removing points does not.
      */
     public List<GpxPoint> getPoints()
     {
-        return points;
+        return pointsView;
     }
 
 
@@ -75,6 +104,11 @@ public class TrackSegment
      */
     public TrackSegment add(GpxPoint p)
     {
+        if (timeSorted && ! points.isEmpty())
+        {
+            Instant last = points.get(points.size() - 1).getTimestamp();
+            timeSorted = TimestampUtils.compare(last, p.getTimestamp()) <= 0;
+        }
         points.add(p);
         return this;
     }
@@ -85,7 +119,10 @@ public class TrackSegment
      */
     public TrackSegment addAll(Collection<GpxPoint> ps)
     {
-        points.addAll(ps);
+        for (GpxPoint p : ps)
+        {
+            add(p);
+        }
         return this;
     }
 
@@ -96,6 +133,17 @@ public class TrackSegment
     public void clear()
     {
         points.clear();
+        timeSorted = true;
+    }
+
+
+    /**
+     *  Returns <code>true</code> if the points in this segment are known to be in
+     *  timestamp order, <code>false</code> if they may not be.
+     */
+    public boolean isTimeSorted()
+    {
+        return timeSorted;
     }
 
 //----------------------------------------------------------------------------
@@ -106,6 +154,16 @@ public class TrackSegment
      *  Appends this segment to a parent element, IFF it contains points.
      */
     public void appendAsXml(Element parent)
+    {
+        appendAsXml(parent, GpxFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Appends this segment to a parent element, IFF it contains points, writing
+     *  numeric point values in the specified format.
+     */
+    public void appendAsXml(Element parent, GpxFormat format)
     {
         if (points.isEmpty())
             return;
@@ -113,7 +171,7 @@ public class TrackSegment
         Element eSeg = DomUtil.appendChild(parent, GpxConstants.NAMESPACE, GpxConstants.E_TRKSEG);
         for (GpxPoint p : points)
         {
-            p.appendAsXml(eSeg, GpxConstants.E_TRKPOINT);
+            p.appendAsXml(eSeg, GpxConstants.E_TRKPOINT, format);
         }
     }
 
@@ -134,6 +192,32 @@ public class TrackSegment
         return segment;
     }
 
+
+    /**
+     *  Parses a segment from a StAX reader, which must be positioned at the element's
+     *  <code>START_ELEMENT</code> event. On return, the reader is positioned at the
+     *  corresponding <code>END_ELEMENT</code>.
+     *  <p>
+     *  Accepts and rejects the same content as {@link #fromXml(Element)}.
+     */
+    public static TrackSegment fromXml(XMLStreamReader reader)
+    {
+        TrackSegment segment = new TrackSegment();
+        while (StaxUtils.nextChild(reader))
+        {
+            if (GpxConstants.NAMESPACE.equals(StaxUtils.getNamespaceURI(reader))
+                && GpxConstants.E_TRKPOINT.equals(reader.getLocalName()))
+            {
+                segment.add(GpxPoint.fromXml(reader));
+            }
+            else
+            {
+                StaxUtils.skipElement(reader);
+            }
+        }
+        return segment;
+    }
+
 //----------------------------------------------------------------------------
 //  Other public methods
 //----------------------------------------------------------------------------
@@ -151,11 +235,52 @@ public class TrackSegment
 
 
     /**
-     *  Filters all points in this segment by inclusive timestamp.
+     *  Filters all points in this segment by inclusive timestamp. If the points
+     *  are known to be in timestamp order, this locates the range with a binary
+     *  search and removes the points outside it in place.
+     *  <p>
+     *  Note that if you have changed the timestamp of a point in this segment, you
+     *  <em>must</em> call {@link #sortPoints} first. Otherwise this may silently
+     *  keep or remove the wrong points.
      */
     public void filter(Instant start, Instant finish)
     {
-        filter(p -> p.isBetween(start, finish));
+        if (! timeSorted)
+        {
+            filter(p -> p.isBetween(start, finish));
+            return;
+        }
+
+        int lo = lowerBound(start);
+        int hi = Math.max(lo, upperBound(finish));
+        points.subList(hi, points.size()).clear();
+        points.subList(0, lo).clear();
+    }
+
+
+    /**
+     *  Returns the points with timestamps in the inclusive range, without modifying
+     *  this segment. If the points are known to be in timestamp order, this is an
+     *  unmodifiable view of the underlying list, found with a binary search, and
+     *  should not be retained across changes to the segment. Otherwise it is a new
+     *  list.
+     *  <p>
+     *  Note that if you have changed the timestamp of a point in this segment, you
+     *  <em>must</em> call {@link #sortPoints} first. Otherwise this may silently
+     *  return the wrong points.
+     */
+    public List<GpxPoint> getPointsBetween(Instant start, Instant finish)
+    {
+        if (! timeSorted)
+        {
+            return points.stream()
+                   .filter(p -> p.isBetween(start, finish))
+                   .collect(Collectors.toList());
+        }
+
+        int lo = lowerBound(start);
+        int hi = Math.max(lo, upperBound(finish));
+        return Collections.unmodifiableList(points.subList(lo, hi));
     }
 
 
@@ -164,6 +289,16 @@ public class TrackSegment
      *  movement (<code>minSeparation</code> meters between points).
      */
     public void trim(double minSeparation)
+    {
+        trim(minSeparation, DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Trims points off the beginning and end of the segment, as above, using the
+     *  specified distance calculator.
+     */
+    public void trim(double minSeparation, DistanceCalculator calculator)
     {
         List<Point> corePoints = new ArrayList<>();
         IdentityHashMap<Point,GpxPoint> coreLookup = new IdentityHashMap<>();
@@ -175,7 +310,7 @@ public class TrackSegment
             coreLookup.put(corePoint, point);
         }
 
-        corePoints = SegmentUtil.trim(corePoints, minSeparation);
+        corePoints = SegmentUtil.trim(corePoints, minSeparation, calculator);
 
         points.clear();
         for (Point corePoint : corePoints)
@@ -192,6 +327,7 @@ public class TrackSegment
     public void sortPoints()
     {
         Collections.sort(points, (p1, p2) -> p1.getPoint().compareTo(p2.getPoint()));
+        timeSorted = true;
     }
 
 
@@ -200,11 +336,138 @@ public class TrackSegment
      *  Pythagorean distance.
      */
     public double distance()
+    {
+        return distance(DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Calculates the length of this segment, in meters, using the specified distance
+     *  calculator. As with {@link #distance()}, points are sorted before measuring.
+     */
+    public double distance(DistanceCalculator calculator)
     {
         List<Point> temp = points.stream()
                            .map(GpxPoint::getPoint)
                            .sorted()
                            .collect(Collectors.toList());
-        return SegmentUtil.pythagoreanDistance(temp);
+        return SegmentUtil.distance(temp, calculator);
+    }
+
+
+    /**
+     *  Calculates summary statistics for this segment, in a single pass over its
+     *  points. Unlike {@link #distance}, points are processed in list order.
+     */
+    public TrackStats stats()
+    {
+        return stats(DistanceCalculator.PYTHAGOREAN);
+    }
+
+
+    /**
+     *  Calculates summary statistics for this segment, as above, using the
+     *  specified distance calculator.
+     */
+    public TrackStats stats(DistanceCalculator calculator)
+    {
+        TrackStats stats = new TrackStats(TrackStats.DEFAULT_MIN_MOVING_SPEED, calculator);
+        for (GpxPoint point : points)
+        {
+            stats.add(point.getPoint());
+        }
+        return stats;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the index of the first point with a timestamp at or after the
+     *  provided value, assuming that the list is sorted. Points without a
+     *  timestamp sort before all others.
+     */
+    private int lowerBound(Instant timestamp)
+    {
+        int lo = 0;
+        int hi = points.size();
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (TimestampUtils.compare(points.get(mid).getTimestamp(), timestamp) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+
+    /**
+     *  Returns the index of the first point with a timestamp after the provided
+     *  value, assuming that the list is sorted.
+     */
+    private int upperBound(Instant timestamp)
+    {
+        int lo = 0;
+        int hi = points.size();
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (TimestampUtils.compare(points.get(mid).getTimestamp(), timestamp) <= 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+
+    /**
+     *  The list returned by {@link #getPoints}. Delegates to the underlying list,
+     *  clearing the time-sorted flag for any operation that might change order.
+     */
+    private class PointsView
+    extends AbstractList<GpxPoint>
+    implements RandomAccess
+    {
+        @Override
+        public int size()
+        {
+            return points.size();
+        }
+
+        @Override
+        public GpxPoint get(int index)
+        {
+            return points.get(index);
+        }
+
+        @Override
+        public GpxPoint set(int index, GpxPoint value)
+        {
+            timeSorted = false;
+            return points.set(index, value);
+        }
+
+        @Override
+        public void add(int index, GpxPoint value)
+        {
+            timeSorted = false;
+            points.add(index, value);
+        }
+
+        @Override
+        public GpxPoint remove(int index)
+        {
+            return points.remove(index);
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex)
+        {
+            points.subList(fromIndex, toIndex).clear();
+        }
     }
 }
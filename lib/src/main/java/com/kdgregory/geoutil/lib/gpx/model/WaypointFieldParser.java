@@ -0,0 +1,128 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx.model;
+
+import java.time.Instant;
+
+import net.sf.kdgcommons.lang.StringUtil;
+
+import com.kdgregory.geoutil.lib.gpx.GpxConstants;
+import com.kdgregory.geoutil.lib.internal.TimestampUtils;
+
+
+/**
+ *  Parses the child elements of a <code>wptType</code> element, and passes
+ *  their values to a {@link Sink}. This is shared by {@link GpxPoint} and
+ *  the reader's cursor, so that both accept and reject the same content.
+ *  <p>
+ *  Empty elements are ignored, as are extensions.
+ */
+public class WaypointFieldParser
+{
+    /**
+     *  Receives parsed values. Only called for elements that are present and
+     *  not empty.
+     */
+    public interface Sink
+    {
+        void setElevation(double value);
+        void setTimestamp(Instant value);
+        void setMagneticVariance(double value);
+        void setGeoidHeight(double value);
+        void setName(String value);
+        void setComment(String value);
+        void setDescription(String value);
+    }
+
+
+    /**
+     *  Parses a single child element and passes its value to the sink.
+     *
+     *  @throws IllegalArgumentException if the element is not in the GPX namespace,
+     *          is not a recognized child of <code>wptType</code>, or has an
+     *          invalid value.
+     */
+    public static void setField(Sink sink, String childNamespace, String childName, String childText)
+    {
+        if (! GpxConstants.NAMESPACE.equals(childNamespace))
+            throw new IllegalArgumentException("invalid namespace: " + childNamespace);
+
+        if (GpxConstants.E_WPT_EXTENSIONS.equals(childName))
+        {
+            // not supported at this time, but it appears in Garmin files so we have to ignore
+            return;
+        }
+
+        if (StringUtil.isEmpty(childText))
+            return;
+
+        switch (childName)
+        {
+            case GpxConstants.E_WPT_ELEVATION:
+                sink.setElevation(parseDouble(childText));
+                break;
+            case GpxConstants.E_WPT_TIMESTAMP:
+                sink.setTimestamp(TimestampUtils.parse(childText));
+                break;
+            case GpxConstants.E_WPT_VARIANCE:
+                sink.setMagneticVariance(validateMagneticVariance(parseDouble(childText)));
+                break;
+            case GpxConstants.E_WPT_GEOID_HEIGHT:
+                sink.setGeoidHeight(parseDouble(childText));
+                break;
+            case GpxConstants.E_WPT_NAME:
+                sink.setName(childText);
+                break;
+            case GpxConstants.E_WPT_COMMENT:
+                sink.setComment(childText);
+                break;
+            case GpxConstants.E_WPT_DESCRIPTION:
+                sink.setDescription(childText);
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported element: " + childName);
+        }
+    }
+
+
+    /**
+     *  Verifies that a magnetic variance is in the range 0..360, returning it.
+     *
+     *  @throws IllegalArgumentException if it isn't.
+     */
+    public static double validateMagneticVariance(double value)
+    {
+        if ((value < 0) || (value > 360))
+            throw new IllegalArgumentException("magnetic variance must be 0..360; was " + value);
+        return value;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private static double parseDouble(String value)
+    {
+        try
+        {
+            return Double.parseDouble(value);
+        }
+        catch (NumberFormatException ex)
+        {
+            // the original exception's stack trace can be misleading, so we'll throw away
+            throw new NumberFormatException("could not parse: " + value);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.internal;
+
+
+/**
+ *  Formats doubles with a fixed maximum number of decimal places, using integer
+ *  arithmetic rather than <code>Double.toString()</code>. This is intended for
+ *  output files, where values such as latitude have far more digits than the
+ *  precision of the device that recorded them.
+ *  <p>
+ *  Values are rounded half away from zero, then written in plain decimal notation
+ *  without trailing zeros (so 12.0 is written as "12", and 12.50 as "12.5"). A
+ *  value that rounds to zero is written as "0", regardless of sign. Values that
+ *  are too large to scale into a long, as well as NaN and infinities, are written
+ *  as by <code>StringBuilder.append(double)</code>.
+ *  <p>
+ *  Digits are appended directly to the caller's <code>StringBuilder</code>; the
+ *  only allocation is any growth of that builder.
+ *  <p>
+ *  {@link #FULL_PRECISION} always delegates to <code>StringBuilder.append(double)</code>,
+ *  which produces the shortest string that will parse back to the same value.
+ *  Instances are immutable and thread-safe.
+ */
+public class NumberFormatter
+{
+    /**
+     *  The largest number of decimal places that may be requested.
+     */
+    public final static int MAX_DIGITS = 15;
+
+    /**
+     *  The largest number of characters that will be appended for a single value,
+     *  by any instance (including {@link #FULL_PRECISION}).
+     */
+    public final static int MAX_LENGTH = 32;
+
+    /**
+     *  An instance that produces the same output as <code>Double.toString()</code>.
+     */
+    public final static NumberFormatter FULL_PRECISION = new NumberFormatter();
+
+    // scaled values must be less than this to be converted exactly to a long
+    private final static double MAX_SCALED = 1e18;
+
+    // large enough for any integer part that passes the MAX_SCALED check
+    private final static long[] POWERS_OF_TEN = new long[19];
+    static
+    {
+        POWERS_OF_TEN[0] = 1;
+        for (int ii = 1 ; ii < POWERS_OF_TEN.length ; ii++)
+        {
+            POWERS_OF_TEN[ii] = POWERS_OF_TEN[ii - 1] * 10;
+        }
+    }
+
+    private final int digits;
+    private final double scale;
+    private final double maxValue;
+
+
+    /**
+     *  Creates an instance that writes at most the specified number of decimal
+     *  places.
+     *
+     *  @throws IllegalArgumentException if <code>digits</code> is negative or
+     *          greater than {@link #MAX_DIGITS}.
+     */
+    public NumberFormatter(int digits)
+    {
+        if ((digits < 0) || (digits > MAX_DIGITS))
+            throw new IllegalArgumentException("invalid number of digits: " + digits);
+
+        this.digits = digits;
+        this.scale = POWERS_OF_TEN[digits];
+        this.maxValue = MAX_SCALED / scale;
+    }
+
+
+    /**
+     *  Constructor for {@link #FULL_PRECISION}.
+     */
+    private NumberFormatter()
+    {
+        this.digits = -1;
+        this.scale = 0;
+        this.maxValue = 0;
+    }
+
+//----------------------------------------------------------------------------
+//  Public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the number of decimal places written by this instance, -1 for
+     *  {@link #FULL_PRECISION}.
+     */
+    public int getDigits()
+    {
+        return digits;
+    }
+
+
+    /**
+     *  Appends the passed value to a <code>StringBuilder</code>, returning the
+     *  builder.
+     */
+    public StringBuilder append(StringBuilder sb, double value)
+    {
+        double abs = Math.abs(value);
+        if ((digits < 0) || ! (abs < maxValue))
+            return sb.append(value);
+
+        long scaled = Math.round(abs * scale);
+        if (scaled == 0)
+            return sb.append('0');
+
+        long intPart = scaled / POWERS_OF_TEN[digits];
+        long fracPart = scaled % POWERS_OF_TEN[digits];
+        int fracDigits = digits;
+        while ((fracDigits > 0) && (fracPart % 10 == 0))
+        {
+            fracPart /= 10;
+            fracDigits--;
+        }
+
+        if (value < 0)
+            sb.append('-');
+
+        appendDigits(sb, intPart, 1);
+        if (fracDigits > 0)
+        {
+            sb.append('.');
+            appendDigits(sb, fracPart, fracDigits);
+        }
+        return sb;
+    }
+
+
+    /**
+     *  Returns the formatted value as a string. This is a convenience for callers
+     *  that need a string, such as DOM attributes.
+     */
+    public String format(double value)
+    {
+        return append(new StringBuilder(MAX_LENGTH), value).toString();
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Appends a non-negative value as decimal digits, left-padded with zeros to
+     *  the specified minimum width.
+     */
+    private static void appendDigits(StringBuilder sb, long value, int minWidth)
+    {
+        int width = 1;
+        while ((width < POWERS_OF_TEN.length) && (value >= POWERS_OF_TEN[width]))
+        {
+            width++;
+        }
+        width = Math.max(width, minWidth);
+
+        for (int ii = width - 1 ; ii >= 0 ; ii--)
+        {
+            sb.append((char)('0' + (value / POWERS_OF_TEN[ii]) % 10));
+        }
+    }
+}
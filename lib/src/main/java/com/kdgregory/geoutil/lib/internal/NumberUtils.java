@@ -0,0 +1,241 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ *  Utility methods for parsing numbers without first creating a string.
+ *  <p>
+ *  These methods accept a subset of the formats accepted by <code>Double.parseDouble()</code>:
+ *  an optional sign, decimal digits with an optional decimal point, and an optional
+ *  exponent. There must not be any leading or trailing whitespace. Values that fit
+ *  in a double's mantissa, with a small enough exponent, are converted directly
+ *  (Clinger's "fast path", which is exact); others are converted by the JDK. In
+ *  either case the result is identical to <code>Double.parseDouble()</code>.
+ */
+public class NumberUtils
+{
+    // note: there are separate implementations for byte buffers and character
+    //       sequences, rather than one using an abstract accessor, because these
+    //       are called in tight loops
+
+    // the largest integer that can be exactly represented as a double
+    private final static long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // powers of ten that can be exactly represented as a double
+    private final static double[] POWERS_OF_TEN = new double[]
+    {
+        1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+
+    /**
+     *  Parses the ASCII representation of a double from the specified range of the
+     *  passed buffer (which is accessed using absolute gets, so its position is not
+     *  changed).
+     *
+     *  @throws NumberFormatException if the bytes are not in the supported format.
+     */
+    public static double parseDouble(ByteBuffer buf, int start, int end)
+    {
+        int idx = start;
+        boolean negative = false;
+        if ((idx < end) && ((buf.get(idx) == '-') || (buf.get(idx) == '+')))
+        {
+            negative = buf.get(idx) == '-';
+            idx++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean overflow = false;
+        boolean seenPoint = false;
+        for ( ; idx < end ; idx++)
+        {
+            byte b = buf.get(idx);
+            if ((b >= '0') && (b <= '9'))
+            {
+                digits++;
+                if (mantissa < MAX_EXACT_MANTISSA / 10)
+                {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (seenPoint)
+                        exponent--;
+                }
+                else
+                {
+                    // too many digits for the fast path, but keep validating
+                    overflow = true;
+                }
+            }
+            else if ((b == '.') && ! seenPoint)
+            {
+                seenPoint = true;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        if (digits == 0)
+            throw new NumberFormatException("could not parse: " + toString(buf, start, end));
+
+        if ((idx < end) && ((buf.get(idx) == 'e') || (buf.get(idx) == 'E')))
+        {
+            idx++;
+            boolean negativeExponent = false;
+            if ((idx < end) && ((buf.get(idx) == '-') || (buf.get(idx) == '+')))
+            {
+                negativeExponent = buf.get(idx) == '-';
+                idx++;
+            }
+
+            int expDigits = 0;
+            int explicitExponent = 0;
+            for ( ; (idx < end) && (buf.get(idx) >= '0') && (buf.get(idx) <= '9') ; idx++)
+            {
+                expDigits++;
+                if (explicitExponent < 10000)
+                    explicitExponent = explicitExponent * 10 + (buf.get(idx) - '0');
+            }
+
+            if (expDigits == 0)
+                throw new NumberFormatException("could not parse: " + toString(buf, start, end));
+
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (idx != end)
+            throw new NumberFormatException("could not parse: " + toString(buf, start, end));
+
+        if (overflow || (exponent < -22) || (exponent > 22))
+            return Double.parseDouble(toString(buf, start, end));
+
+        double value = (exponent < 0)
+                     ? mantissa / POWERS_OF_TEN[-exponent]
+                     : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+
+    /**
+     *  Parses the representation of a double from the specified range of the passed
+     *  character sequence.
+     *
+     *  @throws NumberFormatException if the characters are not in the supported format.
+     */
+    public static double parseDouble(CharSequence chars, int start, int end)
+    {
+        int idx = start;
+        boolean negative = false;
+        if ((idx < end) && ((chars.charAt(idx) == '-') || (chars.charAt(idx) == '+')))
+        {
+            negative = chars.charAt(idx) == '-';
+            idx++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean overflow = false;
+        boolean seenPoint = false;
+        for ( ; idx < end ; idx++)
+        {
+            char c = chars.charAt(idx);
+            if ((c >= '0') && (c <= '9'))
+            {
+                digits++;
+                if (mantissa < MAX_EXACT_MANTISSA / 10)
+                {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (seenPoint)
+                        exponent--;
+                }
+                else
+                {
+                    // too many digits for the fast path, but keep validating
+                    overflow = true;
+                }
+            }
+            else if ((c == '.') && ! seenPoint)
+            {
+                seenPoint = true;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        if (digits == 0)
+            throw new NumberFormatException("could not parse: " + chars.subSequence(start, end));
+
+        if ((idx < end) && ((chars.charAt(idx) == 'e') || (chars.charAt(idx) == 'E')))
+        {
+            idx++;
+            boolean negativeExponent = false;
+            if ((idx < end) && ((chars.charAt(idx) == '-') || (chars.charAt(idx) == '+')))
+            {
+                negativeExponent = chars.charAt(idx) == '-';
+                idx++;
+            }
+
+            int expDigits = 0;
+            int explicitExponent = 0;
+            for ( ; (idx < end) && (chars.charAt(idx) >= '0') && (chars.charAt(idx) <= '9') ; idx++)
+            {
+                expDigits++;
+                if (explicitExponent < 10000)
+                    explicitExponent = explicitExponent * 10 + (chars.charAt(idx) - '0');
+            }
+
+            if (expDigits == 0)
+                throw new NumberFormatException("could not parse: " + chars.subSequence(start, end));
+
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (idx != end)
+            throw new NumberFormatException("could not parse: " + chars.subSequence(start, end));
+
+        if (overflow || (exponent < -22) || (exponent > 22))
+            return Double.parseDouble(chars.subSequence(start, end).toString());
+
+        double value = (exponent < 0)
+                     ? mantissa / POWERS_OF_TEN[-exponent]
+                     : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private static String toString(ByteBuffer buf, int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        for (int ii = 0 ; ii < bytes.length ; ii++)
+        {
+            bytes[ii] = buf.get(start + ii);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,296 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.internal;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import net.sf.kdgcommons.lang.StringUtil;
+import net.sf.practicalxml.XmlException;
+
+
+/**
+ *  Helper methods for reading XML with a StAX pull parser. These are the
+ *  streaming equivalents of the methods in {@link XmlUtils}.
+ *  <p>
+ *  Unless otherwise noted, methods that take a reader expect it to be positioned
+ *  at a <code>START_ELEMENT</code> event, and leave it positioned at the matching
+ *  <code>END_ELEMENT</code>.
+ *  <p>
+ *  <code>XMLStreamException</code> is a checked exception; these methods rethrow
+ *  it as the same <code>XmlException</code> that Practical XML uses to report a
+ *  parse failure.
+ */
+public class StaxUtils
+{
+    private static XMLInputFactory factory;
+
+    /**
+     *  Creates a namespace-aware reader for the passed stream. The reader does
+     *  not resolve external entities.
+     */
+    public static XMLStreamReader newReader(InputStream in)
+    {
+        try
+        {
+            return getFactory().createXMLStreamReader(in);
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to parse", ex);
+        }
+    }
+
+
+    /**
+     *  Closes a reader, ignoring any exceptions. Note that this does not close
+     *  the underlying stream.
+     */
+    public static void closeQuietly(XMLStreamReader reader)
+    {
+        try
+        {
+            if (reader != null)
+                reader.close();
+        }
+        catch (XMLStreamException ignored)
+        {
+            // nothing we can do about it
+        }
+    }
+
+
+    /**
+     *  Advances a newly-created reader to the root element.
+     */
+    public static void moveToRoot(XMLStreamReader reader)
+    {
+        try
+        {
+            while (reader.getEventType() != XMLStreamConstants.START_ELEMENT)
+            {
+                reader.next();
+            }
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to parse", ex);
+        }
+    }
+
+
+    /**
+     *  Advances to the next child of the current element, skipping text, comments,
+     *  and processing instructions. Returns <code>true</code> if positioned at the
+     *  start of a child element, <code>false</code> if positioned at the end of the
+     *  parent. Intended to be called in a loop, after processing each child (with
+     *  the reader positioned at its end).
+     */
+    public static boolean nextChild(XMLStreamReader reader)
+    {
+        try
+        {
+            while (true)
+            {
+                switch (reader.next())
+                {
+                    case XMLStreamConstants.START_ELEMENT:
+                        return true;
+                    case XMLStreamConstants.END_ELEMENT:
+                        return false;
+                    case XMLStreamConstants.END_DOCUMENT:
+                        throw new XmlException("unexpected end of document");
+                    default:
+                        // ignore everything else
+                }
+            }
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to parse", ex);
+        }
+    }
+
+
+    /**
+     *  Returns the namespace of the current element, null if it doesn't have one.
+     *  This is consistent with the DOM, and avoids variation between parsers.
+     */
+    public static String getNamespaceURI(XMLStreamReader reader)
+    {
+        return StringUtil.isEmpty(reader.getNamespaceURI())
+             ? null
+             : reader.getNamespaceURI();
+    }
+
+
+    /**
+     *  Returns the qualified name of the current element, as it appears in the
+     *  source document (equivalent to DOM <code>getNodeName()</code>).
+     */
+    public static String getNodeName(XMLStreamReader reader)
+    {
+        String prefix = reader.getPrefix();
+        return StringUtil.isEmpty(prefix)
+             ? reader.getLocalName()
+             : prefix + ":" + reader.getLocalName();
+    }
+
+
+    /**
+     *  Returns the value of an un-namespaced attribute of the current element,
+     *  null if the attribute doesn't exist.
+     */
+    public static String getAttribute(XMLStreamReader reader, String localName)
+    {
+        for (int ii = 0 ; ii < reader.getAttributeCount() ; ii++)
+        {
+            if (StringUtil.isEmpty(reader.getAttributeNamespace(ii))
+                && localName.equals(reader.getAttributeLocalName(ii)))
+            {
+                return reader.getAttributeValue(ii);
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     *  Retrieves and parses an attribute containg a double value. Behaves
+     *  identically to {@link XmlUtils#getAttributeAsDouble}.
+     */
+    public static double getAttributeAsDouble(XMLStreamReader reader, String name)
+    {
+        String value = getAttribute(reader, name);
+        if (StringUtil.isEmpty(value))
+            throw new IllegalArgumentException(getNodeName(reader) + "missing attribute: " + name);
+        try
+        {
+            return Double.parseDouble(value);
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IllegalArgumentException("could not parse " + name + ": " + value);
+        }
+    }
+
+
+    /**
+     *  Returns the concatenated text of the current element and all of its
+     *  descendents (equivalent to DOM <code>getTextContent()</code>).
+     */
+    public static String getTextContent(XMLStreamReader reader)
+    {
+        try
+        {
+            StringBuilder sb = null;
+            String first = null;
+            int depth = 1;
+            while (depth > 0)
+            {
+                switch (reader.next())
+                {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        depth--;
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        // most elements have a single text node, so we avoid a builder until needed
+                        String text = reader.getText();
+                        if (first == null)
+                        {
+                            first = text;
+                        }
+                        else
+                        {
+                            if (sb == null)
+                                sb = new StringBuilder(first);
+                            sb.append(text);
+                        }
+                        break;
+                    case XMLStreamConstants.END_DOCUMENT:
+                        throw new XmlException("unexpected end of document");
+                    default:
+                        // ignore everything else
+                }
+            }
+            return (sb != null) ? sb.toString()
+                 : (first != null) ? first
+                 : "";
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to parse", ex);
+        }
+    }
+
+
+    /**
+     *  Skips the current element and all of its descendents.
+     */
+    public static void skipElement(XMLStreamReader reader)
+    {
+        try
+        {
+            int depth = 1;
+            while (depth > 0)
+            {
+                switch (reader.next())
+                {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        depth--;
+                        break;
+                    case XMLStreamConstants.END_DOCUMENT:
+                        throw new XmlException("unexpected end of document");
+                    default:
+                        // ignore everything else
+                }
+            }
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to parse", ex);
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private static synchronized XMLInputFactory getFactory()
+    {
+        // factories are thread-safe once configured; readers are not
+        if (factory == null)
+        {
+            factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.TRUE);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        }
+        return factory;
+    }
+}
@@ -24,10 +24,22 @@ import net.sf.kdgcommons.lang.StringUtil;
  */
 public class TimestampUtils
 {
+    // returned by parseEpochSeconds() when the fast path doesn't apply
+    private final static long NOT_PARSED = Long.MIN_VALUE;
+
+    // consecutive timestamps almost always share the same date; this is an immutable
+    // holder, so unsynchronized access is safe (at worst, a thread will recompute)
+    private static CachedDate cachedDate = new CachedDate("1970-01-01", 0);
+
+
     /**
      *  Parses the ISO-8601 representation of a timestamp. Accepts both "Zulu"
      *  and offset forms (unlike <code>Instant.parse()</code>). If passed null
      *  or an empty string, returns null.
+     *  <p>
+     *  The common forms -- <code>YYYY-MM-DDTHH:MM:SS</code>, with optional
+     *  fractional seconds, followed by <code>Z</code> or <code>&plusmn;HH:MM</code>
+     *  -- are parsed directly. Anything else is passed to the JDK's parser.
      *
      *  @throws IllegalArgumentException if unable to parse.
      */
@@ -36,6 +48,10 @@ public class TimestampUtils
         if (StringUtil.isEmpty(value))
             return null;
 
+        long seconds = parseEpochSeconds(value);
+        if (seconds != NOT_PARSED)
+            return Instant.ofEpochSecond(seconds, parseNanos(value));
+
         try
         {
             return (value.endsWith("Z"))
@@ -59,4 +75,223 @@ public class TimestampUtils
              : (t1 != null) & (t2 == null)  ? 1
              : t1.compareTo(t2);
     }
+
+
+    /**
+     *  Parses the ISO-8601 representation of a timestamp, returning milliseconds
+     *  since the epoch (truncating any sub-millisecond component, as does
+     *  <code>Instant.toEpochMilli()</code>). Accepts the same forms as {@link #parse},
+     *  but takes a <code>CharSequence</code> so that callers can reuse a buffer.
+     *  For the common forms, this does not create any objects.
+     *
+     *  @throws IllegalArgumentException if unable to parse, including if passed
+     *          null or an empty string.
+     */
+    public static long parseMillis(CharSequence value)
+    {
+        if ((value == null) || (value.length() == 0))
+            throw new IllegalArgumentException("unable to parse \"" + value + "\" as timestamp");
+
+        long seconds = parseEpochSeconds(value);
+        if (seconds != NOT_PARSED)
+            return seconds * 1000 + parseNanos(value) / 1000000;
+
+        return parse(value.toString()).toEpochMilli();
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Attempts to parse a timestamp in one of the common forms, returning the
+     *  number of whole seconds since the epoch. Returns <code>NOT_PARSED</code>
+     *  if the value is in any other form, or contains out-of-range fields; the
+     *  caller should then use the JDK's parser, so that edge cases (such as leap
+     *  seconds) and errors are handled exactly as before.
+     */
+    private static long parseEpochSeconds(CharSequence s)
+    {
+        int len = s.length();
+        if ((len < 20)
+            || (s.charAt(4) != '-') || (s.charAt(7) != '-') || (s.charAt(10) != 'T')
+            || (s.charAt(13) != ':') || (s.charAt(16) != ':'))
+        {
+            return NOT_PARSED;
+        }
+
+        int hour    = parseDigits(s, 11, 2);
+        int minute  = parseDigits(s, 14, 2);
+        int second  = parseDigits(s, 17, 2);
+        if ((hour < 0) || (hour > 23) || (minute < 0) || (minute > 59) || (second < 0) || (second > 59))
+            return NOT_PARSED;
+
+        int idx = 19;
+        if (s.charAt(idx) == '.')
+        {
+            int fracStart = ++idx;
+            while ((idx < len) && isDigit(s.charAt(idx)))
+                idx++;
+            int fracDigits = idx - fracStart;
+            if ((fracDigits < 1) || (fracDigits > 9))
+                return NOT_PARSED;
+        }
+
+        int offsetSeconds;
+        if (idx == len)
+        {
+            return NOT_PARSED;
+        }
+        else if ((s.charAt(idx) == 'Z') && (idx == len - 1))
+        {
+            offsetSeconds = 0;
+        }
+        else if (((s.charAt(idx) == '+') || (s.charAt(idx) == '-'))
+                 && (idx == len - 6) && (s.charAt(idx + 3) == ':'))
+        {
+            int offsetHour = parseDigits(s, idx + 1, 2);
+            int offsetMinute = parseDigits(s, idx + 4, 2);
+            if ((offsetHour < 0) || (offsetHour > 17) || (offsetMinute < 0) || (offsetMinute > 59))
+                return NOT_PARSED;
+
+            offsetSeconds = offsetHour * 3600 + offsetMinute * 60;
+            if (s.charAt(idx) == '-')
+                offsetSeconds = -offsetSeconds;
+        }
+        else
+        {
+            return NOT_PARSED;
+        }
+
+        long epochDay = parseEpochDay(s);
+        if (epochDay == NOT_PARSED)
+            return NOT_PARSED;
+
+        return epochDay * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+    }
+
+
+    /**
+     *  Parses the fractional seconds of a timestamp that has already been
+     *  validated by {@link #parseEpochSeconds}, returning nanoseconds.
+     */
+    private static int parseNanos(CharSequence s)
+    {
+        if (s.charAt(19) != '.')
+            return 0;
+
+        int nanos = 0;
+        int scale = 100000000;
+        for (int idx = 20 ; isDigit(s.charAt(idx)) ; idx++)
+        {
+            nanos += (s.charAt(idx) - '0') * scale;
+            scale /= 10;
+        }
+        return nanos;
+    }
+
+
+    /**
+     *  Returns the epoch day for the <code>YYYY-MM-DD</code> prefix of the passed
+     *  value, <code>NOT_PARSED</code> if it isn't a valid date.
+     */
+    private static long parseEpochDay(CharSequence s)
+    {
+        CachedDate cached = cachedDate;
+        if (cached.matches(s))
+            return cached.epochDay;
+
+        int year    = parseDigits(s, 0, 4);
+        int month   = parseDigits(s, 5, 2);
+        int day     = parseDigits(s, 8, 2);
+        if ((year < 0) || (month < 1) || (month > 12) || (day < 1) || (day > lengthOfMonth(year, month)))
+            return NOT_PARSED;
+
+        long epochDay = toEpochDay(year, month, day);
+        cachedDate = new CachedDate(s.subSequence(0, 10).toString(), epochDay);
+        return epochDay;
+    }
+
+
+    /**
+     *  Converts a proleptic Gregorian date to days since 1970-01-01. This is
+     *  the algorithm from http://howardhinnant.github.io/date_algorithms.html
+     */
+    private static long toEpochDay(int year, int month, int day)
+    {
+        long y = (month <= 2) ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+
+    private static int lengthOfMonth(int year, int month)
+    {
+        switch (month)
+        {
+            case 2:
+                boolean isLeap = ((year % 4) == 0) && (((year % 100) != 0) || ((year % 400) == 0));
+                return isLeap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+
+    /**
+     *  Parses a fixed-width field of decimal digits, returning -1 if any character
+     *  isn't a digit.
+     */
+    private static int parseDigits(CharSequence s, int start, int count)
+    {
+        int value = 0;
+        for (int idx = start ; idx < start + count ; idx++)
+        {
+            char c = s.charAt(idx);
+            if (! isDigit(c))
+                return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+
+    private static boolean isDigit(char c)
+    {
+        return (c >= '0') && (c <= '9');
+    }
+
+
+    /**
+     *  Holds the most recently parsed date prefix and its epoch day.
+     */
+    private static class CachedDate
+    {
+        public final String prefix;
+        public final long epochDay;
+
+        public CachedDate(String prefix, long epochDay)
+        {
+            this.prefix = prefix;
+            this.epochDay = epochDay;
+        }
+
+        public boolean matches(CharSequence s)
+        {
+            for (int ii = 0 ; ii < 10 ; ii++)
+            {
+                if (s.charAt(ii) != prefix.charAt(ii))
+                    return false;
+            }
+            return true;
+        }
+    }
 }
@@ -23,8 +23,8 @@ import org.w3c.dom.Element;
 
 import net.sf.practicalxml.DomUtil;
 import net.sf.practicalxml.OutputUtil;
-import net.sf.practicalxml.ParseUtil;
 
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
 import com.kdgregory.geoutil.lib.kml.model.Container;
 import com.kdgregory.geoutil.lib.kml.model.Document;
 import com.kdgregory.geoutil.lib.kml.model.Feature;
@@ -52,11 +52,13 @@ extends Container<KmlFile>
 //----------------------------------------------------------------------------
 
     /**
-     *  Creates an instance from a file representation.
+     *  Creates an instance from a file representation. This uses a streaming
+     *  parser (see {@link KmlReader}), so does not need the memory to hold a
+     *  DOM representation of the file.
      */
     public static KmlFile parse(File file)
     {
-        return KmlFile.fromXml(ParseUtil.parse(file));
+        return new KmlReader().read(file);
     }
 
 
@@ -100,11 +102,21 @@ extends Container<KmlFile>
      *  Converts this object to its XML representation.
      */
     public org.w3c.dom.Document toXml()
+    {
+        return toXml(CoordinateFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Converts this object to its XML representation, writing coordinates in
+     *  the specified format.
+     */
+    public org.w3c.dom.Document toXml(CoordinateFormat format)
     {
         Element root = DomUtil.newDocument(KmlConstants.NAMESPACE, KmlConstants.E_ROOT);
         for (Feature<?> feature : getFeatures())
         {
-            feature.appendAsXml(root);
+            feature.appendAsXml(root, format);
         }
         return root.getOwnerDocument();
     }
@@ -116,7 +128,17 @@ extends Container<KmlFile>
      */
     public void write(File file)
     {
-        OutputUtil.compact(new DOMSource(toXml()), new StreamResult(file));
+        write(file, CoordinateFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Writes this object to the specified file, overwriting any existing
+     *  content, with coordinates in the specified format.
+     */
+    public void write(File file, CoordinateFormat format)
+    {
+        OutputUtil.compact(new DOMSource(toXml(format)), new StreamResult(file));
     }
 
 //----------------------------------------------------------------------------
@@ -124,7 +146,7 @@ extends Container<KmlFile>
 //----------------------------------------------------------------------------
 
     @Override
-    public Element appendAsXml(Element parent)
+    public Element appendAsXml(Element parent, CoordinateFormat format)
     {
         throw new UnsupportedOperationException("KmlFile is the root of the DOM");
     }
@@ -0,0 +1,450 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.kml;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamReader;
+
+import net.sf.kdgcommons.lang.StringUtil;
+import net.sf.practicalxml.XmlException;
+
+import com.kdgregory.geoutil.lib.internal.ObjectUtils;
+import com.kdgregory.geoutil.lib.internal.StaxUtils;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.TimeSpan;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.TimeStamp;
+import com.kdgregory.geoutil.lib.kml.model.Container;
+import com.kdgregory.geoutil.lib.kml.model.Document;
+import com.kdgregory.geoutil.lib.kml.model.Feature;
+import com.kdgregory.geoutil.lib.kml.model.Folder;
+import com.kdgregory.geoutil.lib.kml.model.IconStyle;
+import com.kdgregory.geoutil.lib.kml.model.KmlObject;
+import com.kdgregory.geoutil.lib.kml.model.KmlPoint;
+import com.kdgregory.geoutil.lib.kml.model.LineString;
+import com.kdgregory.geoutil.lib.kml.model.LineStyle;
+import com.kdgregory.geoutil.lib.kml.model.Placemark;
+import com.kdgregory.geoutil.lib.kml.model.Style;
+
+
+/**
+ *  Reads a KML file with a StAX pull parser, building the object model directly
+ *  from the event stream rather than from a DOM. Unrecognized elements are
+ *  skipped without being examined.
+ *  <p>
+ *  The reader may be configured to skip styles and/or descriptions, for programs
+ *  that only need the geometry of a file; the skipped content is not retained in
+ *  the model. With its default configuration, the reader produces the same model
+ *  as {@link KmlFile#fromXml}, and accepts and rejects the same content.
+ *  <p>
+ *  Instances are not thread-safe, but may be reused for multiple files.
+ */
+public class KmlReader
+{
+    private boolean skipStyles;
+    private boolean skipDescriptions;
+
+
+    /**
+     *  Configures whether the reader will skip <code>Style</code> elements.
+     */
+    public KmlReader setSkipStyles(boolean value)
+    {
+        skipStyles = value;
+        return this;
+    }
+
+
+    /**
+     *  Configures whether the reader will skip feature descriptions. These are
+     *  often large blocks of HTML.
+     */
+    public KmlReader setSkipDescriptions(boolean value)
+    {
+        skipDescriptions = value;
+        return this;
+    }
+
+//----------------------------------------------------------------------------
+//  Public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Reads the specified file.
+     */
+    public KmlFile read(File file)
+    {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file)))
+        {
+            return read(in);
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to parse", ex);
+        }
+    }
+
+
+    /**
+     *  Reads the passed stream. The stream is not closed.
+     */
+    public KmlFile read(InputStream in)
+    {
+        XMLStreamReader reader = StaxUtils.newReader(in);
+        try
+        {
+            return read(reader);
+        }
+        finally
+        {
+            StaxUtils.closeQuietly(reader);
+        }
+    }
+
+
+    /**
+     *  Reads from a StAX reader, which must be positioned at or before the root
+     *  element. The reader is consumed up to the end of the root element, but
+     *  is not closed.
+     */
+    public KmlFile read(XMLStreamReader reader)
+    {
+        StaxUtils.moveToRoot(reader);
+
+        if (! KmlConstants.E_ROOT.equals(reader.getLocalName()))
+        {
+            throw new IllegalArgumentException("invalid root element name: " + reader.getLocalName());
+        }
+
+        KmlFile file = new KmlFile();
+        while (StaxUtils.nextChild(reader))
+        {
+            String childName = reader.getLocalName();
+            switch (childName)
+            {
+                case KmlConstants.E_FOLDER:
+                    file.addFeature(readContainer(reader, new Folder()));
+                    break;
+
+                case KmlConstants.E_DOCUMENT:
+                    file.addFeature(readContainer(reader, new Document()));
+                    break;
+
+                default :
+                    throw new IllegalArgumentException("unrecognized child element: " + childName);
+            }
+        }
+        return file;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals -- each of these methods is called with the reader positioned at
+//  the start of an element, and returns with it positioned at the end
+//----------------------------------------------------------------------------
+
+    private <T extends Container<T>> T readContainer(XMLStreamReader reader, T container)
+    {
+        readId(reader, container);
+        while (StaxUtils.nextChild(reader))
+        {
+            // other feature types (such as overlays and network links) are not modelled;
+            // readFeatureChild() skips them
+            switch (reader.getLocalName())
+            {
+                case KmlConstants.E_PLACEMARK:
+                    container.addFeature(readPlacemark(reader));
+                    break;
+                case KmlConstants.E_FOLDER:
+                    container.addFeature(readContainer(reader, new Folder()));
+                    break;
+                default:
+                    readFeatureChild(reader, container);
+            }
+        }
+        return container;
+    }
+
+
+    private Placemark readPlacemark(XMLStreamReader reader)
+    {
+        Placemark pm = new Placemark();
+        readId(reader, pm);
+        while (StaxUtils.nextChild(reader))
+        {
+            switch (reader.getLocalName())
+            {
+                case KmlConstants.E_POINT:
+                    pm.setGeometry(readPoint(reader));
+                    break;
+                case KmlConstants.E_LINESTRING:
+                    pm.setGeometry(readLineString(reader));
+                    break;
+                default:
+                    readFeatureChild(reader, pm);
+            }
+        }
+        return pm;
+    }
+
+
+    /**
+     *  Handles a child element that's common to all features; skips any other.
+     */
+    private void readFeatureChild(XMLStreamReader reader, Feature<?> feature)
+    {
+        switch (reader.getLocalName())
+        {
+            case KmlConstants.E_FEATURE_NAME:
+                feature.setName(StaxUtils.getTextContent(reader));
+                break;
+            case KmlConstants.E_FEATURE_VISIBILITY:
+                feature.setVisibility(ObjectUtils.parseAsBoolean(StaxUtils.getTextContent(reader)));
+                break;
+            case KmlConstants.E_FEATURE_DESCRIPTION:
+                if (skipDescriptions)
+                    StaxUtils.skipElement(reader);
+                else
+                    feature.setDescription(StaxUtils.getTextContent(reader));
+                break;
+            case KmlConstants.E_TIMESTAMP:
+                feature.setTimestamp(readTimeStamp(reader));
+                break;
+            case KmlConstants.E_TIMESPAN:
+                feature.setTimespan(readTimeSpan(reader));
+                break;
+            case KmlConstants.E_FEATURE_STYLEREF:
+                feature.setStyleRef(StaxUtils.getTextContent(reader));
+                break;
+            case KmlConstants.E_STYLE:
+                if (skipStyles)
+                    StaxUtils.skipElement(reader);
+                else
+                    feature.setStyleSelector(readStyle(reader));
+                break;
+            default:
+                StaxUtils.skipElement(reader);
+        }
+    }
+
+
+    private KmlPoint readPoint(XMLStreamReader reader)
+    {
+        Map<String,String> fields = readChildText(reader);
+
+        KmlPoint p = new KmlPoint(fields.get(KmlConstants.E_GEOMETRY_COORD));
+        ObjectUtils.optSet(fields.get(KmlConstants.E_GEOMETRY_ALTMODE),                          p::setAltitudeModeString);
+        ObjectUtils.optSet(parseBoolean(fields, KmlConstants.E_GEOMETRY_EXTRUDE),                p::setExtrude);
+        return p;
+    }
+
+
+    private LineString readLineString(XMLStreamReader reader)
+    {
+        Map<String,String> fields = readChildText(reader);
+
+        String coords = fields.get(KmlConstants.E_GEOMETRY_COORD);
+        if (StringUtil.isEmpty(coords))
+            throw new IllegalArgumentException("LineString must have coordinates");
+
+        LineString p = new LineString(coords);
+        ObjectUtils.optSet(fields.get(KmlConstants.E_GEOMETRY_ALTMODE),                          p::setAltitudeModeString);
+        ObjectUtils.optSet(parseBoolean(fields, KmlConstants.E_GEOMETRY_EXTRUDE),                p::setExtrude);
+        ObjectUtils.optSet(parseBoolean(fields, KmlConstants.E_GEOMETRY_TESSELLATE),             p::setTessellate);
+        return p;
+    }
+
+
+    private TimeStamp readTimeStamp(XMLStreamReader reader)
+    {
+        Map<String,String> fields = readChildText(reader);
+
+        String when = fields.get(KmlConstants.E_TIMESTAMP_WHEN);
+        if (when == null)
+            throw new IllegalArgumentException("TimeStamp missing \"when\" child element");
+
+        return new TimeStamp(when);
+    }
+
+
+    private TimeSpan readTimeSpan(XMLStreamReader reader)
+    {
+        Map<String,String> fields = readChildText(reader);
+
+        String begin = fields.get(KmlConstants.E_TIMESPAN_BEGIN);
+        if (begin == null)
+            throw new IllegalArgumentException("TimeSpan missing \"begin\" child element");
+
+        String end = fields.get(KmlConstants.E_TIMESPAN_END);
+        if (end == null)
+            throw new IllegalArgumentException("TimeSpan missing \"end\" child element");
+
+        return new TimeSpan(begin, end);
+    }
+
+
+    private Style readStyle(XMLStreamReader reader)
+    {
+        Style s = new Style();
+        readId(reader, s);
+        while (StaxUtils.nextChild(reader))
+        {
+            String childName = reader.getLocalName();
+            switch (childName)
+            {
+                case KmlConstants.E_ICONSTYLE:
+                    s.setIconStyle(readIconStyle(reader));
+                    break;
+
+                case KmlConstants.E_LINESTYLE:
+                    s.setLineStyle(readLineStyle(reader));
+                    break;
+
+                case KmlConstants.E_LABELSTYLE:
+                case KmlConstants.E_POLYSTYLE:
+                case KmlConstants.E_BALLOONSTYLE:
+                case KmlConstants.E_LISTSTYLE:
+                    // these styles are not modelled; skipped
+                    StaxUtils.skipElement(reader);
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("invalid Style child element: " + childName);
+            }
+        }
+        return s;
+    }
+
+
+    private IconStyle readIconStyle(XMLStreamReader reader)
+    {
+        String namespace = StaxUtils.getNamespaceURI(reader);
+
+        IconStyle s = new IconStyle();
+        readId(reader, s);
+
+        // the Icon element has children, so can't be handled by readChildText()
+        Map<String,String> fields = new HashMap<>();
+        String href = null;
+        while (StaxUtils.nextChild(reader))
+        {
+            String childName = reader.getLocalName();
+            if (! isSameNamespace(namespace, reader) || fields.containsKey(childName))
+            {
+                StaxUtils.skipElement(reader);
+            }
+            else if (KmlConstants.E_ICONSTYLE_ICON.equals(childName))
+            {
+                fields.put(childName, "");
+                href = readChildText(reader).get(KmlConstants.E_ICONSTYLE_ICON_HREF);
+            }
+            else
+            {
+                fields.put(childName, StaxUtils.getTextContent(reader));
+            }
+        }
+
+        ObjectUtils.optSetString(fields.get(KmlConstants.E_COLORSTYLE_COLOR),                    s::setColor);
+        ObjectUtils.optSetString(fields.get(KmlConstants.E_COLORSTYLE_MODE),                     s::setColorModeString);
+        ObjectUtils.optSet(parseDouble(fields, namespace, KmlConstants.E_ICONSTYLE_SCALE),       s::setScale);
+        ObjectUtils.optSet(parseDouble(fields, namespace, KmlConstants.E_ICONSTYLE_HEADING),     s::setHeading);
+        ObjectUtils.optSet(href,                                                                 s::setHref);
+        return s;
+    }
+
+
+    private LineStyle readLineStyle(XMLStreamReader reader)
+    {
+        String namespace = StaxUtils.getNamespaceURI(reader);
+
+        LineStyle s = new LineStyle();
+        readId(reader, s);
+
+        Map<String,String> fields = readChildText(reader);
+        ObjectUtils.optSetString(fields.get(KmlConstants.E_COLORSTYLE_COLOR),                    s::setColor);
+        ObjectUtils.optSetString(fields.get(KmlConstants.E_COLORSTYLE_MODE),                     s::setColorModeString);
+        ObjectUtils.optSet(parseDouble(fields, namespace, KmlConstants.E_LINESTYLE_WIDTH),       s::setWidth);
+        return s;
+    }
+
+
+    private static void readId(XMLStreamReader reader, KmlObject<?> obj)
+    {
+        obj.setId(StringUtil.trimToNull(StaxUtils.getAttribute(reader, KmlConstants.A_OBJECT_ID)));
+    }
+
+
+    /**
+     *  Reads the children of the current element, returning the text of each child
+     *  that has the same namespace as the element, keyed by local name. As with the
+     *  DOM-based parsing, the first occurrence of a child is used.
+     */
+    private static Map<String,String> readChildText(XMLStreamReader reader)
+    {
+        String namespace = StaxUtils.getNamespaceURI(reader);
+        Map<String,String> result = new HashMap<>();
+        while (StaxUtils.nextChild(reader))
+        {
+            String childName = reader.getLocalName();
+            if (isSameNamespace(namespace, reader) && ! result.containsKey(childName))
+                result.put(childName, StaxUtils.getTextContent(reader));
+            else
+                StaxUtils.skipElement(reader);
+        }
+        return result;
+    }
+
+
+    private static boolean isSameNamespace(String namespace, XMLStreamReader reader)
+    {
+        String childNamespace = StaxUtils.getNamespaceURI(reader);
+        return (namespace == null) ? (childNamespace == null) : namespace.equals(childNamespace);
+    }
+
+
+    private static Boolean parseBoolean(Map<String,String> fields, String childName)
+    {
+        String text = fields.get(childName);
+        try
+        {
+            return ObjectUtils.parseAsBoolean(text);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new IllegalArgumentException("could not parse " + childName + ": " + text);
+        }
+    }
+
+
+    private static Double parseDouble(Map<String,String> fields, String namespace, String childName)
+    {
+        String text = fields.get(childName);
+        if (text == null)
+            return null;
+
+        try
+        {
+            return Double.valueOf(text);
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IllegalArgumentException(namespace + ":" + childName + " expected double, was: " + text);
+        }
+    }
+}
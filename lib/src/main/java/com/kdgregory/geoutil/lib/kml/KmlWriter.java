@@ -0,0 +1,493 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.kml;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import net.sf.practicalxml.DomUtil;
+import net.sf.practicalxml.XmlException;
+
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
+import com.kdgregory.geoutil.lib.kml.model.Container;
+import com.kdgregory.geoutil.lib.kml.model.Document;
+import com.kdgregory.geoutil.lib.kml.model.Feature;
+import com.kdgregory.geoutil.lib.kml.model.Folder;
+import com.kdgregory.geoutil.lib.kml.model.Placemark;
+import com.kdgregory.geoutil.lib.kml.model.Style;
+
+
+/**
+ *  Writes a KML file incrementally, using a StAX stream writer. Containers are
+ *  opened and closed explicitly, and features are written one at a time, so the
+ *  memory required is bounded by the size of the largest single feature rather
+ *  than the size of the file.
+ *  <p>
+ *  Each object is serialized by its own <code>appendAsXml()</code> method, into
+ *  a small scratch DOM that's discarded once the object has been written. As a
+ *  result, the output is equivalent to that of {@link KmlFile#write}: UTF-8, no
+ *  XML prolog, no whitespace between elements. The writer may be configured to
+ *  write coordinates with limited precision, in which case the output is smaller
+ *  but no longer identical.
+ *  <p>
+ *  The caller is responsible for calling the <code>start</code> and <code>end</code>
+ *  methods in the correct order; the writer throws <code>IllegalStateException</code>
+ *  if they're called out of order. For convenience, {@link #close} will end any open
+ *  elements before closing the underlying stream.
+ *  <p>
+ *  Instances are not thread-safe.
+ */
+public class KmlWriter
+implements Closeable
+{
+    private enum State { INITIAL, KML, COMPLETE }
+
+    private Writer out;
+    private XMLStreamWriter xml;
+    private State state = State.INITIAL;
+
+    // the containers that have been started but not ended, innermost first
+    private Deque<OpenContainer> containers = new ArrayDeque<>();
+
+    // objects are serialized as children of this element, then removed
+    private Element scratch = DomUtil.newDocument(KmlConstants.NAMESPACE, KmlConstants.E_ROOT);
+
+    private CoordinateFormat format = CoordinateFormat.FULL_PRECISION;
+
+
+    /**
+     *  Creates an instance that writes to the passed stream. The stream will be
+     *  closed when this writer is closed.
+     */
+    public KmlWriter(OutputStream out)
+    {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536);
+        try
+        {
+            this.xml = XMLOutputFactory.newInstance().createXMLStreamWriter(this.out);
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+    }
+
+
+    /**
+     *  Creates an instance that writes to the specified file, overwriting any
+     *  existing content.
+     */
+    public KmlWriter(File file)
+    {
+        this(openFile(file));
+    }
+
+//----------------------------------------------------------------------------
+//  Configuration
+//----------------------------------------------------------------------------
+
+    /**
+     *  Sets the format used to write coordinates. This affects all subsequent
+     *  output. The default is {@link CoordinateFormat#FULL_PRECISION}.
+     */
+    public KmlWriter setCoordinateFormat(CoordinateFormat value)
+    {
+        format = value;
+        return this;
+    }
+
+//----------------------------------------------------------------------------
+//  Public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Writes an entire file, then completes the document. The writer must not
+     *  have written anything prior to this call.
+     */
+    public KmlWriter write(KmlFile kml)
+    {
+        startKml();
+        for (Feature<?> feature : kml.getFeatures())
+        {
+            writeFeature(feature);
+        }
+        return endKml();
+    }
+
+
+    /**
+     *  Writes the opening root element.
+     */
+    public KmlWriter startKml()
+    {
+        checkState(State.INITIAL);
+
+        try
+        {
+            xml.setDefaultNamespace(KmlConstants.NAMESPACE);
+            xml.writeStartElement(KmlConstants.E_ROOT);
+            xml.writeDefaultNamespace(KmlConstants.NAMESPACE);
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+
+        state = State.KML;
+        return this;
+    }
+
+
+    /**
+     *  Closes the root element, and flushes all output. No further content
+     *  may be written.
+     */
+    public KmlWriter endKml()
+    {
+        checkState(State.KML);
+        if (! containers.isEmpty())
+            throw new IllegalStateException("invalid operation: " + containers.peek().name + " is open");
+
+        try
+        {
+            xml.writeEndElement();
+            xml.flush();
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+        flush();
+
+        state = State.COMPLETE;
+        return this;
+    }
+
+
+    /**
+     *  Opens a document, writing its metadata, shared styles, and any features
+     *  that it already holds. Additional shared styles may be written until the
+     *  first feature is written.
+     */
+    public KmlWriter startDocument(Document doc)
+    {
+        return startContainer(doc, KmlConstants.E_DOCUMENT);
+    }
+
+
+    /**
+     *  Closes the current container, which must be a document.
+     */
+    public KmlWriter endDocument()
+    {
+        return endContainer(KmlConstants.E_DOCUMENT);
+    }
+
+
+    /**
+     *  Opens a folder, writing its metadata and any features that it already
+     *  holds.
+     */
+    public KmlWriter startFolder(Folder folder)
+    {
+        return startContainer(folder, KmlConstants.E_FOLDER);
+    }
+
+
+    /**
+     *  Closes the current container, which must be a folder.
+     */
+    public KmlWriter endFolder()
+    {
+        return endContainer(KmlConstants.E_FOLDER);
+    }
+
+
+    /**
+     *  Writes a shared style to the current container, which must be a document.
+     *  Shared styles precede features, so this must be called before any features
+     *  are written to the document.
+     *
+     *  @throws IllegalArgumentException if the style does not have an ID.
+     */
+    public KmlWriter writeSharedStyle(Style style)
+    {
+        checkState(State.KML);
+        OpenContainer current = containers.peek();
+        if ((current == null) || ! KmlConstants.E_DOCUMENT.equals(current.name))
+            throw new IllegalStateException("shared styles may only be written to a document");
+        if (current.hasFeatures)
+            throw new IllegalStateException("shared styles must be written before features");
+        if (style.getId() == null)
+            throw new IllegalArgumentException("shared styles must have an ID");
+
+        writeObject(style.appendAsXml(scratch), true);
+        return this;
+    }
+
+
+    /**
+     *  Writes a placemark to the current container.
+     */
+    public KmlWriter writePlacemark(Placemark placemark)
+    {
+        return writeFeature(placemark);
+    }
+
+
+    /**
+     *  Writes an entire feature, including any children, to the current container.
+     *  Only containers may be written directly to the root element.
+     */
+    public KmlWriter writeFeature(Feature<?> feature)
+    {
+        checkState(State.KML);
+        OpenContainer current = containers.peek();
+        if ((current == null) && ! feature.isContainer())
+            throw new IllegalStateException("only containers may be written to the root element");
+
+        writeObject(feature.appendAsXml(scratch, format), true);
+        if (current != null)
+            current.hasFeatures = true;
+        return this;
+    }
+
+
+    /**
+     *  Flushes any buffered output to the underlying stream.
+     */
+    public void flush()
+    {
+        try
+        {
+            xml.flush();
+            out.flush();
+        }
+        catch (IOException|XMLStreamException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+    }
+
+
+    /**
+     *  Ends any open elements, and closes the underlying stream. If nothing has
+     *  been written, the underlying stream is closed without writing anything.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            if (state == State.KML)
+            {
+                while (! containers.isEmpty())
+                {
+                    endContainer(containers.peek().name);
+                }
+                endKml();
+            }
+        }
+        finally
+        {
+            try
+            {
+                xml.close();
+                out.close();
+            }
+            catch (IOException|XMLStreamException ex)
+            {
+                throw new XmlException("unable to generate output", ex);
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private static OutputStream openFile(File file)
+    {
+        try
+        {
+            return new FileOutputStream(file);
+        }
+        catch (IOException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+    }
+
+
+    private void checkState(State expected)
+    {
+        if (state != expected)
+            throw new IllegalStateException("invalid operation in state " + state);
+    }
+
+
+    private KmlWriter startContainer(Container<?> container, String name)
+    {
+        checkState(State.KML);
+
+        Element elem = container.appendAsXml(scratch, format);
+        writeObject(elem, false);
+
+        OpenContainer current = containers.peek();
+        if (current != null)
+            current.hasFeatures = true;
+
+        containers.push(new OpenContainer(name, ! container.getFeatures().isEmpty()));
+        return this;
+    }
+
+
+    private KmlWriter endContainer(String name)
+    {
+        checkState(State.KML);
+        OpenContainer current = containers.peek();
+        if ((current == null) || ! name.equals(current.name))
+            throw new IllegalStateException("invalid operation: " + name + " is not the current container");
+
+        try
+        {
+            xml.writeEndElement();
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+
+        containers.pop();
+        return this;
+    }
+
+
+    /**
+     *  Writes an element that has been appended to the scratch element, then
+     *  removes it. If <code>close</code> is false, the element is left open so
+     *  that additional children may be written.
+     */
+    private void writeObject(Element elem, boolean close)
+    {
+        try
+        {
+            if (close)
+                writeElement(elem);
+            else
+                writeStartTagAndChildren(elem);
+        }
+        catch (XMLStreamException ex)
+        {
+            throw new XmlException("unable to generate output", ex);
+        }
+        finally
+        {
+            scratch.removeChild(elem);
+        }
+    }
+
+
+    /**
+     *  Recursively writes an element. The model classes only create elements in
+     *  the KML namespace, which is the default namespace of the output, so names
+     *  are written without prefix.
+     */
+    private void writeElement(Element elem)
+    throws XMLStreamException
+    {
+        if (! elem.hasChildNodes())
+        {
+            xml.writeEmptyElement(DomUtil.getLocalName(elem));
+            writeAttributes(elem);
+            return;
+        }
+
+        writeStartTagAndChildren(elem);
+        xml.writeEndElement();
+    }
+
+
+    private void writeStartTagAndChildren(Element elem)
+    throws XMLStreamException
+    {
+        xml.writeStartElement(DomUtil.getLocalName(elem));
+        writeAttributes(elem);
+
+        for (Node child = elem.getFirstChild() ; child != null ; child = child.getNextSibling())
+        {
+            switch (child.getNodeType())
+            {
+                case Node.ELEMENT_NODE:
+                    writeElement((Element)child);
+                    break;
+                case Node.TEXT_NODE:
+                    xml.writeCharacters(child.getNodeValue());
+                    break;
+                case Node.CDATA_SECTION_NODE:
+                    xml.writeCData(child.getNodeValue());
+                    break;
+                default:
+                    // the model doesn't create anything else
+            }
+        }
+    }
+
+
+    private void writeAttributes(Element elem)
+    throws XMLStreamException
+    {
+        NamedNodeMap attrs = elem.getAttributes();
+        for (int ii = 0 ; ii < attrs.getLength() ; ii++)
+        {
+            Node attr = attrs.item(ii);
+            xml.writeAttribute(attr.getNodeName(), attr.getNodeValue());
+        }
+    }
+
+
+    /**
+     *  Tracks an open container: its element name, and whether any features have
+     *  been written to it (which means that shared styles can no longer be).
+     */
+    private static class OpenContainer
+    {
+        public String name;
+        public boolean hasFeatures;
+
+        public OpenContainer(String name, boolean hasFeatures)
+        {
+            this.name = name;
+            this.hasFeatures = hasFeatures;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.kml.fieldtypes;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.internal.NumberFormatter;
+
+
+/**
+ *  Controls the precision of serialized coordinates: the number of decimal places
+ *  for latitude and longitude (in degrees), and for altitude (in meters). For
+ *  reference, 7 decimal places of latitude is roughly one centimeter.
+ *  <p>
+ *  Geometries accept an instance as a parameter to <code>appendAsXml()</code>;
+ *  if not provided, they use {@link #FULL_PRECISION}.
+ *  <p>
+ *  Instances are immutable and thread-safe.
+ */
+public class CoordinateFormat
+{
+    /**
+     *  The default format, which writes values with <code>Double.toString()</code>.
+     */
+    public final static CoordinateFormat FULL_PRECISION
+        = new CoordinateFormat(NumberFormatter.FULL_PRECISION, NumberFormatter.FULL_PRECISION);
+
+    private final NumberFormatter degrees;
+    private final NumberFormatter meters;
+
+
+    /**
+     *  Creates an instance with the specified number of decimal places.
+     *
+     *  @throws IllegalArgumentException if either value is negative or greater
+     *          than {@link NumberFormatter#MAX_DIGITS}.
+     */
+    public CoordinateFormat(int degreeDigits, int altitudeDigits)
+    {
+        this(new NumberFormatter(degreeDigits), new NumberFormatter(altitudeDigits));
+    }
+
+
+    private CoordinateFormat(NumberFormatter degrees, NumberFormatter meters)
+    {
+        this.degrees = degrees;
+        this.meters = meters;
+    }
+
+//----------------------------------------------------------------------------
+//  Public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Appends the serialized representation of a single tuple to the passed
+     *  builder, omitting altitude if it's <code>NaN</code>. Returns the builder.
+     */
+    public StringBuilder append(StringBuilder sb, double lat, double lon, double alt)
+    {
+        degrees.append(sb, lon).append(',');
+        degrees.append(sb, lat);
+        if (! Double.isNaN(alt))
+        {
+            meters.append(sb.append(','), alt);
+        }
+        return sb;
+    }
+
+
+    /**
+     *  Appends the serialized representation of a single point to the passed
+     *  builder. Returns the builder.
+     */
+    public StringBuilder append(StringBuilder sb, Point point)
+    {
+        Double ele = point.getElevation();
+        return append(sb, point.getLat(), point.getLon(), (ele == null) ? Double.NaN : ele.doubleValue());
+    }
+
+
+    /**
+     *  Returns the serialized representation of a single point.
+     */
+    public String format(Point point)
+    {
+        return append(new StringBuilder(3 * NumberFormatter.MAX_LENGTH), point).toString();
+    }
+}
@@ -0,0 +1,193 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.kml.fieldtypes;
+
+import com.kdgregory.geoutil.lib.core.PointArray;
+import com.kdgregory.geoutil.lib.internal.NumberUtils;
+
+
+/**
+ *  Parses the content of a KML <code>coordinates</code> element in a single pass,
+ *  without splitting it into substrings or creating an object per tuple.
+ *  <p>
+ *  Tuples are separated by any amount of XML whitespace (space, tab, carriage
+ *  return, or newline), including leading and trailing whitespace. Each tuple
+ *  consists of longitude, latitude, and optional altitude, separated by commas
+ *  with no intervening whitespace. Numbers are parsed by {@link NumberUtils}, so
+ *  are identical to those produced by <code>Double.parseDouble()</code>.
+ *  <p>
+ *  For compatibility with the earlier <code>split()</code>-based parser, trailing
+ *  commas in a tuple are ignored, and an altitude of "NaN" is treated as missing.
+ *  Unlike that parser, tuples with more than three components are rejected, as
+ *  are the strings "NaN" and "Infinity" for latitude and longitude.
+ *  <p>
+ *  The tokenizer does not validate the range of latitude or longitude; that's
+ *  left to the recipient of the values.
+ */
+public class CoordinateTokenizer
+{
+    /**
+     *  Receives the values of each tuple, in the order that they appear.
+     */
+    public interface Handler
+    {
+        /**
+         *  Called for each tuple. Note that the parameter order follows the rest
+         *  of this library, not the KML representation.
+         *
+         *  @param  lat     The tuple's latitude.
+         *  @param  lon     The tuple's longitude.
+         *  @param  alt     The tuple's altitude, <code>NaN</code> if not present.
+         */
+        void onCoordinates(double lat, double lon, double alt);
+    }
+
+
+    /**
+     *  Parses the passed character sequence, invoking the handler for each tuple.
+     *  Returns the number of tuples.
+     *
+     *  @throws IllegalArgumentException if a tuple does not have two or three
+     *          components, or if any component is not a valid number (in which
+     *          case the exception is the <code>NumberFormatException</code>
+     *          subclass).
+     */
+    public static int parse(CharSequence value, Handler handler)
+    {
+        int len = value.length();
+        int idx = 0;
+        int count = 0;
+        while (true)
+        {
+            while ((idx < len) && isWhitespace(value.charAt(idx)))
+                idx++;
+
+            if (idx == len)
+                return count;
+
+            int tupleStart = idx;
+            int componentStart = idx;
+            int component = 0;
+            double lon = Double.NaN;
+            double lat = Double.NaN;
+            double alt = Double.NaN;
+            while (true)
+            {
+                char c = (idx < len) ? value.charAt(idx) : ' ';
+                boolean endOfTuple = isWhitespace(c);
+                if (endOfTuple || (c == ','))
+                {
+                    if ((componentStart == idx) && (component >= 2) && onlyCommasRemain(value, idx))
+                    {
+                        idx = tupleEnd(value, idx);
+                        break;
+                    }
+
+                    double d = ((component == 2) && isNaN(value, componentStart, idx))
+                             ? Double.NaN
+                             : NumberUtils.parseDouble(value, componentStart, idx);
+                    switch (component++)
+                    {
+                        case 0:
+                            lon = d;
+                            break;
+                        case 1:
+                            lat = d;
+                            break;
+                        case 2:
+                            alt = d;
+                            break;
+                        default:
+                            throw new IllegalArgumentException("invalid coordinates: " + value.subSequence(tupleStart, tupleEnd(value, idx)));
+                    }
+                    if (endOfTuple)
+                        break;
+                    componentStart = idx + 1;
+                }
+                idx++;
+            }
+
+            if (component < 2)
+                throw new IllegalArgumentException("invalid coordinates: " + value.subSequence(tupleStart, idx));
+
+            handler.onCoordinates(lat, lon, alt);
+            count++;
+        }
+    }
+
+
+    /**
+     *  Parses the passed character sequence into a new point array. Missing
+     *  altitudes are stored as <code>NaN</code>, and all points are stored
+     *  without timestamp.
+     *
+     *  @throws IllegalArgumentException if the tuples are invalid (see above), or
+     *          if any latitude or longitude is out of range.
+     */
+    public static PointArray parse(CharSequence value)
+    {
+        // a rough estimate of capacity, assuming 2-dimensional tuples with 6 digits of precision
+        PointArray result = new PointArray(value.length() / 22 + 1);
+        parse(value, (lat, lon, alt) -> result.add(lat, lon, alt, PointArray.NO_TIMESTAMP));
+        return result;
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private static boolean isWhitespace(char c)
+    {
+        return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\r');
+    }
+
+
+    /**
+     *  Determines whether the rest of the tuple starting at the specified index
+     *  consists only of commas.
+     */
+    private static boolean onlyCommasRemain(CharSequence value, int idx)
+    {
+        for ( ; (idx < value.length()) && ! isWhitespace(value.charAt(idx)) ; idx++)
+        {
+            if (value.charAt(idx) != ',')
+                return false;
+        }
+        return true;
+    }
+
+
+    /**
+     *  Determines whether the specified range is the literal "NaN".
+     */
+    private static boolean isNaN(CharSequence value, int start, int end)
+    {
+        return (end - start == 3)
+            && (value.charAt(start) == 'N')
+            && (value.charAt(start + 1) == 'a')
+            && (value.charAt(start + 2) == 'N');
+    }
+
+
+    /**
+     *  Finds the end of the tuple containing the specified index.
+     */
+    private static int tupleEnd(CharSequence value, int idx)
+    {
+        while ((idx < value.length()) && ! isWhitespace(value.charAt(idx)))
+            idx++;
+        return idx;
+    }
+}
@@ -64,14 +64,7 @@ extends Point
     @Override
     public String toString()
     {
-        StringBuilder sb = new StringBuilder(128)
-                           .append(getLon()).append(",")
-                           .append(getLat());
-        if (getElevation() != null)
-        {
-            sb.append(",").append(getElevation());
-        }
-        return sb.toString();
+        return CoordinateFormat.FULL_PRECISION.format(this);
     }
 
 //----------------------------------------------------------------------------
@@ -79,31 +72,42 @@ extends Point
 //----------------------------------------------------------------------------
 
     /**
-     *  Creates an instance from the serialized representation.
+     *  Creates an instance from the serialized representation of a single tuple.
+     *  This accepts the same tuples as {@link #fromStringList}, with optional
+     *  surrounding whitespace.
+     *
+     *  @throws IllegalArgumentException if the value does not contain exactly one
+     *          valid tuple.
      */
     public static Coordinates fromString(String value)
     {
-        String[] split = value.split(",");
-        return (split.length == 2)
-             ? new Coordinates(Double.parseDouble(split[1]), Double.parseDouble(split[0]))
-             : new Coordinates(Double.parseDouble(split[1]), Double.parseDouble(split[0]), Double.valueOf(split[2]));
+        List<Coordinates> result = fromStringList(value);
+        if (result.size() != 1)
+            throw new IllegalArgumentException("invalid coordinates: " + value);
+        return result.get(0);
+    }
+
+
+    /**
+     *  Creates an instance from primitive values, where a missing altitude is
+     *  represented by <code>NaN</code>.
+     */
+    public static Coordinates create(double lat, double lon, double alt)
+    {
+        return Double.isNaN(alt)
+             ? new Coordinates(lat, lon)
+             : new Coordinates(lat, lon, alt);
     }
 
 
     /**
      *  Creates an instance from the stringified representation of a list of coordinates.
+     *  Tuples may be separated by any XML whitespace; see {@link CoordinateTokenizer}.
      */
     public static List<Coordinates> fromStringList(String value)
     {
         List<Coordinates> result = new ArrayList<>();
-        for (String s : value.split(" "))
-        {
-            s = s.trim();
-            if (! s.isEmpty())
-            {
-                result.add(Coordinates.fromString(s));
-            }
-        }
+        CoordinateTokenizer.parse(value, (lat, lon, alt) -> result.add(create(lat, lon, alt)));
         return result;
     }
 
@@ -112,13 +116,34 @@ extends Point
      *  Creates the string representation of a list of coordinates.
      */
     public static String stringify(List<Coordinates> coords)
+    {
+        return stringify(coords, CoordinateFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Creates the string representation of a list of coordinates, using the
+     *  specified format.
+     */
+    public static String stringify(List<Coordinates> coords, CoordinateFormat format)
     {
         StringBuilder sb = new StringBuilder(256);
         for (Coordinates coord : coords)
         {
             if (sb.length() > 0) sb.append(" ");
-            sb.append(coord.toString());
+            format.append(sb, coord);
         }
         return sb.toString();
     }
+
+
+    /**
+     *  Appends the full-precision serialized representation of a single tuple to
+     *  the passed builder, omitting altitude if it's <code>NaN</code>. Returns the
+     *  builder. See {@link CoordinateFormat} for reduced precision.
+     */
+    public static StringBuilder append(StringBuilder sb, double lat, double lon, double alt)
+    {
+        return CoordinateFormat.FULL_PRECISION.append(sb, lat, lon, alt);
+    }
 }
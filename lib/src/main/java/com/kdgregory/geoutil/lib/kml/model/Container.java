@@ -22,6 +22,7 @@ import org.w3c.dom.Element;
 import net.sf.practicalxml.DomUtil;
 
 import com.kdgregory.geoutil.lib.kml.KmlConstants;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
 
 
 /**
@@ -141,11 +142,11 @@ extends Feature<T>
     /**
      *  Appends features to the provided element. This is common code for subclasses.
      */
-    protected void appendFeaturesAsXml(Element elem)
+    protected void appendFeaturesAsXml(Element elem, CoordinateFormat format)
     {
         for (Feature<?> feature : features)
         {
-            feature.appendAsXml(elem);
+            feature.appendAsXml(elem, format);
         }
     }
 }
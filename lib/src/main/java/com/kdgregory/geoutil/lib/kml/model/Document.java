@@ -22,6 +22,7 @@ import org.w3c.dom.Element;
 import net.sf.practicalxml.DomUtil;
 
 import com.kdgregory.geoutil.lib.kml.KmlConstants;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
 
 
 /**
@@ -92,7 +93,7 @@ extends Container<Document>
      *  Appends this folder's XML representation to the provided element.
      */
     @Override
-    public Element appendAsXml(Element parent)
+    public Element appendAsXml(Element parent, CoordinateFormat format)
     {
         Element elem = DomUtil.appendChild(parent, KmlConstants.NAMESPACE, KmlConstants.E_DOCUMENT);
         super.toXmlHelper(elem);
@@ -100,7 +101,7 @@ extends Container<Document>
         {
             style.appendAsXml(elem);
         }
-        appendFeaturesAsXml(elem);
+        appendFeaturesAsXml(elem, format);
         return elem;
     }
 
@@ -21,6 +21,7 @@ import net.sf.practicalxml.DomUtil;
 import com.kdgregory.geoutil.lib.internal.ObjectUtils;
 import com.kdgregory.geoutil.lib.internal.XmlUtils;
 import com.kdgregory.geoutil.lib.kml.KmlConstants;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
 import com.kdgregory.geoutil.lib.kml.fieldtypes.TimeSpan;
 import com.kdgregory.geoutil.lib.kml.fieldtypes.TimeStamp;
 
@@ -195,6 +196,24 @@ extends KmlObject<T>
 //  Other public methods
 //----------------------------------------------------------------------------
 
+    /**
+     *  Appends this feature's XML representation to the provided element, writing
+     *  the coordinates of any contained geometries with full precision.
+     */
+    @Override
+    public Element appendAsXml(Element parent)
+    {
+        return appendAsXml(parent, CoordinateFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Appends this feature's XML representation to the provided element, writing
+     *  the coordinates of any contained geometries in the specified format.
+     */
+    public abstract Element appendAsXml(Element parent, CoordinateFormat format);
+
+
     /**
      *  Identifies whether this feature is a Container (and can therefore hold
      *  other features).
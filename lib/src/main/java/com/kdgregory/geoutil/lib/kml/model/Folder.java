@@ -19,6 +19,7 @@ import org.w3c.dom.Element;
 import net.sf.practicalxml.DomUtil;
 
 import com.kdgregory.geoutil.lib.kml.KmlConstants;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
 
 
 /**
@@ -36,11 +37,11 @@ extends Container<Folder>
      *  Appends this folder's XML representation to the provided element.
      */
     @Override
-    public Element appendAsXml(Element parent)
+    public Element appendAsXml(Element parent, CoordinateFormat format)
     {
         Element child = DomUtil.appendChild(parent, KmlConstants.NAMESPACE, KmlConstants.E_FOLDER);
         super.toXmlHelper(child);
-        appendFeaturesAsXml(child);
+        appendFeaturesAsXml(child, format);
         return child;
     }
 
@@ -14,6 +14,10 @@
 
 package com.kdgregory.geoutil.lib.kml.model;
 
+import org.w3c.dom.Element;
+
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
+
 
 /**
  *  Superclass for objects that hold the geometric shape of a {@link Placemark}.
@@ -21,5 +25,20 @@ package com.kdgregory.geoutil.lib.kml.model;
 public abstract class Geometry<T extends Geometry<T>>
 extends KmlObject<T>
 {
-    // at present this is just a marker; I may move common attributes here
+    /**
+     *  Appends this geometry's XML representation to the provided element,
+     *  writing coordinates with full precision.
+     */
+    @Override
+    public Element appendAsXml(Element parent)
+    {
+        return appendAsXml(parent, CoordinateFormat.FULL_PRECISION);
+    }
+
+
+    /**
+     *  Appends this geometry's XML representation to the provided element,
+     *  writing coordinates in the specified format.
+     */
+    public abstract Element appendAsXml(Element parent, CoordinateFormat format);
 }
@@ -22,6 +22,7 @@ import com.kdgregory.geoutil.lib.internal.ObjectUtils;
 import com.kdgregory.geoutil.lib.internal.XmlUtils;
 import com.kdgregory.geoutil.lib.kml.KmlConstants;
 import com.kdgregory.geoutil.lib.kml.fieldtypes.AltitudeMode;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
 import com.kdgregory.geoutil.lib.kml.fieldtypes.Coordinates;
 
 
@@ -139,16 +140,18 @@ extends Geometry<KmlPoint>
 //----------------------------------------------------------------------------
 
     /**
-     *  Appends this point's XML representation to the provided element.
+     *  Appends this point's XML representation to the provided element, writing
+     *  coordinates in the specified format.
      */
     @Override
-    public Element appendAsXml(Element parent)
+    public Element appendAsXml(Element parent, CoordinateFormat format)
     {
         Element child = DomUtil.appendChild(parent, KmlConstants.NAMESPACE, KmlConstants.E_POINT);
 
         XmlUtils.optAppendDataElement(child, KmlConstants.NAMESPACE, KmlConstants.E_GEOMETRY_EXTRUDE, getExtrude());
         XmlUtils.optAppendDataElement(child, KmlConstants.NAMESPACE, KmlConstants.E_GEOMETRY_ALTMODE, getAltitudeModeString());
-        XmlUtils.optAppendDataElement(child, KmlConstants.NAMESPACE, KmlConstants.E_GEOMETRY_COORD,   getCoordinates());
+        XmlUtils.optAppendDataElement(child, KmlConstants.NAMESPACE, KmlConstants.E_GEOMETRY_COORD,
+                                      (getCoordinates() == null) ? null : format.format(getCoordinates()));
 
         return child;
     }
@@ -14,10 +14,12 @@
 
 package com.kdgregory.geoutil.lib.kml.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.w3c.dom.Element;
 
@@ -26,23 +28,38 @@ import net.sf.kdgcommons.lang.StringUtil;
 import net.sf.practicalxml.DomUtil;
 
 import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.PointArray;
 import com.kdgregory.geoutil.lib.internal.ObjectUtils;
 import com.kdgregory.geoutil.lib.internal.XmlUtils;
 import com.kdgregory.geoutil.lib.kml.KmlConstants;
 import com.kdgregory.geoutil.lib.kml.fieldtypes.AltitudeMode;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateTokenizer;
 import com.kdgregory.geoutil.lib.kml.fieldtypes.Coordinates;
 
 
 /**
  *  Represents a series of points on the map.
  *  <p>
+ *  Instances created from serialized coordinates or primitive arrays store the
+ *  coordinates as packed primitive values; those created from a list of points
+ *  retain references to the original points (so any timestamps are preserved).
+ *  In either case, {@link #getCoordinates} returns a read-only view that creates
+ *  <code>Coordinates</code> objects on demand, and the XML representation is
+ *  generated directly from the stored values.
+ *  <p>
  *  This object has identity equality semantics; for manipulation, extract
  *  the underlying <code>Coordinates</code>.
  */
 public class LineString
 extends Geometry<LineString>
 {
-    private List<Coordinates> coordinates;
+    // exactly one of these will be set: points holds Point references, packed
+    // holds (lon, lat, alt) triples, with NaN for missing altitude
+    private List<Point> points;
+    private double[] packed;
+    private int size;
+
     private AltitudeMode altitudeMode;
     private Boolean extrude;
     private Boolean tessellate;
@@ -50,16 +67,14 @@ extends Geometry<LineString>
 
     /**
      *  Creates an instance from a list of <code>Point</code> (may also be used
-     *  for a list of <code>Coordinates</code>).
+     *  for a list of <code>Coordinates</code>). The list is copied, but not the
+     *  points that it contains.
      */
     public LineString(List<? extends Point> points)
     {
         points = ObjectUtil.defaultValue(points, Collections.<Point>emptyList());
-        coordinates = new ArrayList<>(points.size());
-        for (Point p : points)
-        {
-            coordinates.add(new Coordinates(p));
-        }
+        this.points = new ArrayList<>(points);
+        this.size = points.size();
     }
 
 
@@ -73,11 +88,48 @@ extends Geometry<LineString>
 
 
     /**
-     *  Creates an instance from serialized coordinates.
+     *  Creates an instance from serialized coordinates. Tuples may be separated
+     *  by any XML whitespace.
      */
     public LineString(String coords)
     {
-        coordinates = Coordinates.fromStringList(coords);
+        packed = new double[Math.max(coords.length() / 8, 3)];
+        CoordinateTokenizer.parse(coords, this::addPacked);
+    }
+
+
+    /**
+     *  Creates an instance from the first <code>count</code> elements of primitive
+     *  arrays. The altitude array may be null, or contain <code>NaN</code> for
+     *  points without altitude. The values are copied.
+     *
+     *  @throws IllegalArgumentException if any latitude or longitude is out of
+     *          range, or if an array has fewer than <code>count</code> elements.
+     */
+    public LineString(double[] lat, double[] lon, double[] alt, int count)
+    {
+        if ((count < 0) || (count > lat.length) || (count > lon.length) || ((alt != null) && (count > alt.length)))
+            throw new IllegalArgumentException("invalid count: " + count);
+
+        packed = new double[Math.max(count * 3, 3)];
+        for (int ii = 0 ; ii < count ; ii++)
+        {
+            addPacked(lat[ii], lon[ii], (alt == null) ? Double.NaN : alt[ii]);
+        }
+    }
+
+
+    /**
+     *  Creates an instance from the latitude, longitude, and elevation of the
+     *  points in a <code>PointArray</code>. Timestamps are not retained.
+     */
+    public LineString(PointArray points)
+    {
+        packed = new double[Math.max(points.size() * 3, 3)];
+        for (int ii = 0 ; ii < points.size() ; ii++)
+        {
+            addPacked(points.getLat(ii), points.getLon(ii), points.getElevation(ii));
+        }
     }
 
 //----------------------------------------------------------------------------
@@ -85,11 +137,22 @@ extends Geometry<LineString>
 //----------------------------------------------------------------------------
 
     /**
-     *  Returns this line's coordinates.
+     *  Returns a read-only view of this line's coordinates. The objects in this
+     *  view are created on each call to <code>get()</code>, so callers that
+     *  repeatedly access the same point should hold onto it.
      */
     public List<Coordinates> getCoordinates()
     {
-        return coordinates;
+        return new CoordinatesView();
+    }
+
+
+    /**
+     *  Returns the number of points in this line.
+     */
+    public int size()
+    {
+        return size;
     }
 
 
@@ -173,17 +236,18 @@ extends Geometry<LineString>
 //----------------------------------------------------------------------------
 
     /**
-     *  Appends this line's XML representation to the provided element.
+     *  Appends this line's XML representation to the provided element, writing
+     *  coordinates in the specified format.
      */
     @Override
-    public Element appendAsXml(Element parent)
+    public Element appendAsXml(Element parent, CoordinateFormat format)
     {
         Element child = DomUtil.appendChild(parent, KmlConstants.NAMESPACE, KmlConstants.E_LINESTRING);
 
         XmlUtils.optAppendDataElement(child, KmlConstants.NAMESPACE, KmlConstants.E_GEOMETRY_EXTRUDE, extrude);
         XmlUtils.optAppendDataElement(child, KmlConstants.NAMESPACE, KmlConstants.E_GEOMETRY_TESSELLATE, tessellate);
         XmlUtils.optAppendDataElement(child, KmlConstants.NAMESPACE, KmlConstants.E_GEOMETRY_ALTMODE, getAltitudeModeString());
-        XmlUtils.optAppendDataElement(child, KmlConstants.NAMESPACE, KmlConstants.E_GEOMETRY_COORD, Coordinates.stringify(coordinates));
+        XmlUtils.optAppendDataElement(child, KmlConstants.NAMESPACE, KmlConstants.E_GEOMETRY_COORD, stringify(format));
 
         return child;
     }
@@ -222,4 +286,89 @@ extends Geometry<LineString>
 
         return p;
     }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    /**
+     *  Appends a point to the packed array, expanding it if necessary. This is
+     *  only called during construction.
+     */
+    private void addPacked(double lat, double lon, double alt)
+    {
+        if ((lat < -90.0) || (lat > 90.0))
+            throw new IllegalArgumentException("invalid latitude: " + lat);
+
+        if ((lon < -180.0) || (lon > 180.0))
+            throw new IllegalArgumentException("invalid longitude: " + lon);
+
+        int idx = size * 3;
+        if (idx + 3 > packed.length)
+        {
+            packed = Arrays.copyOf(packed, Math.max(idx + 3, packed.length + (packed.length >> 1)));
+        }
+        packed[idx]     = lon;
+        packed[idx + 1] = lat;
+        packed[idx + 2] = alt;
+        size++;
+    }
+
+
+    /**
+     *  Produces the serialized coordinates, without creating intermediate objects.
+     */
+    private String stringify(CoordinateFormat format)
+    {
+        StringBuilder sb = new StringBuilder(Math.max(size * 32, 16));
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            if (ii > 0)
+                sb.append(" ");
+
+            if (points != null)
+            {
+                format.append(sb, points.get(ii));
+            }
+            else
+            {
+                int idx = ii * 3;
+                format.append(sb, packed[idx + 1], packed[idx], packed[idx + 2]);
+            }
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     *  The list returned by {@link #getCoordinates}.
+     */
+    private class CoordinatesView
+    extends AbstractList<Coordinates>
+    implements RandomAccess
+    {
+        @Override
+        public Coordinates get(int index)
+        {
+            if ((index < 0) || (index >= size))
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+
+            if (points != null)
+            {
+                Point p = points.get(index);
+                return (p instanceof Coordinates)
+                     ? (Coordinates)p
+                     : new Coordinates(p);
+            }
+
+            int idx = index * 3;
+            return Coordinates.create(packed[idx + 1], packed[idx], packed[idx + 2]);
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
 }
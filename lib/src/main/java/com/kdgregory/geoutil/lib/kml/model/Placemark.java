@@ -20,6 +20,7 @@ import net.sf.practicalxml.DomUtil;
 
 import com.kdgregory.geoutil.lib.internal.ObjectUtils;
 import com.kdgregory.geoutil.lib.kml.KmlConstants;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
 
 
 /**
@@ -66,11 +67,11 @@ extends Feature<Placemark>
      *  Appends this placemark's XML representation to the provided element.
      */
     @Override
-    public Element appendAsXml(Element parent)
+    public Element appendAsXml(Element parent, CoordinateFormat format)
     {
         Element elem = DomUtil.appendChild(parent, KmlConstants.NAMESPACE, KmlConstants.E_PLACEMARK);
         toXmlHelper(elem);
-        ObjectUtils.optSet(geometry, g -> g.appendAsXml(elem));
+        ObjectUtils.optSet(geometry, g -> g.appendAsXml(elem, format));
         return elem;
     }
 
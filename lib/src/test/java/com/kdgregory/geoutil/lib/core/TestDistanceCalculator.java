@@ -0,0 +1,84 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TestDistanceCalculator
+{
+    @Test
+    public void testPythagorean() throws Exception
+    {
+        Point p1 = new Point(45, 75);
+        Point p2 = new Point(46, 76);
+
+        assertEquals("primitives", PointUtil.pythagoreanDistance(p1, p2), DistanceCalculator.PYTHAGOREAN.distance(45, 75, 46, 76), 0.0);
+        assertEquals("points",     PointUtil.pythagoreanDistance(p1, p2), DistanceCalculator.PYTHAGOREAN.distance(p1, p2), 0.0);
+    }
+
+
+    @Test
+    public void testHaversine() throws Exception
+    {
+        Point p1 = new Point(45, 75);
+        Point p2 = new Point(46, 76);
+
+        assertEquals("primitives", PointUtil.haversineDistance(p1, p2), DistanceCalculator.HAVERSINE.distance(45, 75, 46, 76), 0.0);
+        assertEquals("points",     PointUtil.haversineDistance(p1, p2), DistanceCalculator.HAVERSINE.distance(p1, p2), 0.0);
+    }
+
+
+    @Test
+    public void testGreatCircle() throws Exception
+    {
+        Point p1 = new Point(45, 75);
+        Point p2 = new Point(46, 76);
+
+        assertEquals("primitives", PointUtil.greatCircleDistance(p1, p2), DistanceCalculator.GREAT_CIRCLE.distance(45, 75, 46, 76), 0.0);
+        assertEquals("points",     PointUtil.greatCircleDistance(p1, p2), DistanceCalculator.GREAT_CIRCLE.distance(p1, p2), 0.0);
+    }
+
+
+    @Test
+    public void testEquirectangular() throws Exception
+    {
+        double degreeLength = PointUtil.EARTH_RADIUS * Math.PI / 180;
+
+        EquirectangularCalculator calculator = new EquirectangularCalculator(60);
+        assertEquals("reference latitude",          60.0,               calculator.getRefLat(),                 0.0);
+        assertEquals("latitude only",               degreeLength,       calculator.distance(10, 0, 11, 0),      0.000001);
+        assertEquals("longitude uses reference",    degreeLength / 2,   calculator.distance(10, 0, 10, 1),      0.000001);
+        assertEquals("both",                        degreeLength * Math.sqrt(1.25),
+                                                    calculator.distance(new Point(60, 0), new Point(61, 1)),
+                                                    0.000001);
+    }
+
+
+    @Test
+    public void testAgreementOverShortDistances() throws Exception
+    {
+        // all calculators should agree to within a few centimeters over a typical GPS track step
+
+        Point p1 = new Point(39.95237, -75.16358);
+        Point p2 = new Point(39.95170, -75.16369);
+        double expected = DistanceCalculator.HAVERSINE.distance(p1, p2);
+
+        assertEquals("Pythagorean",     expected, DistanceCalculator.PYTHAGOREAN.distance(p1, p2),                  0.1);
+        assertEquals("great circle",    expected, DistanceCalculator.GREAT_CIRCLE.distance(p1, p2),                 0.1);
+        assertEquals("equirectangular", expected, new EquirectangularCalculator(39.952).distance(p1, p2),           0.1);
+    }
+}
@@ -0,0 +1,208 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TestEdgeIndex
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  Reference implementation: examines every edge, returning the index of the
+     *  closest (with the same tie-breaking as the index).
+     */
+    private static int scan(List<Point> segment, double qLat, double qLon)
+    {
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (int ii = 0 ; ii < segment.size() - 1 ; ii++)
+        {
+            Point a = segment.get(ii);
+            Point b = segment.get(ii + 1);
+            double lonScale = PointUtil.correctedLongitude(PointUtil.EARTH_DEGREE_LENGTH, a.getLat());
+            double bx = (b.getLon() - a.getLon()) * lonScale;
+            double by = (b.getLat() - a.getLat()) * PointUtil.EARTH_DEGREE_LENGTH;
+            double px = (qLon - a.getLon()) * lonScale;
+            double py = (qLat - a.getLat()) * PointUtil.EARTH_DEGREE_LENGTH;
+            double len2 = bx * bx + by * by;
+            double t = (len2 > 0) ? Math.max(0, Math.min(1, (px * bx + py * by) / len2)) : 0;
+            double dx = px - t * bx;
+            double dy = py - t * by;
+            double dist = dx * dx + dy * dy;
+            if (dist < bestDist)
+            {
+                best = ii;
+                bestDist = dist;
+            }
+        }
+        return best;
+    }
+
+
+    private static List<Point> randomWalk(Random rnd, int size)
+    {
+        List<Point> result = new ArrayList<>(size);
+        double lat = 39.95;
+        double lon = -75.16;
+        for (int ii = 0 ; ii < size ; ii++)
+        {
+            result.add(new Point(lat, lon));
+            lat += (rnd.nextDouble() - 0.45) * 0.0002;
+            lon += (rnd.nextDouble() - 0.45) * 0.0002;
+        }
+        return result;
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testBasicOperation() throws Exception
+    {
+        // an L-shaped track: north, then east
+
+        Instant t0 = Instant.parse("2020-01-01T00:00:00Z");
+        List<Point> segment = Arrays.asList(
+                                new Point(40.000, -75.000, 10.0, t0),
+                                new Point(40.001, -75.000, 20.0, t0.plusSeconds(10)),
+                                new Point(40.001, -74.999, 30.0, t0.plusSeconds(20)));
+
+        EdgeIndex index = new EdgeIndex(segment);
+        assertEquals("edge count",  2,                                          index.edgeCount());
+        assertEquals("length",      SegmentUtil.pythagoreanDistance(segment),   index.length(), 0.0);
+
+        // halfway up the first edge, offset to the west
+        SnapResult r1 = index.snap(40.0005, -75.0001);
+        assertEquals("first edge: index",           0,                          r1.getEdgeIndex());
+        assertEquals("first edge: lat",             40.0005,                    r1.getPoint().getLat(), 0.0000001);
+        assertEquals("first edge: lon",             -75.000,                    r1.getPoint().getLon(), 0.0000001);
+        assertEquals("first edge: elevation",       15.0,                       r1.getPoint().getElevation().doubleValue(), 0.001);
+        assertEquals("first edge: timestamp",       t0.plusSeconds(5),          r1.getPoint().getTimestamp());
+        assertEquals("first edge: distance",        PointUtil.pythagoreanDistance(40.0005, -75.0, 40.0005, -75.0001),
+                                                    r1.getDistance(), 0.001);
+        assertEquals("first edge: along-track",     PointUtil.pythagoreanDistance(segment.get(0), segment.get(1)) / 2,
+                                                    r1.getAlongTrackDistance(), 0.001);
+
+        // south of the second edge, near its end
+        SnapResult r2 = index.snap(new Point(40.0009, -74.9991));
+        assertEquals("second edge: index",          1,                          r2.getEdgeIndex());
+        assertEquals("second edge: lat",            40.001,                     r2.getPoint().getLat(), 0.0000001);
+        assertEquals("second edge: lon",            -74.9991,                   r2.getPoint().getLon(), 0.0000001);
+        assertEquals("second edge: along-track",    index.length() - PointUtil.pythagoreanDistance(40.001, -74.9991, 40.001, -74.999),
+                                                    r2.getAlongTrackDistance(), 0.001);
+
+        // beyond the end of the track
+        SnapResult r3 = index.snap(40.002, -74.998);
+        assertEquals("past end: index",             1,                          r3.getEdgeIndex());
+        assertEquals("past end: point",             segment.get(2),             r3.getPoint());
+        assertEquals("past end: along-track",       index.length(),             r3.getAlongTrackDistance(), 0.0);
+    }
+
+
+    @Test
+    public void testMissingElevationAndTimestamp() throws Exception
+    {
+        List<Point> segment = Arrays.asList(
+                                new Point(40.000, -75.000, 10.0, null),
+                                new Point(40.001, -75.000, null, Instant.now()));
+
+        SnapResult result = new EdgeIndex(segment).snap(40.0005, -75.0001);
+        assertNull("elevation", result.getPoint().getElevation());
+        assertNull("timestamp", result.getPoint().getTimestamp());
+    }
+
+
+    @Test
+    public void testDegenerateSegments() throws Exception
+    {
+        EdgeIndex empty = new EdgeIndex(Collections.<Point>emptyList());
+        assertEquals("empty: edge count",   0,      empty.edgeCount());
+        assertEquals("empty: length",       0.0,    empty.length(), 0.0);
+        assertNull("empty: snap",                   empty.snap(40, -75));
+
+        EdgeIndex single = new EdgeIndex(Arrays.asList(new Point(40, -75)));
+        assertEquals("single: edge count",  0,      single.edgeCount());
+        assertNull("single: snap",                  single.snap(40, -75));
+
+        // repeated points form zero-length edges
+        EdgeIndex repeated = new EdgeIndex(Arrays.asList(new Point(40, -75), new Point(40, -75)));
+        SnapResult result = repeated.snap(40.001, -75);
+        assertEquals("repeated: edge",      0,                  result.getEdgeIndex());
+        assertEquals("repeated: point",     new Point(40, -75), result.getPoint());
+    }
+
+
+    @Test
+    public void testRandomTrack() throws Exception
+    {
+        Random rnd = new Random(1577547828000L);
+        List<Point> segment = randomWalk(rnd, 5000);
+        EdgeIndex index = new EdgeIndex(segment);
+
+        for (int ii = 0 ; ii < 1000 ; ii++)
+        {
+            Point base = segment.get(rnd.nextInt(segment.size()));
+            double qLat = base.getLat() + (rnd.nextDouble() - 0.5) * 0.01;
+            double qLon = base.getLon() + (rnd.nextDouble() - 0.5) * 0.01;
+            SnapResult result = index.snap(qLat, qLon);
+            int edge = result.getEdgeIndex();
+
+            assertEquals("edge, query " + ii, scan(segment, qLat, qLon), edge);
+
+            double edgeStart = SegmentUtil.pythagoreanDistance(segment.subList(0, edge + 1));
+            double edgeEnd = SegmentUtil.pythagoreanDistance(segment.subList(0, edge + 2));
+            assertTrue("along-track within edge, query " + ii,
+                       (result.getAlongTrackDistance() >= edgeStart - 0.001)
+                       && (result.getAlongTrackDistance() <= edgeEnd + 0.001));
+        }
+    }
+
+
+    @Test
+    public void testParallel() throws Exception
+    {
+        Random rnd = new Random(1577547829000L);
+        List<Point> segment = randomWalk(rnd, 1000);
+        List<Point> other = randomWalk(rnd, 3000);
+        EdgeIndex index = new EdgeIndex(segment);
+
+        List<SnapResult> expected = index.snap(other);
+        List<SnapResult> actual = index.snapParallel(other, 100);
+        assertEquals("number of results", expected.size(), actual.size());
+        for (int ii = 0 ; ii < expected.size() ; ii++)
+        {
+            assertEquals("edge " + ii,          expected.get(ii).getEdgeIndex(),    actual.get(ii).getEdgeIndex());
+            assertEquals("point " + ii,         expected.get(ii).getPoint(),        actual.get(ii).getPoint());
+            assertEquals("distance " + ii,      expected.get(ii).getDistance(),     actual.get(ii).getDistance(), 0.0);
+        }
+
+        assertEquals("public API",
+                     expected.get(1234).getPoint(),
+                     index.snapParallel(other).get(1234).getPoint());
+    }
+}
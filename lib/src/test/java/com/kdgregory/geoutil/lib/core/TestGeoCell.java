@@ -0,0 +1,271 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import net.sf.kdgcommons.test.StringAsserts;
+
+
+public class TestGeoCell
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    private final static String GEOHASH_CHARS = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    /**
+     *  Converts a key to a geohash string; the total number of bits must be a
+     *  multiple of 5.
+     */
+    private static String toGeohash(long key, int bits)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int shift = 2 * bits - 5 ; shift >= 0 ; shift -= 5)
+        {
+            sb.append(GEOHASH_CHARS.charAt((int)((key >>> shift) & 0x1F)));
+        }
+        return sb.toString();
+    }
+
+
+    private static void assertContains(String message, double[] bounds, double lat, double lon)
+    {
+        assertTrue(message + ": lat " + lat + " in " + Arrays.toString(bounds), (lat >= bounds[0]) && (lat < bounds[1]));
+        assertTrue(message + ": lon " + lon + " in " + Arrays.toString(bounds), (lon >= bounds[2]) && (lon < bounds[3]));
+    }
+
+
+    private static Set<Long> toSet(long[] values)
+    {
+        Set<Long> result = new HashSet<>();
+        for (long value : values)
+        {
+            result.add(value);
+        }
+        return result;
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testEncode() throws Exception
+    {
+        // example from https://en.wikipedia.org/wiki/Geohash
+        assertEquals("geohash, 4 characters",   "u4pr",     toGeohash(GeoCell.encode(57.64911, 10.40744, 10), 10));
+        assertEquals("geohash, 8 characters",   "u4pruydq", toGeohash(GeoCell.encode(57.64911, 10.40744, 20), 20));
+
+        assertEquals("one bit, southwest",      0L,         GeoCell.encode(-45, -90, 1));
+        assertEquals("one bit, southeast",      2L,         GeoCell.encode(-45, 90, 1));
+        assertEquals("one bit, northwest",      1L,         GeoCell.encode(45, -90, 1));
+        assertEquals("one bit, northeast",      3L,         GeoCell.encode(45, 90, 1));
+
+        assertEquals("north pole",              3L,         GeoCell.encode(90, 180, 1));
+        assertEquals("clamped",                 0L,         GeoCell.encode(-100, -200, 1));
+
+        Point p = new Point(39.95237, -75.16358);
+        assertEquals("point", GeoCell.encode(39.95237, -75.16358, 20), GeoCell.encode(p, 20));
+    }
+
+
+    @Test
+    public void testPrefix() throws Exception
+    {
+        // a cell's key is the prefix of the keys of cells that it contains
+
+        Random rnd = new Random(1577547828000L);
+        for (int ii = 0 ; ii < 1000 ; ii++)
+        {
+            double lat = rnd.nextDouble() * 180 - 90;
+            double lon = rnd.nextDouble() * 360 - 180;
+            int bits = 1 + rnd.nextInt(GeoCell.MAX_BITS - 1);
+            assertEquals("prefix " + ii,
+                         GeoCell.encode(lat, lon, bits),
+                         GeoCell.encode(lat, lon, bits + 1) >>> 2);
+        }
+    }
+
+
+    @Test
+    public void testBoundsAndCenter() throws Exception
+    {
+        Random rnd = new Random(1577547829000L);
+        for (int ii = 0 ; ii < 1000 ; ii++)
+        {
+            double lat = rnd.nextDouble() * 180 - 90;
+            double lon = rnd.nextDouble() * 360 - 180;
+            int bits = 1 + rnd.nextInt(GeoCell.MAX_BITS);
+            long key = GeoCell.encode(lat, lon, bits);
+
+            assertContains("bounds " + ii, GeoCell.bounds(key, bits), lat, lon);
+
+            Point center = GeoCell.center(key, bits);
+            assertEquals("center " + ii, key, GeoCell.encode(center, bits));
+        }
+
+        assertArrayEquals("bounds, one bit", new double[] { 0, 90, -180, 0 }, GeoCell.bounds(1, 1), 0.0);
+    }
+
+
+    @Test
+    public void testBatchEncode() throws Exception
+    {
+        Random rnd = new Random(1577547830000L);
+        double[] lat = new double[1000];
+        double[] lon = new double[1000];
+        PointArray points = new PointArray();
+        for (int ii = 0 ; ii < lat.length ; ii++)
+        {
+            lat[ii] = rnd.nextDouble() * 180 - 90;
+            lon[ii] = rnd.nextDouble() * 360 - 180;
+            points.add(new Point(lat[ii], lon[ii]));
+        }
+
+        long[] keys = new long[lat.length];
+        GeoCell.encode(lat, lon, lat.length, 24, keys);
+        long[] arrayKeys = points.cellKeys(24);
+        for (int ii = 0 ; ii < lat.length ; ii++)
+        {
+            assertEquals("batch " + ii,         GeoCell.encode(lat[ii], lon[ii], 24),   keys[ii]);
+            assertEquals("PointArray " + ii,    keys[ii],                               arrayKeys[ii]);
+        }
+
+        try
+        {
+            GeoCell.encode(lat, lon, lat.length, 24, new long[10]);
+            fail("accepted short output array");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("invalid output array.*1000.*10.*", ex.getMessage());
+        }
+    }
+
+
+    @Test
+    public void testNeighbors() throws Exception
+    {
+        int bits = 20;
+        double[] size = GeoCell.bounds(0, bits);
+        double cellLat = size[1] - size[0];
+        double cellLon = size[3] - size[2];
+
+        double lat = 39.95237;
+        double lon = -75.16358;
+        long key = GeoCell.encode(lat, lon, bits);
+        Set<Long> expected = new HashSet<>();
+        for (int dLat = -1 ; dLat <= 1 ; dLat++)
+        {
+            for (int dLon = -1 ; dLon <= 1 ; dLon++)
+            {
+                if ((dLat != 0) || (dLon != 0))
+                    expected.add(GeoCell.encode(lat + dLat * cellLat, lon + dLon * cellLon, bits));
+            }
+        }
+        assertEquals("mid-latitude", expected, toSet(GeoCell.neighbors(key, bits)));
+
+        long eastEdge = GeoCell.encode(0.001, 179.9999, bits);
+        Set<Long> wrapped = toSet(GeoCell.neighbors(eastEdge, bits));
+        assertEquals("antimeridian: count", 8, wrapped.size());
+        assertTrue("antimeridian: includes west edge", wrapped.contains(GeoCell.encode(0.001, -179.9999, bits)));
+
+        long pole = GeoCell.encode(90, 0, bits);
+        assertEquals("at pole", 5, GeoCell.neighbors(pole, bits).length);
+
+        assertEquals("one bit: neighbors of southwest",
+                     new HashSet<>(Arrays.asList(1L, 2L, 3L)),
+                     toSet(GeoCell.neighbors(0, 1)));
+    }
+
+
+    @Test
+    public void testCover() throws Exception
+    {
+        int bits = 16;
+        long[] cover = GeoCell.cover(39.9, 40.0, -75.2, -75.1, bits);
+        for (int ii = 1 ; ii < cover.length ; ii++)
+        {
+            assertTrue("sorted", cover[ii - 1] < cover[ii]);
+        }
+
+        Set<Long> coverSet = toSet(cover);
+        Random rnd = new Random(1577547831000L);
+        for (int ii = 0 ; ii < 1000 ; ii++)
+        {
+            double lat = 39.9 + rnd.nextDouble() * 0.1;
+            double lon = -75.2 + rnd.nextDouble() * 0.1;
+            assertTrue("contains point " + ii, coverSet.contains(GeoCell.encode(lat, lon, bits)));
+        }
+
+        // every cell should intersect the box
+        for (long key : cover)
+        {
+            double[] bounds = GeoCell.bounds(key, bits);
+            assertTrue("intersects " + key,
+                       (bounds[1] >= 39.9) && (bounds[0] <= 40.0) && (bounds[3] >= -75.2) && (bounds[2] <= -75.1));
+        }
+
+        Set<Long> crossing = toSet(GeoCell.cover(-1, 1, 179, -179, 8));
+        assertTrue("antimeridian: east side", crossing.contains(GeoCell.encode(0, 179.5, 8)));
+        assertTrue("antimeridian: west side", crossing.contains(GeoCell.encode(0, -179.5, 8)));
+        assertFalse("antimeridian: not middle", crossing.contains(GeoCell.encode(0, 0, 8)));
+
+        assertArrayEquals("whole world, one bit", new long[] { 0, 1, 2, 3 }, GeoCell.cover(-90, 90, -180, 180, 1));
+
+        try
+        {
+            GeoCell.cover(-90, 90, -180, 180, 20);
+            fail("accepted excessively large cover");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("bounding box requires.*cells.*", ex.getMessage());
+        }
+    }
+
+
+    @Test
+    public void testInvalidBits() throws Exception
+    {
+        try
+        {
+            GeoCell.encode(0, 0, 0);
+            fail("accepted zero bits");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("invalid bits: 0.*", ex.getMessage());
+        }
+
+        try
+        {
+            GeoCell.encode(0, 0, GeoCell.MAX_BITS + 1);
+            fail("accepted too many bits");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("invalid bits: 32.*", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,331 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TestPointArray
+{
+    @Test
+    public void testAccessors() throws Exception
+    {
+        Point p1 = new Point(39.95237, -75.16358, Double.valueOf(12.5), Instant.ofEpochMilli(1000));
+        Point p2 = new Point(39.95170, -75.16369);
+
+        PointArray array = new PointArray(1)
+                           .add(p1)
+                           .add(p2)
+                           .add(39.95087, -75.16387, 15.0, 3000);
+
+        assertEquals("size",                    3,                  array.size());
+        assertFalse("isEmpty",                                      array.isEmpty());
+
+        assertEquals("p1 lat",                  39.95237,           array.getLat(0), 0.0);
+        assertEquals("p1 lon",                  -75.16358,          array.getLon(0), 0.0);
+        assertEquals("p1 elevation",            12.5,               array.getElevation(0), 0.0);
+        assertTrue("p1 hasElevation",                               array.hasElevation(0));
+        assertEquals("p1 timestamp",            1000L,              array.getTimestampMillis(0));
+        assertTrue("p1 hasTimestamp",                               array.hasTimestamp(0));
+
+        assertTrue("p2 elevation",                                  Double.isNaN(array.getElevation(1)));
+        assertFalse("p2 hasElevation",                              array.hasElevation(1));
+        assertEquals("p2 timestamp",            PointArray.NO_TIMESTAMP, array.getTimestampMillis(1));
+        assertFalse("p2 hasTimestamp",                              array.hasTimestamp(1));
+
+        assertEquals("get(0)",                  p1,                 array.get(0));
+        assertEquals("get(1)",                  p2,                 array.get(1));
+        assertEquals("get(2)",                  new Point(39.95087, -75.16387, 15.0, 3000), array.get(2));
+
+        try
+        {
+            array.get(3);
+            fail("did not throw on out-of-bounds index");
+        }
+        catch (IndexOutOfBoundsException ex)
+        {
+            // success
+        }
+    }
+
+
+    @Test
+    public void testInvalidPoint() throws Exception
+    {
+        PointArray array = new PointArray();
+
+        try
+        {
+            array.add(91, 0, Double.NaN, PointArray.NO_TIMESTAMP);
+            fail("accepted invalid latitude");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue("exception message (was: " + ex.getMessage() + ")", ex.getMessage().contains("latitude"));
+        }
+
+        try
+        {
+            array.add(0, -181, Double.NaN, PointArray.NO_TIMESTAMP);
+            fail("accepted invalid longitude");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue("exception message (was: " + ex.getMessage() + ")", ex.getMessage().contains("longitude"));
+        }
+
+        assertTrue("nothing added", array.isEmpty());
+    }
+
+
+    @Test
+    public void testListConversion() throws Exception
+    {
+        List<Point> src = Arrays.asList(
+                            new Point(45, 75, Instant.ofEpochMilli(1000)),
+                            new Point(46, 76, Double.valueOf(12), null),
+                            new Point(45, 77));
+
+        PointArray array = new PointArray(src);
+        List<Point> view = array.asList();
+
+        assertEquals("view size",       3,      view.size());
+        assertEquals("view contents",   src,    view);
+
+        assertTrue("null source", new PointArray(null).isEmpty());
+
+        try
+        {
+            view.add(new Point(0, 0));
+            fail("view was modifiable");
+        }
+        catch (UnsupportedOperationException ex)
+        {
+            // success
+        }
+    }
+
+
+    @Test
+    public void testSubArray() throws Exception
+    {
+        PointArray array = new PointArray()
+                           .add(45, 75, 1, 1000)
+                           .add(46, 76, 2, 2000)
+                           .add(47, 77, 3, 3000)
+                           .add(48, 78, 4, 4000);
+
+        PointArray sub = array.subArray(1, 3);
+        assertEquals("size",        2,                                          sub.size());
+        assertEquals("contents",    Arrays.asList(array.get(1), array.get(2)),  sub.asList());
+
+        assertTrue("empty range",   array.subArray(2, 2).isEmpty());
+    }
+
+
+    @Test
+    public void testAddAll() throws Exception
+    {
+        PointArray a1 = new PointArray(1)
+                        .add(45, 75, 1, 1000)
+                        .add(46, 76, 2, 2000);
+        PointArray a2 = new PointArray()
+                        .add(47, 77, Double.NaN, PointArray.NO_TIMESTAMP)
+                        .add(48, 78, 4, 4000);
+
+        List<Point> expected = new ArrayList<>(a1.asList());
+        expected.addAll(a2.asList());
+
+        assertSame("returns self",  a1,         a1.addAll(a2));
+        assertEquals("contents",    expected,   a1.asList());
+        assertEquals("empty",       expected,   a1.addAll(new PointArray()).asList());
+    }
+
+
+    @Test
+    public void testPythagoreanDistance() throws Exception
+    {
+        assertEquals("empty segment", 0.0, new PointArray().pythagoreanDistance(), 0.0);
+
+        List<Point> segment = Arrays.asList(
+                                new Point(45, 75),
+                                new Point(46, 76),
+                                new Point(45, 77),
+                                new Point(44, 78),
+                                new Point(45, 79));
+
+        assertEquals("non-empty segment",
+                     SegmentUtil.pythagoreanDistance(segment),
+                     new PointArray(segment).pythagoreanDistance(),
+                     0.0);
+
+        double[] hops = new PointArray(segment).hopDistances();
+        assertEquals("number of hops", 4, hops.length);
+        for (int ii = 0 ; ii < hops.length ; ii++)
+        {
+            assertEquals("hop " + ii,
+                         PointUtil.pythagoreanDistance(segment.get(ii), segment.get(ii + 1)),
+                         hops[ii],
+                         0.0);
+        }
+
+        assertEquals("hops of empty array", 0, new PointArray().hopDistances().length);
+    }
+
+
+    @Test
+    public void testTrim() throws Exception
+    {
+        List<Point> src = Arrays.asList(
+                            new Point(39.95237, -75.16358),
+                            new Point(39.95237, -75.16359),
+                            new Point(39.95236, -75.16359),
+                            new Point(39.95170, -75.16369),
+                            new Point(39.95087, -75.16387),
+                            new Point(39.95008, -75.16401),
+                            new Point(39.95008, -75.16400),
+                            new Point(39.95007, -75.16400),
+                            new Point(39.95006, -75.16400));
+        PointArray array = new PointArray(src);
+
+        assertEquals("empty",       Collections.emptyList(),        new PointArray().trim(10).asList());
+        assertEquals("1 meter",     SegmentUtil.trim(src, 1),       array.trim(1).asList());
+        assertEquals("10 meter",    SegmentUtil.trim(src, 10),      array.trim(10).asList());
+        assertEquals("100 meter",   SegmentUtil.trim(src, 100),     array.trim(100).asList());
+    }
+
+
+    @Test
+    public void testSplit() throws Exception
+    {
+        Point p1 = new Point(39.95237, -75.16358, Instant.ofEpochMilli(1000));
+        Point p2 = new Point(39.95237, -75.16359, null);
+        Point p3 = new Point(39.95236, -75.16359, Instant.ofEpochMilli(5000));
+        Point p4 = new Point(39.95170, -75.16369, Instant.ofEpochMilli(6000));
+        Point p5 = new Point(39.95087, -75.16387, Instant.ofEpochMilli(7000));
+
+        PointArray array = new PointArray(Arrays.asList(p1, p2, p3, p4, p5));
+
+        assertTrue("empty array", new PointArray().split(Duration.ofMillis(2000)).isEmpty());
+
+        List<PointArray> r1 = array.split(Duration.ofMillis(2000));
+        assertEquals("gap 2000, number of splits",  2,                          r1.size());
+        assertEquals("gap 2000, first split",       Arrays.asList(p1, p2),      r1.get(0).asList());
+        assertEquals("gap 2000, second split",      Arrays.asList(p3, p4, p5),  r1.get(1).asList());
+
+        List<PointArray> r2 = array.split(Duration.ofMillis(4000));
+        assertEquals("gap 4000, number of splits",  2,                          r2.size());
+
+        List<PointArray> r3 = array.split(Duration.ofMillis(4000).plusNanos(1));
+        assertEquals("gap 4000+, number of splits", 1,                          r3.size());
+    }
+
+
+    @Test
+    public void testSimplify() throws Exception
+    {
+        List<Point> orig = Arrays.asList(
+                            new Point(39.95237, -75.16358),
+                            new Point(39.95170, -75.16369),
+                            new Point(39.95087, -75.16387),
+                            new Point(39.95008, -75.16401),
+                            new Point(39.94931, -75.16419),
+                            new Point(39.94819, -75.16451),
+                            new Point(39.94697, -75.16476),
+                            new Point(39.94556, -75.16499),
+                            new Point(39.94467, -75.16526));
+        PointArray array = new PointArray(orig);
+
+        assertEquals("minDistance = 0",    SegmentUtil.simplify(orig, 0),    array.simplify(0).asList());
+        assertEquals("minDistance = 100",  SegmentUtil.simplify(orig, 100),  array.simplify(100).asList());
+        assertEquals("minDistance = 300",  SegmentUtil.simplify(orig, 300),  array.simplify(300).asList());
+        assertEquals("minDistance = 1000", SegmentUtil.simplify(orig, 1000), array.simplify(1000).asList());
+
+        assertTrue("empty", new PointArray().simplify(0).isEmpty());
+    }
+
+
+    @Test
+    public void testSimplifyErrorBounded() throws Exception
+    {
+        List<Point> orig = Arrays.asList(
+                            new Point(39.95237, -75.16358),
+                            new Point(39.95170, -75.16369),
+                            new Point(39.95087, -75.16387),
+                            new Point(39.95008, -75.16401),
+                            new Point(39.94931, -75.16419),
+                            new Point(39.94819, -75.16451),
+                            new Point(39.94697, -75.16476),
+                            new Point(39.94556, -75.16499),
+                            new Point(39.94467, -75.16526));
+        PointArray array = new PointArray(orig);
+
+        assertEquals("Douglas-Peucker, tolerance = 1",  SegmentUtil.simplifyDouglasPeucker(orig, 1),  array.simplifyDouglasPeucker(1).asList());
+        assertEquals("Douglas-Peucker, tolerance = 10", SegmentUtil.simplifyDouglasPeucker(orig, 10), array.simplifyDouglasPeucker(10).asList());
+        assertEquals("Visvalingam, tolerance = 10",     SegmentUtil.simplifyVisvalingam(orig, 10),    array.simplifyVisvalingam(10).asList());
+        assertEquals("Visvalingam, tolerance = 50",     SegmentUtil.simplifyVisvalingam(orig, 50),    array.simplifyVisvalingam(50).asList());
+
+        assertTrue("empty, Douglas-Peucker", new PointArray().simplifyDouglasPeucker(10).isEmpty());
+        assertTrue("empty, Visvalingam",     new PointArray().simplifyVisvalingam(10).isEmpty());
+    }
+
+
+    @Test
+    public void testAlign() throws Exception
+    {
+        // this is the "closest partner" test from TestSegmentUtil, with a few extra
+        // "A" points at the start that don't match anything
+
+        List<Point> segmentA = Arrays.asList(
+                                new Point(39.95600, -75.16356),
+                                new Point(39.95500, -75.16356),
+                                new Point(39.95237, -75.16358),
+                                new Point(39.95170, -75.16369),
+                                new Point(39.95087, -75.16387),
+                                new Point(39.95008, -75.16401),
+                                new Point(39.94931, -75.16419),
+                                new Point(39.94819, -75.16451));
+        List<Point> segmentB = Arrays.asList(
+                                new Point(39.95239, -75.16356),
+                                new Point(39.95200, -75.16358),
+                                new Point(39.95172, -75.16371),
+                                new Point(39.95140, -75.16369),
+                                new Point(39.95084, -75.16382),
+                                new Point(39.95047, -75.16387),
+                                new Point(39.95007, -75.16400),
+                                new Point(39.94988, -75.16401),
+                                new Point(39.94935, -75.16416),
+                                new Point(39.94911, -75.16419),
+                                new Point(39.94814, -75.16452));
+
+        List<Point[]> expected = SegmentUtil.align(segmentA, segmentB, 50, 100);
+        List<int[]> actual = new PointArray(segmentA).align(new PointArray(segmentB), 50, 100);
+
+        assertEquals("number of matches", expected.size(), actual.size());
+        for (int ii = 0 ; ii < expected.size() ; ii++)
+        {
+            assertEquals("match " + ii + ", A", expected.get(ii)[0], segmentA.get(actual.get(ii)[0]));
+            assertEquals("match " + ii + ", B", expected.get(ii)[1], segmentB.get(actual.get(ii)[1]));
+        }
+    }
+}
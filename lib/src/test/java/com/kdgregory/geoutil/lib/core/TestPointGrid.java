@@ -0,0 +1,111 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TestPointGrid
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  The reference implementation: a linear scan.
+     */
+    private static int scan(double[] lat, double[] lon, double qLat, double qLon, double maxSeparation, int fromIndex)
+    {
+        for (int ii = fromIndex ; ii < lat.length ; ii++)
+        {
+            if (PointUtil.pythagoreanDistance(qLat, qLon, lat[ii], lon[ii]) < maxSeparation)
+                return ii;
+        }
+        return -1;
+    }
+
+
+    /**
+     *  Generates a random cloud of points around a base location, and verifies
+     *  that searches match the reference implementation.
+     */
+    private static void assertMatchesScan(String message, Random rnd, double baseLat, double baseLon, double maxSeparation)
+    {
+        // the cloud is roughly a kilometer on a side
+        double[] lat = new double[1000];
+        double[] lon = new double[1000];
+        for (int ii = 0 ; ii < lat.length ; ii++)
+        {
+            lat[ii] = baseLat + (rnd.nextDouble() - 0.5) * 0.01;
+            lon[ii] = baseLon + (rnd.nextDouble() - 0.5) * 0.01;
+        }
+
+        PointGrid grid = new PointGrid(lat, lon, lat.length, maxSeparation);
+        for (int ii = 0 ; ii < 1000 ; ii++)
+        {
+            double qLat = baseLat + (rnd.nextDouble() - 0.5) * 0.012;
+            double qLon = baseLon + (rnd.nextDouble() - 0.5) * 0.012;
+            int fromIndex = rnd.nextInt(lat.length);
+            assertEquals(message + ": query " + ii,
+                         scan(lat, lon, qLat, qLon, maxSeparation, fromIndex),
+                         grid.findFirstWithin(qLat, qLon, maxSeparation, fromIndex));
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testBasicOperation() throws Exception
+    {
+        double[] lat = new double[] { 39.95600, 39.95237, 39.95500, 39.95239, 39.95087 };
+        double[] lon = new double[] { -75.16356, -75.16358, -75.16356, -75.16356, -75.16387 };
+
+        PointGrid grid = new PointGrid(lat, lon, lat.length, 100);
+
+        assertEquals("first match",                 1,  grid.findFirstWithin(39.95237, -75.16358, 100, 0));
+        assertEquals("match after fromIndex",       3,  grid.findFirstWithin(39.95237, -75.16358, 100, 2));
+        assertEquals("match at fromIndex",          3,  grid.findFirstWithin(39.95237, -75.16358, 100, 3));
+        assertEquals("no match after fromIndex",    -1, grid.findFirstWithin(39.95237, -75.16358, 100, 4));
+        assertEquals("no match anywhere",           -1, grid.findFirstWithin(40.0, -75.0, 100, 0));
+        assertEquals("larger distance",             0,  grid.findFirstWithin(39.95237, -75.16358, 1000, 0));
+        assertEquals("zero distance",               -1, grid.findFirstWithin(39.95237, -75.16358, 0, 0));
+    }
+
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        PointGrid grid = new PointGrid(new double[0], new double[0], 0, 100);
+        assertEquals("no match", -1, grid.findFirstWithin(39.95237, -75.16358, 100, 0));
+    }
+
+
+    @Test
+    public void testRandomPoints() throws Exception
+    {
+        Random rnd = new Random(1577547828000L);
+
+        assertMatchesScan("mid-latitude",               rnd, 39.95, -75.16, 100);
+        assertMatchesScan("mid-latitude, small cells",  rnd, 39.95, -75.16, 10);
+        assertMatchesScan("southern hemisphere",        rnd, -33.86, 151.21, 100);
+        assertMatchesScan("equator and meridian",       rnd, 0, 0, 100);
+        assertMatchesScan("near pole",                  rnd, 89.99, 0, 100);
+    }
+}
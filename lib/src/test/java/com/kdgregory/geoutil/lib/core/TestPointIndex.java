@@ -0,0 +1,238 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TestPointIndex
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  Reference implementation of a radius query: a linear scan.
+     */
+    private static int[] scanWithin(double[] lat, double[] lon, double qLat, double qLon, double radius)
+    {
+        List<Integer> result = new ArrayList<>();
+        for (int ii = 0 ; ii < lat.length ; ii++)
+        {
+            if (PointUtil.haversineDistance(qLat, qLon, lat[ii], lon[ii]) <= radius)
+                result.add(ii);
+        }
+        return toArray(result);
+    }
+
+
+    /**
+     *  Reference implementation of a k-nearest query: sort everything.
+     */
+    private static int[] scanNearest(double[] lat, double[] lon, double qLat, double qLon, int k)
+    {
+        double[] distance = new double[lat.length];
+        List<Integer> result = new ArrayList<>();
+        for (int ii = 0 ; ii < lat.length ; ii++)
+        {
+            distance[ii] = PointUtil.haversineDistance(qLat, qLon, lat[ii], lon[ii]);
+            result.add(ii);
+        }
+        result.sort((i1, i2) ->
+        {
+            int cmp = Double.compare(distance[i1], distance[i2]);
+            return (cmp != 0) ? cmp : Integer.compare(i1, i2);
+        });
+        return toArray(result.subList(0, Math.min(k, result.size())));
+    }
+
+
+    private static int[] toArray(List<Integer> values)
+    {
+        int[] result = new int[values.size()];
+        for (int ii = 0 ; ii < result.length ; ii++)
+        {
+            result[ii] = values.get(ii).intValue();
+        }
+        return result;
+    }
+
+
+    /**
+     *  Generates a random cloud of points around a base location (roughly two
+     *  kilometers on a side, wrapping longitude), and verifies that queries
+     *  match the reference implementations.
+     */
+    private static void assertMatchesScan(String message, Random rnd, double baseLat, double baseLon)
+    {
+        double[] lat = new double[2000];
+        double[] lon = new double[2000];
+        for (int ii = 0 ; ii < lat.length ; ii++)
+        {
+            lat[ii] = Math.max(-90, Math.min(90, baseLat + (rnd.nextDouble() - 0.5) * 0.02));
+            lon[ii] = wrap(baseLon + (rnd.nextDouble() - 0.5) * 0.02);
+        }
+
+        PointIndex index = new PointIndex(lat, lon, lat.length);
+        for (int ii = 0 ; ii < 200 ; ii++)
+        {
+            double qLat = Math.max(-90, Math.min(90, baseLat + (rnd.nextDouble() - 0.5) * 0.025));
+            double qLon = wrap(baseLon + (rnd.nextDouble() - 0.5) * 0.025);
+            double radius = rnd.nextDouble() * 200;
+            int k = 1 + rnd.nextInt(20);
+
+            assertArrayEquals(message + ": within, query " + ii,
+                              scanWithin(lat, lon, qLat, qLon, radius),
+                              index.within(qLat, qLon, radius));
+            assertArrayEquals(message + ": nearest, query " + ii,
+                              scanNearest(lat, lon, qLat, qLon, k),
+                              index.nearest(qLat, qLon, k));
+            assertEquals(message + ": single nearest, query " + ii,
+                         scanNearest(lat, lon, qLat, qLon, 1)[0],
+                         index.nearest(qLat, qLon));
+        }
+    }
+
+
+    private static double wrap(double lon)
+    {
+        return (lon > 180) ? lon - 360
+             : (lon < -180) ? lon + 360
+             : lon;
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testBasicOperation() throws Exception
+    {
+        List<Point> points = Arrays.asList(
+                                new Point(39.95600, -75.16356),
+                                new Point(39.95237, -75.16358),
+                                new Point(39.95500, -75.16356),
+                                new Point(39.95239, -75.16356),
+                                new Point(39.95087, -75.16387));
+
+        PointIndex index = new PointIndex(points);
+        assertEquals("size", 5, index.size());
+
+        Point query = new Point(39.95237, -75.16358);
+        assertEquals("nearest",                     1,  index.nearest(query));
+        assertArrayEquals("k-nearest",              new int[] { 1, 3, 4 },          index.nearest(query, 3));
+        assertArrayEquals("k larger than size",     new int[] { 1, 3, 4, 2, 0 },    index.nearest(query, 10));
+        assertArrayEquals("k = 0",                  new int[0],                     index.nearest(query, 0));
+        assertArrayEquals("within 200m",            new int[] { 1, 3, 4 },          index.within(query, 200));
+        assertArrayEquals("within 1000m",           new int[] { 0, 1, 2, 3, 4 },    index.within(query, 1000));
+        assertArrayEquals("within 1m",              new int[] { 1 },                index.within(query, 1));
+        assertArrayEquals("none within",            new int[0],                     index.within(40.0, -75.0, 1000));
+        assertArrayEquals("negative radius",        new int[0],                     index.within(query, -1));
+        assertArrayEquals("whole earth",            new int[] { 0, 1, 2, 3, 4 },    index.within(-39.95, 104.84, 30000000));
+    }
+
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        PointIndex index = new PointIndex(new PointArray());
+
+        assertEquals("size",            0,  index.size());
+        assertEquals("nearest",         -1, index.nearest(39.95, -75.16));
+        assertArrayEquals("k-nearest",  new int[0], index.nearest(39.95, -75.16, 5));
+        assertArrayEquals("within",     new int[0], index.within(39.95, -75.16, 1000));
+    }
+
+
+    @Test
+    public void testDuplicatePoints() throws Exception
+    {
+        // equally-distant points are returned in index order
+
+        double[] lat = new double[100];
+        double[] lon = new double[100];
+        Arrays.fill(lat, 39.95);
+        Arrays.fill(lon, -75.16);
+
+        PointIndex index = new PointIndex(lat, lon, lat.length);
+        assertEquals("nearest",                 0,                          index.nearest(39.96, -75.16));
+        assertArrayEquals("k-nearest",          new int[] { 0, 1, 2, 3 },   index.nearest(39.96, -75.16, 4));
+        assertEquals("within",                  100,                        index.within(39.95, -75.16, 1).length);
+    }
+
+
+    @Test
+    public void testAntimeridian() throws Exception
+    {
+        double[] lat = new double[] { 0, 0, 0, 0 };
+        double[] lon = new double[] { 179.9995, -179.9995, 179.99, -179.99 };
+        PointIndex index = new PointIndex(lat, lon, lat.length);
+
+        assertArrayEquals("nearest, east side",     new int[] { 0, 1, 2, 3 },   index.nearest(0, 179.9999, 4));
+        assertArrayEquals("nearest, west side",     new int[] { 1, 0, 3, 2 },   index.nearest(0, -179.9999, 4));
+        assertArrayEquals("within",                 new int[] { 0, 1 },         index.within(0, 180, 100));
+    }
+
+
+    @Test
+    public void testPole() throws Exception
+    {
+        // points are spread around the pole, all roughly 111 meters from it
+
+        double[] lat = new double[] { 89.999, 89.999, 89.999, 89.999, 89.99 };
+        double[] lon = new double[] { 0, 90, 180, -90, 45 };
+        PointIndex index = new PointIndex(lat, lon, lat.length);
+
+        assertArrayEquals("within, at pole",        new int[] { 0, 1, 2, 3 },   index.within(90, 0, 120));
+        assertArrayEquals("within, across pole",    new int[] { 0, 1, 2 },      index.within(89.999, 90, 170));
+        assertEquals("nearest, across pole",        2,                          index.nearest(89.9995, 180));
+    }
+
+
+    @Test
+    public void testRandomPoints() throws Exception
+    {
+        Random rnd = new Random(1577547828000L);
+
+        assertMatchesScan("mid-latitude",           rnd, 39.95, -75.16);
+        assertMatchesScan("southern hemisphere",    rnd, -33.86, 151.21);
+        assertMatchesScan("equator and meridian",   rnd, 0, 0);
+        assertMatchesScan("antimeridian",           rnd, 65.5, 180);
+        assertMatchesScan("north pole",             rnd, 89.995, 0);
+        assertMatchesScan("south pole",             rnd, -89.995, 120);
+    }
+
+
+    @Test
+    public void testInvalidSize() throws Exception
+    {
+        try
+        {
+            new PointIndex(new double[3], new double[2], 3);
+            fail("accepted size larger than array");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue("message identifies size (was: " + ex.getMessage() + ")",
+                       ex.getMessage().contains("invalid size: 3"));
+        }
+    }
+}
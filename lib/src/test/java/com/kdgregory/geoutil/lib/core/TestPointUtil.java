@@ -14,9 +14,13 @@
 
 package com.kdgregory.geoutil.lib.core;
 
+import java.util.Random;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import net.sf.kdgcommons.test.StringAsserts;
+
 import com.kdgregory.geoutil.lib.core.Point;
 import com.kdgregory.geoutil.lib.core.PointUtil;
 
@@ -69,6 +73,151 @@ public class TestPointUtil
     }
 
 
+    @Test
+    public void testHaversineDistance() throws Exception
+    {
+        // same points as great circle test
+        Point p1 = new Point(-15, -15);
+        Point p2 = new Point(15, 15);
+        double d = PointUtil.haversineDistance(p1, p2) / 1000;
+        assertEquals("calculation on Earth", 4690.0, d, 0.5);
+
+        // this is where haversine is better than the other calculations
+        assertEquals("short distance", PointUtil.pythagoreanDistance(p1, new Point(-15, -14.99999)),
+                                       PointUtil.haversineDistance(p1, new Point(-15, -14.99999)),
+                                       0.001);
+
+        assertEquals("arbitrary radius", Math.PI / 2, PointUtil.haversineDistance(0, 0, 0, 90, 1), 0.000001);
+    }
+
+
+    @Test
+    public void testPreparedPoint() throws Exception
+    {
+        // calculations with a prepared point should match the unprepared calculations
+
+        Random rnd = new Random(1577547828000L);
+        for (int ii = 0 ; ii < 1000 ; ii++)
+        {
+            double lat1 = rnd.nextDouble() * 170 - 85;
+            double lon1 = rnd.nextDouble() * 358 - 179;
+            double lat2 = lat1 + rnd.nextDouble() * 2 - 1;
+            double lon2 = lon1 + rnd.nextDouble() * 2 - 1;
+            PreparedPoint p1 = new PreparedPoint(lat1, lon1);
+            PreparedPoint p2 = new PreparedPoint(lat2, lon2);
+
+            assertEquals("Pythagorean " + ii,
+                         PointUtil.pythagoreanDistance(lat1, lon1, lat2, lon2),
+                         PointUtil.pythagoreanDistance(p1, lat2, lon2),
+                         0.0);
+            assertEquals("Pythagorean, Point " + ii,
+                         PointUtil.pythagoreanDistance(lat1, lon1, lat2, lon2),
+                         PointUtil.pythagoreanDistance(p1, new Point(lat2, lon2)),
+                         0.0);
+            assertEquals("great circle " + ii,
+                         PointUtil.greatCircleDistance(lat1, lon1, lat2, lon2),
+                         PointUtil.greatCircleDistance(p1, p2),
+                         0.0);
+            assertEquals("great circle, unprepared second point " + ii,
+                         PointUtil.greatCircleDistance(lat1, lon1, lat2, lon2),
+                         PointUtil.greatCircleDistance(p1, lat2, lon2),
+                         0.0);
+            assertEquals("haversine, unprepared second point " + ii,
+                         PointUtil.haversineDistance(lat1, lon1, lat2, lon2),
+                         PointUtil.haversineDistance(p1, lat2, lon2),
+                         0.0);
+            assertEquals("haversine " + ii,
+                         PointUtil.haversineDistance(lat1, lon1, lat2, lon2),
+                         PointUtil.haversineDistance(p1, p2),
+                         0.000001);
+
+            for (DistanceCalculator calc : new DistanceCalculator[] { DistanceCalculator.PYTHAGOREAN,
+                                                                     DistanceCalculator.HAVERSINE,
+                                                                     DistanceCalculator.GREAT_CIRCLE,
+                                                                     new EquirectangularCalculator(lat1) })
+            {
+                assertEquals(calc.getClass().getSimpleName() + " " + ii,
+                             calc.distance(lat1, lon1, lat2, lon2),
+                             calc.distance(p1, new Point(lat2, lon2)),
+                             0.0);
+            }
+        }
+    }
+
+
+    @Test
+    public void testBatchDistances() throws Exception
+    {
+        // batch kernels should match the single-point calculation
+
+        Random rnd = new Random(1577547829000L);
+        int count = 1000;
+        double[] lat = new double[count + 5];
+        double[] lon = new double[count + 5];
+        lat[0] = rnd.nextDouble() * 170 - 85;
+        lon[0] = rnd.nextDouble() * 358 - 179;
+        for (int ii = 1 ; ii < lat.length ; ii++)
+        {
+            lat[ii] = lat[ii - 1] + rnd.nextDouble() * 0.01 - 0.005;
+            lon[ii] = lon[ii - 1] + rnd.nextDouble() * 0.01 - 0.005;
+        }
+
+        double[] hops = new double[count - 1];
+        PointUtil.hopDistances(lat, lon, count, hops);
+        for (int ii = 0 ; ii < count - 1 ; ii++)
+        {
+            assertEquals("hop " + ii,
+                         PointUtil.pythagoreanDistance(lat[ii], lon[ii], lat[ii + 1], lon[ii + 1]),
+                         hops[ii],
+                         0.0);
+        }
+
+        double[] allHops = new double[lat.length - 1];
+        PointUtil.hopDistances(lat, lon, allHops);
+        assertEquals("all hops, last",
+                     PointUtil.pythagoreanDistance(lat[lat.length - 2], lon[lat.length - 2], lat[lat.length - 1], lon[lat.length - 1]),
+                     allHops[allHops.length - 1],
+                     0.0);
+
+        double[] dists = new double[count];
+        PointUtil.distances(lat[17], lon[17], lat, lon, count, dists);
+        for (int ii = 0 ; ii < count ; ii++)
+        {
+            assertEquals("one-to-many " + ii,
+                         PointUtil.pythagoreanDistance(lat[17], lon[17], lat[ii], lon[ii]),
+                         dists[ii],
+                         0.0);
+        }
+
+        // degenerate cases shouldn't touch the output
+
+        double[] unchanged = new double[] { -1 };
+        PointUtil.hopDistances(lat, lon, 1, unchanged);
+        PointUtil.hopDistances(lat, lon, 0, new double[0]);
+        assertEquals("single point", -1, unchanged[0], 0.0);
+
+        try
+        {
+            PointUtil.hopDistances(lat, lon, count, new double[count - 2]);
+            fail("accepted short output array");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("invalid output array.*999.*998.*", ex.getMessage());
+        }
+
+        try
+        {
+            PointUtil.distances(0, 0, lat, new double[count - 1], count, dists);
+            fail("accepted count larger than input");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("invalid count.*1000.*", ex.getMessage());
+        }
+    }
+
+
     @Test
     public void testVelocity() throws Exception
     {
@@ -76,6 +225,14 @@ public class TestPointUtil
         Point p2 = new Point(46, 76, 2000);
         assertEquals("meters/second",  68054.2, PointUtil.velocity(p1, p2), 0.1);
         assertEquals("meters/second",  152232.6, PointUtil.velocityMPH(p1, p2), 0.1);
+
+        assertEquals("explicit calculator",     PointUtil.velocity(p1, p2),   PointUtil.velocity(p1, p2, DistanceCalculator.PYTHAGOREAN), 0.0);
+        assertEquals("alternate calculator",    PointUtil.haversineDistance(p1, p2) / 2,
+                                                PointUtil.velocity(p1, p2, DistanceCalculator.HAVERSINE),
+                                                0.000001);
+        assertEquals("alternate calculator MPH", PointUtil.velocity(p1, p2, DistanceCalculator.HAVERSINE) * 39.37 / 12 / 5280 * 3600,
+                                                 PointUtil.velocityMPH(p1, p2, DistanceCalculator.HAVERSINE),
+                                                 0.000001);
     }
 
 
@@ -0,0 +1,42 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TestPreparedPoint
+{
+    @Test
+    public void testConstructionAndAccessors() throws Exception
+    {
+        PreparedPoint p1 = new PreparedPoint(30, -60);
+
+        assertEquals("latitude",            30.0,                   p1.getLat(),        0.0);
+        assertEquals("longitude",           -60.0,                  p1.getLon(),        0.0);
+        assertEquals("latitude, radians",   Math.PI / 6,            p1.getLatRadians(), 0.000000001);
+        assertEquals("longitude, radians",  -Math.PI / 3,           p1.getLonRadians(), 0.000000001);
+        assertEquals("sin(lat)",            0.5,                    p1.getSinLat(),     0.000000001);
+        assertEquals("cos(lat)",            Math.sqrt(3) / 2,       p1.getCosLat(),     0.000000001);
+
+        PreparedPoint p2 = new PreparedPoint(new Point(30, -60));
+        assertEquals("from Point, latitude",    p1.getLat(),    p2.getLat(),    0.0);
+        assertEquals("from Point, longitude",   p1.getLon(),    p2.getLon(),    0.0);
+        assertEquals("from Point, cos(lat)",    p1.getCosLat(), p2.getCosLat(), 0.0);
+
+        assertEquals("toString()", "PreparedPoint(lat=30.0,lon=-60.0)", p1.toString());
+    }
+}
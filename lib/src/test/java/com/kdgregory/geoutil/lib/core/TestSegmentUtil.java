@@ -16,9 +16,11 @@ package com.kdgregory.geoutil.lib.core;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -29,6 +31,66 @@ import com.kdgregory.geoutil.lib.core.SegmentUtil;
 
 public class TestSegmentUtil
 {
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  Generates a random walk with roughly 10 meter steps.
+     */
+    private static List<Point> randomWalk(Random rnd, int count)
+    {
+        List<Point> result = new ArrayList<>();
+        double lat = 39.95;
+        double lon = -75.16;
+        for (int ii = 0 ; ii < count ; ii++)
+        {
+            result.add(new Point(lat, lon));
+            lat += (rnd.nextDouble() - 0.5) * 0.0002;
+            lon += (rnd.nextDouble() - 0.5) * 0.0002;
+        }
+        return result;
+    }
+
+
+    /**
+     *  Calculates the distance between a point and the line segment between two
+     *  other points, using coordinates projected relative to the start point.
+     */
+    private static double distanceFromLine(Point start, Point end, Point p)
+    {
+        double lonScale = PointUtil.correctedLongitude(PointUtil.EARTH_DEGREE_LENGTH, start.getLat());
+        double bx = (end.getLon() - start.getLon()) * lonScale;
+        double by = (end.getLat() - start.getLat()) * PointUtil.EARTH_DEGREE_LENGTH;
+        double px = (p.getLon() - start.getLon()) * lonScale;
+        double py = (p.getLat() - start.getLat()) * PointUtil.EARTH_DEGREE_LENGTH;
+        double len2 = bx * bx + by * by;
+        double t = (len2 > 0) ? Math.max(0, Math.min(1, (px * bx + py * by) / len2)) : 0;
+        return Math.hypot(px - t * bx, py - t * by);
+    }
+
+    /**
+     *  Generates a random walk with timestamps, some of which are missing, and
+     *  occasional gaps of several minutes.
+     */
+    private static List<Point> randomWalkWithTimestamps(Random rnd, int count)
+    {
+        List<Point> result = new ArrayList<>();
+        long timestamp = 1577547828000L;
+        for (Point p : randomWalk(rnd, count))
+        {
+            timestamp += (rnd.nextInt(100) == 0) ? 300000 : 1000;
+            result.add((rnd.nextInt(10) == 0)
+                       ? p
+                       : new Point(p.getLat(), p.getLon(), timestamp));
+        }
+        return result;
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
     @Test
     public void testPythagoreanDistance() throws Exception
     {
@@ -142,6 +204,87 @@ public class TestSegmentUtil
     }
 
 
+    @Test
+    public void testSimplifyDouglasPeucker() throws Exception
+    {
+        // points are ~111 meters apart along a line of longitude; p4 is ~43 meters off the line
+        Point p1 = new Point(40.000, -75.0);
+        Point p2 = new Point(40.001, -75.0);
+        Point p3 = new Point(40.002, -75.0);
+        Point p4 = new Point(40.003, -74.9995);
+        Point p5 = new Point(40.004, -75.0);
+        Point p6 = new Point(40.005, -75.0);
+        Point p7 = new Point(40.006, -75.0);
+
+        // this is an immutable list, will throw if simplify() doesn't create a new list
+        List<Point> orig = Arrays.asList(p1, p2, p3, p4, p5, p6, p7);
+
+        // at 10 meters, p3 and p5 are too far from the lines between p4 and the endpoints
+        assertEquals("tolerance = 10",  Arrays.asList(p1, p3, p4, p5, p7), SegmentUtil.simplifyDouglasPeucker(orig, 10));
+        assertEquals("tolerance = 30",  Arrays.asList(p1, p4, p7),         SegmentUtil.simplifyDouglasPeucker(orig, 30));
+        assertEquals("tolerance = 50",  Arrays.asList(p1, p7),             SegmentUtil.simplifyDouglasPeucker(orig, 50));
+
+        assertEquals("single point", Arrays.asList(p1),     SegmentUtil.simplifyDouglasPeucker(Arrays.asList(p1), 10));
+        assertEquals("two points",   Arrays.asList(p1, p2), SegmentUtil.simplifyDouglasPeucker(Arrays.asList(p1, p2), 10));
+
+        assertEquals("passed null",  Collections.emptyList(), SegmentUtil.simplifyDouglasPeucker(null, 10));
+        assertEquals("passed empty", Collections.emptyList(), SegmentUtil.simplifyDouglasPeucker(Collections.<Point>emptyList(), 10));
+    }
+
+
+    @Test
+    public void testSimplifyDouglasPeuckerLargeSegment() throws Exception
+    {
+        // a segment large enough to be processed in parallel; verifies that every removed
+        // point is within tolerance of the line between the retained points around it
+
+        List<Point> orig = randomWalk(new Random(1577547828000L), 100000);
+        List<Point> result = SegmentUtil.simplifyDouglasPeucker(orig, 5);
+
+        assertTrue("removed points", result.size() < orig.size());
+        assertEquals("first point retained", orig.get(0), result.get(0));
+        assertEquals("last point retained",  orig.get(orig.size() - 1), result.get(result.size() - 1));
+
+        int origIdx = 0;
+        for (int ii = 1 ; ii < result.size() ; ii++)
+        {
+            Point start = result.get(ii - 1);
+            Point end = result.get(ii);
+            assertSame("retained point " + (ii - 1), start, orig.get(origIdx));
+            origIdx++;
+            while (orig.get(origIdx) != end)
+            {
+                Point p = orig.get(origIdx++);
+                assertTrue("removed point " + origIdx + " within tolerance", distanceFromLine(start, end, p) <= 5.000001);
+            }
+        }
+    }
+
+
+    @Test
+    public void testSimplifyVisvalingam() throws Exception
+    {
+        // same points as Douglas-Peucker test: p3 and p5 form a large triangle with p4
+        Point p1 = new Point(40.000, -75.0);
+        Point p2 = new Point(40.001, -75.0);
+        Point p3 = new Point(40.002, -75.0);
+        Point p4 = new Point(40.003, -74.9995);
+        Point p5 = new Point(40.004, -75.0);
+        Point p6 = new Point(40.005, -75.0);
+        Point p7 = new Point(40.006, -75.0);
+
+        List<Point> orig = Arrays.asList(p1, p2, p3, p4, p5, p6, p7);
+
+        assertEquals("tolerance = 0",   orig,                              SegmentUtil.simplifyVisvalingam(orig, 0));
+        assertEquals("tolerance = 10",  Arrays.asList(p1, p3, p4, p5, p7), SegmentUtil.simplifyVisvalingam(orig, 10));
+        assertEquals("tolerance = 200", Arrays.asList(p1, p7),             SegmentUtil.simplifyVisvalingam(orig, 200));
+
+        assertEquals("two points",   Arrays.asList(p1, p2),   SegmentUtil.simplifyVisvalingam(Arrays.asList(p1, p2), 10));
+        assertEquals("passed null",  Collections.emptyList(), SegmentUtil.simplifyVisvalingam(null, 10));
+        assertEquals("passed empty", Collections.emptyList(), SegmentUtil.simplifyVisvalingam(Collections.<Point>emptyList(), 10));
+    }
+
+
     @Test
     public void testAlignSimple() throws Exception
     {
@@ -439,4 +582,126 @@ public class TestSegmentUtil
             assertEquals("segmentB[" + ii + "]", segmentB.get(ii), result.get(ii)[1]);
         }
     }
+
+
+    @Test
+    public void testFindStartFarApart() throws Exception
+    {
+        // the "B" segment starts with a long path that is nowhere near the "A" segment,
+        // and the "A" segment starts with a long path that is nowhere near "B"
+
+        Point p1a = new Point(39.95237, -75.16358);
+        Point p1b = new Point(39.95239, -75.16356);
+
+        Point p2a = new Point(39.95170, -75.16369);
+        Point p2b = new Point(39.95172, -75.16371);
+
+        Point p3a = new Point(39.95087, -75.16387);
+        Point p3b = new Point(39.95084, -75.16382);
+
+        List<Point> segmentA = new ArrayList<>();
+        List<Point> segmentB = new ArrayList<>();
+        for (int ii = 0 ; ii < 1000 ; ii++)
+        {
+            segmentA.add(new Point(39.0 + ii * 0.0005, -76.0));
+            segmentB.add(new Point(41.0 - ii * 0.0005, -74.0));
+        }
+        segmentA.addAll(Arrays.asList(p1a, p2a, p3a));
+        segmentB.addAll(Arrays.asList(p1b, p2b, p3b));
+
+        List<Point[]> result = SegmentUtil.align(segmentA, segmentB, 10, 100);
+
+        assertEquals("matched all points", 3, result.size());
+        for (int ii = 0 ; ii < result.size() ; ii++)
+        {
+            assertEquals("segmentA[" + ii + "]", segmentA.get(ii + 1000), result.get(ii)[0]);
+            assertEquals("segmentB[" + ii + "]", segmentB.get(ii + 1000), result.get(ii)[1]);
+        }
+    }
+
+
+    @Test
+    public void testParallelVariants() throws Exception
+    {
+        List<Point> segment = randomWalkWithTimestamps(new Random(1577547828000L), 1000);
+
+        // small chunks exercise the boundary handling; sizes chosen to leave partial chunks
+        for (int chunkSize : new int[] { 1, 2, 7, 64, 999, 1000, 5000 })
+        {
+            assertEquals("distance, chunk size " + chunkSize,
+                         SegmentUtil.pythagoreanDistance(segment),
+                         SegmentUtil.distanceParallel(segment, DistanceCalculator.PYTHAGOREAN, chunkSize),
+                         0.0);
+
+            for (double minDistance : new double[] { 0, 5, 20, 100 })
+            {
+                assertEquals("simplify " + minDistance + ", chunk size " + chunkSize,
+                             SegmentUtil.simplify(segment, minDistance),
+                             SegmentUtil.simplifyParallel(segment, minDistance, DistanceCalculator.PYTHAGOREAN, chunkSize));
+            }
+
+            for (Duration gap : new Duration[] { Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofMinutes(5) })
+            {
+                assertEquals("split " + gap + ", chunk size " + chunkSize,
+                             SegmentUtil.split(segment, gap),
+                             SegmentUtil.splitParallel(segment, gap, chunkSize));
+            }
+        }
+    }
+
+
+    @Test
+    public void testParallelVariantsPublicAPI() throws Exception
+    {
+        List<Point> small = randomWalkWithTimestamps(new Random(1L), 100);
+        List<Point> large = randomWalkWithTimestamps(new Random(2L), SegmentUtil.PARALLEL_THRESHOLD * 3);
+
+        for (List<Point> segment : Arrays.asList(small, large))
+        {
+            String prefix = (segment == small) ? "small: " : "large: ";
+            assertEquals(prefix + "distance", SegmentUtil.pythagoreanDistance(segment),              SegmentUtil.pythagoreanDistanceParallel(segment), 0.0);
+            assertEquals(prefix + "simplify", SegmentUtil.simplify(segment, 10),                     SegmentUtil.simplifyParallel(segment, 10));
+            assertEquals(prefix + "split",    SegmentUtil.split(segment, Duration.ofMinutes(1)),     SegmentUtil.splitParallel(segment, Duration.ofMinutes(1)));
+        }
+
+        assertEquals("distance, null",  0.0,                     SegmentUtil.pythagoreanDistanceParallel(null), 0.0);
+        assertEquals("simplify, null",  Collections.emptyList(), SegmentUtil.simplifyParallel(null, 10));
+        assertEquals("split, null",     Collections.emptyList(), SegmentUtil.splitParallel(null, Duration.ofMinutes(1)));
+    }
+
+
+    @Test
+    public void testAlternateCalculator() throws Exception
+    {
+        // equirectangular is the easiest calculator to reason about: with a reference latitude
+        // of 60 degrees, a degree of longitude is half the length of a degree of latitude
+
+        DistanceCalculator calculator = new EquirectangularCalculator(60);
+        double degreeLength = PointUtil.EARTH_RADIUS * Math.PI / 180;
+
+        Point p1 = new Point(60.000, -75.000);
+        Point p2 = new Point(60.000, -74.999);  // 0.5 units from p1
+        Point p3 = new Point(60.001, -74.999);  // 1 unit from p2
+        Point p4 = new Point(60.001, -74.998);  // 0.5 units from p3
+        List<Point> segment = Arrays.asList(p1, p2, p3, p4);
+        double unit = degreeLength / 1000;
+
+        assertEquals("distance",            2 * unit,   SegmentUtil.distance(segment, calculator),          0.0001);
+        assertEquals("parallel distance",   2 * unit,   SegmentUtil.distanceParallel(segment, calculator),  0.0001);
+        assertEquals("default distance",    SegmentUtil.pythagoreanDistance(segment),
+                                            SegmentUtil.distance(segment, DistanceCalculator.PYTHAGOREAN),
+                                            0.0);
+
+        assertEquals("simplify",            Arrays.asList(p1, p3),      SegmentUtil.simplify(segment, 0.75 * unit, calculator));
+        assertEquals("parallel simplify",   Arrays.asList(p1, p3),      SegmentUtil.simplifyParallel(segment, 0.75 * unit, calculator));
+        assertEquals("trim",                Arrays.asList(p2, p3),      SegmentUtil.trim(segment, 0.75 * unit, calculator));
+
+        List<Point> other = Arrays.asList(new Point(60.0001, -75.000), new Point(60.0011, -74.999));
+        List<Point[]> aligned = SegmentUtil.align(segment, other, 0.75 * unit, 0.2 * unit, calculator);
+        assertEquals("align, number of pairs",  2,          aligned.size());
+        assertEquals("align, pair 0",           p1,         aligned.get(0)[0]);
+        assertEquals("align, pair 0",           other.get(0), aligned.get(0)[1]);
+        assertEquals("align, pair 1",           p3,         aligned.get(1)[0]);
+        assertEquals("align, pair 1",           other.get(1), aligned.get(1)[1]);
+    }
 }
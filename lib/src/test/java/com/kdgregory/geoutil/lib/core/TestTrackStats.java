@@ -0,0 +1,185 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.core;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TestTrackStats
+{
+    @Test
+    public void testEmpty() throws Exception
+    {
+        TrackStats stats = new TrackStats();
+
+        assertEquals("count",               0,                  stats.getCount());
+        assertEquals("distance",            0.0,                stats.getDistance(), 0.0);
+        assertEquals("elapsed time",        Duration.ZERO,      stats.getElapsedTime());
+        assertEquals("moving time",         Duration.ZERO,      stats.getMovingTime());
+        assertEquals("average speed",       0.0,                stats.getAverageSpeed(), 0.0);
+        assertTrue("min latitude",                              Double.isNaN(stats.getMinLat()));
+        assertNull("first timestamp",                           stats.getFirstTimestamp());
+        assertNull("last timestamp",                            stats.getLastTimestamp());
+    }
+
+
+    @Test
+    public void testBasicOperation() throws Exception
+    {
+        // moving at roughly 10 m/s, then stopped for 10 seconds, then moving again
+        Point p1 = new Point(40.00000, -75.00000, 100.0, 1000);
+        Point p2 = new Point(40.00009, -75.00000, 105.0, 2000);
+        Point p3 = new Point(40.00009, -75.00000, 103.0, 12000);
+        Point p4 = new Point(40.00009, -75.00012, 104.0, 13000);
+
+        List<Point> points = Arrays.asList(p1, p2, p3, p4);
+        TrackStats stats = points.stream().collect(TrackStats.collector());
+
+        double d12 = PointUtil.pythagoreanDistance(p1, p2);
+        double d34 = PointUtil.pythagoreanDistance(p3, p4);
+
+        assertEquals("count",               4,                              stats.getCount());
+        assertEquals("distance",            SegmentUtil.pythagoreanDistance(points), stats.getDistance(), 0.000001);
+        assertEquals("elapsed time",        Duration.ofMillis(12000),       stats.getElapsedTime());
+        assertEquals("moving time",         Duration.ofMillis(2000),        stats.getMovingTime());
+        assertEquals("max speed",           Math.max(d12, d34),             stats.getMaxSpeed(), 0.000001);
+        assertEquals("average speed",       (d12 + d34) / 2,                stats.getAverageSpeed(), 0.000001);
+        assertEquals("elevation gain",      6.0,                            stats.getElevationGain(), 0.000001);
+        assertEquals("elevation loss",      2.0,                            stats.getElevationLoss(), 0.000001);
+        assertEquals("min latitude",        40.00000,                       stats.getMinLat(), 0.0);
+        assertEquals("max latitude",        40.00009,                       stats.getMaxLat(), 0.0);
+        assertEquals("min longitude",       -75.00012,                      stats.getMinLon(), 0.0);
+        assertEquals("max longitude",       -75.00000,                      stats.getMaxLon(), 0.0);
+        assertEquals("first timestamp",     Instant.ofEpochMilli(1000),     stats.getFirstTimestamp());
+        assertEquals("last timestamp",      Instant.ofEpochMilli(13000),    stats.getLastTimestamp());
+    }
+
+
+    @Test
+    public void testMissingValues() throws Exception
+    {
+        TrackStats stats = new TrackStats()
+                           .add(new Point(40.00000, -75.00000))
+                           .add(new Point(40.00009, -75.00000, 100.0, Instant.ofEpochMilli(2000)))
+                           .add(new Point(40.00018, -75.00000, 101.0, null))
+                           .add(new Point(40.00027, -75.00000, 102.0, Instant.ofEpochMilli(4000)))
+                           .add(new Point(40.00036, -75.00000, null, Instant.ofEpochMilli(5000)));
+
+        assertEquals("distance includes all pairs", 4 * PointUtil.pythagoreanDistance(40, -75, 40.00009, -75), stats.getDistance(), 0.000001);
+        assertEquals("elapsed time",                Duration.ofMillis(3000),        stats.getElapsedTime());
+        assertEquals("moving time",                 Duration.ofMillis(1000),        stats.getMovingTime());
+        assertEquals("elevation gain",              2.0,                            stats.getElevationGain(), 0.000001);
+        assertEquals("first timestamp",             Instant.ofEpochMilli(2000),     stats.getFirstTimestamp());
+        assertEquals("last timestamp",              Instant.ofEpochMilli(5000),     stats.getLastTimestamp());
+    }
+
+
+    @Test
+    public void testMinMovingSpeed() throws Exception
+    {
+        List<Point> points = Arrays.asList(
+                                new Point(40.00000, -75.00000, 1000),
+                                new Point(40.00001, -75.00000, 2000),
+                                new Point(40.00010, -75.00000, 3000));
+
+        assertEquals("default",     Duration.ofMillis(2000),    points.stream().collect(TrackStats.collector()).getMovingTime());
+        assertEquals("explicit",    Duration.ofMillis(1000),    points.stream().collect(TrackStats.collector(2.0)).getMovingTime());
+    }
+
+
+    @Test
+    public void testCalculator() throws Exception
+    {
+        List<Point> points = Arrays.asList(
+                                new Point(40.0, -75.0, 1000),
+                                new Point(40.1, -75.1, 2000),
+                                new Point(40.2, -75.1, 3000));
+
+        double expected = DistanceCalculator.HAVERSINE.distance(points.get(0), points.get(1))
+                        + DistanceCalculator.HAVERSINE.distance(points.get(1), points.get(2));
+
+        TrackStats stats = points.stream().collect(TrackStats.collector(TrackStats.DEFAULT_MIN_MOVING_SPEED, DistanceCalculator.HAVERSINE));
+        assertEquals("haversine distance", expected, stats.getDistance(), 0.000001);
+        assertEquals("max speed",          DistanceCalculator.HAVERSINE.distance(points.get(0), points.get(1)), stats.getMaxSpeed(), 0.000001);
+    }
+
+
+    @Test
+    public void testCombine() throws Exception
+    {
+        Random rnd = new Random(42);
+        List<Point> points = new ArrayList<>();
+        for (int ii = 0 ; ii < 10000 ; ii++)
+        {
+            points.add(new Point(40 + rnd.nextDouble() / 1000, -75 + rnd.nextDouble() / 1000, 100 * rnd.nextDouble(), ii * 1000L));
+        }
+
+        TrackStats sequential = new TrackStats();
+        points.forEach(sequential::add);
+
+        TrackStats parallel = points.parallelStream().collect(TrackStats.collector());
+        assertEquals("count",           sequential.getCount(),          parallel.getCount());
+        assertEquals("distance",        sequential.getDistance(),       parallel.getDistance(), 0.001);
+        assertEquals("moving time",     sequential.getMovingTime(),     parallel.getMovingTime());
+        assertEquals("max speed",       sequential.getMaxSpeed(),       parallel.getMaxSpeed(), 0.0);
+        assertEquals("elevation gain",  sequential.getElevationGain(),  parallel.getElevationGain(), 0.001);
+        assertEquals("elevation loss",  sequential.getElevationLoss(),  parallel.getElevationLoss(), 0.001);
+        assertEquals("min latitude",    sequential.getMinLat(),         parallel.getMinLat(), 0.0);
+        assertEquals("max longitude",   sequential.getMaxLon(),         parallel.getMaxLon(), 0.0);
+        assertEquals("first timestamp", sequential.getFirstTimestamp(), parallel.getFirstTimestamp());
+        assertEquals("last timestamp",  sequential.getLastTimestamp(),  parallel.getLastTimestamp());
+
+        // disconnected combination omits the pair that spans the two halves
+
+        List<Point> half1 = points.subList(0, 5000);
+        List<Point> half2 = points.subList(5000, 10000);
+        TrackStats disconnected = half1.stream().collect(TrackStats.collector())
+                                  .combine(half2.stream().collect(TrackStats.collector()), false);
+
+        assertEquals("disconnected distance",
+                     sequential.getDistance() - PointUtil.pythagoreanDistance(points.get(4999), points.get(5000)),
+                     disconnected.getDistance(),
+                     0.001);
+        assertEquals("disconnected elapsed time", sequential.getElapsedTime(), disconnected.getElapsedTime());
+
+        assertEquals("combine with empty",  sequential.getCount(),  new TrackStats().combine(sequential, true).combine(new TrackStats(), true).getCount());
+    }
+
+
+    @Test
+    public void testAddAll() throws Exception
+    {
+        List<Point> points = Arrays.asList(
+                                new Point(40.00000, -75.00000, 100.0, 1000),
+                                new Point(40.00009, -75.00000, null, Instant.ofEpochMilli(2000)),
+                                new Point(40.00018, -75.00000, 103.0, null));
+
+        TrackStats s1 = new TrackStats().addAll(new PointArray(points));
+        TrackStats s2 = points.stream().collect(TrackStats.collector());
+
+        assertEquals("count",           s2.getCount(),          s1.getCount());
+        assertEquals("distance",        s2.getDistance(),       s1.getDistance(), 0.0);
+        assertEquals("moving time",     s2.getMovingTime(),     s1.getMovingTime());
+        assertEquals("last timestamp",  s2.getLastTimestamp(),  s1.getLastTimestamp());
+    }
+}
@@ -14,8 +14,13 @@
 
 package com.kdgregory.geoutil.lib.gpx;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -24,9 +29,13 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import net.sf.practicalxml.DomUtil;
+import net.sf.practicalxml.OutputUtil;
+import net.sf.practicalxml.ParseUtil;
 import net.sf.practicalxml.builder.XmlBuilder;
 
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
 import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.internal.StaxUtils;
 
 
 public class TestGpxFile
@@ -120,4 +129,84 @@ public class TestGpxFile
         assertEquals("child 1 description",     "some track",                           rslt.getTracks().get(0).getDescription());
     }
 
+
+    @Test
+    public void testConstructFromXmlStreaming() throws Exception
+    {
+        Document dom = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "gpx",
+                            XmlBuilder.attribute("version", "1.1"),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "metadata",
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",         XmlBuilder.text("ignored"))),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",         XmlBuilder.text("first"))),
+                            XmlBuilder.element("http://www.example.com", "trk",
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",         XmlBuilder.text("ignored"))),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",         XmlBuilder.text("second"))))
+                       .toDOM();
+
+        byte[] bytes = OutputUtil.compactString(dom).getBytes(StandardCharsets.UTF_8);
+        XMLStreamReader reader = StaxUtils.newReader(new ByteArrayInputStream(bytes));
+        GpxFile gpx = new GpxFile(reader);
+
+        assertEquals("version",             "1.1",              gpx.getVersion());
+        assertEquals("missing creator",     "",                 gpx.getCreator());
+        assertEquals("number of tracks",    2,                  gpx.getTracks().size());
+        assertEquals("track 1 name",        "first",            gpx.getTracks().get(0).getName());
+        assertEquals("track 2 name",        "second",           gpx.getTracks().get(1).getName());
+
+        Document bogus = XmlBuilder.element("http://www.example.com", "gpx",
+                            XmlBuilder.attribute("version", "1.1"))
+                         .toDOM();
+
+        try
+        {
+            bytes = OutputUtil.compactString(bogus).getBytes(StandardCharsets.UTF_8);
+            new GpxFile(StaxUtils.newReader(new ByteArrayInputStream(bytes)));
+            fail("accepted invalid root namespace");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertEquals("exception message", "invalid root namespace: http://www.example.com", ex.getMessage());
+        }
+    }
+
+
+    @Test
+    public void testReadFileSameAsDOM() throws Exception
+    {
+        File file = new File(getClass().getClassLoader().getResource("testdata.gpx").toURI());
+
+        GpxFile expected = new GpxFile(ParseUtil.parse(file));
+        GpxFile actual = new GpxFile(file);
+
+        assertEquals("version",             expected.getVersion(),          actual.getVersion());
+        assertEquals("creator",             expected.getCreator(),          actual.getCreator());
+        assertEquals("number of tracks",    expected.getTracks().size(),    actual.getTracks().size());
+
+        for (int ii = 0 ; ii < expected.getTracks().size() ; ii++)
+        {
+            Track expectedTrack = expected.getTracks().get(ii);
+            Track actualTrack = actual.getTracks().get(ii);
+
+            assertEquals("track " + ii + " name",               expectedTrack.getName(),                actualTrack.getName());
+            assertEquals("track " + ii + " description",        expectedTrack.getDescription(),         actualTrack.getDescription());
+            assertEquals("track " + ii + " type",               expectedTrack.getType(),                actualTrack.getType());
+            assertEquals("track " + ii + " number of segments", expectedTrack.getSegments().size(),     actualTrack.getSegments().size());
+
+            for (int jj = 0 ; jj < expectedTrack.getSegments().size() ; jj++)
+            {
+                List<GpxPoint> expectedPoints = expectedTrack.getSegments().get(jj).getPoints();
+                List<GpxPoint> actualPoints = actualTrack.getSegments().get(jj).getPoints();
+
+                assertEquals("track " + ii + " segment " + jj + " number of points", expectedPoints.size(), actualPoints.size());
+                for (int kk = 0 ; kk < expectedPoints.size() ; kk++)
+                {
+                    assertEquals("track " + ii + " segment " + jj + " point " + kk,
+                                 expectedPoints.get(kk).getPoint(),
+                                 actualPoints.get(kk).getPoint());
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,290 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import net.sf.practicalxml.OutputUtil;
+import net.sf.practicalxml.builder.ElementNode;
+import net.sf.practicalxml.builder.Node;
+import net.sf.practicalxml.builder.XmlBuilder;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.gpx.model.TrackSegment;
+
+
+public class TestGpxReader
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  Records the callbacks that it receives, and the points.
+     */
+    private static class RecordingHandler
+    implements GpxHandler
+    {
+        public List<String> events = new ArrayList<>();
+        public List<GpxPoint> points = new ArrayList<>();
+        public List<Object> rawPoints = new ArrayList<>();
+
+        @Override
+        public void onTrackStart(Track track)
+        {
+            events.add("trackStart: " + track.getName());
+        }
+
+        @Override
+        public void onSegmentStart()
+        {
+            events.add("segmentStart");
+        }
+
+        @Override
+        public void onPoint(GpxPoint point)
+        {
+            events.add("point: " + point.getLat() + "," + point.getLon());
+            points.add(point);
+        }
+
+        @Override
+        public void onPoint(GpxPointCursor cursor)
+        {
+            rawPoints.add(cursor);
+            GpxHandler.super.onPoint(cursor);
+        }
+
+        @Override
+        public void onSegmentEnd()
+        {
+            events.add("segmentEnd");
+        }
+
+        @Override
+        public void onTrackEnd(Track track)
+        {
+            events.add("trackEnd: " + track.getName() + " / " + track.getDescription());
+        }
+    }
+
+
+    private static ByteArrayInputStream toStream(ElementNode root)
+    {
+        String xml = OutputUtil.compactString(root.toDOM());
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    private static ElementNode trkpt(String lat, String lon, Node... children)
+    {
+        Node[] all = new Node[children.length + 2];
+        all[0] = XmlBuilder.attribute("lat", lat);
+        all[1] = XmlBuilder.attribute("lon", lon);
+        System.arraycopy(children, 0, all, 2, children.length);
+        return XmlBuilder.element(GpxConstants.NAMESPACE, "trkpt", all);
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testCallbackSequence() throws Exception
+    {
+        ElementNode root = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "gpx",
+                                XmlBuilder.attribute("version", "1.1"),
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "metadata"),
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                                    XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",     XmlBuilder.text("first")),
+                                    XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkseg",
+                                        trkpt("12.0", "34.0"),
+                                        XmlBuilder.element("http://www.example.com", "ignored"),
+                                        trkpt("23.0", "45.0")),
+                                    XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkseg",
+                                        trkpt("56.0", "78.0")),
+                                    XmlBuilder.element("http://www.topografix.com/GPX/1/1", "desc",     XmlBuilder.text("late description"))),
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                                    XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",     XmlBuilder.text("second"))));
+
+        RecordingHandler handler = new RecordingHandler();
+        new GpxReader().read(toStream(root), handler);
+
+        assertEquals("events",
+                     Arrays.asList(
+                        "trackStart: first",
+                        "segmentStart",
+                        "point: 12.0,34.0",
+                        "point: 23.0,45.0",
+                        "segmentEnd",
+                        "segmentStart",
+                        "point: 56.0,78.0",
+                        "segmentEnd",
+                        "trackEnd: first / late description",
+                        "trackStart: second",
+                        "trackEnd: second / null"),
+                     handler.events);
+
+        assertTrue("cursor not used by default", handler.rawPoints.isEmpty());
+    }
+
+
+    @Test
+    public void testCursor() throws Exception
+    {
+        ElementNode root = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "gpx",
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                                    XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkseg",
+                                        trkpt("12.0", "34.0",
+                                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "ele",          XmlBuilder.text("123.0")),
+                                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "time",         XmlBuilder.text("2019-12-28T15:43:48.123Z")),
+                                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "magvar",       XmlBuilder.text("15.2")),
+                                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "geoidheight",  XmlBuilder.text("101.0")),
+                                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",         XmlBuilder.text("testing")),
+                                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "cmt",          XmlBuilder.text("test comment")),
+                                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "desc",         XmlBuilder.text("a description")),
+                                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "extensions",
+                                                XmlBuilder.element("http://www.example.com", "speed",               XmlBuilder.text("17")))),
+                                        trkpt("23.0", "45.0"))));
+
+        RecordingHandler handler = new RecordingHandler();
+        new GpxReader().setReuseCursor(true).read(toStream(root), handler);
+
+        assertEquals("number of points",            2,                          handler.points.size());
+        assertEquals("cursor calls",                2,                          handler.rawPoints.size());
+        assertSame("cursor is reused",              handler.rawPoints.get(0),   handler.rawPoints.get(1));
+
+        GpxPoint p1 = handler.points.get(0);
+        assertEquals("p1 latitude",                 12.0,                                       p1.getLat(), 0.0);
+        assertEquals("p1 longitude",                34.0,                                       p1.getLon(), 0.0);
+        assertEquals("p1 elevation",                Double.valueOf(123.0),                      p1.getElevation());
+        assertEquals("p1 timestamp",                Instant.parse("2019-12-28T15:43:48.123Z"),  p1.getTimestamp());
+        assertEquals("p1 magnetic variance",        Double.valueOf(15.2),                       p1.getMagneticVariance());
+        assertEquals("p1 geoid height",             Double.valueOf(101.0),                      p1.getGeoidHeight());
+        assertEquals("p1 name",                     "testing",                                  p1.getName());
+        assertEquals("p1 comment",                  "test comment",                             p1.getComment());
+        assertEquals("p1 description",              "a description",                            p1.getDescription());
+
+        // the cursor must be cleared between points
+
+        GpxPointCursor cursor = (GpxPointCursor)handler.rawPoints.get(1);
+        assertEquals("p2 as Point",                 new Point(23, 45),                          cursor.toPoint());
+        assertFalse("p2 hasElevation",                                                          cursor.hasElevation());
+        assertTrue("p2 elevation",                                                              Double.isNaN(cursor.getElevation()));
+        assertNull("p2 timestamp",                                                              cursor.getTimestamp());
+        assertEquals("p2 timestamp millis",         0L,                                         cursor.getTimestampMillis());
+        assertTrue("p2 magnetic variance",                                                      Double.isNaN(cursor.getMagneticVariance()));
+        assertTrue("p2 geoid height",                                                           Double.isNaN(cursor.getGeoidHeight()));
+        assertNull("p2 name",                                                                   cursor.getName());
+        assertNull("p2 comment",                                                                cursor.getComment());
+        assertNull("p2 description",                                                            cursor.getDescription());
+
+        GpxPoint p2 = handler.points.get(1);
+        assertNull("p2 converted elevation",                                                    p2.getElevation());
+        assertNull("p2 converted magnetic variance",                                            p2.getMagneticVariance());
+        assertNull("p2 converted geoid height",                                                 p2.getGeoidHeight());
+    }
+
+
+    @Test
+    public void testInvalidContent() throws Exception
+    {
+        ElementNode badRoot = XmlBuilder.element("http://www.example.com", "gpx");
+
+        ElementNode badTrack = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "gpx",
+                                    XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                                        XmlBuilder.element("http://www.topografix.com/GPX/1/1", "bogus")));
+
+        ElementNode badPoint = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "gpx",
+                                    XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                                        XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkseg",
+                                            trkpt("12.0", "34.0",
+                                                XmlBuilder.element("ele", XmlBuilder.text("123.0"))))));
+
+        ElementNode badLatitude = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "gpx",
+                                    XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                                        XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkseg",
+                                            trkpt("91.0", "34.0"))));
+
+        for (boolean reuseCursor : new boolean[] { false, true })
+        {
+            GpxReader reader = new GpxReader().setReuseCursor(reuseCursor);
+            assertInvalid(reader, badRoot,      "invalid root namespace: http://www.example.com");
+            assertInvalid(reader, badTrack,     "unsupported element: bogus");
+            assertInvalid(reader, badPoint,     "invalid namespace: null");
+            assertInvalid(reader, badLatitude,  "invalid latitude: 91.0");
+        }
+    }
+
+
+    private static void assertInvalid(GpxReader reader, ElementNode root, String expectedMessage)
+    {
+        try
+        {
+            reader.read(toStream(root), new RecordingHandler());
+            fail("accepted invalid content: " + expectedMessage);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertEquals("exception message", expectedMessage, ex.getMessage());
+        }
+    }
+
+
+    @Test
+    public void testReadFileSameAsGpxFile() throws Exception
+    {
+        File file = new File(getClass().getClassLoader().getResource("testdata.gpx").toURI());
+
+        List<Point> expected = new ArrayList<>();
+        for (Track track : new GpxFile(file).getTracks())
+        {
+            for (TrackSegment seg : track.getSegments())
+            {
+                for (GpxPoint point : seg.getPoints())
+                {
+                    expected.add(point.getPoint());
+                }
+            }
+        }
+
+        for (boolean reuseCursor : new boolean[] { false, true })
+        {
+            List<Point> actual = new ArrayList<>();
+            new GpxReader().setReuseCursor(reuseCursor).read(file, new GpxHandler()
+            {
+                @Override
+                public void onPoint(GpxPoint point)
+                {
+                    actual.add(point.getPoint());
+                }
+            });
+
+            assertFalse("test data contains points", actual.isEmpty());
+            assertEquals("points, reuseCursor = " + reuseCursor, expected, actual);
+        }
+    }
+}
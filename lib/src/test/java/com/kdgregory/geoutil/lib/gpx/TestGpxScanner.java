@@ -0,0 +1,285 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.internal.StaxUtils;
+
+
+public class TestGpxScanner
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    private final static String PREFIX
+        = "<gpx xmlns='http://www.topografix.com/GPX/1/1' xmlns:ext='urn:example' version='1.1' creator='test'>";
+
+    private final static String SUFFIX
+        = "</gpx>";
+
+
+    /**
+     *  Asserts that the scanner produces the same tracks as the full parser.
+     */
+    private static void assertSameTracks(List<Track> expected, List<ColumnarTrack> actual)
+    {
+        assertEquals("number of tracks", expected.size(), actual.size());
+        for (int ii = 0 ; ii < expected.size() ; ii++)
+        {
+            Track expectedTrack = expected.get(ii);
+            Track actualTrack = actual.get(ii).toTrack();
+
+            assertEquals("track " + ii + " name",               expectedTrack.getName(),                actualTrack.getName());
+            assertEquals("track " + ii + " description",        expectedTrack.getDescription(),         actualTrack.getDescription());
+            assertEquals("track " + ii + " type",               expectedTrack.getType(),                actualTrack.getType());
+            assertEquals("track " + ii + " number of segments", expectedTrack.getSegments().size(),     actualTrack.getSegments().size());
+
+            for (int jj = 0 ; jj < expectedTrack.getSegments().size() ; jj++)
+            {
+                List<GpxPoint> expectedPoints = expectedTrack.getSegments().get(jj).getPoints();
+                List<GpxPoint> actualPoints = actualTrack.getSegments().get(jj).getPoints();
+
+                assertEquals("track " + ii + " segment " + jj + " number of points", expectedPoints.size(), actualPoints.size());
+                for (int kk = 0 ; kk < expectedPoints.size() ; kk++)
+                {
+                    assertEquals("track " + ii + " segment " + jj + " point " + kk,
+                                 expectedPoints.get(kk).getPoint(),
+                                 actualPoints.get(kk).getPoint());
+                }
+            }
+        }
+    }
+
+
+    /**
+     *  Scans the passed document, verifying whether or not it was handled without
+     *  fallback, and that the result matches the full parser.
+     */
+    private static List<ColumnarTrack> assertScan(String xml, boolean expectFastPath)
+    {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("handled without fallback", expectFastPath, new GpxScanner().scanWithoutFallback(ByteBuffer.wrap(bytes)) != null);
+
+        List<ColumnarTrack> result = new GpxScanner().scan(ByteBuffer.wrap(bytes));
+        GpxFile expected = new GpxFile(StaxUtils.newReader(new ByteArrayInputStream(bytes)));
+        assertSameTracks(expected.getTracks(), result);
+        return result;
+    }
+
+
+    /**
+     *  Generates a document with multiple tracks and segments, with metadata
+     *  before and after the segments, and content that must be skipped.
+     */
+    private static String generateDocument(int numTracks, int numSegments, int numPoints)
+    {
+        StringBuilder sb = new StringBuilder(PREFIX);
+        for (int ii = 0 ; ii < numTracks ; ii++)
+        {
+            sb.append("<wpt lat='10' lon='20'/>\n<trk>\n<name>track " + ii + "</name>\n");
+            for (int jj = 0 ; jj < numSegments ; jj++)
+            {
+                sb.append("<trkseg>\n");
+                for (int kk = 0 ; kk < numPoints ; kk++)
+                {
+                    sb.append("  <trkpt lat='" + (ii + kk / 1000.0) + "' lon='-" + (jj + kk / 1000.0) + "'>")
+                      .append("<ele>" + kk + ".5</ele>")
+                      .append("<time>2020-01-0" + (ii + 1) + "T10:00:" + (10 + kk % 50) + "Z</time>")
+                      .append("<extensions><ext:hr>" + kk + "</ext:hr></extensions>")
+                      .append("</trkpt>\n");
+                    if (kk % 7 == 0)
+                        sb.append("  <ext:marker>\n<ext:value/></ext:marker>\n");
+                }
+                sb.append("</trkseg>\n");
+            }
+            sb.append("<trkseg/>\n<desc>description " + ii + "</desc>\n</trk>\n");
+        }
+        return sb.append(SUFFIX).toString();
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testScanFile() throws Exception
+    {
+        File file = new File(getClass().getClassLoader().getResource("testdata.gpx").toURI());
+
+        List<ColumnarTrack> result = new GpxScanner().scan(file);
+        assertTrue("scanned some points", result.get(0).size() > 0);
+
+        assertSameTracks(new GpxFile(file).getTracks(), result);
+    }
+
+
+    @Test
+    public void testBasicStructure() throws Exception
+    {
+        List<ColumnarTrack> result = assertScan(
+            "﻿<?xml version='1.0' encoding='UTF-8'?>\n"
+            + "<!-- comment -->\n"
+            + PREFIX
+            + "<metadata><name>ignored</name></metadata>"
+            + "<wpt lat='10' lon='20'><name>ignored</name></wpt>"
+            + "<trk>"
+            +   "<name>Example é</name>"
+            +   "<desc></desc>"
+            +   "<trkseg>"
+            +     "<trkpt lat='40.036694' lon='-75.928012'><ele>206.82</ele><time>2019-12-28T15:43:48Z</time></trkpt>"
+            +     "<!-- comment --><?pi data?>"
+            +     "<trkpt lat=\"40.036277\" lon=\"-75.928773\"/>"
+            +     "<trkpt lon='-75.929848' lat='40.035694'>"
+            +       "<time>2019-12-28T15:43:58.123+01:00</time>"
+            +       "<extensions><ext:speed units='m/s'>1.5</ext:speed><![CDATA[<trkpt>]]></extensions>"
+            +     "</trkpt>"
+            +     "<ext:marker/>"
+            +   "</trkseg>"
+            +   "<trkseg/>"
+            +   "<trkseg></trkseg>"
+            +   "<type>hiking</type>"
+            + "</trk>"
+            + "<trk/>"
+            + SUFFIX,
+            true);
+
+        assertEquals("number of tracks",            2,                  result.size());
+        assertEquals("track name",                  "Example é",   result.get(0).getName());
+        assertNull("empty description",                                 result.get(0).getDescription());
+        assertEquals("track type",                  "hiking",           result.get(0).getType());
+        assertEquals("number of segments",          3,                  result.get(0).getSegments().size());
+        assertEquals("number of points",            3,                  result.get(0).size());
+        assertTrue("second segment empty",                              result.get(0).getSegments().get(1).isEmpty());
+        assertFalse("second point elevation",                           result.get(0).getSegments().get(0).hasElevation(1));
+        assertEquals("third point timestamp",       1577544238123L,     result.get(0).getSegments().get(0).getTimestampMillis(2));
+    }
+
+
+    @Test
+    public void testEmptyDocument() throws Exception
+    {
+        assertTrue("empty root", assertScan(PREFIX + SUFFIX, true).isEmpty());
+        assertTrue("self-closed root", assertScan("<gpx xmlns='http://www.topografix.com/GPX/1/1'/>", true).isEmpty());
+    }
+
+
+    @Test
+    public void testFallback() throws Exception
+    {
+        String point = "<trkpt lat='40.036694' lon='-75.928012'><ele>206.82</ele></trkpt>";
+
+        // these are handled by the full parser, so must produce the same results
+
+        assertScan("<?xml version='1.0' encoding='ISO-8859-1'?>" + PREFIX + "<trk><name>x</name><trkseg>" + point + "</trkseg></trk>" + SUFFIX, false);
+        assertScan("<!DOCTYPE gpx>" + PREFIX + "<trk><trkseg>" + point + "</trkseg></trk>" + SUFFIX, false);
+        assertScan(PREFIX + "<trk><name>A &amp; B</name><trkseg>" + point + "</trkseg></trk>" + SUFFIX, false);
+        assertScan(PREFIX + "<trk><name><![CDATA[A & B]]></name><trkseg>" + point + "</trkseg></trk>" + SUFFIX, false);
+        assertScan(PREFIX + "<trk><trkseg><trkpt lat='40' lon='-75'><magvar>12</magvar></trkpt></trkseg></trk>" + SUFFIX, false);
+        assertScan(PREFIX + "<trk><trkseg><trkpt lat=' 40' lon='-75'/></trkseg></trk>" + SUFFIX, false);
+        assertScan(PREFIX + "<trk><trkseg xmlns:g='http://www.topografix.com/GPX/1/1'><g:trkpt lat='40' lon='-75'/></trkseg></trk>" + SUFFIX, false);
+        assertScan("<g:gpx xmlns:g='http://www.topografix.com/GPX/1/1'><g:trk><g:trkseg>" + point.replace("</", "</g:").replaceAll("<(\\w)", "<g:$1") + "</g:trkseg></g:trk></g:gpx>", false);
+
+        // a redeclared default namespace means that the element isn't a track, so is skipped by both
+
+        assertTrue("non-GPX track", assertScan(PREFIX + "<trk xmlns='urn:example'><trkseg>" + point + "</trkseg></trk>" + SUFFIX, true).isEmpty());
+    }
+
+
+    @Test
+    public void testFallbackReportsErrors() throws Exception
+    {
+        try
+        {
+            new GpxScanner().scan(ByteBuffer.wrap((PREFIX + "<trk><trkseg><trkpt lat='95' lon='-75'/></trkseg></trk>" + SUFFIX).getBytes(StandardCharsets.UTF_8)));
+            fail("accepted invalid latitude");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue("exception message (was: " + ex.getMessage() + ")", ex.getMessage().contains("latitude"));
+        }
+
+        try
+        {
+            new GpxScanner().scan(ByteBuffer.wrap((PREFIX + "<trk><bogus/></trk>" + SUFFIX).getBytes(StandardCharsets.UTF_8)));
+            fail("accepted unsupported element");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue("exception message (was: " + ex.getMessage() + ")", ex.getMessage().contains("bogus"));
+        }
+    }
+
+
+    @Test
+    public void testParallelScan() throws Exception
+    {
+        byte[] bytes = generateDocument(3, 4, 50).getBytes(StandardCharsets.UTF_8);
+        List<Track> expected = new GpxFile(StaxUtils.newReader(new ByteArrayInputStream(bytes))).getTracks();
+
+        for (int chunkSize : new int[] { 1, 100, 257, 1000, 5000, bytes.length / 2 })
+        {
+            GpxScanner scanner = new GpxScanner().setParallel(true).setChunkSize(chunkSize);
+            List<ColumnarTrack> result = scanner.scanParallel(ByteBuffer.wrap(bytes));
+            assertNotNull("chunk size " + chunkSize + " scanned in parallel", result);
+            assertSameTracks(expected, result);
+            assertSameTracks(expected, scanner.scan(ByteBuffer.wrap(bytes)));
+        }
+    }
+
+
+    @Test
+    public void testParallelScanWithInvalidBoundary() throws Exception
+    {
+        // trackpoint tags that aren't trackpoints will be chosen as boundaries, but
+        // the preceding chunk won't stop there, so the scan is done sequentially
+
+        String[] decoys = new String[]
+        {
+            "<!-- <trkpt lat='1' lon='2'/> -->",
+            "<ext:marker><trkpt lat='1' lon='2'/></ext:marker>",
+            "<ext:marker><![CDATA[<trkpt lat='1' lon='2'/>]]></ext:marker>"
+        };
+
+        for (String decoy : decoys)
+        {
+            String xml = PREFIX
+                       + "<trk><trkseg><trkpt lat='40' lon='-75'/>"
+                       + decoy
+                       + "<trkpt lat='41' lon='-76'/></trkseg></trk>"
+                       + SUFFIX;
+            byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+
+            GpxScanner scanner = new GpxScanner().setParallel(true).setChunkSize(xml.indexOf(decoy) - PREFIX.length());
+            assertNull("chunk boundary rejected: " + decoy, scanner.scanParallel(ByteBuffer.wrap(bytes)));
+
+            List<ColumnarTrack> result = assertScan(xml, true);
+            assertSameTracks(new GpxFile(StaxUtils.newReader(new ByteArrayInputStream(bytes))).getTracks(),
+                             scanner.scan(ByteBuffer.wrap(bytes)));
+            assertEquals("number of points: " + decoy, 2, result.get(0).size());
+        }
+    }
+}
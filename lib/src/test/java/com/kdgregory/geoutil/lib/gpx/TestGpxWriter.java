@@ -0,0 +1,303 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.gpx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Arrays;
+
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import net.sf.practicalxml.OutputUtil;
+import net.sf.practicalxml.XmlException;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.gpx.model.TrackSegment;
+
+
+public class TestGpxWriter
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the bytes produced by the DOM-based output path.
+     */
+    private static byte[] expectedBytes(GpxFile gpx)
+    {
+        return expectedBytes(gpx, GpxFormat.FULL_PRECISION);
+    }
+
+
+    private static byte[] expectedBytes(GpxFile gpx, GpxFormat format)
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        OutputUtil.compact(new DOMSource(gpx.toXml(format)), new StreamResult(bos));
+        return bos.toByteArray();
+    }
+
+
+    private static byte[] actualBytes(GpxFile gpx)
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GpxWriter writer = new GpxWriter(bos))
+        {
+            writer.write(gpx);
+        }
+        return bos.toByteArray();
+    }
+
+
+    private static void assertSameOutput(String message, GpxFile gpx)
+    {
+        byte[] expected = expectedBytes(gpx);
+        byte[] actual = actualBytes(gpx);
+        if (! Arrays.equals(expected, actual))
+        {
+            // this gives a readable failure message
+            assertEquals(message,
+                         new String(expected, StandardCharsets.UTF_8),
+                         new String(actual, StandardCharsets.UTF_8));
+            fail(message + ": strings are equal but bytes are not");
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testCompleteFile() throws Exception
+    {
+        GpxFile gpx = new GpxFile()
+                      .setCreator("somebody")
+                      .addTrack(new Track()
+                          .setName("first")
+                          .setDescription("a description")
+                          .setType("hiking")
+                          .addSegment(new TrackSegment().addAll(Arrays.asList(
+                              new GpxPoint(12, 34),
+                              new GpxPoint(-12.5, -34.25)
+                                  .setElevation(123.0)
+                                  .setTimestampMillis(1577547828123L),
+                              new GpxPoint(0.00001, 179.99999)
+                                  .setElevation(-1.0E-5)
+                                  .setTimestamp(Instant.parse("2019-12-28T15:43:48.123456789Z"))
+                                  .setMagneticVariance(15.2)
+                                  .setGeoidHeight(101.0)
+                                  .setName("testing")
+                                  .setComment("test comment")
+                                  .setDescription("a description"))))
+                          .addSegment(new TrackSegment())
+                          .addSegment(new TrackSegment().addAll(Arrays.asList(
+                              new GpxPoint(56, 78)))))
+                      .addTrack(new Track())
+                      .addTrack(new Track()
+                          .setName(""));
+
+        assertSameOutput("complete file", gpx);
+    }
+
+
+    @Test
+    public void testMinimalFiles() throws Exception
+    {
+        assertSameOutput("no tracks",           new GpxFile());
+        assertSameOutput("explicit creator",    new GpxFile().setCreator("example"));
+        assertSameOutput("empty track",         new GpxFile().addTrack(new Track()));
+        assertSameOutput("empty segment",       new GpxFile().addTrack(new Track().addSegment(new TrackSegment())));
+    }
+
+
+    @Test
+    public void testEscaping() throws Exception
+    {
+        // every BMP character other than high surrogates, which can't be serialized on their own
+        StringBuilder sb = new StringBuilder();
+        for (int c = 1 ; c < 0x10000 ; c++)
+        {
+            if (! Character.isHighSurrogate((char)c))
+                sb.append((char)c);
+        }
+        sb.append("\uD83D\uDE00");  // a supplementary character
+        sb.append("]]>");
+        String allChars = sb.toString();
+
+        GpxFile gpx = new GpxFile()
+                      .setCreator(allChars)
+                      .addTrack(new Track()
+                          .setName(allChars)
+                          .addSegment(new TrackSegment().addAll(Arrays.asList(
+                              new GpxPoint(12, 34)
+                                  .setComment(allChars)))));
+
+        assertSameOutput("all characters", gpx);
+
+        try
+        {
+            actualBytes(new GpxFile().setCreator("unpaired \uD83D surrogate"));
+            fail("wrote unpaired surrogate");
+        }
+        catch (XmlException ex)
+        {
+            // success
+        }
+    }
+
+
+    @Test
+    public void testIncrementalWrite() throws Exception
+    {
+        Point p1 = new Point(12, 34, Double.valueOf(56), Instant.ofEpochMilli(1577547828000L));
+        Point p2 = new Point(23, 45);
+
+        GpxFile gpx = new GpxFile()
+                      .setCreator("somebody")
+                      .addTrack(new Track()
+                          .setName("example")
+                          .addSegment(new TrackSegment().addAll(Arrays.asList(
+                              new GpxPoint(p1.getLat(), p1.getLon())
+                                  .setElevation(p1.getElevation())
+                                  .setTimestamp(p1.getTimestamp()),
+                              new GpxPoint(p2.getLat(), p2.getLon())))));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GpxWriter writer = new GpxWriter(bos))
+        {
+            writer.startGpx("1.1", "somebody")
+                  .startTrack("example", null, null)
+                  .startSegment()
+                  .writePoint(p1)
+                  .writePoint(p2)
+                  .endSegment()
+                  .startSegment()
+                  .endSegment();
+            // close() completes the document
+        }
+
+        assertEquals("output from core points",
+                     new String(expectedBytes(gpx), StandardCharsets.UTF_8),
+                     new String(bos.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+
+    @Test
+    public void testInvalidSequence() throws Exception
+    {
+        GpxWriter writer = new GpxWriter(new ByteArrayOutputStream());
+
+        try
+        {
+            writer.startTrack("example", null, null);
+            fail("started track before file");
+        }
+        catch (IllegalStateException ex)
+        {
+            // success
+        }
+
+        writer.startGpx("1.1", "example");
+
+        try
+        {
+            writer.writePoint(new Point(12, 34));
+            fail("wrote point outside segment");
+        }
+        catch (IllegalStateException ex)
+        {
+            // success
+        }
+
+        writer.endGpx();
+
+        try
+        {
+            writer.startGpx("1.1", "example");
+            fail("restarted completed file");
+        }
+        catch (IllegalStateException ex)
+        {
+            // success
+        }
+
+        writer.close();
+    }
+
+
+    @Test
+    public void testReducedPrecision() throws Exception
+    {
+        GpxFormat format = new GpxFormat(7, 1);
+
+        GpxFile gpx = new GpxFile()
+                      .setCreator("somebody")
+                      .addTrack(new Track()
+                          .setName("example")
+                          .addSegment(new TrackSegment().addAll(Arrays.asList(
+                              new GpxPoint(39.123456789, -75.987654321)
+                                  .setElevation(Double.valueOf(12.345)),
+                              new GpxPoint(40.5, -76.0)
+                                  .setElevation(Double.valueOf(100.0))
+                                  .setGeoidHeight(Double.valueOf(-33.3333))))));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GpxWriter writer = new GpxWriter(bos))
+        {
+            writer.setFormat(format).write(gpx);
+        }
+
+        String output = new String(bos.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals("same as DOM output", new String(expectedBytes(gpx, format), StandardCharsets.UTF_8), output);
+
+        assertTrue("rounded coordinates: " + output,    output.contains("lat=\"39.1234568\" lon=\"-75.9876543\""));
+        assertTrue("rounded elevation: " + output,      output.contains(">12.3<"));
+        assertTrue("trailing zeros removed: " + output, output.contains("lat=\"40.5\" lon=\"-76\""));
+        assertTrue("integral elevation: " + output,     output.contains(">100<"));
+        assertTrue("geoid height: " + output,           output.contains(">-33.3<"));
+
+        try
+        {
+            new GpxFormat(-1, 1);
+            fail("accepted negative precision");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // success
+        }
+    }
+
+
+    @Test
+    public void testWriteFile() throws Exception
+    {
+        File file = File.createTempFile(getClass().getSimpleName() + "-testWriteFile", ".xml");
+        file.deleteOnExit();
+
+        GpxFile gpx = new GpxFile(new File(getClass().getClassLoader().getResource("testdata.gpx").toURI()));
+        gpx.write(file);
+
+        assertArrayEquals("GpxFile.write() output", expectedBytes(gpx), Files.readAllBytes(file.toPath()));
+    }
+}
@@ -17,6 +17,8 @@ package com.kdgregory.geoutil.lib.gpx.model;
 import java.time.Instant;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -28,6 +30,7 @@ import net.sf.practicalxml.builder.XmlBuilder;
 
 import com.kdgregory.geoutil.lib.core.Point;
 import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.internal.StaxTestUtils;
 
 
 public class TestGpxPoint
@@ -275,4 +278,91 @@ public class TestGpxPoint
         assertEquals("timestamp",           Instant.ofEpochMilli(1577547828000L),   p.getTimestamp());
         assertEquals("description",         "a description",                        p.getDescription());
     }
+
+
+    @Test
+    public void testConvertFromXmlStreaming() throws Exception
+    {
+        Document dom = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                            XmlBuilder.attribute("lat", "12.0"),
+                            XmlBuilder.attribute("lon", "34.0"),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "ele",                                  XmlBuilder.text("123.0")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "time",                                 XmlBuilder.text("2019-12-28T15:43:48Z")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "magvar",                               XmlBuilder.text("15.2")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "geoidheight",                          XmlBuilder.text("101.0")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",                                 XmlBuilder.text("testing")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "cmt",                                  XmlBuilder.text("test comment")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "extensions",
+                                XmlBuilder.element("http://www.garmin.com/xmlschemas/TrackPointExtension/v2", "TrackPointExtension",
+                                    XmlBuilder.element("http://www.garmin.com/xmlschemas/TrackPointExtension/v2", "speed",  XmlBuilder.text("17")))),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "desc",                                 XmlBuilder.text("a description")))
+                       .toDOM();
+
+        XMLStreamReader reader = StaxTestUtils.toReader(dom);
+        GpxPoint p = GpxPoint.fromXml(reader);
+
+        assertEquals("reader positioned at end of element", "trkpt",                     reader.getLocalName());
+        assertFalse("reader positioned at end of element",                              reader.isStartElement());
+
+        assertEquals("latitude",            12.0,                                   p.getLat(), 0.0);
+        assertEquals("longitude",           34.0,                                   p.getLon(), 0.0);
+        assertEquals("elevation",           Double.valueOf(123.0),                  p.getElevation());
+        assertEquals("timestamp",           Instant.ofEpochMilli(1577547828000L),   p.getTimestamp());
+        assertEquals("magnetic variance",   Double.valueOf(15.2),                   p.getMagneticVariance());
+        assertEquals("geoid height",        Double.valueOf(101.0),                  p.getGeoidHeight());
+        assertEquals("name",                "testing",                              p.getName());
+        assertEquals("comment",             "test comment",                         p.getComment());
+        assertEquals("description",         "a description",                        p.getDescription());
+    }
+
+
+    @Test
+    public void testConvertFromXmlStreamingInvalid() throws Exception
+    {
+        Document dom1 = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                            XmlBuilder.attribute("lat", "12.0"),
+                            XmlBuilder.attribute("lon", "34.0"),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "bogus",    XmlBuilder.text("123.0")))
+                       .toDOM();
+
+        try
+        {
+            GpxPoint.fromXml(StaxTestUtils.toReader(dom1));
+            fail("accepted unsupported element");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertEquals("exception message", "unsupported element: bogus", ex.getMessage());
+        }
+
+        Document dom2 = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                            XmlBuilder.attribute("lat", "12.0"),
+                            XmlBuilder.attribute("lon", "34.0"),
+                            XmlBuilder.element("ele",   XmlBuilder.text("123.0")))
+                       .toDOM();
+
+        try
+        {
+            GpxPoint.fromXml(StaxTestUtils.toReader(dom2));
+            fail("accepted element without namespace");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertEquals("exception message", "invalid namespace: null", ex.getMessage());
+        }
+
+        Document dom3 = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                            XmlBuilder.attribute("lat", "12.0"))
+                       .toDOM();
+
+        try
+        {
+            GpxPoint.fromXml(StaxTestUtils.toReader(dom3));
+            fail("accepted point without longitude");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue("exception message (was: " + ex.getMessage() + ")", ex.getMessage().contains("missing attribute: lon"));
+        }
+    }
 }
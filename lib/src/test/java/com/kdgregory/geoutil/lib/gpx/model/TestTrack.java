@@ -20,6 +20,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -30,9 +32,11 @@ import net.sf.practicalxml.DomUtil;
 import net.sf.practicalxml.builder.XmlBuilder;
 
 import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.TrackStats;
 import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
 import com.kdgregory.geoutil.lib.gpx.model.Track;
 import com.kdgregory.geoutil.lib.gpx.model.TrackSegment;
+import com.kdgregory.geoutil.lib.internal.StaxTestUtils;
 
 
 public class TestTrack
@@ -239,4 +243,98 @@ public class TestTrack
         List<Element> children = DomUtil.getChildren(eTrack);
         assertEquals("nmber of children", 0, children.size());
     }
+
+
+    @Test
+    public void testConstructFromXmlStreaming() throws Exception
+    {
+        Document dom = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",         XmlBuilder.text("example")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "desc",         XmlBuilder.text("a description")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "type",         XmlBuilder.text("hiking")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkseg",
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                                    XmlBuilder.attribute("lat", "12.0"),
+                                    XmlBuilder.attribute("lon", "34.0")),
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                                    XmlBuilder.attribute("lat", "23.0"),
+                                    XmlBuilder.attribute("lon", "45.0"))),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkseg",
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                                    XmlBuilder.attribute("lat", "56.0"),
+                                    XmlBuilder.attribute("lon", "78.0"))))
+                       .toDOM();
+
+        XMLStreamReader reader = StaxTestUtils.toReader(dom);
+        Track track = Track.fromXml(reader);
+
+        assertEquals("reader positioned at end of element", "trk",      reader.getLocalName());
+        assertFalse("reader positioned at end of element",              reader.isStartElement());
+
+        assertEquals("name",                "example",          track.getName());
+        assertEquals("description",         "a description",    track.getDescription());
+        assertEquals("type",                "hiking",           track.getType());
+        assertEquals("number of segments",  2,                  track.getSegments().size());
+        assertEquals("segment 1 point 1",   new Point(12,34),   track.getSegments().get(0).getPoints().get(0).getPoint());
+        assertEquals("segment 1 point 2",   new Point(23,45),   track.getSegments().get(0).getPoints().get(1).getPoint());
+        assertEquals("segment 2 point 1",   new Point(56,78),   track.getSegments().get(1).getPoints().get(0).getPoint());
+    }
+
+
+    @Test
+    public void testConstructFromXmlStreamingInvalid() throws Exception
+    {
+        Document dom1 = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "name",         XmlBuilder.text("example")),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "bogus",        XmlBuilder.text("whatever")))
+                       .toDOM();
+
+        try
+        {
+            Track.fromXml(StaxTestUtils.toReader(dom1));
+            fail("accepted unsupported element");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertEquals("exception message", "unsupported element: bogus", ex.getMessage());
+        }
+
+        Document dom2 = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trk",
+                            XmlBuilder.element("http://www.example.com", "name",                    XmlBuilder.text("example")))
+                       .toDOM();
+
+        try
+        {
+            Track.fromXml(StaxTestUtils.toReader(dom2));
+            fail("accepted element with incorrect namespace");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertEquals("exception message", "invalid namespace: http://www.example.com", ex.getMessage());
+        }
+    }
+
+
+    @Test
+    public void testStats() throws Exception
+    {
+        GpxPoint p1 = new GpxPoint(40.00000, -75.00000).setTimestamp(Instant.ofEpochMilli(1000));
+        GpxPoint p2 = new GpxPoint(40.00009, -75.00000).setTimestamp(Instant.ofEpochMilli(2000));
+        GpxPoint p3 = new GpxPoint(40.00018, -75.00000).setTimestamp(Instant.ofEpochMilli(60000));
+        GpxPoint p4 = new GpxPoint(40.00027, -75.00000).setTimestamp(Instant.ofEpochMilli(61000));
+
+        Track track = new Track()
+                      .addSegment(new TrackSegment().addAll(Arrays.asList(p1, p2)))
+                      .addSegment(new TrackSegment())
+                      .addSegment(new TrackSegment().addAll(Arrays.asList(p3, p4)));
+        TrackStats stats = track.stats();
+
+        // the gap between segments contributes to elapsed time but not distance or moving time
+
+        assertEquals("count",           4,                          stats.getCount());
+        assertEquals("distance",        track.getSegments().get(0).distance() + track.getSegments().get(2).distance(),
+                                                                    stats.getDistance(), 0.000001);
+        assertEquals("elapsed time",    Duration.ofMillis(60000),   stats.getElapsedTime());
+        assertEquals("moving time",     Duration.ofMillis(2000),    stats.getMovingTime());
+    }
 }
@@ -14,9 +14,12 @@
 
 package com.kdgregory.geoutil.lib.gpx.model;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -26,9 +29,12 @@ import static org.junit.Assert.*;
 import net.sf.practicalxml.DomUtil;
 import net.sf.practicalxml.builder.XmlBuilder;
 
+import com.kdgregory.geoutil.lib.core.DistanceCalculator;
 import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.TrackStats;
 import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
 import com.kdgregory.geoutil.lib.gpx.model.TrackSegment;
+import com.kdgregory.geoutil.lib.internal.StaxTestUtils;
 
 
 public class TestTrackSegment
@@ -78,6 +84,78 @@ public class TestTrackSegment
     }
 
 
+    @Test
+    public void testFilterSorted() throws Exception
+    {
+        GpxPoint p0 = new GpxPoint(12,34);
+        GpxPoint p1 = new GpxPoint(12,34).setTimestampMillis(1577547825000L);
+        GpxPoint p2 = new GpxPoint(12,34).setTimestampMillis(1577547826000L);
+        GpxPoint p3 = new GpxPoint(12,34).setTimestampMillis(1577547827000L);
+        GpxPoint p4 = new GpxPoint(12,34).setTimestampMillis(1577547828000L);
+
+        TrackSegment seg = new TrackSegment().addAll(Arrays.asList(p0, p1, p2, p3, p4));
+        assertTrue("points in order are sorted", seg.isTimeSorted());
+
+        // these use the binary search and don't change the segment
+
+        assertEquals("interior range",      Arrays.asList(p2, p3),          seg.getPointsBetween(Instant.ofEpochMilli(1577547826000L), Instant.ofEpochMilli(1577547827000L)));
+        assertEquals("range between points", Arrays.asList(p2),             seg.getPointsBetween(Instant.ofEpochMilli(1577547825500L), Instant.ofEpochMilli(1577547826500L)));
+        assertEquals("range covers all",    Arrays.asList(p1, p2, p3, p4),  seg.getPointsBetween(Instant.ofEpochMilli(0L), Instant.ofEpochMilli(Long.MAX_VALUE)));
+        assertEquals("range before points", Arrays.asList(),                seg.getPointsBetween(Instant.ofEpochMilli(0L), Instant.ofEpochMilli(1000L)));
+        assertEquals("inverted range",      Arrays.asList(),                seg.getPointsBetween(Instant.ofEpochMilli(1577547827000L), Instant.ofEpochMilli(1577547826000L)));
+        assertTrue("still sorted after queries",                            seg.isTimeSorted());
+        assertEquals("size after queries", 5,                               seg.size());
+
+        seg.filter(Instant.ofEpochMilli(1577547826000L), Instant.ofEpochMilli(1577547827000L));
+        assertTrue("still sorted after filter", seg.isTimeSorted());
+        assertEquals("after filter", Arrays.asList(p2, p3), seg.getPoints());
+    }
+
+
+    @Test
+    public void testTimeSortedFlag() throws Exception
+    {
+        GpxPoint p1 = new GpxPoint(12,34).setTimestampMillis(1577547825000L);
+        GpxPoint p2 = new GpxPoint(12,34).setTimestampMillis(1577547826000L);
+        GpxPoint p3 = new GpxPoint(12,34).setTimestampMillis(1577547827000L);
+
+        TrackSegment seg = new TrackSegment();
+        assertTrue("empty segment is sorted", seg.isTimeSorted());
+
+        seg.addAll(Arrays.asList(p1, p3, p2));
+        assertFalse("out-of-order add clears flag", seg.isTimeSorted());
+        assertEquals("unsorted query", Arrays.asList(p3, p2), seg.getPointsBetween(Instant.ofEpochMilli(1577547826000L), Instant.ofEpochMilli(1577547827000L)));
+
+        seg.sortPoints();
+        assertTrue("sorting sets flag", seg.isTimeSorted());
+
+        seg.add(new GpxPoint(12,34));
+        assertFalse("adding point without timestamp clears flag", seg.isTimeSorted());
+
+        seg.clear();
+        assertTrue("clearing sets flag", seg.isTimeSorted());
+
+        seg.add(p1);
+        seg.add(p3);
+        for (GpxPoint p : seg.getPoints())
+        {
+            assertNotNull("iterated point", p);
+        }
+        assertTrue("reading the point list doesn't clear flag", seg.isTimeSorted());
+
+        seg.getPoints().remove(0);
+        assertTrue("removing a point doesn't clear flag", seg.isTimeSorted());
+
+        seg.getPoints().add(p2);
+        assertFalse("adding through the point list clears flag", seg.isTimeSorted());
+        assertEquals("point added to segment", Arrays.asList(p3, p2), seg.getPoints());
+
+        seg.sortPoints();
+        seg.getPoints().set(0, p1);
+        assertFalse("replacing through the point list clears flag", seg.isTimeSorted());
+    }
+
+
     @Test
     public void testSort() throws Exception
     {
@@ -115,6 +193,29 @@ public class TestTrackSegment
     }
 
 
+    @Test
+    public void testDistanceCalculator() throws Exception
+    {
+        GpxPoint p1 = new GpxPoint(39.95237, -75.16358).setTimestampMillis(1577547825000L);
+        GpxPoint p2 = new GpxPoint(39.95170, -75.16369).setTimestampMillis(1577547826000L);
+        GpxPoint p3 = new GpxPoint(39.95087, -75.16387).setTimestampMillis(1577547827000L);
+
+        TrackSegment seg = new TrackSegment().addAll(Arrays.asList(p1, p2, p3));
+
+        assertEquals("default is Pythagorean",  seg.distance(),
+                                                seg.distance(DistanceCalculator.PYTHAGOREAN),
+                                                0.0);
+        assertEquals("haversine",               DistanceCalculator.HAVERSINE.distance(p1.getPoint(), p2.getPoint())
+                                                + DistanceCalculator.HAVERSINE.distance(p2.getPoint(), p3.getPoint()),
+                                                seg.distance(DistanceCalculator.HAVERSINE),
+                                                0.000001);
+
+        // the first hop is ~75 meters and the second is ~94, so only the first point is trimmed
+        seg.trim(80, DistanceCalculator.HAVERSINE);
+        assertEquals("after trim()", Arrays.asList(p2, p3), seg.getPoints());
+    }
+
+
     @Test
     public void testConvertToXml() throws Exception
     {
@@ -166,4 +267,48 @@ public class TestTrackSegment
         assertEquals("point 1", new Point(12, 34), seg.getPoints().get(0).getPoint());
         assertEquals("point 2", new Point(23, 45), seg.getPoints().get(1).getPoint());
     }
+
+
+    @Test
+    public void testConvertFromXmlStreaming() throws Exception
+    {
+        Document dom = XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkseg",
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                                XmlBuilder.attribute("lat", "12.0"),
+                                XmlBuilder.attribute("lon", "34.0")),
+                            XmlBuilder.element("http://www.example.com", "ignored",
+                                XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                                    XmlBuilder.attribute("lat", "0.0"),
+                                    XmlBuilder.attribute("lon", "0.0"))),
+                            XmlBuilder.element("http://www.topografix.com/GPX/1/1", "trkpt",
+                                XmlBuilder.attribute("lat", "23.0"),
+                                XmlBuilder.attribute("lon", "45.0")))
+                       .toDOM();
+
+        XMLStreamReader reader = StaxTestUtils.toReader(dom);
+        TrackSegment seg = TrackSegment.fromXml(reader);
+
+        assertEquals("reader positioned at end of element", "trkseg",   reader.getLocalName());
+        assertFalse("reader positioned at end of element",              reader.isStartElement());
+
+        assertEquals("number of points",    2,                                                          seg.getPoints().size());
+        assertEquals("point 1",             new Point(12, 34),                                          seg.getPoints().get(0).getPoint());
+        assertEquals("point 2",             new Point(23, 45),                                          seg.getPoints().get(1).getPoint());
+    }
+
+
+    @Test
+    public void testStats() throws Exception
+    {
+        GpxPoint p1 = new GpxPoint(40.00000, -75.00000).setTimestamp(Instant.ofEpochMilli(1000));
+        GpxPoint p2 = new GpxPoint(40.00009, -75.00000).setTimestamp(Instant.ofEpochMilli(2000));
+        GpxPoint p3 = new GpxPoint(40.00018, -75.00000).setTimestamp(Instant.ofEpochMilli(3000));
+
+        TrackSegment seg = new TrackSegment().addAll(Arrays.asList(p1, p2, p3));
+        TrackStats stats = seg.stats();
+
+        assertEquals("count",           3,                          stats.getCount());
+        assertEquals("distance",        seg.distance(),             stats.getDistance(), 0.000001);
+        assertEquals("elapsed time",    Duration.ofMillis(2000),    stats.getElapsedTime());
+    }
 }
@@ -0,0 +1,42 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.internal;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+
+import net.sf.practicalxml.OutputUtil;
+
+
+/**
+ *  Helper methods for tests that parse with StAX.
+ */
+public class StaxTestUtils
+{
+    /**
+     *  Converts a DOM into a StAX reader positioned at its root element.
+     */
+    public static XMLStreamReader toReader(Document dom)
+    {
+        byte[] bytes = OutputUtil.compactString(dom).getBytes(StandardCharsets.UTF_8);
+        XMLStreamReader reader = StaxUtils.newReader(new ByteArrayInputStream(bytes));
+        StaxUtils.moveToRoot(reader);
+        return reader;
+    }
+}
@@ -0,0 +1,121 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.internal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TestNumberFormatter
+{
+    @Test
+    public void testBasicOperation() throws Exception
+    {
+        NumberFormatter fmt = new NumberFormatter(7);
+
+        assertEquals("zero",                    "0",            fmt.format(0.0));
+        assertEquals("negative zero",           "0",            fmt.format(-0.0));
+        assertEquals("integral",                "12",           fmt.format(12.0));
+        assertEquals("trailing zeros",          "12.5",         fmt.format(12.5));
+        assertEquals("rounded down",            "40.1234568",   fmt.format(40.123456789));
+        assertEquals("negative",                "-75.9876543",  fmt.format(-75.987654321));
+        assertEquals("leading fraction zeros",  "0.0000012",    fmt.format(0.0000012));
+        assertEquals("negative rounds to zero", "0",            fmt.format(-0.00000004));
+        assertEquals("rounds to next integer",  "1",            fmt.format(0.99999999));
+    }
+
+
+    @Test
+    public void testZeroDigits() throws Exception
+    {
+        NumberFormatter fmt = new NumberFormatter(0);
+
+        assertEquals("rounded down",    "12",   fmt.format(12.4));
+        assertEquals("rounded up",      "13",   fmt.format(12.5));
+        assertEquals("negative",        "-13",  fmt.format(-12.5));
+    }
+
+
+    @Test
+    public void testFallbackToJDK() throws Exception
+    {
+        NumberFormatter fmt = new NumberFormatter(7);
+
+        assertEquals("NaN",         "NaN",          fmt.format(Double.NaN));
+        assertEquals("infinity",    "-Infinity",    fmt.format(Double.NEGATIVE_INFINITY));
+        assertEquals("too large",   "1.0E20",       fmt.format(1e20));
+
+        assertEquals("full precision", "40.123456789", NumberFormatter.FULL_PRECISION.format(40.123456789));
+        assertEquals("full precision", "12.0",         NumberFormatter.FULL_PRECISION.format(12.0));
+    }
+
+
+    @Test
+    public void testAppend() throws Exception
+    {
+        NumberFormatter fmt = new NumberFormatter(3);
+
+        StringBuilder sb = new StringBuilder("x=");
+        assertSame("append returns builder", sb, fmt.append(sb, 1.23456));
+        fmt.append(sb.append(','), -7.0);
+        NumberFormatter.FULL_PRECISION.append(sb.append(','), 0.5);
+        assertEquals("appended", "x=1.235,-7,0.5", sb.toString());
+    }
+
+
+    @Test
+    public void testInvalidDigits() throws Exception
+    {
+        for (int digits : new int[] { -1, NumberFormatter.MAX_DIGITS + 1 })
+        {
+            try
+            {
+                new NumberFormatter(digits);
+                fail("accepted " + digits);
+            }
+            catch (IllegalArgumentException ex)
+            {
+                assertEquals("invalid number of digits: " + digits, ex.getMessage());
+            }
+        }
+    }
+
+
+    @Test
+    public void testRandomValues() throws Exception
+    {
+        Random rnd = new Random(42);
+        for (int digits : new int[] { 1, 5, 7 })
+        {
+            NumberFormatter fmt = new NumberFormatter(digits);
+            for (int ii = 0 ; ii < 10000 ; ii++)
+            {
+                double value = (rnd.nextDouble() - 0.5) * 360;
+                BigDecimal formatted = new BigDecimal(fmt.format(value));
+                BigDecimal expected = new BigDecimal(value).setScale(digits, RoundingMode.HALF_UP);
+
+                // the scaled multiply may round differently than the exact value when it's
+                // very close to a midpoint, so allow one unit in the last place
+                BigDecimal diff = formatted.subtract(expected).abs();
+                assertTrue(value + " at " + digits + " digits: " + formatted,
+                           diff.compareTo(BigDecimal.ONE.movePointLeft(digits)) <= 0);
+            }
+        }
+    }
+}
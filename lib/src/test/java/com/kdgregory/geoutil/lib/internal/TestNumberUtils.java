@@ -0,0 +1,133 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TestNumberUtils
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  Parses the passed string, embedded in a buffer with surrounding content
+     *  to verify that only the specified range is examined.
+     */
+    private static double parse(String value)
+    {
+        byte[] bytes = ("<" + value + ">").getBytes(StandardCharsets.US_ASCII);
+        return NumberUtils.parseDouble(ByteBuffer.wrap(bytes), 1, bytes.length - 1);
+    }
+
+
+    /**
+     *  Parses the passed string as a character sequence, again with surrounding
+     *  content.
+     */
+    private static double parseChars(String value)
+    {
+        String chars = "<" + value + ">";
+        return NumberUtils.parseDouble(chars, 1, chars.length() - 1);
+    }
+
+
+    private static void assertParsesSameAsJDK(String value)
+    {
+        long expected = Double.doubleToRawLongBits(Double.parseDouble(value));
+        assertEquals(value + " (bytes)", expected, Double.doubleToRawLongBits(parse(value)));
+        assertEquals(value + " (chars)", expected, Double.doubleToRawLongBits(parseChars(value)));
+    }
+
+
+    private static void assertRejected(String value)
+    {
+        try
+        {
+            parse(value);
+            fail("accepted (bytes): \"" + value + "\"");
+        }
+        catch (NumberFormatException ex)
+        {
+            // success
+        }
+
+        try
+        {
+            parseChars(value);
+            fail("accepted (chars): \"" + value + "\"");
+        }
+        catch (NumberFormatException ex)
+        {
+            // success
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testParseDouble() throws Exception
+    {
+        String[] values = new String[]
+        {
+            "0", "-0", "+0", "0.0", "1", "-1", "12.5", "40.036694", "-75.928012", "206.82",
+            "1.", ".5", "-.5", "0.1", "0.3", "123456789012345678", "9007199254740993",
+            "1e10", "1E-10", "-2.5e+3", "1e22", "1e23", "1e-22", "1e-23", "1e308", "1e309",
+            "4.9e-324", "1e-400", "0.000000000000000000000000001", "3.141592653589793238462643383279"
+        };
+
+        for (String value : values)
+        {
+            assertParsesSameAsJDK(value);
+        }
+    }
+
+
+    @Test
+    public void testParseDoubleRandom() throws Exception
+    {
+        Random rnd = new Random(12345);
+        for (int ii = 0 ; ii < 100000 ; ii++)
+        {
+            assertParsesSameAsJDK(String.valueOf(rnd.nextDouble() * 360 - 180));
+            assertParsesSameAsJDK(String.format("%.6f", rnd.nextDouble() * 180 - 90));
+            assertParsesSameAsJDK(String.valueOf(Double.longBitsToDouble(rnd.nextLong() & 0x7FEFFFFFFFFFFFFFL)));
+        }
+    }
+
+
+    @Test
+    public void testParseDoubleInvalid() throws Exception
+    {
+        String[] values = new String[]
+        {
+            "", "-", "+", ".", "-.", "e5", "1e", "1e+", "1.2.3", "1-2", " 1", "1 ",
+            "abc", "NaN", "Infinity", "0x10", "1d", "1f"
+        };
+
+        for (String value : values)
+        {
+            assertRejected(value);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.internal;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import net.sf.kdgcommons.test.StringAsserts;
+import net.sf.practicalxml.XmlException;
+
+
+public class TestStaxUtils
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    private static XMLStreamReader createReader(String xml)
+    {
+        XMLStreamReader reader = StaxUtils.newReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        StaxUtils.moveToRoot(reader);
+        return reader;
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testNavigation() throws Exception
+    {
+        XMLStreamReader reader = createReader(
+                                    "<?xml version='1.0'?>"
+                                    + "<!-- a comment -->"
+                                    + "<a:foo xmlns:a='nsuri:argle' xmlns='nsuri:bargle'>"
+                                    + "text<?pi data?><bar/><!-- another comment -->"
+                                    + "<baz><biff/></baz>"
+                                    + "<boffo xmlns=''/>"
+                                    + "</a:foo>");
+
+        assertEquals("root namespace",          "nsuri:argle",  StaxUtils.getNamespaceURI(reader));
+        assertEquals("root name",               "a:foo",        StaxUtils.getNodeName(reader));
+
+        assertTrue("found first child",                         StaxUtils.nextChild(reader));
+        assertEquals("first child namespace",   "nsuri:bargle", StaxUtils.getNamespaceURI(reader));
+        assertEquals("first child name",        "bar",          StaxUtils.getNodeName(reader));
+        assertFalse("first child has no children",              StaxUtils.nextChild(reader));
+
+        assertTrue("found second child",                        StaxUtils.nextChild(reader));
+        assertEquals("second child name",       "baz",          StaxUtils.getNodeName(reader));
+        StaxUtils.skipElement(reader);
+        assertEquals("skip leaves reader at end of element",    XMLStreamConstants.END_ELEMENT, reader.getEventType());
+        assertEquals("skip leaves reader at end of element",    "baz", reader.getLocalName());
+
+        assertTrue("found third child",                         StaxUtils.nextChild(reader));
+        assertNull("third child namespace",                     StaxUtils.getNamespaceURI(reader));
+        assertEquals("third child name",        "boffo",        StaxUtils.getNodeName(reader));
+        assertFalse("third child has no children",              StaxUtils.nextChild(reader));
+
+        assertFalse("no more children",                         StaxUtils.nextChild(reader));
+        assertEquals("positioned at end of root",               "foo", reader.getLocalName());
+    }
+
+
+    @Test
+    public void testGetTextContent() throws Exception
+    {
+        XMLStreamReader reader = createReader(
+                                    "<foo>"
+                                    + "<bar>simple</bar>"
+                                    + "<bar>&lt;escaped&gt; &amp; <![CDATA[<cdata>]]></bar>"
+                                    + "<bar>nested <baz>text<!-- ignored --></baz> is included</bar>"
+                                    + "<bar/>"
+                                    + "</foo>");
+
+        assertTrue(StaxUtils.nextChild(reader));
+        assertEquals("simple text",             "simple",                       StaxUtils.getTextContent(reader));
+        assertEquals("at end of element",       XMLStreamConstants.END_ELEMENT, reader.getEventType());
+
+        assertTrue(StaxUtils.nextChild(reader));
+        assertEquals("escapes and CDATA",       "<escaped> & <cdata>",          StaxUtils.getTextContent(reader));
+
+        assertTrue(StaxUtils.nextChild(reader));
+        assertEquals("nested text",             "nested text is included",      StaxUtils.getTextContent(reader));
+        assertEquals("at end of element",       "bar",                          reader.getLocalName());
+
+        assertTrue(StaxUtils.nextChild(reader));
+        assertEquals("empty element",           "",                             StaxUtils.getTextContent(reader));
+
+        assertFalse("no more children",                                         StaxUtils.nextChild(reader));
+    }
+
+
+    @Test
+    public void testAttributes() throws Exception
+    {
+        XMLStreamReader reader = createReader("<foo xmlns:a='nsuri:argle' bar='12.5' baz='NAN' a:biff='123' boffo=''/>");
+
+        assertEquals("un-namespaced attribute",         "12.5", StaxUtils.getAttribute(reader, "bar"));
+        assertNull("namespaced attribute not returned",         StaxUtils.getAttribute(reader, "biff"));
+        assertNull("nonexistent attribute",                     StaxUtils.getAttribute(reader, "argle"));
+
+        assertEquals("parseable value",                 12.5,   StaxUtils.getAttributeAsDouble(reader, "bar"), 0.0);
+
+        try
+        {
+            StaxUtils.getAttributeAsDouble(reader, "baz");
+            fail("didn't throw on unparseable value");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("exception message identifies attribute, value (was: " + ex.getMessage() + ")",
+                                      ".*baz.*: NAN",
+                                      ex.getMessage());
+        }
+
+        try
+        {
+            StaxUtils.getAttributeAsDouble(reader, "boffo");
+            fail("didn't throw on empty value");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("exception message identifies attribute (was: " + ex.getMessage() + ")",
+                                      ".*missing attribute: boffo",
+                                      ex.getMessage());
+        }
+    }
+
+
+    @Test
+    public void testParseErrors() throws Exception
+    {
+        XMLStreamReader reader = createReader("<foo><bar></foo>");
+        assertTrue(StaxUtils.nextChild(reader));
+
+        try
+        {
+            StaxUtils.skipElement(reader);
+            fail("didn't throw on malformed document");
+        }
+        catch (XmlException ex)
+        {
+            assertNotNull("exception has cause", ex.getCause());
+        }
+    }
+}
@@ -15,6 +15,9 @@
 package com.kdgregory.geoutil.lib.internal;
 
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -22,6 +25,65 @@ import static org.junit.Assert.*;
 
 public class TestTimestampUtils
 {
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  The original implementation of <code>parse()</code>, which is now the fallback.
+     *  Returns the exception rather than throwing it, to simplify comparisons.
+     */
+    private static Object referenceParse(String value)
+    {
+        try
+        {
+            return (value.endsWith("Z"))
+                   ? Instant.parse(value)
+                   : Instant.from(DateTimeFormatter.ISO_DATE_TIME.parse(value));
+        }
+        catch (Exception ex)
+        {
+            return ex;
+        }
+    }
+
+
+    private static void assertSameAsReference(String value)
+    {
+        Object expected = referenceParse(value);
+        if (expected instanceof Instant)
+        {
+            assertEquals("parse(\"" + value + "\")",       expected,                            TimestampUtils.parse(value));
+            assertEquals("parseMillis(\"" + value + "\")", ((Instant)expected).toEpochMilli(),  TimestampUtils.parseMillis(new StringBuilder(value)));
+        }
+        else
+        {
+            try
+            {
+                TimestampUtils.parse(value);
+                fail("parse(\"" + value + "\") did not throw");
+            }
+            catch (IllegalArgumentException ex)
+            {
+                // success
+            }
+
+            try
+            {
+                TimestampUtils.parseMillis(value);
+                fail("parseMillis(\"" + value + "\") did not throw");
+            }
+            catch (IllegalArgumentException ex)
+            {
+                // success
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
     @Test
     public void testParse() throws Exception
     {
@@ -32,6 +94,110 @@ public class TestTimestampUtils
     }
 
 
+    @Test
+    public void testParseVariants() throws Exception
+    {
+        // these exercise the fast path, the boundaries where it defers to the formatter,
+        // and values that the formatter rejects
+
+        String[] values = new String[]
+        {
+            "2019-12-28T15:43:48Z",
+            "2019-12-28T15:43:48.1Z",
+            "2019-12-28T15:43:48.12Z",
+            "2019-12-28T15:43:48.123Z",
+            "2019-12-28T15:43:48.123456Z",
+            "2019-12-28T15:43:48.123456789Z",
+            "2019-12-28T15:43:48.1234567890Z",
+            "2019-12-28T15:43:48.Z",
+            "2019-12-28T11:43:48-04:00",
+            "2019-12-28T11:43:48.5-04:00",
+            "2019-12-28T21:13:48+05:30",
+            "2019-12-28T15:43:48+00:00",
+            "2019-12-28T15:43:48-00:00",
+            "2019-12-28T15:43:48+18:00",
+            "2019-12-28T15:43:48+18:01",
+            "2019-12-28T15:43:48+0400",
+            "2019-12-28T15:43:48+04:00[America/New_York]",
+            "2019-12-28T15:43:48+04:00Z",
+            "2019-12-28T15:43Z",
+            "2019-12-28T15:43:48",
+            "2019-12-28t15:43:48Z",
+            "2019-12-28T15:43:48z",
+            "2016-12-31T23:59:60Z",
+            "2019-12-28T24:00:00Z",
+            "2019-12-28T15:60:00Z",
+            "2020-02-29T12:00:00Z",
+            "2019-02-29T12:00:00Z",
+            "1900-02-29T12:00:00Z",
+            "2000-02-29T12:00:00Z",
+            "2019-04-31T12:00:00Z",
+            "2019-13-01T12:00:00Z",
+            "2019-00-01T12:00:00Z",
+            "2019-12-00T12:00:00Z",
+            "1969-12-31T23:59:59.999Z",
+            "1969-12-31T23:59:59.0001Z",
+            "0001-01-01T00:00:00Z",
+            "0000-03-01T00:00:00Z",
+            "9999-12-31T23:59:59.999999999Z",
+            "+12019-12-28T15:43:48Z",
+            "2019-12-28 15:43:48Z",
+            "201a-12-28T15:43:48Z",
+            "garbage",
+            "x"
+        };
+
+        for (String value : values)
+        {
+            assertSameAsReference(value);
+        }
+    }
+
+
+    @Test
+    public void testParseRandom() throws Exception
+    {
+        // note: every fourth value reuses the previous date, to exercise the cache
+        Random rnd = new Random(1577547828000L);
+        long epochSecond = 0;
+        for (int ii = 0 ; ii < 10000 ; ii++)
+        {
+            if (ii % 4 != 0)
+                epochSecond += rnd.nextInt(60);
+            else
+                epochSecond = rnd.nextLong() % 100000000000L;
+
+            Instant instant = Instant.ofEpochSecond(epochSecond, rnd.nextInt(1000000000));
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds((rnd.nextInt(36) - 18) * 1800);
+
+            String formatted = DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(instant.atOffset(offset));
+            assertSameAsReference(formatted);
+        }
+    }
+
+
+    @Test
+    public void testParseMillis() throws Exception
+    {
+        assertEquals("zulu",            1577547828000L,     TimestampUtils.parseMillis("2019-12-28T15:43:48Z"));
+        assertEquals("offset",          1577547828123L,     TimestampUtils.parseMillis("2019-12-28T11:43:48.123999-04:00"));
+        assertEquals("before epoch",    -1L,                TimestampUtils.parseMillis("1969-12-31T23:59:59.9999Z"));
+
+        for (String value : new String[] { null, "" })
+        {
+            try
+            {
+                TimestampUtils.parseMillis(value);
+                fail("did not throw for: " + value);
+            }
+            catch (IllegalArgumentException ex)
+            {
+                // success
+            }
+        }
+    }
+
+
     @Test
     public void testParseFailure() throws Exception
     {
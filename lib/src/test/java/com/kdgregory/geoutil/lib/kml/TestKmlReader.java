@@ -0,0 +1,222 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.kml;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.w3c.dom.Element;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import net.sf.kdgcommons.test.StringAsserts;
+import net.sf.practicalxml.OutputUtil;
+import net.sf.practicalxml.builder.XmlBuilder;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.AltitudeMode;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.TimeSpan;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.TimeStamp;
+import com.kdgregory.geoutil.lib.kml.model.Document;
+import com.kdgregory.geoutil.lib.kml.model.Folder;
+import com.kdgregory.geoutil.lib.kml.model.IconStyle;
+import com.kdgregory.geoutil.lib.kml.model.KmlPoint;
+import com.kdgregory.geoutil.lib.kml.model.LineString;
+import com.kdgregory.geoutil.lib.kml.model.LineStyle;
+import com.kdgregory.geoutil.lib.kml.model.Placemark;
+import com.kdgregory.geoutil.lib.kml.model.Style;
+
+
+public class TestKmlReader
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  Creates a file that exercises all of the supported elements.
+     */
+    private static KmlFile createTestFile()
+    {
+        Instant t0 = Instant.parse("2020-01-01T12:00:00Z");
+        return new KmlFile()
+               .addFeature(new Document()
+                   .setId("doc")
+                   .setName("example")
+                   .setDescription("<p>a document</p>")
+                   .addSharedStyle(new Style()
+                       .setId("shared")
+                       .setIconStyle(new IconStyle().setColor("FF00FF00").setScale(1.5).setHeading(90.0).setHref("http://example.com/icon.png"))
+                       .setLineStyle(new LineStyle().setColor("FF0000FF").setWidth(6.0)))
+                   .addFeature(new Placemark()
+                       .setName("point")
+                       .setVisibility(Boolean.TRUE)
+                       .setDescription("a point")
+                       .setTimestamp(new TimeStamp(t0))
+                       .setLocalStyleRef("shared")
+                       .setGeometry(new KmlPoint(39.95, -75.16, 12).setAltitudeMode(AltitudeMode.absolute).setExtrude(Boolean.TRUE)))
+                   .addFeature(new Folder()
+                       .setName("nested")
+                       .addFeature(new Placemark()
+                           .setName("line")
+                           .setTimespan(new TimeSpan(t0, t0.plusSeconds(60)))
+                           .setStyleSelector(new Style().setLineStyle(new LineStyle().setWidth(2.0)))
+                           .setGeometry(new LineString(new Point(39.95, -75.16), new Point(39.96, -75.17))
+                                        .setTessellate(Boolean.TRUE)))));
+    }
+
+
+    private static byte[] toBytes(org.w3c.dom.Document dom)
+    {
+        return OutputUtil.compactString(dom).getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    private static KmlFile read(KmlReader reader, org.w3c.dom.Document dom)
+    {
+        return reader.read(new ByteArrayInputStream(toBytes(dom)));
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testSameAsDom() throws Exception
+    {
+        org.w3c.dom.Document dom = createTestFile().toXml();
+
+        KmlFile fromDom = KmlFile.fromXml(dom);
+        KmlFile fromStream = read(new KmlReader(), dom);
+
+        assertEquals("reserialized",
+                     OutputUtil.compactString(fromDom.toXml()),
+                     OutputUtil.compactString(fromStream.toXml()));
+
+        // spot-check to verify that there's something in the comparison
+
+        Document doc = (Document)fromStream.getFeatures().get(0);
+        Placemark pm = (Placemark)doc.getFeatures().get(0);
+        assertEquals("document ID",         "doc",              doc.getId());
+        assertEquals("document style",      "shared",           doc.getStyleSelector().getId());
+        assertEquals("icon href",           "http://example.com/icon.png",
+                                                                doc.getStyleSelector().getIconStyle().getHref());
+        assertEquals("placemark name",      "point",            pm.getName());
+        assertEquals("placemark latitude",  39.95,              ((KmlPoint)pm.getGeometry()).getCoordinates().getLat(), 0.0);
+    }
+
+
+    @Test
+    public void testAlternateNamespace() throws Exception
+    {
+        // same as TestKmlFile; Google Earth writes this namespace
+        Element root = XmlBuilder.element("http://earth.google.com/kml/2.1", "kml",
+                            XmlBuilder.element("http://earth.google.com/kml/2.1", "Folder",
+                                XmlBuilder.element("http://earth.google.com/kml/2.1", "description", XmlBuilder.text("folder description")),
+                                XmlBuilder.element("http://earth.google.com/kml/2.1", "Placemark",
+                                    XmlBuilder.element("http://earth.google.com/kml/2.1", "Point",
+                                        XmlBuilder.element("http://earth.google.com/kml/2.1", "coordinates", XmlBuilder.text("-75.16,39.95"))))))
+                       .toDOM().getDocumentElement();
+
+        KmlFile file = read(new KmlReader(), root.getOwnerDocument());
+        Folder folder = (Folder)file.getFeatures().get(0);
+        Placemark pm = (Placemark)folder.getFeatures().get(0);
+
+        assertEquals("folder description",  "folder description",   folder.getDescription());
+        assertEquals("point longitude",     -75.16,                 ((KmlPoint)pm.getGeometry()).getCoordinates().getLon(), 0.0);
+    }
+
+
+    @Test
+    public void testSkipOptions() throws Exception
+    {
+        org.w3c.dom.Document dom = createTestFile().toXml();
+
+        KmlFile file = read(new KmlReader().setSkipStyles(true).setSkipDescriptions(true), dom);
+        Document doc = (Document)file.getFeatures().get(0);
+        Placemark pm1 = (Placemark)doc.getFeatures().get(0);
+        Placemark pm2 = (Placemark)((Folder)doc.getFeatures().get(1)).getFeatures().get(0);
+
+        assertNull("document style skipped",            doc.getStyleSelector());
+        assertNull("document description skipped",      doc.getDescription());
+        assertNull("placemark description skipped",     pm1.getDescription());
+        assertNull("placemark style skipped",           pm2.getStyleSelector());
+        assertEquals("style reference retained",        "#shared",              pm1.getStyleRef());
+        assertEquals("name retained",                   "point",                pm1.getName());
+        assertEquals("geometry retained",               2,                      ((LineString)pm2.getGeometry()).getCoordinates().size());
+    }
+
+
+    @Test
+    public void testReadFile() throws Exception
+    {
+        KmlFile orig = createTestFile();
+
+        File file = File.createTempFile(getClass().getSimpleName() + "-testReadFile", ".kml");
+        try
+        {
+            orig.write(file);
+            assertEquals("reserialized",
+                         OutputUtil.compactString(KmlFile.fromXml(orig.toXml()).toXml()),
+                         OutputUtil.compactString(new KmlReader().read(file).toXml()));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+
+    @Test
+    public void testInvalidContent() throws Exception
+    {
+        String ns = KmlConstants.NAMESPACE;
+        try
+        {
+            read(new KmlReader(), XmlBuilder.element(ns, "gpx").toDOM());
+            fail("accepted invalid root element");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("invalid root element name: gpx", ex.getMessage());
+        }
+
+        try
+        {
+            read(new KmlReader(), XmlBuilder.element(ns, "kml", XmlBuilder.element(ns, "Placemark")).toDOM());
+            fail("accepted invalid child of root");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("unrecognized child element: Placemark", ex.getMessage());
+        }
+
+        try
+        {
+            read(new KmlReader(), XmlBuilder.element(ns, "kml",
+                                    XmlBuilder.element(ns, "Folder",
+                                        XmlBuilder.element(ns, "Placemark",
+                                            XmlBuilder.element(ns, "LineString")))).toDOM());
+            fail("accepted LineString without coordinates");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("LineString must have coordinates", ex.getMessage());
+        }
+    }
+}
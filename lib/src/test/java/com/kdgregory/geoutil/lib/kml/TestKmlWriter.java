@@ -0,0 +1,322 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.kml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import net.sf.kdgcommons.test.StringAsserts;
+import net.sf.practicalxml.OutputUtil;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.AltitudeMode;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.CoordinateFormat;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.TimeSpan;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.TimeStamp;
+import com.kdgregory.geoutil.lib.kml.model.Document;
+import com.kdgregory.geoutil.lib.kml.model.Folder;
+import com.kdgregory.geoutil.lib.kml.model.IconStyle;
+import com.kdgregory.geoutil.lib.kml.model.KmlPoint;
+import com.kdgregory.geoutil.lib.kml.model.LineString;
+import com.kdgregory.geoutil.lib.kml.model.LineStyle;
+import com.kdgregory.geoutil.lib.kml.model.Placemark;
+import com.kdgregory.geoutil.lib.kml.model.Style;
+
+
+public class TestKmlWriter
+{
+    private static Instant t0 = Instant.parse("2020-01-01T12:00:00Z");
+
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    private static Style sharedStyle()
+    {
+        return new Style()
+               .setId("shared")
+               .setIconStyle(new IconStyle().setColor("FF00FF00").setScale(1.5).setHref("http://example.com/icon.png"))
+               .setLineStyle(new LineStyle().setColor("FF0000FF").setWidth(6.0));
+    }
+
+
+    private static Placemark pointPlacemark()
+    {
+        return new Placemark()
+               .setName("point")
+               .setVisibility(Boolean.TRUE)
+               .setDescription("<p>a point & some \"quotes\"</p>")
+               .setTimestamp(new TimeStamp(t0))
+               .setLocalStyleRef("shared")
+               .setGeometry(new KmlPoint(39.95, -75.16, 12).setAltitudeMode(AltitudeMode.absolute));
+    }
+
+
+    private static Placemark linePlacemark()
+    {
+        return new Placemark()
+               .setId("line")
+               .setTimespan(new TimeSpan(t0, t0.plusSeconds(60)))
+               .setStyleSelector(new Style().setLineStyle(new LineStyle().setWidth(2.0)))
+               .setGeometry(new LineString(new Point(39.95, -75.16), new Point(39.96, -75.17))
+                            .setTessellate(Boolean.TRUE));
+    }
+
+
+    /**
+     *  Returns the bytes produced by the DOM-based output path.
+     */
+    private static byte[] expectedBytes(KmlFile kml)
+    {
+        return expectedBytes(kml, CoordinateFormat.FULL_PRECISION);
+    }
+
+
+    private static byte[] expectedBytes(KmlFile kml, CoordinateFormat format)
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        OutputUtil.compact(new DOMSource(kml.toXml(format)), new StreamResult(bos));
+        return bos.toByteArray();
+    }
+
+
+    private static void assertSameOutput(String message, byte[] expected, byte[] actual)
+    {
+        if (! Arrays.equals(expected, actual))
+        {
+            // this gives a readable failure message
+            assertEquals(message,
+                         new String(expected, StandardCharsets.UTF_8),
+                         new String(actual, StandardCharsets.UTF_8));
+            fail(message + ": strings are equal but bytes are not");
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testCompleteFile() throws Exception
+    {
+        KmlFile kml = new KmlFile()
+                      .addFeature(new Document()
+                          .setId("doc")
+                          .setName("example")
+                          .addSharedStyle(sharedStyle())
+                          .addFeature(pointPlacemark())
+                          .addFeature(new Folder()
+                              .setName("nested")
+                              .addFeature(linePlacemark())))
+                      .addFeature(new Folder()
+                          .setName("second"));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (KmlWriter writer = new KmlWriter(bos))
+        {
+            writer.write(kml);
+        }
+
+        assertSameOutput("complete file", expectedBytes(kml), bos.toByteArray());
+    }
+
+
+    @Test
+    public void testIncrementalOutput() throws Exception
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (KmlWriter writer = new KmlWriter(bos))
+        {
+            writer.startKml()
+                  .startDocument(new Document().setName("example"))
+                  .writeSharedStyle(sharedStyle())
+                  .writePlacemark(pointPlacemark())
+                  .startFolder(new Folder().setName("nested").addFeature(pointPlacemark()))
+                  .writePlacemark(linePlacemark())
+                  .endFolder()
+                  .writePlacemark(linePlacemark())
+                  .endDocument()
+                  .endKml();
+        }
+
+        KmlFile expected = new KmlFile()
+                           .addFeature(new Document()
+                               .setName("example")
+                               .addSharedStyle(sharedStyle())
+                               .addFeature(pointPlacemark())
+                               .addFeature(new Folder()
+                                   .setName("nested")
+                                   .addFeature(pointPlacemark())
+                                   .addFeature(linePlacemark()))
+                               .addFeature(linePlacemark()));
+
+        assertSameOutput("incremental output", expectedBytes(expected), bos.toByteArray());
+
+        KmlFile reread = new KmlReader().read(new ByteArrayInputStream(bos.toByteArray()));
+        Document doc = (Document)reread.getFeatures().get(0);
+        // note: the readers treat a document's style as its style selector
+        assertEquals("reread: document style",      "shared", doc.getStyleSelector().getId());
+        assertEquals("reread: top-level features",  3, doc.getFeatures().size());
+        assertEquals("reread: folder features",     2, ((Folder)doc.getFeatures().get(1)).getFeatures().size());
+    }
+
+
+    @Test
+    public void testCloseEndsOpenElements() throws Exception
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (KmlWriter writer = new KmlWriter(bos))
+        {
+            writer.startKml()
+                  .startDocument(new Document())
+                  .startFolder(new Folder())
+                  .writePlacemark(pointPlacemark());
+        }
+
+        KmlFile reread = new KmlReader().read(new ByteArrayInputStream(bos.toByteArray()));
+        Document doc = (Document)reread.getFeatures().get(0);
+        Folder folder = (Folder)doc.getFeatures().get(0);
+        assertEquals("placemark was written", "point", folder.getFeatures().get(0).getName());
+    }
+
+
+    @Test
+    public void testCloseWithoutOutput() throws Exception
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new KmlWriter(bos).close();
+        assertEquals("nothing written", 0, bos.size());
+    }
+
+
+    @Test
+    public void testInvalidOperations() throws Exception
+    {
+        try (KmlWriter writer = new KmlWriter(new ByteArrayOutputStream()))
+        {
+            try
+            {
+                writer.startDocument(new Document());
+                fail("accepted container before root");
+            }
+            catch (IllegalStateException ex)
+            {
+                StringAsserts.assertRegex("invalid operation in state INITIAL", ex.getMessage());
+            }
+
+            writer.startKml();
+
+            try
+            {
+                writer.writePlacemark(pointPlacemark());
+                fail("accepted placemark at root");
+            }
+            catch (IllegalStateException ex)
+            {
+                StringAsserts.assertRegex("only containers.*root.*", ex.getMessage());
+            }
+
+            try
+            {
+                writer.writeSharedStyle(sharedStyle());
+                fail("accepted shared style at root");
+            }
+            catch (IllegalStateException ex)
+            {
+                StringAsserts.assertRegex("shared styles.*document", ex.getMessage());
+            }
+
+            writer.startDocument(new Document());
+
+            try
+            {
+                writer.writeSharedStyle(new Style());
+                fail("accepted shared style without ID");
+            }
+            catch (IllegalArgumentException ex)
+            {
+                StringAsserts.assertRegex("shared styles must have an ID", ex.getMessage());
+            }
+
+            try
+            {
+                writer.endFolder();
+                fail("accepted endFolder with open document");
+            }
+            catch (IllegalStateException ex)
+            {
+                StringAsserts.assertRegex(".*Folder is not the current container", ex.getMessage());
+            }
+
+            try
+            {
+                writer.endKml();
+                fail("accepted endKml with open document");
+            }
+            catch (IllegalStateException ex)
+            {
+                StringAsserts.assertRegex(".*Document is open", ex.getMessage());
+            }
+
+            writer.writePlacemark(pointPlacemark());
+
+            try
+            {
+                writer.writeSharedStyle(sharedStyle());
+                fail("accepted shared style after feature");
+            }
+            catch (IllegalStateException ex)
+            {
+                StringAsserts.assertRegex(".*before features", ex.getMessage());
+            }
+        }
+    }
+
+
+    @Test
+    public void testReducedPrecision() throws Exception
+    {
+        CoordinateFormat format = new CoordinateFormat(7, 1);
+
+        KmlFile kml = new KmlFile()
+                      .addFeature(new Document()
+                          .addFeature(new Placemark()
+                              .setGeometry(new KmlPoint(39.123456789, -75.987654321, 12.345)))
+                          .addFeature(new Placemark()
+                              .setGeometry(new LineString(new Point(39.5, -75.0), new Point(39.96, -75.17, Double.valueOf(10.04), null)))));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (KmlWriter writer = new KmlWriter(bos))
+        {
+            writer.setCoordinateFormat(format)
+                  .write(kml);
+        }
+
+        assertSameOutput("same as DOM output", expectedBytes(kml, format), bos.toByteArray());
+
+        String output = new String(bos.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue("point: " + output,      output.contains(">-75.9876543,39.1234568,12.3<"));
+        assertTrue("linestring: " + output, output.contains(">-75,39.5 -75.17,39.96,10<"));
+    }
+}
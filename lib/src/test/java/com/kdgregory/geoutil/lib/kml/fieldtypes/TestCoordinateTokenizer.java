@@ -0,0 +1,175 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.lib.kml.fieldtypes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import net.sf.kdgcommons.test.StringAsserts;
+
+import com.kdgregory.geoutil.lib.core.PointArray;
+
+
+public class TestCoordinateTokenizer
+{
+//----------------------------------------------------------------------------
+//  Helpers
+//----------------------------------------------------------------------------
+
+    /**
+     *  Parses the passed string, returning a list of [lat, lon, alt] triples.
+     */
+    private static List<double[]> tokenize(String value)
+    {
+        List<double[]> result = new ArrayList<>();
+        int count = CoordinateTokenizer.parse(value, (lat, lon, alt) -> result.add(new double[] { lat, lon, alt }));
+        assertEquals("returned count", result.size(), count);
+        return result;
+    }
+
+
+    private static void assertTuple(String message, double[] tuple, double lat, double lon, double alt)
+    {
+        assertEquals(message + ": latitude",    lat, tuple[0], 0.0);
+        assertEquals(message + ": longitude",   lon, tuple[1], 0.0);
+        assertEquals(message + ": altitude",    alt, tuple[2], 0.0);
+    }
+
+
+    private static void assertRejected(String value, String expectedMessage)
+    {
+        try
+        {
+            tokenize(value);
+            fail("accepted: \"" + value + "\"");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex(expectedMessage, ex.getMessage());
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Testcases
+//----------------------------------------------------------------------------
+
+    @Test
+    public void testBasicOperation() throws Exception
+    {
+        List<double[]> tuples = tokenize("34.0,12.0 -75.205757,40.135216,80.41");
+
+        assertEquals("number of tuples", 2, tuples.size());
+        assertTuple("first tuple",  tuples.get(0), 12.0, 34.0, Double.NaN);
+        assertTuple("second tuple", tuples.get(1), 40.135216, -75.205757, 80.41);
+    }
+
+
+    @Test
+    public void testWhitespace() throws Exception
+    {
+        List<double[]> tuples = tokenize("\n\t  1,2,3\r\n\t4,5   \t6,7,8\n  ");
+
+        assertEquals("number of tuples", 3, tuples.size());
+        assertTuple("first tuple",  tuples.get(0), 2, 1, 3);
+        assertTuple("second tuple", tuples.get(1), 5, 4, Double.NaN);
+        assertTuple("third tuple",  tuples.get(2), 7, 6, 8);
+
+        assertEquals("empty string",        0, tokenize("").size());
+        assertEquals("only whitespace",     0, tokenize(" \n\t\r ").size());
+    }
+
+
+    @Test
+    public void testSameAsJDK() throws Exception
+    {
+        Random rnd = new Random(12345);
+        StringBuilder sb = new StringBuilder();
+        double[] expected = new double[3000];
+        for (int ii = 0 ; ii < expected.length ; ii += 3)
+        {
+            expected[ii]     = rnd.nextDouble() * 180 - 90;
+            expected[ii + 1] = rnd.nextDouble() * 360 - 180;
+            expected[ii + 2] = rnd.nextDouble() * 1000;
+            sb.append(expected[ii + 1]).append(",").append(expected[ii]).append(",").append(expected[ii + 2]).append(" ");
+        }
+
+        List<double[]> tuples = tokenize(sb.toString());
+        assertEquals("number of tuples", expected.length / 3, tuples.size());
+        for (int ii = 0 ; ii < tuples.size() ; ii++)
+        {
+            assertTuple("tuple " + ii, tuples.get(ii), expected[ii * 3], expected[ii * 3 + 1], expected[ii * 3 + 2]);
+        }
+    }
+
+
+    @Test
+    public void testInvalidTuples() throws Exception
+    {
+        assertRejected("12",                "invalid coordinates: 12");
+        assertRejected("1,2 3 4,5",         "invalid coordinates: 3");
+        assertRejected("1,2,3,4",           "invalid coordinates: 1,2,3,4");
+        assertRejected("1,2,3,4 5,6",       "invalid coordinates: 1,2,3,4");
+        assertRejected("1, 2",              "could not parse: ");
+        assertRejected("1,,2",              "could not parse: ");
+        assertRejected("1,2,,3",            "could not parse: ");
+        assertRejected("1,,",               "could not parse: ");
+        assertRejected("1,abc",             "could not parse: abc");
+        assertRejected("NaN,2",             "could not parse: NaN");
+        assertRejected("1,NaN",             "could not parse: NaN");
+    }
+
+
+    @Test
+    public void testLegacyCompatibility() throws Exception
+    {
+        // these were accepted by the original split()-based parser
+        List<double[]> tuples = tokenize("1,2, 3,4,5,, 6,7,NaN");
+
+        assertEquals("number of tuples", 3, tuples.size());
+        assertTuple("trailing comma",           tuples.get(0), 2, 1, Double.NaN);
+        assertTuple("multiple trailing commas", tuples.get(1), 4, 3, 5);
+        assertTuple("NaN altitude",             tuples.get(2), 7, 6, Double.NaN);
+    }
+
+
+    @Test
+    public void testPointArray() throws Exception
+    {
+        PointArray points = CoordinateTokenizer.parse("1,2,3 4,5");
+
+        assertEquals("size",                    2,      points.size());
+        assertEquals("first latitude",          2,      points.getLat(0), 0.0);
+        assertEquals("first longitude",         1,      points.getLon(0), 0.0);
+        assertEquals("first elevation",         3,      points.getElevation(0), 0.0);
+        assertFalse("first timestamp",                  points.hasTimestamp(0));
+        assertEquals("second latitude",         5,      points.getLat(1), 0.0);
+        assertEquals("second longitude",        4,      points.getLon(1), 0.0);
+        assertFalse("second elevation",                 points.hasElevation(1));
+
+        try
+        {
+            CoordinateTokenizer.parse("0,91");
+            fail("accepted invalid latitude");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("invalid latitude: 91.0", ex.getMessage());
+        }
+    }
+}
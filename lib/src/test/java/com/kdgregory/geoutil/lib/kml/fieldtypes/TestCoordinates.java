@@ -78,6 +78,28 @@ public class TestCoordinates
     }
 
 
+    @Test
+    public void testFromStringValidation() throws Exception
+    {
+        assertEquals("surrounding whitespace",  new Coordinates(12, 34),    Coordinates.fromString(" 34,12\n"));
+        assertEquals("trailing comma",          new Coordinates(12, 34),    Coordinates.fromString("34,12,"));
+        assertEquals("NaN altitude",            new Coordinates(12, 34),    Coordinates.fromString("34,12,NaN"));
+
+        for (String value : new String[] { "34,12,56,78", "34,12 56,34", "", "34" })
+        {
+            try
+            {
+                Coordinates.fromString(value);
+                fail("accepted: \"" + value + "\"");
+            }
+            catch (IllegalArgumentException ex)
+            {
+                // success
+            }
+        }
+    }
+
+
     @Test
     public void testStringListSerialization() throws Exception
     {
@@ -89,4 +111,14 @@ public class TestCoordinates
         assertEquals("serialization",   "34.0,12.0 56.0,34.0,78.0",     Coordinates.stringify(orig));
         assertEquals("deserialization", orig,                           Coordinates.fromStringList("34.0,12.0 56.0,34.0,78.0"));
     }
+
+
+    @Test
+    public void testStringListWithWhitespace() throws Exception
+    {
+        List<Coordinates> expected = Arrays.asList(new Coordinates(12, 34), new Coordinates(34, 56, 78));
+
+        assertEquals("newline separated",   expected,   Coordinates.fromStringList("34.0,12.0\n56.0,34.0,78.0"));
+        assertEquals("indented",            expected,   Coordinates.fromStringList("\n\t\t34,12\n\t\t56,34,78\n\t"));
+    }
 }
@@ -14,6 +14,7 @@
 
 package com.kdgregory.geoutil.lib.kml.model;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 
@@ -23,9 +24,12 @@ import org.w3c.dom.Element;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import net.sf.kdgcommons.test.StringAsserts;
 import net.sf.practicalxml.DomUtil;
 import net.sf.practicalxml.builder.XmlBuilder;
 
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.PointArray;
 import com.kdgregory.geoutil.lib.kml.fieldtypes.AltitudeMode;
 import com.kdgregory.geoutil.lib.kml.fieldtypes.Coordinates;
 import com.kdgregory.geoutil.lib.kml.model.LineString;
@@ -44,6 +48,98 @@ public class TestLineString
     }
 
 
+    @Test
+    public void testPrimitiveConstructors() throws Exception
+    {
+        List<Coordinates> cs = Arrays.asList(new Coordinates(12,34), new Coordinates(-12,-34,56));
+
+        double[] lat = new double[] { 12, -12, 99 };
+        double[] lon = new double[] { 34, -34, 99 };
+        double[] alt = new double[] { Double.NaN, 56, 99 };
+
+        assertEquals("constructed from arrays",                 cs,     new LineString(lat, lon, alt, 2).getCoordinates());
+        assertEquals("constructed from arrays, no altitude",    Arrays.asList(new Coordinates(12,34), new Coordinates(-12,-34)),
+                                                                        new LineString(lat, lon, null, 2).getCoordinates());
+        assertEquals("constructed from PointArray",             cs,     new LineString(new PointArray(cs)).getCoordinates());
+        assertEquals("constructed from empty arrays",           0,      new LineString(lat, lon, alt, 0).size());
+
+        try
+        {
+            new LineString(lat, lon, alt, 3);
+            fail("accepted invalid latitude");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("invalid latitude: 99.0", ex.getMessage());
+        }
+
+        try
+        {
+            new LineString(lat, lon, new double[1], 2);
+            fail("accepted short altitude array");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            StringAsserts.assertRegex("invalid count: 2", ex.getMessage());
+        }
+    }
+
+
+    @Test
+    public void testCoordinatesView() throws Exception
+    {
+        Instant now = Instant.now();
+        Point p1 = new Point(12, 34, now);
+        Coordinates c2 = new Coordinates(12, 34, 56);
+
+        LineString ls = new LineString(p1, c2);
+        List<Coordinates> view = ls.getCoordinates();
+
+        assertEquals("size",                            2,                  ls.size());
+        assertEquals("view size",                       2,                  view.size());
+        assertEquals("point converted to Coordinates",  p1,                 view.get(0));
+        assertEquals("timestamp retained",              now,                view.get(0).getTimestamp());
+        assertSame("Coordinates used as-is",            c2,                 view.get(1));
+
+        try
+        {
+            view.add(c2);
+            fail("view was modifiable");
+        }
+        catch (UnsupportedOperationException ex)
+        {
+            // success
+        }
+
+        try
+        {
+            view.get(2);
+            fail("view allowed out-of-range index");
+        }
+        catch (IndexOutOfBoundsException ex)
+        {
+            // success
+        }
+    }
+
+
+    @Test
+    public void testSerializationSameForAllStorage() throws Exception
+    {
+        String expected = "34.0,12.0 -34.5,-12.25,56.0";
+        List<Point> points = Arrays.asList(new Point(12, 34), new Point(-12.25, -34.5, 56.0, null));
+
+        LineString fromPoints   = new LineString(points);
+        LineString fromString   = new LineString(expected);
+        LineString fromArrays   = new LineString(new double[] { 12, -12.25 }, new double[] { 34, -34.5 }, new double[] { Double.NaN, 56 }, 2);
+
+        Element parent = DomUtil.newDocument("irrelevant");
+        assertEquals("from points",     expected,   fromPoints.appendAsXml(parent).getTextContent());
+        assertEquals("from string",     expected,   fromString.appendAsXml(parent).getTextContent());
+        assertEquals("from arrays",     expected,   fromArrays.appendAsXml(parent).getTextContent());
+    }
+
+
     @Test
     public void testAccessors() throws Exception
     {
@@ -0,0 +1,75 @@
+// Copyright (c) Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.util.generator;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.kdgregory.geoutil.util.generator.TrackGenerator.SpeedProfile;
+
+
+/**
+ *  Generates a synthetic track, for testing and benchmarking. The output format
+ *  is determined by the file's extension, which must be ".gpx" or ".kml". The
+ *  same seed always produces the same output; profile is one of WALK (the
+ *  default), RUN, CYCLE, or DRIVE.
+ *  <p>
+ *  Invocation:
+ *
+ *      GenerateTrack FILENAME NUM_POINTS [SEED [PROFILE]]
+ */
+public class GenerateTrack
+{
+    private static Logger logger = LoggerFactory.getLogger(GenerateTrack.class);
+
+
+    public static void main(String[] argv)
+    throws Exception
+    {
+        if ((argv.length < 2) || (argv.length > 4))
+        {
+            System.err.println("invocation: GenerateTrack FILENAME NUM_POINTS [SEED [PROFILE]]");
+            System.exit(1);
+        }
+
+        File file = new File(argv[0]);
+        int count = Integer.parseInt(argv[1]);
+        long seed = (argv.length > 2) ? Long.parseLong(argv[2]) : 0;
+        SpeedProfile profile = (argv.length > 3) ? SpeedProfile.valueOf(argv[3].toUpperCase()) : SpeedProfile.WALK;
+
+        TrackGenerator generator = new TrackGenerator()
+                                   .setSeed(seed)
+                                   .setSpeedProfile(profile);
+
+        logger.info("generating {} points to {}", count, file);
+        String filename = file.getName().toLowerCase();
+        if (filename.endsWith(".gpx"))
+        {
+            generator.writeGpx(file, count);
+        }
+        else if (filename.endsWith(".kml"))
+        {
+            generator.writeKml(file, count);
+        }
+        else
+        {
+            System.err.println("unsupported file type: " + file);
+            System.exit(1);
+        }
+        logger.info("finished");
+    }
+}
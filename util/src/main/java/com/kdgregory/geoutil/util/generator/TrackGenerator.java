@@ -0,0 +1,385 @@
+// Copyright (c) Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.util.generator;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.PointUtil;
+import com.kdgregory.geoutil.lib.gpx.GpxWriter;
+import com.kdgregory.geoutil.lib.kml.KmlWriter;
+import com.kdgregory.geoutil.lib.kml.model.Document;
+import com.kdgregory.geoutil.lib.kml.model.LineString;
+import com.kdgregory.geoutil.lib.kml.model.Placemark;
+
+
+/**
+ *  Generates synthetic GPS tracks, for testing and benchmarking at scale.
+ *  <p>
+ *  The track is a random walk: heading and speed vary smoothly around the
+ *  values for a {@link SpeedProfile}. Along the way, the traveller occasionally
+ *  pauses (while the device continues to record), and the device occasionally
+ *  stops recording for a time gap long enough to be split into a separate
+ *  segment by <code>SegmentUtil.split()</code>. Recorded points include GPS
+ *  jitter and elevation noise, and are rounded to the precision of a typical
+ *  device.
+ *  <p>
+ *  Output is deterministic for a given configuration and seed. Configure the
+ *  instance before retrieving any points.
+ *  <p>
+ *  {@link #writeGpx} streams its output, so can produce files of any size without
+ *  a correspondingly large heap. {@link #writeKml} holds the track's coordinates
+ *  in primitive arrays, because a line string is written as a single element.
+ *  <p>
+ *  Instances are not thread-safe.
+ */
+public class TrackGenerator
+{
+    /**
+     *  Controls the speed of movement: a typical speed (in meters/second), and
+     *  the amount that it varies from point to point.
+     */
+    public enum SpeedProfile
+    {
+        WALK(1.4, 0.2),
+        RUN(3.0, 0.4),
+        CYCLE(6.0, 1.0),
+        DRIVE(15.0, 3.0);
+
+        private final double speed;
+        private final double variability;
+
+        private SpeedProfile(double speed, double variability)
+        {
+            this.speed = speed;
+            this.variability = variability;
+        }
+    }
+
+    // how quickly speed returns to the profile's typical speed
+    private final static double SPEED_REVERSION = 0.1;
+
+    // the standard deviation of the change in heading between points (radians)
+    private final static double HEADING_VARIABILITY = 0.15;
+
+    // latitude where the traveller turns around, to keep longitude well-behaved
+    private final static double MAX_LATITUDE = 80.0;
+
+    private long seed;
+    private double startLat = 39.95237;
+    private double startLon = -75.16358;
+    private double startElevation = 10.0;
+    private Instant startTime = Instant.parse("2020-01-01T00:00:00Z");
+    private Duration interval = Duration.ofSeconds(1);
+    private SpeedProfile profile = SpeedProfile.WALK;
+    private double pauseProbability = 0.002;
+    private Duration maxPause = Duration.ofMinutes(2);
+    private double gapProbability = 0.0005;
+    private Duration minGap = Duration.ofMinutes(15);
+    private Duration maxGap = Duration.ofMinutes(60);
+    private double jitter = 3.0;
+    private double elevationNoise = 1.0;
+
+    // generation state, initialized when the first point is requested
+    private Random rnd;
+    private double lat;
+    private double lon;
+    private double elevation;
+    private long timestamp;
+    private double heading;
+    private double speed;
+    private int pauseRemaining;
+
+//----------------------------------------------------------------------------
+//  Configuration
+//----------------------------------------------------------------------------
+
+    /**
+     *  Sets the seed for the random number generator. Defaults to 0.
+     */
+    public TrackGenerator setSeed(long value)
+    {
+        seed = value;
+        return this;
+    }
+
+
+    /**
+     *  Sets the starting location. Defaults to Philadelphia.
+     */
+    public TrackGenerator setStart(double lat, double lon, double elevation)
+    {
+        // this validates the coordinates
+        new Point(lat, lon);
+
+        startLat = lat;
+        startLon = lon;
+        startElevation = elevation;
+        return this;
+    }
+
+
+    /**
+     *  Sets the timestamp of the first point. Defaults to 2020-01-01T00:00:00Z.
+     */
+    public TrackGenerator setStartTime(Instant value)
+    {
+        startTime = value;
+        return this;
+    }
+
+
+    /**
+     *  Sets the interval between recorded points. Defaults to one second.
+     */
+    public TrackGenerator setInterval(Duration value)
+    {
+        if (value.isNegative() || value.isZero())
+            throw new IllegalArgumentException("invalid interval: " + value);
+
+        interval = value;
+        return this;
+    }
+
+
+    /**
+     *  Sets the speed profile. Defaults to <code>WALK</code>.
+     */
+    public TrackGenerator setSpeedProfile(SpeedProfile value)
+    {
+        profile = value;
+        return this;
+    }
+
+
+    /**
+     *  Sets the probability that the traveller will pause at any given point,
+     *  and the maximum length of that pause. Defaults to 0.002 (a pause every
+     *  eight minutes or so, at one-second intervals), up to two minutes.
+     */
+    public TrackGenerator setPauses(double probability, Duration max)
+    {
+        pauseProbability = probability;
+        maxPause = max;
+        return this;
+    }
+
+
+    /**
+     *  Sets the probability that the device will stop recording at any given
+     *  point, and the range of time before it resumes. Defaults to 0.0005,
+     *  for 15 to 60 minutes.
+     */
+    public TrackGenerator setGaps(double probability, Duration min, Duration max)
+    {
+        if (max.compareTo(min) < 0)
+            throw new IllegalArgumentException("invalid gap range: " + min + " to " + max);
+
+        gapProbability = probability;
+        minGap = min;
+        maxGap = max;
+        return this;
+    }
+
+
+    /**
+     *  Sets the standard deviation of GPS position error, in meters. Defaults
+     *  to 3.
+     */
+    public TrackGenerator setJitter(double meters)
+    {
+        jitter = meters;
+        return this;
+    }
+
+
+    /**
+     *  Sets the standard deviation of elevation error, in meters. Defaults to 1.
+     */
+    public TrackGenerator setElevationNoise(double meters)
+    {
+        elevationNoise = meters;
+        return this;
+    }
+
+//----------------------------------------------------------------------------
+//  Public methods
+//----------------------------------------------------------------------------
+
+    /**
+     *  Returns the next recorded point.
+     */
+    public Point next()
+    {
+        if (rnd == null)
+            initialize();
+        else
+            advance();
+
+        double recordedLat = lat + rnd.nextGaussian() * jitter / PointUtil.EARTH_DEGREE_LENGTH;
+        double recordedLon = lon + rnd.nextGaussian() * jitter / PointUtil.correctedLongitude(PointUtil.EARTH_DEGREE_LENGTH, lat);
+        double recordedElevation = elevation + rnd.nextGaussian() * elevationNoise;
+
+        return new Point(round(Math.max(-90, Math.min(90, recordedLat)), 1e6),
+                         round(normalizeLongitude(recordedLon), 1e6),
+                         round(recordedElevation, 1e2),
+                         timestamp);
+    }
+
+
+    /**
+     *  Returns a list of the specified number of points.
+     */
+    public List<Point> generate(int count)
+    {
+        List<Point> result = new ArrayList<>(count);
+        for (int ii = 0 ; ii < count ; ii++)
+        {
+            result.add(next());
+        }
+        return result;
+    }
+
+
+    /**
+     *  Writes the specified number of points to a GPX file, as a single track
+     *  with a single segment.
+     */
+    public void writeGpx(File file, int count)
+    {
+        try (GpxWriter writer = new GpxWriter(file))
+        {
+            writer.startGpx("1.1", getClass().getSimpleName());
+            writer.startTrack("Generated Track", null, profile.name().toLowerCase());
+            writer.startSegment();
+            for (int ii = 0 ; ii < count ; ii++)
+            {
+                writer.writePoint(next());
+            }
+        }
+    }
+
+
+    /**
+     *  Writes the specified number of points to a KML file, as a single placemark
+     *  containing a line string. KML line strings don't hold timestamps, so time
+     *  gaps are not visible in this output.
+     */
+    public void writeKml(File file, int count)
+    {
+        double[] lat = new double[count];
+        double[] lon = new double[count];
+        double[] alt = new double[count];
+        for (int ii = 0 ; ii < count ; ii++)
+        {
+            Point p = next();
+            lat[ii] = p.getLat();
+            lon[ii] = p.getLon();
+            alt[ii] = p.getElevation().doubleValue();
+        }
+
+        try (KmlWriter writer = new KmlWriter(file))
+        {
+            writer.startKml();
+            writer.startDocument(new Document());
+            writer.writePlacemark(new Placemark()
+                                  .setName("Generated Track")
+                                  .setGeometry(new LineString(lat, lon, alt, count)));
+        }
+    }
+
+//----------------------------------------------------------------------------
+//  Internals
+//----------------------------------------------------------------------------
+
+    private void initialize()
+    {
+        rnd = new Random(seed);
+        lat = startLat;
+        lon = startLon;
+        elevation = startElevation;
+        timestamp = startTime.toEpochMilli();
+        heading = rnd.nextDouble() * 2 * Math.PI;
+        speed = profile.speed;
+    }
+
+
+    /**
+     *  Moves the true position to that of the next recorded point.
+     */
+    private void advance()
+    {
+        long intervalMillis = interval.toMillis();
+        timestamp += intervalMillis;
+
+        if (pauseRemaining > 0)
+        {
+            pauseRemaining--;
+            return;
+        }
+
+        if (rnd.nextDouble() < pauseProbability)
+        {
+            pauseRemaining = (int)(rnd.nextDouble() * maxPause.toMillis() / intervalMillis);
+            return;
+        }
+
+        heading += rnd.nextGaussian() * HEADING_VARIABILITY;
+        speed += (profile.speed - speed) * SPEED_REVERSION + rnd.nextGaussian() * profile.variability;
+        speed = Math.max(0, speed);
+
+        double elapsedMillis = intervalMillis;
+        if (rnd.nextDouble() < gapProbability)
+        {
+            // the traveller keeps moving while the device isn't recording
+            long gapMillis = minGap.toMillis() + (long)(rnd.nextDouble() * (maxGap.toMillis() - minGap.toMillis()));
+            timestamp += gapMillis;
+            elapsedMillis += gapMillis;
+        }
+
+        double distance = speed * elapsedMillis / 1000.0;
+        lat += distance * Math.cos(heading) / PointUtil.EARTH_DEGREE_LENGTH;
+        lon += distance * Math.sin(heading) / PointUtil.correctedLongitude(PointUtil.EARTH_DEGREE_LENGTH, lat);
+        lon = normalizeLongitude(lon);
+        if (Math.abs(lat) > MAX_LATITUDE)
+        {
+            lat = Math.signum(lat) * MAX_LATITUDE;
+            heading = Math.PI - heading;
+        }
+
+        elevation += rnd.nextGaussian() * 0.1 * distance;
+    }
+
+
+    private static double normalizeLongitude(double value)
+    {
+        while (value > 180.0)
+            value -= 360.0;
+        while (value < -180.0)
+            value += 360.0;
+        return value;
+    }
+
+
+    private static double round(double value, double scale)
+    {
+        return Math.round(value * scale) / scale;
+    }
+}
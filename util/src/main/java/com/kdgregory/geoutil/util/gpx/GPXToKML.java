@@ -29,8 +29,12 @@ import com.kdgregory.geoutil.lib.core.Point;
 import com.kdgregory.geoutil.lib.core.PointUtil;
 import com.kdgregory.geoutil.lib.core.SegmentUtil;
 import com.kdgregory.geoutil.lib.gpx.GpxFile;
+import com.kdgregory.geoutil.lib.gpx.GpxHandler;
+import com.kdgregory.geoutil.lib.gpx.GpxPointCursor;
+import com.kdgregory.geoutil.lib.gpx.GpxReader;
 import com.kdgregory.geoutil.lib.gpx.model.*;
 import com.kdgregory.geoutil.lib.kml.KmlFile;
+import com.kdgregory.geoutil.lib.kml.KmlWriter;
 import com.kdgregory.geoutil.lib.kml.model.*;
 
 
@@ -60,18 +64,24 @@ public class GPXToKML
         File file = new File(argv[0]);
         logger.info("processing file: {}", file);
 
-        GpxFile gpx = new GpxFile(file);
-        KmlFile kml = process(gpx);
+        List<Point> points = extractPoints(file);
+        List<List<Point>> segments = simplifyAndSplit(points);
+        List<Tuple2<String,List<Point>>> namedSegments = assignSegmentsToStyle(segments);
 
         File outputFile = transformFilename(file);
         logger.info("writing to {}", outputFile);
-        kml.write(outputFile);
+        writeOutput(namedSegments, outputFile);
     }
 
 
     protected static KmlFile process(GpxFile gpx)
     {
-        List<Point> points = extractPoints(gpx);
+        return process(extractPoints(gpx));
+    }
+
+
+    protected static KmlFile process(List<Point> points)
+    {
         List<List<Point>> segments = simplifyAndSplit(points);
         List<Tuple2<String,List<Point>>> namedSegments = assignSegmentsToStyle(segments);
         return buildOutput(namedSegments);
@@ -99,6 +109,29 @@ public class GPXToKML
     }
 
 
+    /**
+     *  Extracts points directly from a file, without building a GpxFile.
+     */
+    protected static List<Point> extractPoints(File file)
+    {
+        List<Point> points = new ArrayList<>(8192);
+
+        new GpxReader()
+            .setReuseCursor(true)
+            .read(file, new GpxHandler()
+            {
+                @Override
+                public void onPoint(GpxPointCursor cursor)
+                {
+                    points.add(cursor.toPoint());
+                }
+            });
+
+        logger.debug("extracted {} points", points.size());
+        return points;
+    }
+
+
     protected static List<List<Point>> simplifyAndSplit(List<Point> points)
     {
         points = SegmentUtil.simplify(points, 25);
@@ -143,18 +176,7 @@ public class GPXToKML
 
     protected static KmlFile buildOutput(List<Tuple2<String,List<Point>>> namedSegments)
     {
-        Document doc = new Document()
-                       .addSharedStyle(
-                           new Style().setId(STYLENAME_OUTBOUND)
-                               .setLineStyle(new LineStyle()
-                                   .setColor("FF00FF00")
-                                   .setWidth(6.0)))
-                       .addSharedStyle(
-                           new Style().setId(STYLENAME_RETURN)
-                               .setLineStyle(new LineStyle()
-                                   .setColor("FF0000FF")
-                                   .setWidth(6.0)));
-
+        Document doc = createDocument();
         for (Tuple2<String,List<Point>> namedSegment : namedSegments)
         {
             Point prev = null;
@@ -163,15 +185,7 @@ public class GPXToKML
             {
                 if (prev != null)
                 {
-                    double velocity = PointUtil.velocityMPH(prev, p);
-                    double elevation = p.getElevationOrZero() * 39.37 / 12;
-                    String description = String.format("%s: lat %.4f, lon %.4f, ele %.0f feet, %.1f mph", 
-                                                       String.valueOf(p.getTimestamp()), 
-                                                       p.getLat(), p.getLon(), elevation, velocity);
-                    doc.addFeature(new Placemark()
-                                   .setDescription(description)
-                                   .setStyleRef(curStyle)
-                                   .setGeometry(new LineString(prev, p)));
+                    doc.addFeature(createPlacemark(curStyle, prev, p));
                 }
                 prev = p;
             }
@@ -181,6 +195,62 @@ public class GPXToKML
     }
 
 
+    /**
+     *  Writes the same output as {@link #buildOutput}, but streams each placemark
+     *  to the file as it's created, rather than holding them all in memory.
+     */
+    protected static void writeOutput(List<Tuple2<String,List<Point>>> namedSegments, File file)
+    {
+        try (KmlWriter writer = new KmlWriter(file))
+        {
+            writer.startKml().startDocument(createDocument());
+            for (Tuple2<String,List<Point>> namedSegment : namedSegments)
+            {
+                Point prev = null;
+                String curStyle = namedSegment.get0();
+                for (Point p : namedSegment.get1())
+                {
+                    if (prev != null)
+                    {
+                        writer.writePlacemark(createPlacemark(curStyle, prev, p));
+                    }
+                    prev = p;
+                }
+            }
+        }
+    }
+
+
+    private static Document createDocument()
+    {
+        return new Document()
+               .addSharedStyle(
+                   new Style().setId(STYLENAME_OUTBOUND)
+                       .setLineStyle(new LineStyle()
+                           .setColor("FF00FF00")
+                           .setWidth(6.0)))
+               .addSharedStyle(
+                   new Style().setId(STYLENAME_RETURN)
+                       .setLineStyle(new LineStyle()
+                           .setColor("FF0000FF")
+                           .setWidth(6.0)));
+    }
+
+
+    private static Placemark createPlacemark(String style, Point prev, Point p)
+    {
+        double velocity = PointUtil.velocityMPH(prev, p);
+        double elevation = p.getElevationOrZero() * 39.37 / 12;
+        String description = String.format("%s: lat %.4f, lon %.4f, ele %.0f feet, %.1f mph", 
+                                           String.valueOf(p.getTimestamp()), 
+                                           p.getLat(), p.getLon(), elevation, velocity);
+        return new Placemark()
+               .setDescription(description)
+               .setStyleRef(style)
+               .setGeometry(new LineString(prev, p));
+    }
+
+
     private static File transformFilename(File src)
     {
         String srcName = src.getAbsolutePath();
@@ -16,7 +16,11 @@ package com.kdgregory.geoutil.util.gpx;
 
 import java.io.File;
 
-import com.kdgregory.geoutil.lib.gpx.GpxFile;
+import com.kdgregory.geoutil.lib.core.PointArray;
+import com.kdgregory.geoutil.lib.core.TrackStats;
+import com.kdgregory.geoutil.lib.gpx.GpxHandler;
+import com.kdgregory.geoutil.lib.gpx.GpxPointCursor;
+import com.kdgregory.geoutil.lib.gpx.GpxReader;
 import com.kdgregory.geoutil.lib.gpx.model.*;
 
 
@@ -24,6 +28,10 @@ import com.kdgregory.geoutil.lib.gpx.model.*;
  *  Calculates the length of all tracks in a set of GPX files, using latitude-adjusted
  *  Pythagorean distance between successive points.
  *  <p>
+ *  Files are streamed, so memory use does not depend on file size. Points are
+ *  measured in the order that they appear in the file, including the distance
+ *  between the last point of one segment and the first point of the next.
+ *  <p>
  *  Invocation:
  *
  *      GPXTrackLength FILENAME [...]
@@ -42,21 +50,46 @@ public class GPXTrackLength
 
     private static void describeTracks(File file)
     {
-        GpxFile gpx = new GpxFile(file);
-        for (Track track : gpx.getTracks())
-        {
-            double trackLength = calculateTrackLength(track);
-            System.out.println(String.format("%s: %-60s %8.2f", file, track.getName(), trackLength));
-        }
+        new GpxReader()
+            .setReuseCursor(true)
+            .read(file, new TrackLengthHandler(file));
     }
 
 
-    private static double calculateTrackLength(Track track)
+    /**
+     *  Accumulates the distance between points in each track, and reports it
+     *  at the end of the track.
+     */
+    private static class TrackLengthHandler
+    implements GpxHandler
     {
-        track.combineSegments();
-        if (track.getSegments().size() == 0)
-            return 0;
+        private File file;
+        private TrackStats stats;
+
+        public TrackLengthHandler(File file)
+        {
+            this.file = file;
+        }
+
+        @Override
+        public void onTrackStart(Track track)
+        {
+            stats = new TrackStats();
+        }
 
-        return track.getSegments().get(0).distance() / 1609.34;
+        @Override
+        public void onPoint(GpxPointCursor cursor)
+        {
+            long timestamp = (cursor.getTimestamp() != null)
+                           ? cursor.getTimestampMillis()
+                           : PointArray.NO_TIMESTAMP;
+            stats.add(cursor.getLat(), cursor.getLon(), cursor.getElevation(), timestamp);
+        }
+
+        @Override
+        public void onTrackEnd(Track track)
+        {
+            System.out.println(String.format("%s: %-60s %8.2f", file, track.getName(), stats.getDistance() / 1609.34));
+        }
     }
 }
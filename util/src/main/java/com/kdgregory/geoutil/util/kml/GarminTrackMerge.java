@@ -52,10 +52,13 @@ public class GarminTrackMerge
         KmlFile[] sources = new KmlFile[2];
         List<Point>[] srcTracks = new List[2];
 
+        // we only need the track points, so don't spend time on styles and descriptions
+        KmlReader reader = new KmlReader().setSkipStyles(true).setSkipDescriptions(true);
+
         for (int argidx = 0 ; argidx < 2 ; argidx++)
         {
             File file = new File(argv[argidx]);
-            sources[argidx] = KmlFile.parse(file);
+            sources[argidx] = reader.read(file);
             srcTracks[argidx] = extractTrack(sources[argidx]);
             logger.info("extracted {} points from {}", srcTracks[argidx].size(), file);
         }
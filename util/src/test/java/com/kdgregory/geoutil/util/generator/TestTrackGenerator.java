@@ -0,0 +1,134 @@
+// Copyright Keith D Gregory
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.kdgregory.geoutil.util.generator;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.kdgregory.geoutil.lib.core.Point;
+import com.kdgregory.geoutil.lib.core.PointUtil;
+import com.kdgregory.geoutil.lib.core.SegmentUtil;
+import com.kdgregory.geoutil.lib.gpx.GpxFile;
+import com.kdgregory.geoutil.lib.gpx.model.GpxPoint;
+import com.kdgregory.geoutil.lib.gpx.model.Track;
+import com.kdgregory.geoutil.lib.kml.KmlFile;
+import com.kdgregory.geoutil.lib.kml.fieldtypes.Coordinates;
+import com.kdgregory.geoutil.lib.kml.model.LineString;
+import com.kdgregory.geoutil.lib.kml.model.Placemark;
+import com.kdgregory.geoutil.util.generator.TrackGenerator.SpeedProfile;
+
+
+public class TestTrackGenerator
+{
+    @Test
+    public void testRepeatable() throws Exception
+    {
+        List<Point> p1 = new TrackGenerator().setSeed(123).generate(1000);
+        List<Point> p2 = new TrackGenerator().setSeed(123).generate(1000);
+        List<Point> p3 = new TrackGenerator().setSeed(456).generate(1000);
+
+        assertEquals("same seed",           p1,     p2);
+        assertFalse("different seed",               p1.equals(p3));
+        assertTrue("first point near start",        PointUtil.pythagoreanDistance(new Point(39.95237, -75.16358), p1.get(0)) < 20);
+    }
+
+
+    @Test
+    public void testRealism() throws Exception
+    {
+        List<Point> points = new TrackGenerator()
+                             .setSeed(42)
+                             .setSpeedProfile(SpeedProfile.CYCLE)
+                             .setGaps(0.001, Duration.ofMinutes(15), Duration.ofMinutes(30))
+                             .generate(20000);
+
+        int gaps = 0;
+        int stationary = 0;
+        for (int ii = 1 ; ii < points.size() ; ii++)
+        {
+            Point prev = points.get(ii - 1);
+            Point curr = points.get(ii);
+            long elapsed = curr.getTimestampMillis() - prev.getTimestampMillis();
+            assertTrue("timestamps increase at " + ii, elapsed >= 1000);
+            if (elapsed > 1000)
+            {
+                gaps++;
+                continue;
+            }
+
+            double distance = PointUtil.pythagoreanDistance(prev, curr);
+            assertTrue("plausible distance at " + ii + ": " + distance, distance < 50);
+            if (distance < 15)
+                stationary++;
+        }
+
+        assertTrue("has gaps (was: " + gaps + ")",                          gaps > 5);
+        assertEquals("split into segments",                                 gaps + 1, SegmentUtil.split(points, Duration.ofMinutes(10)).size());
+        assertTrue("has pauses (was: " + stationary + ")",                  stationary > 100);
+        assertTrue("moves at cycling speed",                                SegmentUtil.pythagoreanDistance(points) > 20000 * 4);
+    }
+
+
+    @Test
+    public void testWriteGpx() throws Exception
+    {
+        File file = File.createTempFile("TestTrackGenerator", ".gpx");
+        file.deleteOnExit();
+
+        new TrackGenerator().setSeed(99).writeGpx(file, 5000);
+        List<Point> expected = new TrackGenerator().setSeed(99).generate(5000);
+
+        GpxFile gpx = new GpxFile(file);
+        assertEquals("number of tracks", 1, gpx.getTracks().size());
+
+        Track track = gpx.getTracks().get(0);
+        assertEquals("number of segments",  1,          track.getSegments().size());
+        assertEquals("track type",          "walk",     track.getType());
+
+        List<GpxPoint> actual = track.getSegments().get(0).getPoints();
+        assertEquals("number of points", expected.size(), actual.size());
+        for (int ii = 0 ; ii < expected.size() ; ii++)
+        {
+            assertEquals("point " + ii, expected.get(ii), actual.get(ii).getPoint());
+        }
+    }
+
+
+    @Test
+    public void testWriteKml() throws Exception
+    {
+        File file = File.createTempFile("TestTrackGenerator", ".kml");
+        file.deleteOnExit();
+
+        new TrackGenerator().setSeed(99).writeKml(file, 5000);
+        List<Point> expected = new TrackGenerator().setSeed(99).generate(5000);
+
+        KmlFile kml = KmlFile.parse(file);
+        List<Placemark> placemarks = kml.find(Placemark.class, "Generated Track");
+        assertEquals("number of placemarks", 1, placemarks.size());
+
+        List<Coordinates> actual = ((LineString)placemarks.get(0).getGeometry()).getCoordinates();
+        assertEquals("number of points", expected.size(), actual.size());
+        for (int ii = 0 ; ii < expected.size() ; ii++)
+        {
+            Point p = expected.get(ii);
+            assertEquals("point " + ii, new Point(p.getLat(), p.getLon(), p.getElevation(), null), new Point(actual.get(ii)));
+        }
+    }
+}
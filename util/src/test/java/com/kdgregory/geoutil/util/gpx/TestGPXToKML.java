@@ -14,8 +14,11 @@
 
 package com.kdgregory.geoutil.util.gpx;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -64,6 +67,16 @@ public class TestGPXToKML
     }
 
 
+    @Test
+    public void testExtractPointsFromFile() throws Exception
+    {
+        File file = new File(getClass().getClassLoader().getResource("testdata.gpx").toURI());
+        List<Point> points = GPXToKML.extractPoints(file);
+
+        assertEquals("same as extracting from GpxFile", GPXToKML.extractPoints(gpxFile), points);
+    }
+
+
     @Test
     public void testSimplifyAndSplit() throws Exception
     {
@@ -182,4 +195,24 @@ public class TestGPXToKML
                 assertEquals("point " + ii + " style", "return", placemarks.get(ii).getStyleRef());
         }
     }
+
+
+    @Test
+    public void testWriteOutput() throws Exception
+    {
+        List<Point> points = GPXToKML.extractPoints(gpxFile);
+        List<List<Point>> segments = GPXToKML.simplifyAndSplit(points);
+        List<Tuple2<String,List<Point>>> namedSegments = GPXToKML.assignSegmentsToStyle(segments);
+
+        File expectedFile = File.createTempFile("TestGPXToKML", ".kml");
+        expectedFile.deleteOnExit();
+        GPXToKML.buildOutput(namedSegments).write(expectedFile);
+
+        File actualFile = File.createTempFile("TestGPXToKML", ".kml");
+        actualFile.deleteOnExit();
+        GPXToKML.writeOutput(namedSegments, actualFile);
+
+        assertTrue("streamed output is same as DOM output",
+                   Arrays.equals(Files.readAllBytes(expectedFile.toPath()), Files.readAllBytes(actualFile.toPath())));
+    }
 }